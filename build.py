@@ -262,6 +262,7 @@ CTX.INPUT['executors'] = """
  aggregateexecutor.cpp
  deleteexecutor.cpp
  executorutil.cpp
+ hashjoinexecutor.cpp
  indexcountexecutor.cpp
  indexscanexecutor.cpp
  insertexecutor.cpp
@@ -284,6 +285,7 @@ CTX.INPUT['executors'] = """
 
 CTX.INPUT['expressions'] = """
  abstractexpression.cpp
+ compiledexpression.cpp
  expressionutil.cpp
  functionexpression.cpp
  geofunctions.cpp
@@ -303,6 +305,7 @@ CTX.INPUT['plannodes'] = """
  abstractscannode.cpp
  aggregatenode.cpp
  deletenode.cpp
+ hashjoinnode.cpp
  indexscannode.cpp
  indexcountnode.cpp
  tablecountnode.cpp
@@ -355,6 +358,7 @@ CTX.INPUT['storage'] = """
  tableutil.cpp
  temptable.cpp
  TempTableLimits.cpp
+ TempTableSpillFile.cpp
  TupleStreamBase.cpp
  ExportTupleStream.cpp
  DRTupleStream.cpp
@@ -458,13 +462,18 @@ if whichtests in ("${eetestsuite}", "executors"):
     CTX.TESTS['executors'] = """
     OptimizedProjectorTest
     MergeReceiveExecutorTest
+    HashJoinExecutorTest
+    TempTableSpillTest
+    OrderByExecutorTest
     """
 
 
 if whichtests in ("${eetestsuite}", "expressions"):
     CTX.TESTS['expressions'] = """
+     compiled_expression_test
      expression_test
      function_test
+     CompiledExpressionBenchmark
     """
 
 if whichtests in ("${eetestsuite}", "indexes"):
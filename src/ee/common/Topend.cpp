@@ -50,7 +50,9 @@ namespace voltdb {
             PlanNodeType planNodeType,
             int64_t tuplesFound,
             int64_t currMemoryInBytes,
-            int64_t peakMemoryInBytes) {
+            int64_t peakMemoryInBytes,
+            int64_t spilledBytes,
+            int64_t spillTimeNanos) {
         return 1000000000; // larger means less likely/frequent callbacks to ignore
     }
 
@@ -51,7 +51,9 @@ class Topend {
                 PlanNodeType planNodeType,
                 int64_t tuplesProcessed,
                 int64_t currMemoryInBytes,
-                int64_t peakMemoryInBytes) = 0;
+                int64_t peakMemoryInBytes,
+                int64_t spilledBytes,
+                int64_t spillTimeNanos) = 0;
 
     virtual std::string planForFragmentId(int64_t fragmentId) = 0;
 
@@ -96,7 +98,9 @@ public:
             PlanNodeType planNodeType,
             int64_t tuplesFound,
             int64_t currMemoryInBytes,
-            int64_t peakMemoryInBytes);
+            int64_t peakMemoryInBytes,
+            int64_t spilledBytes,
+            int64_t spillTimeNanos);
 
     std::string planForFragmentId(int64_t fragmentId);
 
@@ -191,6 +191,7 @@ enum PlanNodeType {
     //
     PLAN_NODE_TYPE_NESTLOOP         = 20,
     PLAN_NODE_TYPE_NESTLOOPINDEX    = 21,
+    PLAN_NODE_TYPE_HASHJOIN         = 22,
 
     //
     // Operator Nodes
@@ -485,7 +486,8 @@ enum TaskType {
     TASK_TYPE_SET_DR_PROTOCOL_VERSION = 3,
     TASK_TYPE_SP_JAVA_GET_DRID_TRACKER = 4,      // not supported in EE
     TASK_TYPE_SET_DRID_TRACKER = 5,              // not supported in EE
-    TASK_TYPE_GENERATE_DR_EVENT = 6
+    TASK_TYPE_GENERATE_DR_EVENT = 6,
+    TASK_TYPE_GET_TEMP_TABLE_SPILL_STATS = 7
 };
 
 // ------------------------------------------------------------------
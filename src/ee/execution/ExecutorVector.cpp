@@ -96,6 +96,8 @@ boost::shared_ptr<ExecutorVector> ExecutorVector::fromJsonPlan(VoltDBEngine* eng
     boost::shared_ptr<ExecutorVector> ev(new ExecutorVector(fragId,
                                                             tempTableLogLimit,
                                                             tempTableMemoryLimit,
+                                                            engine->tempTableSpillLimit(),
+                                                            engine->tempTableSpillDirectory(),
                                                             pnf));
     ev->init(engine);
     return ev;
@@ -174,7 +176,10 @@ void ExecutorVector::initPlanNode(VoltDBEngine* engine, AbstractPlanNode* node)
 void ExecutorVector::setupContext(ExecutorContext* executorContext)
     { executorContext->setupForExecutors(&m_subplanExecListMap); }
 
-void ExecutorVector::resetLimitStats() { m_limits.resetPeakMemory(); }
+void ExecutorVector::resetLimitStats() {
+    m_limits.resetPeakMemory();
+    m_limits.resetSpillStats();
+}
 
 const std::vector<AbstractExecutor*>& ExecutorVector::getExecutorList(int planId) {
     assert(m_subplanExecListMap.find(planId) != m_subplanExecListMap.end());
@@ -115,9 +115,11 @@ private:
     ExecutorVector(int64_t fragmentId,
                    int64_t logThreshold,
                    int64_t memoryLimit,
+                   int64_t spillLimit,
+                   const std::string& spillDirectory,
                    PlanNodeFragment* fragment)
         : m_fragId(fragmentId)
-        , m_limits(memoryLimit, logThreshold)
+        , m_limits(memoryLimit, logThreshold, spillLimit, spillDirectory)
         , m_fragment(fragment)
     { }
 
@@ -98,7 +98,7 @@ JNITopend::JNITopend(JNIEnv *env, jobject caller) : m_jniEnv(env), m_javaExecuti
         throw std::exception();
     }
 
-    m_fragmentProgressUpdateMID = m_jniEnv->GetMethodID(jniClass, "fragmentProgressUpdate", "(IIJJJ)J");
+    m_fragmentProgressUpdateMID = m_jniEnv->GetMethodID(jniClass, "fragmentProgressUpdate", "(IIJJJJJ)J");
     if (m_fragmentProgressUpdateMID == NULL) {
         m_jniEnv->ExceptionDescribe();
         assert(m_fragmentProgressUpdateMID != 0);
@@ -275,14 +275,18 @@ int64_t JNITopend::fragmentProgressUpdate(
                 PlanNodeType planNodeType,
                 int64_t tuplesProcessed,
                 int64_t currMemoryInBytes,
-                int64_t peakMemoryInBytes) {
+                int64_t peakMemoryInBytes,
+                int64_t spilledBytes,
+                int64_t spillTimeNanos) {
     jlong nextStep = m_jniEnv->CallLongMethod(m_javaExecutionEngine,
                                               m_fragmentProgressUpdateMID,
                                               batchIndex,
                                               static_cast<int32_t>(planNodeType),
                                               tuplesProcessed,
                                               currMemoryInBytes,
-                                              peakMemoryInBytes);
+                                              peakMemoryInBytes,
+                                              spilledBytes,
+                                              spillTimeNanos);
     return (int64_t)nextStep;
 }
 
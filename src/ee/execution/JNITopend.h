@@ -37,7 +37,9 @@ public:
                 PlanNodeType planNodeType,
                 int64_t tuplesProcessed,
                 int64_t currMemoryInBytes,
-                int64_t peakMemoryInBytes);
+                int64_t peakMemoryInBytes,
+                int64_t spilledBytes,
+                int64_t spillTimeNanos);
     std::string planForFragmentId(int64_t fragmentId);
     void crashVoltDB(FatalException e);
     int64_t getQueuedExportBytes(int32_t partitionId, std::string signature);
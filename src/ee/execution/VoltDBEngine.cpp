@@ -98,6 +98,7 @@
 
 #include <sstream>
 #include <locale>
+#include <time.h>
 #include <typeinfo>
 
 ENABLE_BOOST_FOREACH_ON_CONST_MAP(Column);
@@ -149,6 +150,9 @@ VoltDBEngine::VoltDBEngine(Topend *topend, LogProxy *logProxy)
       m_currentUndoQuantum(NULL),
       m_partitionId(-1),
       m_hashinator(NULL),
+      m_spillingFragmentCount(0),
+      m_totalSpilledBytes(0),
+      m_totalSpillTimeNanos(0),
       m_staticParams(MAX_PARAM_COUNT),
       m_pfCount(0),
       m_currentInputDepId(-1),
@@ -180,12 +184,16 @@ VoltDBEngine::initialize(int32_t clusterIndex,
                          int64_t tempTableMemoryLimit,
                          int64_t networkBufferSize,
                          bool createDrReplicatedStream,
-                         int32_t compactionThreshold)
+                         int32_t compactionThreshold,
+                         int64_t tempTableSpillLimit,
+                         std::string tempTableSpillDirectory)
 {
     m_clusterIndex = clusterIndex;
     m_siteId = siteId;
     m_partitionId = partitionId;
     m_tempTableMemoryLimit = tempTableMemoryLimit;
+    m_tempTableSpillLimit = tempTableSpillLimit;
+    m_tempTableSpillDirectory = tempTableSpillDirectory;
     m_resultOutput.setNetworkBufferSize(networkBufferSize);
     m_compactionThreshold = compactionThreshold;
 
@@ -363,6 +371,8 @@ void VoltDBEngine::serializeTable(int32_t tableId, SerializeOutput& out) const
  * @param uniqueId              The unique id, taken directly from the JNI call.
  * @param undoToken             The undo token, taken directly from
  *                              the JNI call
+ * @param timeFragments         Whether to write the nanoseconds each fragment
+ *                              took after the results of the batch.
  */
 int VoltDBEngine::executePlanFragments(int32_t numFragments,
                                        int64_t planfragmentIds[],
@@ -372,7 +382,8 @@ int VoltDBEngine::executePlanFragments(int32_t numFragments,
                                        int64_t spHandle,
                                        int64_t lastCommittedSpHandle,
                                        int64_t uniqueId,
-                                       int64_t undoToken)
+                                       int64_t undoToken,
+                                       bool timeFragments)
 {
     // count failures
     int failures = 0;
@@ -404,7 +415,8 @@ int VoltDBEngine::executePlanFragments(int32_t numFragments,
                                 lastCommittedSpHandle,
                                 uniqueId,
                                 m_currentIndexInBatch == 0,
-                                m_currentIndexInBatch == (numFragments - 1))) {
+                                m_currentIndexInBatch == (numFragments - 1),
+                                timeFragments)) {
             ++failures;
             break;
         }
@@ -427,10 +439,16 @@ int VoltDBEngine::executePlanFragment(int64_t planfragmentId,
                                       int64_t lastCommittedSpHandle,
                                       int64_t uniqueId,
                                       bool first,
-                                      bool last)
+                                      bool last,
+                                      bool timeFragments)
 {
     assert(planfragmentId != 0);
 
+    timespec startTime = {0, 0};
+    if (timeFragments) {
+        clock_gettime(CLOCK_MONOTONIC, &startTime);
+    }
+
     m_currentInputDepId = static_cast<int32_t>(inputDependencyId);
 
     /*
@@ -443,6 +461,9 @@ int VoltDBEngine::executePlanFragment(int64_t planfragmentId,
         m_startOfResultBuffer = m_resultOutput.reserveBytes(sizeof(int32_t)
                                                             + sizeof(int8_t));
         m_dirtyFragmentBatch = false;
+        if (timeFragments) {
+            m_fragmentNanos.clear();
+        }
     }
 
     // In version 5.0, fragments may trigger execution of other fragments.
@@ -506,9 +527,21 @@ int VoltDBEngine::executePlanFragment(int64_t planfragmentId,
         m_dirtyFragmentBatch = true;
     }
 
+    if (timeFragments) {
+        timespec endTime;
+        clock_gettime(CLOCK_MONOTONIC, &endTime);
+        m_fragmentNanos.push_back((endTime.tv_sec - startTime.tv_sec) * 1000000000LL +
+                                  (endTime.tv_nsec - startTime.tv_nsec));
+    }
+
     // write dirty-ness of the batch and number of dependencies output to the FRONT of
-    // the result buffer
+    // the result buffer, the time of each fragment goes after the results if asked for
     if (last) {
+        if (timeFragments) {
+            for (size_t i = 0; i < m_fragmentNanos.size(); ++i) {
+                m_resultOutput.writeLong(m_fragmentNanos[i]);
+            }
+        }
         m_resultOutput.writeIntAt(m_startOfResultBuffer, static_cast<int32_t>(m_resultOutput.position() - m_startOfResultBuffer) - sizeof(int32_t) - sizeof(int8_t));
         m_resultOutput.writeBoolAt(m_startOfResultBuffer + sizeof(int32_t), m_dirtyFragmentBatch);
     }
@@ -539,6 +572,12 @@ void VoltDBEngine::resetExecutionMetadata() {
     DEBUG_ASSERT_OR_THROW_OR_CRASH(m_executorContext->allOutputTempTablesAreEmpty(),
                                    "Output temp tables not cleaned up after execution");
 
+    const TempTableLimits& limits = m_currExecutorVec->limits();
+    if (limits.getSpilledBytes() > 0) {
+        ++m_spillingFragmentCount;
+        m_totalSpilledBytes += limits.getSpilledBytes();
+        m_totalSpillTimeNanos += limits.getSpillTimeNanos();
+    }
     m_currExecutorVec->resetLimitStats();
     m_currExecutorVec = NULL;
 }
@@ -1157,6 +1196,45 @@ VoltDBEngine::loadTable(int32_t tableId,
     return true;
 }
 
+bool VoltDBEngine::bulkLoadTable(int32_t tableId, ReferenceSerializeInputBE &serializeIn)
+{
+    // No undo quantum: a failed bulk load is not rolled back, the rejoin fails.
+    m_executorContext->setupForPlanFragments(NULL, 0, 0, 0, 0);
+
+    PersistentTable* table = dynamic_cast<PersistentTable*>(getTable(tableId));
+    if (table == NULL) {
+        VOLT_ERROR("Table ID %d doesn't exist or is not a persistent table."
+                   " Could not bulk load data", (int) tableId);
+        return false;
+    }
+
+    // A table that already has data is loaded the regular way.
+    table->suspendIndexes();
+    try {
+        table->loadTuplesFrom(serializeIn, NULL, NULL, false);
+    } catch (const SerializableEEException &e) {
+        throwFatalException("%s", e.message().c_str());
+    }
+    return true;
+}
+
+bool VoltDBEngine::finishBulkLoad(int32_t tableId)
+{
+    PersistentTable* table = dynamic_cast<PersistentTable*>(getTable(tableId));
+    if (table == NULL) {
+        VOLT_ERROR("Table ID %d doesn't exist or is not a persistent table."
+                   " Could not finish bulk load", (int) tableId);
+        return false;
+    }
+
+    try {
+        table->rebuildSuspendedIndexes();
+    } catch (const SerializableEEException &e) {
+        throwFatalException("%s", e.message().c_str());
+    }
+    return true;
+}
+
 /*
  * Delete and rebuild id based table collections. Does not affect
  * any currently stored tuples.
@@ -1923,6 +2001,12 @@ void VoltDBEngine::executeTask(TaskType taskType, ReferenceSerializeInputBE &tas
         }
         break;
     }
+    case TASK_TYPE_GET_TEMP_TABLE_SPILL_STATS:
+        m_resultOutput.writeInt(static_cast<int32_t>(3 * sizeof(int64_t)));
+        m_resultOutput.writeLong(m_spillingFragmentCount);
+        m_resultOutput.writeLong(m_totalSpilledBytes);
+        m_resultOutput.writeLong(m_totalSpillTimeNanos);
+        break;
     default:
         throwFatalException("Unknown task type %d", taskType);
     }
@@ -1963,7 +2047,9 @@ void VoltDBEngine::reportProgressToTopend() {
                                         m_lastAccessedPlanNodeType,
                                         m_tuplesProcessedInBatch + m_tuplesProcessedInFragment,
                                         m_currExecutorVec->limits().getAllocated(),
-                                        m_currExecutorVec->limits().getPeakMemoryInBytes());
+                                        m_currExecutorVec->limits().getPeakMemoryInBytes(),
+                                        m_currExecutorVec->limits().getSpilledBytes(),
+                                        m_currExecutorVec->limits().getSpillTimeNanos());
     m_tuplesProcessedSinceReport = 0;
 
     if (tupleReportThreshold < 0) {
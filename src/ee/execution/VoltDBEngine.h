@@ -118,7 +118,9 @@ class __attribute__((visibility("default"))) VoltDBEngine {
                         int64_t tempTableMemoryLimit,
                         int64_t networkBufferSize,
                         bool createDrReplicatedStream,
-                        int32_t compactionThreshold = 95);
+                        int32_t compactionThreshold = 95,
+                        int64_t tempTableSpillLimit = -1,
+                        std::string tempTableSpillDirectory = "");
         virtual ~VoltDBEngine();
 
         // ------------------------------------------------------------------
@@ -154,7 +156,8 @@ class __attribute__((visibility("default"))) VoltDBEngine {
                                  int64_t spHandle,
                                  int64_t lastCommittedSpHandle,
                                  int64_t uniqueId,
-                                 int64_t undoToken);
+                                 int64_t undoToken,
+                                 bool timeFragments);
 
         int getUsedParamcnt() const { return m_usedParamcnt; }
 
@@ -200,6 +203,18 @@ class __attribute__((visibility("default"))) VoltDBEngine {
                        bool returnUniqueViolations,
                        bool shouldDRStream);
 
+        /**
+        * Load table data into an empty persistent table outside of any transaction,
+        * without undo or DR. The indexes of the table are suspended by the first
+        * call and built by finishBulkLoad() once all the data is loaded.
+        */
+        bool bulkLoadTable(int32_t tableId, ReferenceSerializeInputBE &serializeIn);
+
+        /**
+        * Build the indexes suspended by bulkLoadTable().
+        */
+        bool finishBulkLoad(int32_t tableId);
+
         void resetReusedResultOutputBuffer(const size_t headerSize = 0);
         ReferenceSerializeOutput* getExceptionOutputSerializer() { return &m_exceptionOutput; }
         void setBuffers(char *parameter_buffer, int m_parameterBuffercapacity,
@@ -403,6 +418,28 @@ class __attribute__((visibility("default"))) VoltDBEngine {
             return (m_tempTableMemoryLimit * 3) / 4;
         }
 
+        int64_t tempTableSpillLimit() const {
+            return m_tempTableSpillLimit;
+        }
+
+        const std::string& tempTableSpillDirectory() const {
+            return m_tempTableSpillDirectory;
+        }
+
+        /// Fragments that spilled temp table data, the bytes they wrote to
+        /// scratch files and the time spent on scratch file I/O since startup.
+        int64_t spillingFragmentCount() const {
+            return m_spillingFragmentCount;
+        }
+
+        int64_t totalSpilledBytes() const {
+            return m_totalSpilledBytes;
+        }
+
+        int64_t totalSpillTimeNanos() const {
+            return m_totalSpillTimeNanos;
+        }
+
         int32_t getPartitionId() const {
             return m_partitionId;
         }
@@ -442,7 +479,8 @@ class __attribute__((visibility("default"))) VoltDBEngine {
                                 int64_t lastCommittedSpHandle,
                                 int64_t uniqueId,
                                 bool first,
-                                bool last);
+                                bool last,
+                                bool timeFragments);
 
         /**
          * Set up the vector of executors for a given fragment id.
@@ -477,7 +515,18 @@ class __attribute__((visibility("default"))) VoltDBEngine {
         int32_t m_clusterIndex;
         boost::scoped_ptr<TheHashinator> m_hashinator;
         size_t m_startOfResultBuffer;
+        // Nanoseconds each fragment of the current batch took, written after
+        // the results of the batch when the caller asks for them
+        std::vector<int64_t> m_fragmentNanos;
         int64_t m_tempTableMemoryLimit;
+        // Bytes of temp table data each fragment may spill to files in
+        // m_tempTableSpillDirectory. Non-positive disables spilling.
+        int64_t m_tempTableSpillLimit;
+        std::string m_tempTableSpillDirectory;
+        // Spilling totals, folded in from each fragment's limits as it finishes
+        int64_t m_spillingFragmentCount;
+        int64_t m_totalSpilledBytes;
+        int64_t m_totalSpillTimeNanos;
 
         /*
          * Catalog delegates hashed by path.
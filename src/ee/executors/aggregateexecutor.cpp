@@ -789,11 +789,52 @@ void AggregateExecutorBase::p_execute_finish()
 
 AggregateHashExecutor::~AggregateHashExecutor() {}
 
+namespace {
+
+// number of partitions, as a power of 2, the new groups are spilled to
+const int SPILL_PARTITION_BITS = 4;
+const size_t SPILL_PARTITION_COUNT = 1 << SPILL_PARTITION_BITS;
+// partitioning stops once the bits of a 32 bit hash are used up
+const int MAX_SPILL_LEVEL = 32 / SPILL_PARTITION_BITS;
+// how many new groups between checks of the memory used by the groups
+const size_t SPILL_CHECK_INTERVAL = 1024;
+// buffer size for writing and reading each spilled partition
+const size_t SPILL_PARTITION_BUFFER_SIZE = 64 * 1024;
+
+}
+
+bool AggregateHashExecutor::p_init(AbstractPlanNode* abstract_node, TempTableLimits* limits)
+{
+    if (!AggregateExecutorBase::p_init(abstract_node, limits)) {
+        return false;
+    }
+    m_limits = limits;
+    if (!abstract_node->isInline()) {
+        // The input is read once and only copies of its tuples are kept,
+        // so its cold blocks may go to disk.
+        TempTable* input_table = dynamic_cast<TempTable*>(abstract_node->getInputTable());
+        if (input_table != NULL) {
+            input_table->setSpillable(true);
+        }
+    }
+    return true;
+}
+
+void AggregateHashExecutor::resetSpill()
+{
+    m_fillingPartitions.clear();
+    m_pendingPartitions.clear();
+    m_spilledPartitions.clear();
+    m_spillFile.reset();
+    m_spillLevel = 0;
+}
+
 TableTuple AggregateHashExecutor::p_execute_init(const NValueArray& params,
         ProgressMonitorProxy* pmp, const TupleSchema * schema, TempTable* newTempTable)
 {
     VOLT_TRACE("hash aggregate executor init..");
     m_hash.clear();
+    resetSpill();
 
     return AggregateExecutorBase::p_execute_init(params, pmp, schema, newTempTable);
 }
@@ -831,6 +872,15 @@ bool AggregateHashExecutor::p_execute_tuple(const TableTuple& nextTuple) {
     // Search for the matching group.
     HashAggregateMapType::const_iterator keyIter = m_hash.find(nextGroupByKeyTuple);
 
+    // Group not found and there is no more room for new groups:
+    // leave this tuple to the aggregation of its partition.
+    if (keyIter == m_hash.end() && !m_fillingPartitions.empty()) {
+        size_t partition = (TableTupleHasher()(nextGroupByKeyTuple) >> (m_spillLevel * SPILL_PARTITION_BITS))
+                % SPILL_PARTITION_COUNT;
+        m_fillingPartitions[partition]->append(nextTuple);
+        return false;
+    }
+
     // Group not found. Make a new entry in the hash for this new group.
     if (keyIter == m_hash.end()) {
         VOLT_TRACE("hash aggregate: new group..");
@@ -848,6 +898,10 @@ bool AggregateHashExecutor::p_execute_tuple(const TableTuple& nextTuple) {
         // so force a new tuple allocation to hold the next candidate key.
         nextGroupByKeyTuple.move(NULL);
 
+        if (m_hash.size() % SPILL_CHECK_INTERVAL == 0 && groupsExceedMemoryLimit()) {
+            startSpilling();
+        }
+
         if (m_aggTypes.size() == 0) {
             insertOutputTuple(aggregateRow);
             return false;
@@ -865,9 +919,32 @@ bool AggregateHashExecutor::p_execute_tuple(const TableTuple& nextTuple) {
     return false;
 }
 
-void AggregateHashExecutor::p_execute_finish() {
-    VOLT_TRACE("finalizing..");
+bool AggregateHashExecutor::groupsExceedMemoryLimit()
+{
+    if (m_limits == NULL || !m_limits->spillEnabled() || m_spillLevel >= MAX_SPILL_LEVEL) {
+        return false;
+    }
+    int64_t groupBytes = m_memoryPool.getAllocatedMemory() +
+            m_hash.size() * (sizeof(HashAggregateMapType::value_type) + 2 * sizeof(void*));
+    return !m_limits->hasRoomFor(groupBytes);
+}
 
+void AggregateHashExecutor::startSpilling()
+{
+    VOLT_DEBUG("hash aggregate: spilling new groups at level %d", m_spillLevel);
+    if (!m_spillFile) {
+        m_spillFile.reset(new TempTableSpillFile(m_limits));
+    }
+    for (size_t ii = 0; ii < SPILL_PARTITION_COUNT; ii++) {
+        SpilledTupleStream* partition =
+                new SpilledTupleStream(m_spillFile.get(), m_inputSchema, SPILL_PARTITION_BUFFER_SIZE);
+        m_spilledPartitions.push_back(partition);
+        m_fillingPartitions.push_back(partition);
+    }
+}
+
+void AggregateHashExecutor::finishGroups()
+{
     // If there is no aggregation, results are already inserted already
     if (m_aggTypes.size() != 0) {
         for (HashAggregateMapType::const_iterator iter = m_hash.begin(); iter != m_hash.end(); iter++) {
@@ -878,9 +955,42 @@ void AggregateHashExecutor::p_execute_finish() {
             delete aggregateRow;
         }
     }
+    m_hash.clear();
+
+    BOOST_FOREACH(SpilledTupleStream* partition, m_fillingPartitions) {
+        if (partition->tupleCount() > 0) {
+            partition->rewind();
+            m_pendingPartitions.push_back(std::make_pair(partition, m_spillLevel + 1));
+        }
+    }
+    m_fillingPartitions.clear();
+}
+
+void AggregateHashExecutor::p_execute_finish() {
+    VOLT_TRACE("finalizing..");
+    finishGroups();
+
+    // Aggregate the spilled partitions one at a time, most recent first,
+    // which keeps the number of partitions waiting on disk small.
+    while (!m_pendingPartitions.empty()) {
+        SpilledTupleStream* partition = m_pendingPartitions.back().first;
+        m_spillLevel = m_pendingPartitions.back().second;
+        m_pendingPartitions.pop_back();
+
+        // The groups of the previous partition are gone; start over with an empty pool.
+        m_memoryPool.purge();
+        TableTuple& nextGroupByKeyTuple = m_nextGroupByKeyStorage;
+        nextGroupByKeyTuple.move(NULL);
+
+        TableTuple nextTuple(m_inputSchema);
+        while (partition->next(nextTuple)) {
+            AggregateHashExecutor::p_execute_tuple(nextTuple);
+        }
+        finishGroups();
+    }
 
     // Clean up
-    m_hash.clear();
+    resetSpill();
     AggregateExecutorBase::p_execute_finish();
 }
 
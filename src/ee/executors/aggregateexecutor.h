@@ -54,6 +54,10 @@
 #include "common/tabletuple.h"
 #include "expressions/abstractexpression.h"
 #include "execution/ProgressMonitorProxy.h"
+#include "storage/TempTableSpillFile.h"
+
+#include <boost/ptr_container/ptr_vector.hpp>
+#include <boost/scoped_ptr.hpp>
 
 namespace voltdb {
 
@@ -270,7 +274,7 @@ class AggregateHashExecutor : public AggregateExecutorBase
 {
 public:
     AggregateHashExecutor(VoltDBEngine* engine, AbstractPlanNode* abstract_node) :
-        AggregateExecutorBase(engine, abstract_node) { }
+        AggregateExecutorBase(engine, abstract_node), m_limits(NULL), m_spillLevel(0) { }
 
     // empty destructor defined in .cpp file because of it is called virtually (not inline)
     // same reason for serial and partial
@@ -281,9 +285,39 @@ public:
     bool p_execute_tuple(const TableTuple& nextTuple);
     void p_execute_finish();
 
+protected:
+    virtual bool p_init(AbstractPlanNode*, TempTableLimits*);
+
 private:
     virtual bool p_execute(const NValueArray& params);
+
+    /// Insert the results of the groups in the hash into the output table.
+    void finishGroups();
+    /// True if the groups have outgrown the memory the fragment has left.
+    bool groupsExceedMemoryLimit();
+    /// Send the input tuples of groups not already in the hash to spilled partitions.
+    void startSpilling();
+    void resetSpill();
+
     HashAggregateMapType m_hash;
+
+    /*
+     * Partitioned aggregation for when spilling is enabled and the groups
+     * no longer fit in memory. The groups already in the hash keep
+     * aggregating, while tuples that would start a new group are written
+     * to one of several partitions by hash of their group by key. Each
+     * partition is aggregated on its own once the input is exhausted, and
+     * is partitioned again, on other bits of the hash, if it is still too big.
+     */
+    TempTableLimits* m_limits;
+    boost::scoped_ptr<TempTableSpillFile> m_spillFile;
+    boost::ptr_vector<SpilledTupleStream> m_spilledPartitions;
+    /// The partitions being filled, empty when all groups are kept in memory
+    std::vector<SpilledTupleStream*> m_fillingPartitions;
+    /// The partitions waiting to be aggregated and the level of partitioning they come from
+    std::vector<std::pair<SpilledTupleStream*, int> > m_pendingPartitions;
+    /// How many times the tuples being aggregated have been partitioned
+    int m_spillLevel;
 };
 
 /**
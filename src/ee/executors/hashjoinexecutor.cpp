@@ -0,0 +1,315 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "hashjoinexecutor.h"
+
+#include "common/debuglog.h"
+#include "common/tabletuple.h"
+#include "common/ValuePeeker.hpp"
+#include "executors/aggregateexecutor.h"
+#include "execution/ProgressMonitorProxy.h"
+#include "expressions/abstractexpression.h"
+#include "plannodes/hashjoinnode.h"
+#include "plannodes/limitnode.h"
+#include "storage/table.h"
+#include "storage/temptable.h"
+#include "storage/tableiterator.h"
+#include "storage/TempTableLimits.h"
+
+#include <limits>
+
+using namespace std;
+using namespace voltdb;
+
+namespace {
+
+// Charge the memory of the hash table after this many inserts
+const int32_t CHARGE_INTERVAL = 1024;
+
+/**
+ * Hash the values of the expressions over the tuples. Integer values are hashed
+ * as BIGINT so that the planner can join columns of different integer types.
+ * Returns false if any value is NULL, which can't be equal to anything.
+ */
+inline bool hashKey(const vector<AbstractExpression*>& exprs,
+                    const TableTuple* outer, const TableTuple* inner, size_t& seed)
+{
+    seed = 0;
+    for (int i = 0; i < exprs.size(); i++) {
+        const NValue value = exprs[i]->eval(outer, inner);
+        if (value.isNull()) {
+            return false;
+        }
+        if (isIntegralType(ValuePeeker::peekValueType(value))) {
+            boost::hash_combine(seed, ValuePeeker::peekAsBigInt(value));
+        }
+        else {
+            value.hashCombine(seed);
+        }
+    }
+    return true;
+}
+
+}
+
+HashJoinExecutor::~HashJoinExecutor()
+{
+    releaseHashTable();
+}
+
+bool HashJoinExecutor::p_init(AbstractPlanNode* abstract_node,
+                              TempTableLimits* limits)
+{
+    VOLT_TRACE("init HashJoin Executor");
+
+    HashJoinPlanNode* node = dynamic_cast<HashJoinPlanNode*>(abstract_node);
+    assert(node);
+
+    // Create output table based on output schema from the plan
+    setTempOutputTable(limits);
+
+    assert(m_tmpOutputTable);
+
+    // NULL tuple for outer join
+    if (node->getJoinType() == JOIN_TYPE_LEFT) {
+        Table* inner_table = node->getInputTable(1);
+        assert(inner_table);
+        m_null_tuple.init(inner_table->schema());
+    }
+
+    // Inline aggregation can be serial, partial or hash
+    m_aggExec = voltdb::getInlineAggregateExecutor(m_abstractNode);
+
+    m_limits = limits;
+
+    return true;
+}
+
+void HashJoinExecutor::buildHashTable(Table* inner_table,
+                                      const vector<AbstractExpression*>& innerHashExprs,
+                                      ProgressMonitorProxy& pmp)
+{
+    TableTuple inner_tuple(inner_table->schema());
+    TableIterator iterator1 = inner_table->iterator();
+    while (iterator1.next(inner_tuple)) {
+        pmp.countdownProgress();
+        size_t hash;
+        if ( ! hashKey(innerHashExprs, NULL, &inner_tuple, hash)) {
+            continue;
+        }
+        int32_t index = static_cast<int32_t>(m_buildTuples.size());
+        m_buildTuples.push_back(inner_tuple);
+        m_nextInChain.push_back(-1);
+
+        pair<HashChainMap::iterator, bool> inserted =
+            m_chains.insert(HashChainMap::value_type(hash, make_pair(index, index)));
+        if ( ! inserted.second) {
+            // append to the chain to keep the scan order
+            m_nextInChain[inserted.first->second.second] = index;
+            inserted.first->second.second = index;
+        }
+
+        if (m_buildTuples.size() % CHARGE_INTERVAL == 0) {
+            chargeHashTableMemory();
+        }
+    }
+    chargeHashTableMemory();
+}
+
+void HashJoinExecutor::chargeHashTableMemory()
+{
+    // The tuples themselves stay in the inner table, so the hash table
+    // only costs its own entries and buckets.
+    int64_t bytes = m_buildTuples.capacity() * sizeof(TableTuple) +
+                    m_nextInChain.capacity() * sizeof(int32_t) +
+                    m_chains.size() * (sizeof(HashChainMap::value_type) + 2 * sizeof(void*)) +
+                    m_chains.bucket_count() * sizeof(void*);
+    if (bytes > m_hashTableBytes) {
+        if (m_limits) {
+            m_limits->increaseAllocated(static_cast<int>(bytes - m_hashTableBytes));
+        }
+        m_hashTableBytes = bytes;
+    }
+}
+
+void HashJoinExecutor::releaseHashTable()
+{
+    vector<TableTuple>().swap(m_buildTuples);
+    vector<int32_t>().swap(m_nextInChain);
+    HashChainMap().swap(m_chains);
+    if (m_limits) {
+        while (m_hashTableBytes > 0) {
+            int bytes = static_cast<int>(min<int64_t>(m_hashTableBytes, numeric_limits<int>::max()));
+            m_limits->reduceAllocated(bytes);
+            m_hashTableBytes -= bytes;
+        }
+    }
+    m_hashTableBytes = 0;
+}
+
+bool HashJoinExecutor::p_execute(const NValueArray &params) {
+    VOLT_DEBUG("executing HashJoin...");
+
+    HashJoinPlanNode* node = dynamic_cast<HashJoinPlanNode*>(m_abstractNode);
+    assert(node);
+    assert(node->getInputTableCount() == 2);
+
+    // output table must be a temp table
+    assert(m_tmpOutputTable);
+
+    Table* outer_table = node->getInputTable();
+    assert(outer_table);
+
+    Table* inner_table = node->getInputTable(1);
+    assert(inner_table);
+
+    VOLT_TRACE ("input table left:\n %s", outer_table->debug().c_str());
+    VOLT_TRACE ("input table right:\n %s", inner_table->debug().c_str());
+
+    AbstractExpression *preJoinPredicate = node->getPreJoinPredicate();
+    AbstractExpression *joinPredicate = node->getJoinPredicate();
+    AbstractExpression *wherePredicate = node->getWherePredicate();
+    const vector<AbstractExpression*>& outerHashExprs = node->getOuterHashExpressions();
+    const vector<AbstractExpression*>& innerHashExprs = node->getInnerHashExpressions();
+
+    // Join type
+    JoinType join_type = node->getJoinType();
+    assert(join_type == JOIN_TYPE_INNER || join_type == JOIN_TYPE_LEFT);
+
+    LimitPlanNode* limit_node = dynamic_cast<LimitPlanNode*>(node->getInlinePlanNode(PLAN_NODE_TYPE_LIMIT));
+    int limit = -1;
+    int offset = -1;
+    if (limit_node) {
+        limit_node->getLimitAndOffsetByReference(params, limit, offset);
+    }
+
+    int outer_cols = outer_table->columnCount();
+    int inner_cols = inner_table->columnCount();
+    TableTuple outer_tuple(outer_table->schema());
+    const TableTuple& null_tuple = m_null_tuple.tuple();
+
+    ProgressMonitorProxy pmp(m_engine, this);
+    HashTableGuard guard(*this);
+
+    //
+    // Build phase
+    //
+    buildHashTable(inner_table, innerHashExprs, pmp);
+    VOLT_TRACE("hash table has %d tuples in %d chains",
+               (int)m_buildTuples.size(), (int)m_chains.size());
+
+    //
+    // Probe phase
+    //
+    TableTuple join_tuple;
+    if (m_aggExec != NULL) {
+        VOLT_TRACE("Init inline aggregate...");
+        const TupleSchema * aggInputSchema = node->getTupleSchemaPreAgg();
+        join_tuple = m_aggExec->p_execute_init(params, &pmp, aggInputSchema, m_tmpOutputTable);
+    } else {
+        join_tuple = m_tmpOutputTable->tempTuple();
+    }
+
+    TableIterator iterator0 = outer_table->iteratorDeletingAsWeGo();
+    int tuple_ctr = 0;
+    int tuple_skipped = 0;
+    bool earlyReturned = false;
+    while ((limit == -1 || tuple_ctr < limit) && iterator0.next(outer_tuple)) {
+        pmp.countdownProgress();
+
+        join_tuple.setNValues(0, outer_tuple, 0, outer_cols);
+
+        // did this loop body find at least one match for this tuple?
+        bool match = false;
+        size_t hash;
+        if ((preJoinPredicate == NULL || preJoinPredicate->eval(&outer_tuple, NULL).isTrue()) &&
+            hashKey(outerHashExprs, &outer_tuple, NULL, hash)) {
+
+            HashChainMap::const_iterator chain = m_chains.find(hash);
+            int32_t index = (chain == m_chains.end()) ? -1 : chain->second.first;
+            for (; index != -1 && (limit == -1 || tuple_ctr < limit); index = m_nextInChain[index]) {
+                pmp.countdownProgress();
+                const TableTuple& inner_tuple = m_buildTuples[index];
+                // Equal hashes are only candidates, the join predicate
+                // includes the equalities the hash was computed from
+                if (joinPredicate == NULL || joinPredicate->eval(&outer_tuple, &inner_tuple).isTrue()) {
+                    match = true;
+                    // Filter the joined tuple
+                    if (wherePredicate == NULL || wherePredicate->eval(&outer_tuple, &inner_tuple).isTrue()) {
+                        // Check if we have to skip this tuple because of offset
+                        if (tuple_skipped < offset) {
+                            tuple_skipped++;
+                            continue;
+                        }
+                        ++tuple_ctr;
+                        // Matched! Complete the joined tuple with the inner column values.
+                        join_tuple.setNValues(outer_cols, inner_tuple, 0, inner_cols);
+                        if (m_aggExec != NULL) {
+                            if (m_aggExec->p_execute_tuple(join_tuple)) {
+                                // Get enough rows for LIMIT
+                                earlyReturned = true;
+                                break;
+                            }
+                        } else {
+                            m_tmpOutputTable->insertTempTuple(join_tuple);
+                            pmp.countdownProgress();
+                        }
+                    }
+                }
+            } // END CHAIN LOOP
+        } // END IF PRE JOIN CONDITION
+
+        //
+        // Left Outer Join
+        //
+        if (join_type == JOIN_TYPE_LEFT && !match && (limit == -1 || tuple_ctr < limit)) {
+            // Still needs to pass the filter
+            if (wherePredicate == NULL || wherePredicate->eval(&outer_tuple, &null_tuple).isTrue()) {
+                // Check if we have to skip this tuple because of offset
+                if (tuple_skipped < offset) {
+                    tuple_skipped++;
+                    continue;
+                }
+                ++tuple_ctr;
+                join_tuple.setNValues(outer_cols, null_tuple, 0, inner_cols);
+                if (m_aggExec != NULL) {
+                    if (m_aggExec->p_execute_tuple(join_tuple)) {
+                        earlyReturned = true;
+                    }
+                } else {
+                    m_tmpOutputTable->insertTempTuple(join_tuple);
+                    pmp.countdownProgress();
+                }
+            }
+        } // END IF LEFT OUTER JOIN
+
+        if (earlyReturned) {
+            // Get enough rows for LIMIT inlined with aggregation
+            break;
+        }
+
+    } // END OUTER WHILE LOOP
+
+    if (m_aggExec != NULL) {
+        m_aggExec->p_execute_finish();
+    }
+
+    cleanupInputTempTable(inner_table);
+    cleanupInputTempTable(outer_table);
+
+    return (true);
+}
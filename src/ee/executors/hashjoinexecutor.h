@@ -0,0 +1,87 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef HSTOREHASHJOINEXECUTOR_H
+#define HSTOREHASHJOINEXECUTOR_H
+
+#include "common/common.h"
+#include "common/valuevector.h"
+#include "executors/abstractexecutor.h"
+
+#include "boost/unordered_map.hpp"
+
+#include <vector>
+
+namespace voltdb {
+
+class AggregateExecutorBase;
+class ProgressMonitorProxy;
+
+/**
+ * Executor for PLAN_NODE_TYPE_HASHJOIN. The inner input is read once into a
+ * hash table keyed by the inner hash expressions, then every outer tuple is
+ * matched against the inner tuples with the same hash. The memory of the hash
+ * table is charged to the TempTableLimits of the fragment while it is alive.
+ */
+class HashJoinExecutor : public AbstractExecutor {
+    public:
+        HashJoinExecutor(VoltDBEngine *engine, AbstractPlanNode* abstract_node) :
+            AbstractExecutor(engine, abstract_node),
+            m_aggExec(NULL), m_limits(NULL), m_hashTableBytes(0) { }
+        ~HashJoinExecutor();
+    protected:
+        bool p_init(AbstractPlanNode*,
+                    TempTableLimits* limits);
+        bool p_execute(const NValueArray &params);
+
+    private:
+        // Releases the hash table when p_execute returns or throws
+        class HashTableGuard {
+            public:
+                HashTableGuard(HashJoinExecutor& executor) : m_executor(executor) { }
+                ~HashTableGuard() { m_executor.releaseHashTable(); }
+            private:
+                HashJoinExecutor& m_executor;
+        };
+
+        void buildHashTable(Table* inner_table, const std::vector<AbstractExpression*>& innerHashExprs,
+                            ProgressMonitorProxy& pmp);
+        void chargeHashTableMemory();
+        void releaseHashTable();
+
+        StandAloneTupleStorage m_null_tuple;
+
+        AggregateExecutorBase* m_aggExec;
+
+        TempTableLimits* m_limits;
+
+        // The inner tuples with non-null keys in scan order. Tuples with the same
+        // hash are chained from the first to the last one in m_nextInChain, so
+        // matches are found in the same order a nestloop join would find them.
+        std::vector<TableTuple> m_buildTuples;
+        std::vector<int32_t> m_nextInChain;
+        // hash -> index of the first and the last tuple of its chain
+        typedef boost::unordered_map<size_t, std::pair<int32_t, int32_t> > HashChainMap;
+        HashChainMap m_chains;
+
+        // Bytes currently charged to m_limits for the hash table
+        int64_t m_hashTableBytes;
+};
+
+}
+
+#endif
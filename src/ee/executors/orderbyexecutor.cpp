@@ -55,8 +55,14 @@
 #include "storage/temptable.h"
 #include "storage/tableiterator.h"
 #include "storage/tablefactory.h"
+#include "storage/TempTableSpillFile.h"
+
+#include <boost/ptr_container/ptr_vector.hpp>
+#include <boost/scoped_array.hpp>
 
 #include <algorithm>
+#include <cstring>
+#include <limits>
 #include <vector>
 
 using namespace voltdb;
@@ -89,6 +95,14 @@ OrderByExecutor::p_init(AbstractPlanNode* abstract_node,
         limit_node =
             dynamic_cast<LimitPlanNode*>(node->
                                      getInlinePlanNode(PLAN_NODE_TYPE_LIMIT));
+
+        // The input is read once and copied before it is sorted when it has
+        // spilled, so its cold blocks may go to disk.
+        m_limits = limits;
+        TempTable* input_table = dynamic_cast<TempTable*>(node->getInputTable());
+        if (input_table != NULL) {
+            input_table->setSpillable(true);
+        }
     } else {
         assert(node->getChildren().empty());
         assert(node->getInlinePlanNode(PLAN_NODE_TYPE_LIMIT) == NULL);
@@ -129,58 +143,322 @@ OrderByExecutor::p_execute(const NValueArray &params)
 
     VOLT_TRACE("Running OrderBy '%s'", m_abstractNode->debug().c_str());
     VOLT_TRACE("Input Table:\n '%s'", input_table->debug().c_str());
+    ProgressMonitorProxy pmp(m_engine, this);
+    TempTable* temp_input_table = dynamic_cast<TempTable*>(input_table);
+    if (temp_input_table != NULL && temp_input_table->hasSpilledBlocks()) {
+        externalSort(node, temp_input_table, output_table, limit, offset, pmp);
+        cleanupInputTempTable(input_table);
+        return true;
+    }
+
+    if (limit >= 0) {
+        topN(node, input_table, output_table, limit, std::max(offset, 0), pmp);
+    }
+    else {
+        fullSort(node, input_table, output_table, offset, pmp);
+    }
+    VOLT_TRACE("Result of OrderBy:\n '%s'", output_table->debug().c_str());
+
+    cleanupInputTempTable(input_table);
+
+    return true;
+}
+
+namespace {
+
+/**
+ * Compares rows by sort keys that were evaluated once per row, rather than
+ * evaluating the sort expressions of both rows on every comparison.
+ */
+struct SortKeyComparer {
+    SortKeyComparer(const vector<SortDirectionType>& dirs) : m_dirs(dirs), m_keyCount(dirs.size()) { }
+
+    bool operator()(const NValue* a, const NValue* b) const {
+        for (size_t i = 0; i < m_keyCount; ++i) {
+            int cmp = a[i].compare(b[i]);
+            if (cmp < 0) return (m_dirs[i] == SORT_DIRECTION_TYPE_ASC);
+            if (cmp > 0) return (m_dirs[i] == SORT_DIRECTION_TYPE_DESC);
+        }
+        return false;
+    }
+
+    const vector<SortDirectionType>& m_dirs;
+    const size_t m_keyCount;
+};
+
+/** A row to sort and the position of its sort keys in a flat key array */
+struct SortEntry {
+    SortEntry(const TableTuple& tuple, size_t keyOffset) : m_tuple(tuple), m_keyOffset(keyOffset) { }
+
+    TableTuple m_tuple;
+    size_t m_keyOffset;
+};
+
+struct SortEntryComparer {
+    SortEntryComparer(const SortKeyComparer& comparer, const vector<NValue>& keys)
+        : m_comparer(comparer), m_keys(keys) { }
+
+    bool operator()(const SortEntry& a, const SortEntry& b) const {
+        return m_comparer(&m_keys[a.m_keyOffset], &m_keys[b.m_keyOffset]);
+    }
+
+    const SortKeyComparer& m_comparer;
+    const vector<NValue>& m_keys;
+};
+
+}
+
+void
+OrderByExecutor::fullSort(OrderByPlanNode* node, Table* input_table, TempTable* output_table,
+                          int offset, ProgressMonitorProxy &pmp)
+{
+    const vector<AbstractExpression*>& sortExprs = node->getSortExpressions();
+    const size_t keyCount = sortExprs.size();
+    SortKeyComparer keyComparer(node->getSortDirections());
+
     TableIterator iterator = input_table->iterator();
     TableTuple tuple(input_table->schema());
-    vector<TableTuple> xs;
-    ProgressMonitorProxy pmp(m_engine, this);
+    vector<SortEntry> xs;
+    vector<NValue> keys;
+    xs.reserve(input_table->activeTupleCount());
+    keys.reserve(input_table->activeTupleCount() * keyCount);
     while (iterator.next(tuple))
     {
         pmp.countdownProgress();
         assert(tuple.isActive());
-        xs.push_back(tuple);
+        xs.push_back(SortEntry(tuple, keys.size()));
+        for (size_t i = 0; i < keyCount; ++i) {
+            keys.push_back(sortExprs[i]->eval(&tuple, NULL));
+        }
     }
     VOLT_TRACE("\n***** Input Table PreSort:\n '%s'",
                input_table->debug().c_str());
 
+    sort(xs.begin(), xs.end(), SortEntryComparer(keyComparer, keys));
 
-    if (limit >= 0 && xs.begin() + limit + offset < xs.end()) {
-        // partial sort
-        partial_sort(xs.begin(), xs.begin() + limit + offset, xs.end(),
-                AbstractExecutor::TupleComparer(node->getSortExpressions(), node->getSortDirections()));
-    } else {
-        // full sort
-        sort(xs.begin(), xs.end(),
-                AbstractExecutor::TupleComparer(node->getSortExpressions(), node->getSortDirections()));
+    vector<SortEntry>::iterator it = xs.begin();
+    if (offset > 0) {
+        it += std::min(static_cast<size_t>(offset), xs.size());
+    }
+    for (; it != xs.end(); it++)
+    {
+        output_table->insertTupleNonVirtual(it->m_tuple);
+        pmp.countdownProgress();
     }
+}
 
-    int tuple_ctr = 0;
-    int tuple_skipped = 0;
-    for (vector<TableTuple>::iterator it = xs.begin(); it != xs.end(); it++)
+void
+OrderByExecutor::topN(OrderByPlanNode* node, Table* input_table, TempTable* output_table,
+                      int limit, int offset, ProgressMonitorProxy &pmp)
+{
+    const size_t heapSize = static_cast<size_t>(limit) + offset;
+    if (limit == 0) {
+        return;
+    }
+    const vector<AbstractExpression*>& sortExprs = node->getSortExpressions();
+    const vector<SortDirectionType>& dirs = node->getSortDirections();
+    const size_t keyCount = sortExprs.size();
+    SortKeyComparer keyComparer(dirs);
+
+    // A max-heap of the best heapSize rows seen so far; its top is the row
+    // the next better one replaces. Each entry keeps its own slot of keys.
+    vector<SortEntry> heap;
+    vector<NValue> keys;
+    SortEntryComparer heapComparer(keyComparer, keys);
+    vector<NValue> candidate(keyCount);
+
+    TableIterator iterator = input_table->iterator();
+    TableTuple tuple(input_table->schema());
+    while (iterator.next(tuple))
     {
-        //
-        // Check if has gone past the offset
-        //
-        if (tuple_skipped < offset) {
-            tuple_skipped++;
+        pmp.countdownProgress();
+        assert(tuple.isActive());
+        if (heap.size() < heapSize) {
+            heap.push_back(SortEntry(tuple, keys.size()));
+            for (size_t i = 0; i < keyCount; ++i) {
+                keys.push_back(sortExprs[i]->eval(&tuple, NULL));
+            }
+            push_heap(heap.begin(), heap.end(), heapComparer);
             continue;
         }
 
-        VOLT_TRACE("\n***** Input Table PostSort:\n '%s'",
-                   input_table->debug().c_str());
-        output_table->insertTupleNonVirtual(*it);
+        // Most rows lose to the top of the heap on the first key, so only
+        // evaluate the keys it takes to decide.
+        const NValue* worst = &keys[heap.front().m_keyOffset];
+        bool better = false;
+        size_t evaluated = 0;
+        while (evaluated < keyCount) {
+            candidate[evaluated] = sortExprs[evaluated]->eval(&tuple, NULL);
+            int cmp = candidate[evaluated].compare(worst[evaluated]);
+            ++evaluated;
+            if (cmp != 0) {
+                better = (cmp < 0) == (dirs[evaluated - 1] == SORT_DIRECTION_TYPE_ASC);
+                break;
+            }
+        }
+        if (!better) {
+            continue;
+        }
+        for (; evaluated < keyCount; ++evaluated) {
+            candidate[evaluated] = sortExprs[evaluated]->eval(&tuple, NULL);
+        }
+
+        // reuse the key slot of the row that drops out
+        pop_heap(heap.begin(), heap.end(), heapComparer);
+        SortEntry& replaced = heap.back();
+        replaced.m_tuple = tuple;
+        std::copy(candidate.begin(), candidate.end(), keys.begin() + replaced.m_keyOffset);
+        push_heap(heap.begin(), heap.end(), heapComparer);
+    }
+
+    sort_heap(heap.begin(), heap.end(), heapComparer);
+    for (size_t i = offset; i < heap.size(); ++i) {
+        output_table->insertTupleNonVirtual(heap[i].m_tuple);
         pmp.countdownProgress();
-        //
-        // Check whether we have gone past our limit
-        //
-        if (limit >= 0 && ++tuple_ctr >= limit) {
-            break;
+    }
+}
+
+namespace {
+
+/** Orders merge candidates so that the smallest one is at the top of a heap */
+struct MergeHeapComparer {
+    MergeHeapComparer(const AbstractExecutor::TupleComparer &comparer) : m_comparer(comparer) { }
+
+    bool operator()(const pair<TableTuple, size_t> &a, const pair<TableTuple, size_t> &b) const {
+        return m_comparer(b.first, a.first);
+    }
+
+    const AbstractExecutor::TupleComparer &m_comparer;
+};
+
+// buffer size for writing and reading each sorted run
+const size_t SPILLED_RUN_BUFFER_SIZE = 128 * 1024;
+// the smallest run worth sorting, whatever memory is left
+const size_t MIN_RUN_TUPLES = 1024;
+
+/** Charges working memory to the fragment's temp table limits until it goes out of scope */
+class WorkingMemoryCharge {
+public:
+    WorkingMemoryCharge(TempTableLimits* limits) : m_limits(limits), m_bytes(0) { }
+
+    ~WorkingMemoryCharge() { release(); }
+
+    /** Throws a SQLException when this takes the fragment past its memory limit. */
+    void charge(size_t bytes) {
+        m_bytes += static_cast<int>(bytes);
+        m_limits->increaseAllocated(static_cast<int>(bytes));
+    }
+
+    void release() {
+        m_limits->reduceAllocated(m_bytes);
+        m_bytes = 0;
+    }
+
+private:
+    TempTableLimits* m_limits;
+    int m_bytes;
+};
+
+}
+
+void
+OrderByExecutor::externalSort(OrderByPlanNode* node, TempTable* input_table, TempTable* output_table,
+                              int limit, int offset, ProgressMonitorProxy &pmp)
+{
+    const TupleSchema* schema = input_table->schema();
+    const size_t tupleLength = schema->tupleLength() + TUPLE_HEADER_SIZE;
+    AbstractExecutor::TupleComparer comparer(node->getSortExpressions(), node->getSortDirections());
+
+    // The input gives up memory until half of the limit is free. A run, with
+    // the tuples that point out its slots, takes half of what is free, and
+    // the buffers the runs are written and merged through share the rest.
+    // Both are charged to the fragment. Only the first limit + offset tuples
+    // of a run can make it to the output.
+    const size_t slotLength = tupleLength + sizeof(TableTuple);
+    input_table->spillToMakeRoomFor(m_limits->getMemoryLimit() / 2);
+    int64_t headroom = (m_limits->getMemoryLimit() - m_limits->getAllocated()) / 2;
+    headroom = std::max(std::min(headroom, static_cast<int64_t>(std::numeric_limits<int>::max() / 2)), int64_t(0));
+    size_t runTuples = std::max(MIN_RUN_TUPLES, static_cast<size_t>(headroom) / slotLength);
+    size_t keptTuples = limit >= 0 ? static_cast<size_t>(limit) + std::max(offset, 0) : runTuples;
+    size_t expectedRuns = static_cast<size_t>(input_table->activeTupleCount()) / runTuples + 1;
+    size_t runStreamBufferSize = std::max(tupleLength,
+            std::min(SPILLED_RUN_BUFFER_SIZE, static_cast<size_t>(headroom) / expectedRuns));
+
+    WorkingMemoryCharge runCharge(m_limits);
+    runCharge.charge(runTuples * slotLength);
+    boost::scoped_array<char> runBuffer(new char[runTuples * tupleLength]);
+    vector<TableTuple> run;
+    run.reserve(runTuples);
+    TempTableSpillFile file(m_limits);
+    // each run keeps a buffer to write and then read back its tuples
+    WorkingMemoryCharge streamCharge(m_limits);
+    boost::ptr_vector<SpilledTupleStream> runs;
+
+    TableIterator iterator = input_table->iteratorDeletingAsWeGo();
+    TableTuple tuple(schema);
+    bool more = true;
+    while (more) {
+        more = iterator.next(tuple);
+        if (more) {
+            pmp.countdownProgress();
+            char* slot = runBuffer.get() + run.size() * tupleLength;
+            ::memcpy(slot, tuple.address(), tupleLength);
+            run.push_back(TableTuple(slot, schema));
+            if (run.size() < runTuples) {
+                continue;
+            }
+        }
+        if (run.empty()) {
+            continue;
         }
+        size_t kept = std::min(keptTuples, run.size());
+        partial_sort(run.begin(), run.begin() + kept, run.end(), comparer);
+        size_t streamBufferSize = std::min(runStreamBufferSize, kept * tupleLength);
+        streamCharge.charge(streamBufferSize);
+        runs.push_back(new SpilledTupleStream(&file, schema, streamBufferSize));
+        for (size_t i = 0; i < kept; ++i) {
+            runs.back().append(run[i]);
+        }
+        runs.back().rewind();
+        run.clear();
     }
-    VOLT_TRACE("Result of OrderBy:\n '%s'", output_table->debug().c_str());
+    runBuffer.reset();
+    vector<TableTuple>().swap(run);
+    runCharge.release();
 
-    cleanupInputTempTable(input_table);
+    // k-way merge of the sorted runs
+    vector<pair<TableTuple, size_t> > heap;
+    MergeHeapComparer heapComparer(comparer);
+    for (size_t i = 0; i < runs.size(); ++i) {
+        TableTuple head(schema);
+        if (runs[i].next(head)) {
+            heap.push_back(make_pair(head, i));
+        }
+    }
+    make_heap(heap.begin(), heap.end(), heapComparer);
 
-    return true;
+    int tuple_ctr = 0;
+    int tuple_skipped = 0;
+    while (!heap.empty()) {
+        pop_heap(heap.begin(), heap.end(), heapComparer);
+        pair<TableTuple, size_t> &smallest = heap.back();
+        if (tuple_skipped < offset) {
+            tuple_skipped++;
+        }
+        else {
+            output_table->insertTupleNonVirtual(smallest.first);
+            pmp.countdownProgress();
+            if (limit >= 0 && ++tuple_ctr >= limit) {
+                break;
+            }
+        }
+        if (runs[smallest.second].next(smallest.first)) {
+            push_heap(heap.begin(), heap.end(), heapComparer);
+        }
+        else {
+            heap.pop_back();
+        }
+    }
 }
 
 OrderByExecutor::~OrderByExecutor() {
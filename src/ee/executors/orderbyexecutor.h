@@ -55,6 +55,10 @@ namespace voltdb {
     class UndoLog;
     class ReadWriteSet;
     class LimitPlanNode;
+    class OrderByPlanNode;
+    class ProgressMonitorProxy;
+    class Table;
+    class TempTable;
 
     /**
      *
@@ -62,7 +66,7 @@ namespace voltdb {
     class OrderByExecutor : public AbstractExecutor {
     public:
         OrderByExecutor(VoltDBEngine *engine, AbstractPlanNode* abstract_node)
-            : AbstractExecutor(engine, abstract_node), limit_node(NULL)
+            : AbstractExecutor(engine, abstract_node), limit_node(NULL), m_limits(NULL)
             { }
         ~OrderByExecutor();
 
@@ -72,7 +76,30 @@ namespace voltdb {
         bool p_execute(const NValueArray &params);
 
     private:
+        /**
+         * Sort the whole input, comparing sort keys evaluated once per row,
+         * and skip the first offset rows of the result.
+         */
+        void fullSort(OrderByPlanNode* node, Table* input_table, TempTable* output_table,
+                      int offset, ProgressMonitorProxy &pmp);
+
+        /**
+         * Stream the input through a bounded heap that holds the first
+         * limit + offset rows in sort order, so that a small LIMIT never
+         * materializes or sorts the whole input.
+         */
+        void topN(OrderByPlanNode* node, Table* input_table, TempTable* output_table,
+                  int limit, int offset, ProgressMonitorProxy &pmp);
+
+        /**
+         * Sort an input that no longer fits in memory: sort runs of it in
+         * memory, write them to a spill file and merge them into the output.
+         */
+        void externalSort(OrderByPlanNode* node, TempTable* input_table, TempTable* output_table,
+                          int limit, int offset, ProgressMonitorProxy &pmp);
+
         LimitPlanNode *limit_node;
+        TempTableLimits *m_limits;
     };
 
 }
@@ -98,6 +98,23 @@ bool ProjectionExecutor::p_init(AbstractPlanNode *abstractNode,
     if (!node->isInline()) {
         Table* input_table = node->getInputTable();
         tuple = TableTuple(input_table->schema());
+
+        // Like the tuple above, the compiled expressions are bound to the
+        // input table's schema for the life of the plan fragment.
+        m_compiledExpressions.clear();
+        m_hasCompiledExpressions = false;
+        for (int ctr = 0; ctr < m_columnCount; ctr++) {
+            m_compiledExpressions.push_back(boost::shared_ptr<CompiledExpression>(
+                    CompiledExpression::compile(expression_array[ctr], input_table->schema())));
+            m_hasCompiledExpressions |= (m_compiledExpressions.back() != NULL);
+        }
+
+        // The input is read once and each tuple is projected into a new one,
+        // so its cold blocks may go to disk.
+        TempTable* temp_input_table = dynamic_cast<TempTable*>(input_table);
+        if (temp_input_table != NULL) {
+            temp_input_table->setSpillable(true);
+        }
     }
     return true;
 }
@@ -132,6 +149,36 @@ bool ProjectionExecutor::p_execute(const NValueArray &params) {
     //
     TableIterator iterator = input_table->iteratorDeletingAsWeGo();
     assert (tuple.sizeInValues() == input_table->columnCount());
+    if (all_tuple_array == NULL && all_param_array == NULL && m_hasCompiledExpressions) {
+        //
+        // Evaluate the compiled columns over a block's worth of tuples at a
+        // time, then assemble the output tuples one by one from the batch
+        // results and the remaining expression trees
+        //
+        char* batch[CompiledExpression::BATCH_SIZE];
+        int selection[CompiledExpression::BATCH_SIZE];
+        for (int k = 0; k < CompiledExpression::BATCH_SIZE; k++) {
+            selection[k] = k;
+        }
+        int count;
+        while ((count = iterator.nextBatch(tuple, batch, CompiledExpression::BATCH_SIZE)) > 0) {
+            for (int ctr = m_columnCount - 1; ctr >= 0; --ctr) {
+                if (m_compiledExpressions[ctr] != NULL) {
+                    m_compiledExpressions[ctr]->evalBatch(batch, selection, count);
+                }
+            }
+            for (int k = 0; k < count; k++) {
+                tuple.move(batch[k]);
+                TableTuple &temp_tuple = output_table->tempTuple();
+                for (int ctr = m_columnCount - 1; ctr >= 0; --ctr) {
+                    const CompiledExpression* compiled = m_compiledExpressions[ctr].get();
+                    temp_tuple.setNValue(ctr, (compiled != NULL) ? compiled->batchValue(k, &tuple) :
+                                                                   expression_array[ctr]->eval(&tuple, NULL));
+                }
+                output_table->insertTupleNonVirtual(temp_tuple);
+            }
+        }
+    }
     while (iterator.next(tuple)) {
         //
         // Project (or replace) values from input tuple
@@ -52,6 +52,8 @@
 #include "common/valuevector.h"
 #include "common/tabletuple.h"
 #include "executors/abstractexecutor.h"
+#include "expressions/compiledexpression.h"
+#include "boost/shared_ptr.hpp"
 
 namespace voltdb {
 
@@ -66,6 +68,7 @@ class ProjectionExecutor : public AbstractExecutor {
     public:
         ProjectionExecutor(VoltDBEngine *engine, AbstractPlanNode* abstract_node) : AbstractExecutor(engine, abstract_node) {
             output_table = NULL;
+            m_hasCompiledExpressions = false;
         }
         ~ProjectionExecutor();
     protected:
@@ -86,6 +89,11 @@ class ProjectionExecutor : public AbstractExecutor {
 
         boost::shared_array<AbstractExpression*> expression_array_ptr;
         AbstractExpression** expression_array;
+
+        // compiled forms of expression_array, NULL where it has to be evaluated as a tree
+        std::vector<boost::shared_ptr<CompiledExpression> > m_compiledExpressions;
+        // whether any of them compiled, in which case tuples are projected in batches
+        bool m_hasCompiledExpressions;
 };
 
 }
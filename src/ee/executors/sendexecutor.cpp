@@ -68,6 +68,13 @@ bool SendExecutor::p_init(AbstractPlanNode* abstractNode,
     VOLT_TRACE("init Send Executor");
     assert(dynamic_cast<SendPlanNode*>(m_abstractNode));
     assert(m_abstractNode->getInputTableCount() == 1);
+
+    // The input is only read once, front to back, as it is serialized, so
+    // an intermediate result such as a full sort's output may go to disk.
+    TempTable* input_table = dynamic_cast<TempTable*>(m_abstractNode->getInputTable());
+    if (input_table != NULL) {
+        input_table->setSpillable(true);
+    }
     return true;
 }
 
@@ -177,6 +177,11 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
             VOLT_TRACE("SCAN PREDICATE :\n%s\n", predicate->debug(true).c_str());
         }
 
+        if (input_table->schema() != m_compiledSchema) {
+            compileExpressions(node, projection_node, input_table->schema());
+        }
+        CompiledExpression* compiledPredicate = m_compiledPredicate.get();
+
         int limit = -1;
         int offset = -1;
         if (limit_node) {
@@ -200,18 +205,58 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
             temp_tuple = output_temp_table->tempTuple();
         }
 
-        while ((limit == -1 || tuple_ctr < limit) && iterator.next(tuple))
-        {
-            VOLT_TRACE("INPUT TUPLE: %s, %d/%d\n",
-                       tuple.debug(input_table->name()).c_str(), tuple_ctr,
-                       (int)input_table->activeTupleCount());
-            pmp.countdownProgress();
+        //
+        // Walk the table a block's worth of tuples at a time. Compiled
+        // expressions run over the whole batch first, the predicate
+        // narrowing it down to a selection vector of candidate tuples and
+        // the projection columns evaluating over those. The tuples are then
+        // finished in order, one at a time, falling back to the expression
+        // trees wherever nothing was compiled or the compiled form gave up
+        // on a tuple, so errors are raised for the same tuple they would
+        // be without batching.
+        //
+        char* batch[CompiledExpression::BATCH_SIZE];
+        int selection[CompiledExpression::BATCH_SIZE];
+        bool done = false;
+        while ( ! done && (limit == -1 || tuple_ctr < limit)) {
+            int count = iterator.nextBatch(tuple, batch, CompiledExpression::BATCH_SIZE);
+            if (count == 0) {
+                break;
+            }
+            for (int ctr = 0; ctr < count; ctr++) {
+                pmp.countdownProgress();
+            }
+
+            int selected = count;
+            if (compiledPredicate != NULL) {
+                selected = compiledPredicate->filterBatch(batch, count, selection);
+            }
+            else {
+                for (int ctr = 0; ctr < count; ctr++) {
+                    selection[ctr] = ctr;
+                }
+            }
+            for (int ctr = 0; ctr < m_compiledProjection.size(); ctr++) {
+                if (m_compiledProjection[ctr] != NULL) {
+                    m_compiledProjection[ctr]->evalBatch(batch, selection, selected);
+                }
+            }
+
+            for (int k = 0; k < selected && (limit == -1 || tuple_ctr < limit); k++) {
+                tuple.move(batch[selection[k]]);
+                VOLT_TRACE("INPUT TUPLE: %s, %d/%d\n",
+                           tuple.debug(input_table->name()).c_str(), tuple_ctr,
+                           (int)input_table->activeTupleCount());
+
+                //
+                // For each tuple we need to evaluate it against our predicate
+                //
+                if (compiledPredicate != NULL ? compiledPredicate->batchNeedsTree(k) : predicate != NULL) {
+                    if ( ! predicate->eval(&tuple, NULL).isTrue()) {
+                        continue;
+                    }
+                }
 
-            //
-            // For each tuple we need to evaluate it against our predicate
-            //
-            if (predicate == NULL || predicate->eval(&tuple, NULL).isTrue())
-            {
                 // Check if we have to skip this tuple because of offset
                 if (tuple_skipped < offset) {
                     tuple_skipped++;
@@ -227,12 +272,15 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
                 {
                     VOLT_TRACE("inline projection...");
                     for (int ctr = 0; ctr < num_of_columns; ctr++) {
-                        NValue value = projection_node->getOutputColumnExpressions()[ctr]->eval(&tuple, NULL);
+                        const CompiledExpression* compiled = m_compiledProjection[ctr].get();
+                        NValue value = (compiled != NULL) ? compiled->batchValue(k, &tuple) :
+                            projection_node->getOutputColumnExpressions()[ctr]->eval(&tuple, NULL);
                         temp_tuple.setNValue(ctr, value);
                     }
 
                     if (m_aggExec != NULL) {
                         if (m_aggExec->p_execute_tuple(temp_tuple)) {
+                            done = true;
                             break;
                         }
                     } else {
@@ -243,6 +291,7 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
                 {
                     if (m_aggExec != NULL) {
                         if (m_aggExec->p_execute_tuple(tuple)) {
+                            done = true;
                             break;
                         }
                     } else {
@@ -268,3 +317,25 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
 
     return true;
 }
+
+/**
+ * Flatten the predicate and the inline projection's column expressions for
+ * tuples of the input table. This runs on the first execution of the
+ * fragment, so the compiled forms are cached with the executor vector,
+ * and again only if the input table's schema is replaced.
+ */
+void SeqScanExecutor::compileExpressions(SeqScanPlanNode* node,
+                                         ProjectionPlanNode* projectionNode,
+                                         const TupleSchema* schema)
+{
+    m_compiledSchema = schema;
+    m_compiledPredicate.reset(CompiledExpression::compile(node->getPredicate(), schema));
+    m_compiledProjection.clear();
+    if (projectionNode != NULL) {
+        const std::vector<AbstractExpression*>& columns = projectionNode->getOutputColumnExpressions();
+        for (int ctr = 0; ctr < columns.size(); ctr++) {
+            m_compiledProjection.push_back(
+                    boost::shared_ptr<CompiledExpression>(CompiledExpression::compile(columns[ctr], schema)));
+        }
+    }
+}
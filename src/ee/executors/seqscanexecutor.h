@@ -50,18 +50,27 @@
 #include "common/valuevector.h"
 #include "executors/abstractexecutor.h"
 #include "execution/VoltDBEngine.h"
+#include "expressions/compiledexpression.h"
+
+#include "boost/scoped_ptr.hpp"
+#include "boost/shared_ptr.hpp"
+
+#include <vector>
 
 namespace voltdb
 {
     class UndoLog;
     class ReadWriteSet;
     class AggregateExecutorBase;
+    class ProjectionPlanNode;
+    class SeqScanPlanNode;
 
     class SeqScanExecutor : public AbstractExecutor {
     public:
         SeqScanExecutor(VoltDBEngine *engine, AbstractPlanNode* abstract_node)
             : AbstractExecutor(engine, abstract_node)
             , m_aggExec(NULL)
+            , m_compiledSchema(NULL)
         {}
     protected:
         bool p_init(AbstractPlanNode* abstract_node,
@@ -69,8 +78,19 @@ namespace voltdb
         bool p_execute(const NValueArray& params);
 
     private:
+        void compileExpressions(SeqScanPlanNode* node,
+                                ProjectionPlanNode* projectionNode,
+                                const TupleSchema* schema);
+
         AggregateExecutorBase* m_aggExec;
 
+        // Compiled forms of the predicate and of the inline projection's
+        // columns, kept for as long as the input table's schema is the one
+        // they were compiled against. NULL entries are evaluated as trees.
+        const TupleSchema* m_compiledSchema;
+        boost::scoped_ptr<CompiledExpression> m_compiledPredicate;
+        std::vector<boost::shared_ptr<CompiledExpression> > m_compiledProjection;
+
     };
 }
 
@@ -0,0 +1,719 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "expressions/compiledexpression.h"
+
+#include "common/TupleSchema.h"
+#include "common/ValueFactory.hpp"
+#include "common/ValuePeeker.hpp"
+#include "expressions/parametervalueexpression.h"
+#include "expressions/tuplevalueexpression.h"
+
+#include <cmath>
+#include <cstring>
+
+namespace voltdb {
+
+// Orders two doubles the way NValue does: NaNs are equal to each other
+// and smaller than anything else.
+static inline int compareDoubles(double lhs, double rhs)
+{
+    if (std::isnan(lhs)) {
+        return std::isnan(rhs) ? VALUE_COMPARE_EQUAL : VALUE_COMPARE_LESSTHAN;
+    }
+    if (std::isnan(rhs)) {
+        return VALUE_COMPARE_GREATERTHAN;
+    }
+    if (lhs > rhs) {
+        return VALUE_COMPARE_GREATERTHAN;
+    }
+    if (lhs < rhs) {
+        return VALUE_COMPARE_LESSTHAN;
+    }
+    return VALUE_COMPARE_EQUAL;
+}
+
+static inline int compareBigInts(int64_t lhs, int64_t rhs)
+{
+    if (lhs > rhs) {
+        return VALUE_COMPARE_GREATERTHAN;
+    }
+    if (lhs < rhs) {
+        return VALUE_COMPARE_LESSTHAN;
+    }
+    return VALUE_COMPARE_EQUAL;
+}
+
+// Whether a three-way comparison result satisfies the n-th comparison
+// operator, counting from EXPRESSION_TYPE_COMPARE_EQUAL.
+static inline bool comparisonHolds(int comparison, int cmp)
+{
+    switch (comparison) {
+    case EXPRESSION_TYPE_COMPARE_EQUAL - EXPRESSION_TYPE_COMPARE_EQUAL:
+        return cmp == VALUE_COMPARE_EQUAL;
+    case EXPRESSION_TYPE_COMPARE_NOTEQUAL - EXPRESSION_TYPE_COMPARE_EQUAL:
+        return cmp != VALUE_COMPARE_EQUAL;
+    case EXPRESSION_TYPE_COMPARE_LESSTHAN - EXPRESSION_TYPE_COMPARE_EQUAL:
+        return cmp == VALUE_COMPARE_LESSTHAN;
+    case EXPRESSION_TYPE_COMPARE_GREATERTHAN - EXPRESSION_TYPE_COMPARE_EQUAL:
+        return cmp == VALUE_COMPARE_GREATERTHAN;
+    case EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO - EXPRESSION_TYPE_COMPARE_EQUAL:
+        return cmp != VALUE_COMPARE_GREATERTHAN;
+    default:
+        return cmp != VALUE_COMPARE_LESSTHAN;
+    }
+}
+
+static inline bool isIntegerType(ValueType type)
+{
+    return type == VALUE_TYPE_TINYINT || type == VALUE_TYPE_SMALLINT ||
+           type == VALUE_TYPE_INTEGER || type == VALUE_TYPE_BIGINT;
+}
+
+CompiledExpression* CompiledExpression::compile(const AbstractExpression* expr, const TupleSchema* schema)
+{
+    if (expr == NULL || schema == NULL) {
+        return NULL;
+    }
+    switch (expr->getExpressionType()) {
+    case EXPRESSION_TYPE_VALUE_TUPLE:
+    case EXPRESSION_TYPE_VALUE_PARAMETER:
+    case EXPRESSION_TYPE_VALUE_CONSTANT:
+        // A lone value is as cheap to evaluate as it gets, and it keeps its
+        // exact column or parameter type, which a compiled load widens.
+        return NULL;
+    default:
+        break;
+    }
+
+    CompiledExpression* compiled = new CompiledExpression(expr, schema);
+    compiled->m_resultKind = compiled->emit(expr);
+    if (compiled->m_resultKind == KIND_INVALID || compiled->m_maxDepth > MAX_STACK_DEPTH) {
+        delete compiled;
+        return NULL;
+    }
+    VOLT_TRACE("Compiled expression into %d instructions:\n%s",
+               (int)compiled->m_program.size(), expr->debug(true).c_str());
+    return compiled;
+}
+
+void CompiledExpression::append(OpCode op, int pushes)
+{
+    Instruction instruction;
+    instruction.op = op;
+    instruction.offset = 0;
+    instruction.param = NULL;
+    instruction.i = 0;
+    instruction.d = 0.0;
+    m_program.push_back(instruction);
+    m_depth += pushes;
+    if (m_depth > m_maxDepth) {
+        m_maxDepth = m_depth;
+    }
+}
+
+CompiledExpression::Kind CompiledExpression::emit(const AbstractExpression* expr)
+{
+    if (expr == NULL) {
+        return KIND_INVALID;
+    }
+
+    ExpressionType type = expr->getExpressionType();
+    switch (type) {
+    case EXPRESSION_TYPE_VALUE_TUPLE: {
+        const TupleValueExpression* tve = dynamic_cast<const TupleValueExpression*>(expr);
+        if (tve == NULL || tve->getTupleId() != 0 || tve->getColumnId() >= m_schema->columnCount()) {
+            return KIND_INVALID;
+        }
+        const TupleSchema::ColumnInfo* columnInfo = m_schema->getColumnInfo(tve->getColumnId());
+        Kind kind = KIND_BIGINT;
+        switch (columnInfo->getVoltType()) {
+        case VALUE_TYPE_TINYINT:
+            append(LOAD_TINYINT_COLUMN, 1);
+            break;
+        case VALUE_TYPE_SMALLINT:
+            append(LOAD_SMALLINT_COLUMN, 1);
+            break;
+        case VALUE_TYPE_INTEGER:
+            append(LOAD_INTEGER_COLUMN, 1);
+            break;
+        case VALUE_TYPE_BIGINT:
+            append(LOAD_BIGINT_COLUMN, 1);
+            break;
+        case VALUE_TYPE_TIMESTAMP:
+            append(LOAD_BIGINT_COLUMN, 1);
+            kind = KIND_TIMESTAMP;
+            break;
+        case VALUE_TYPE_DOUBLE:
+            append(LOAD_DOUBLE_COLUMN, 1);
+            kind = KIND_DOUBLE;
+            break;
+        default:
+            return KIND_INVALID;
+        }
+        m_program.back().offset = TUPLE_HEADER_SIZE + columnInfo->offset;
+        return kind;
+    }
+
+    case EXPRESSION_TYPE_VALUE_PARAMETER: {
+        const ParameterValueExpression* pve = dynamic_cast<const ParameterValueExpression*>(expr);
+        if (pve == NULL || pve->getParamValue() == NULL) {
+            return KIND_INVALID;
+        }
+        // The planner's type for the parameter is only a guess at what
+        // arrives at run time; the batch checks it on every load.
+        Kind kind;
+        ValueType valueType = expr->getValueType();
+        if (isIntegerType(valueType)) {
+            append(LOAD_BIGINT_PARAMETER, 1);
+            kind = KIND_BIGINT;
+        }
+        else if (valueType == VALUE_TYPE_TIMESTAMP) {
+            append(LOAD_TIMESTAMP_PARAMETER, 1);
+            kind = KIND_TIMESTAMP;
+        }
+        else if (valueType == VALUE_TYPE_DOUBLE) {
+            append(LOAD_DOUBLE_PARAMETER, 1);
+            kind = KIND_DOUBLE;
+        }
+        else {
+            return KIND_INVALID;
+        }
+        m_program.back().param = pve->getParamValue();
+        return kind;
+    }
+
+    case EXPRESSION_TYPE_VALUE_CONSTANT: {
+        NValue value = expr->eval(NULL, NULL);
+        if (value.isNull()) {
+            return KIND_INVALID;
+        }
+        ValueType valueType = ValuePeeker::peekValueType(value);
+        if (isIntegerType(valueType)) {
+            append(LOAD_BIGINT_CONSTANT, 1);
+            m_program.back().i = ValuePeeker::peekAsBigInt(value);
+            return KIND_BIGINT;
+        }
+        if (valueType == VALUE_TYPE_TIMESTAMP) {
+            append(LOAD_BIGINT_CONSTANT, 1);
+            m_program.back().i = ValuePeeker::peekTimestamp(value);
+            return KIND_TIMESTAMP;
+        }
+        if (valueType == VALUE_TYPE_DOUBLE) {
+            append(LOAD_DOUBLE_CONSTANT, 1);
+            m_program.back().d = ValuePeeker::peekDouble(value);
+            return KIND_DOUBLE;
+        }
+        return KIND_INVALID;
+    }
+
+    case EXPRESSION_TYPE_OPERATOR_PLUS:
+    case EXPRESSION_TYPE_OPERATOR_MINUS:
+    case EXPRESSION_TYPE_OPERATOR_MULTIPLY:
+    case EXPRESSION_TYPE_OPERATOR_DIVIDE: {
+        Kind kind = emitNumericOperands(expr);
+        int operation = type - EXPRESSION_TYPE_OPERATOR_PLUS;
+        if (kind == KIND_BIGINT) {
+            append(static_cast<OpCode>(ADD_BIGINT + operation), -1);
+        }
+        else if (kind == KIND_DOUBLE) {
+            append(static_cast<OpCode>(ADD_DOUBLE + operation), -1);
+        }
+        else {
+            return KIND_INVALID;
+        }
+        return kind;
+    }
+
+    case EXPRESSION_TYPE_COMPARE_EQUAL:
+    case EXPRESSION_TYPE_COMPARE_NOTEQUAL:
+    case EXPRESSION_TYPE_COMPARE_LESSTHAN:
+    case EXPRESSION_TYPE_COMPARE_GREATERTHAN:
+    case EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO:
+    case EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO: {
+        Kind kind = emitNumericOperands(expr);
+        int comparison = type - EXPRESSION_TYPE_COMPARE_EQUAL;
+        if (kind == KIND_BIGINT || kind == KIND_TIMESTAMP) {
+            append(static_cast<OpCode>(EQUAL_BIGINT + comparison), -1);
+        }
+        else if (kind == KIND_DOUBLE) {
+            append(static_cast<OpCode>(EQUAL_DOUBLE + comparison), -1);
+        }
+        else {
+            return KIND_INVALID;
+        }
+        return KIND_BOOLEAN;
+    }
+
+    case EXPRESSION_TYPE_CONJUNCTION_AND:
+    case EXPRESSION_TYPE_CONJUNCTION_OR:
+        if (emit(expr->getLeft()) != KIND_BOOLEAN || emit(expr->getRight()) != KIND_BOOLEAN) {
+            return KIND_INVALID;
+        }
+        append(type == EXPRESSION_TYPE_CONJUNCTION_AND ? AND : OR, -1);
+        return KIND_BOOLEAN;
+
+    case EXPRESSION_TYPE_OPERATOR_NOT:
+        if (emit(expr->getLeft()) != KIND_BOOLEAN) {
+            return KIND_INVALID;
+        }
+        append(NOT, 0);
+        return KIND_BOOLEAN;
+
+    default:
+        return KIND_INVALID;
+    }
+}
+
+/**
+ * Emit both operands of a binary numeric expression, widening a BIGINT
+ * operand when the other one is a DOUBLE. TIMESTAMPs only pair up with
+ * TIMESTAMPs. Returns the common kind of the two operands.
+ */
+CompiledExpression::Kind CompiledExpression::emitNumericOperands(const AbstractExpression* expr)
+{
+    Kind left = emit(expr->getLeft());
+    if (left == KIND_INVALID || left == KIND_BOOLEAN) {
+        return KIND_INVALID;
+    }
+    Kind right = emit(expr->getRight());
+    if (right == KIND_INVALID || right == KIND_BOOLEAN) {
+        return KIND_INVALID;
+    }
+    if (left == right) {
+        return left;
+    }
+    if (left == KIND_BIGINT && right == KIND_DOUBLE) {
+        append(LEFT_BIGINT_TO_DOUBLE, 0);
+        return KIND_DOUBLE;
+    }
+    if (left == KIND_DOUBLE && right == KIND_BIGINT) {
+        append(BIGINT_TO_DOUBLE, 0);
+        return KIND_DOUBLE;
+    }
+    return KIND_INVALID;
+}
+
+/**
+ * Load the operand of a parameter or constant load. Returns false if the
+ * parameter is not of the type the program was compiled for.
+ */
+bool CompiledExpression::loadOperand(const Instruction& instruction, Slot& slot)
+{
+    slot.i = instruction.i;
+    slot.d = instruction.d;
+    slot.isNull = false;
+    if (instruction.param == NULL) {
+        return true;
+    }
+
+    const NValue& param = *instruction.param;
+    ValueType valueType = ValuePeeker::peekValueType(param);
+    switch (instruction.op) {
+    case LOAD_BIGINT_PARAMETER:
+        if ( ! isIntegerType(valueType)) {
+            return false;
+        }
+        slot.isNull = param.isNull();
+        slot.i = slot.isNull ? 0 : ValuePeeker::peekAsRawInt64(param);
+        return true;
+    case LOAD_TIMESTAMP_PARAMETER:
+        if (valueType != VALUE_TYPE_TIMESTAMP) {
+            return false;
+        }
+        slot.isNull = param.isNull();
+        slot.i = slot.isNull ? 0 : ValuePeeker::peekTimestamp(param);
+        return true;
+    default:
+        assert(instruction.op == LOAD_DOUBLE_PARAMETER);
+        if (valueType != VALUE_TYPE_DOUBLE) {
+            return false;
+        }
+        slot.isNull = param.isNull();
+        slot.d = slot.isNull ? 0.0 : ValuePeeker::peekDouble(param);
+        return true;
+    }
+}
+
+/**
+ * Apply integer arithmetic to two non-NULL operands. Integer overflow, a
+ * result that collides with the NULL value and division by zero all return
+ * false, to go back to NValue, which raises the error.
+ */
+inline bool CompiledExpression::applyBigInt(OpCode op, int64_t lhs, int64_t rhs, int64_t& result)
+{
+    switch (op) {
+    case ADD_BIGINT:
+        if ((rhs > 0 && lhs > INT64_MAX - rhs) || (rhs < 0 && lhs < INT64_MIN - rhs)) {
+            return false;
+        }
+        result = lhs + rhs;
+        break;
+    case SUBTRACT_BIGINT:
+        if ((rhs < 0 && lhs > INT64_MAX + rhs) || (rhs > 0 && lhs < INT64_MIN + rhs)) {
+            return false;
+        }
+        result = lhs - rhs;
+        break;
+    case MULTIPLY_BIGINT:
+        if (lhs > 0 ? (rhs > 0 ? lhs > INT64_MAX / rhs : rhs < INT64_MIN / lhs)
+                    : (rhs > 0 ? lhs < INT64_MIN / rhs : (lhs != 0 && rhs < INT64_MAX / lhs))) {
+            return false;
+        }
+        result = lhs * rhs;
+        break;
+    default:
+        assert(op == DIVIDE_BIGINT);
+        if (rhs == 0) {
+            return false;
+        }
+        result = lhs / rhs;
+        break;
+    }
+    return result != INT64_NULL;
+}
+
+NValue CompiledExpression::toNValue(int64_t i, double d, bool isNull) const
+{
+    switch (m_resultKind) {
+    case KIND_BIGINT:
+        return isNull ? NValue::getNullValue(VALUE_TYPE_BIGINT) : ValueFactory::getBigIntValue(i);
+    case KIND_DOUBLE:
+        return isNull ? NValue::getNullValue(VALUE_TYPE_DOUBLE) : ValueFactory::getDoubleValue(d);
+    default:
+        assert(m_resultKind == KIND_BOOLEAN);
+        if (isNull) {
+            return NValue::getNullValue(VALUE_TYPE_BOOLEAN);
+        }
+        return i != 0 ? NValue::getTrue() : NValue::getFalse();
+    }
+}
+
+/*
+ * The batch methods run the same program one instruction at a time over
+ * all the rows of a batch, so every instruction is dispatched once per
+ * batch rather than once per row and each one is a short loop over arrays
+ * of operands. Nothing in those loops throws: a row that would need an
+ * error raised is flagged for the expression tree and made NULL, so that
+ * the instructions after it leave it alone.
+ */
+
+int CompiledExpression::filterBatch(char* const* tuples, int count, int* selection)
+{
+    assert(m_resultKind == KIND_BOOLEAN);
+    for (int k = 0; k < count; k++) {
+        selection[k] = k;
+    }
+    runBatch(tuples, selection, count);
+
+    const Column& result = m_columns[0];
+    char* bailed = &m_batchBailed[0];
+    int selected = 0;
+    for (int k = 0; k < count; k++) {
+        char keep = bailed[k] | (( ! result.isNull[k]) & (result.i[k] != 0));
+        selection[selected] = k;
+        bailed[selected] = bailed[k];
+        selected += keep;
+    }
+    return selected;
+}
+
+void CompiledExpression::evalBatch(char* const* tuples, const int* selection, int count)
+{
+    runBatch(tuples, selection, count);
+}
+
+template <typename T>
+static inline void loadIntegerRows(const char* const* rows, uint32_t offset, T nullValue,
+                                   int64_t* values, char* isNull, int count)
+{
+    for (int k = 0; k < count; k++) {
+        T value = *reinterpret_cast<const T*>(rows[k] + offset);
+        values[k] = value;
+        isNull[k] = value == nullValue;
+    }
+}
+
+template <int COMPARISON>
+static inline void compareBigIntRows(int64_t* lhs, char* lhsNull, const int64_t* rhs, const char* rhsNull, int count)
+{
+    for (int k = 0; k < count; k++) {
+        lhs[k] = comparisonHolds(COMPARISON, compareBigInts(lhs[k], rhs[k]));
+        lhsNull[k] |= rhsNull[k];
+    }
+}
+
+template <int COMPARISON>
+static inline void compareDoubleRows(int64_t* result, char* lhsNull, const double* lhs, const double* rhs,
+                                     const char* rhsNull, int count)
+{
+    for (int k = 0; k < count; k++) {
+        result[k] = comparisonHolds(COMPARISON, compareDoubles(lhs[k], rhs[k]));
+        lhsNull[k] |= rhsNull[k];
+    }
+}
+
+template <CompiledExpression::OpCode OP>
+inline void CompiledExpression::applyBigIntRows(Column& lhs, const Column& rhs, char* bailed, int count)
+{
+    for (int k = 0; k < count; k++) {
+        if (lhs.isNull[k] | rhs.isNull[k]) {
+            lhs.isNull[k] = true;
+            continue;
+        }
+        int64_t value;
+        if ( ! applyBigInt(OP, lhs.i[k], rhs.i[k], value)) {
+            bailed[k] = true;
+            lhs.isNull[k] = true;
+            continue;
+        }
+        lhs.i[k] = value;
+    }
+}
+
+void CompiledExpression::runBatch(char* const* tuples, const int* selection, int count)
+{
+    assert(count <= BATCH_SIZE);
+    if (m_columns.size() < m_maxDepth) {
+        m_columns.resize(m_maxDepth);
+        m_batchBailed.resize(BATCH_SIZE);
+    }
+    char* bailed = &m_batchBailed[0];
+    memset(bailed, 0, count);
+
+    const char* rows[BATCH_SIZE];
+    for (int k = 0; k < count; k++) {
+        rows[k] = tuples[selection[k]];
+    }
+
+    Column* stack = &m_columns[0];
+    int top = -1;
+    const Instruction* end = &m_program[0] + m_program.size();
+    for (const Instruction* instruction = &m_program[0]; instruction != end; ++instruction) {
+        switch (instruction->op) {
+        case LOAD_TINYINT_COLUMN: {
+            Column& column = stack[++top];
+            loadIntegerRows<int8_t>(rows, instruction->offset, INT8_NULL, column.i, column.isNull, count);
+            break;
+        }
+        case LOAD_SMALLINT_COLUMN: {
+            Column& column = stack[++top];
+            loadIntegerRows<int16_t>(rows, instruction->offset, INT16_NULL, column.i, column.isNull, count);
+            break;
+        }
+        case LOAD_INTEGER_COLUMN: {
+            Column& column = stack[++top];
+            loadIntegerRows<int32_t>(rows, instruction->offset, INT32_NULL, column.i, column.isNull, count);
+            break;
+        }
+        case LOAD_BIGINT_COLUMN: {
+            Column& column = stack[++top];
+            loadIntegerRows<int64_t>(rows, instruction->offset, INT64_NULL, column.i, column.isNull, count);
+            break;
+        }
+        case LOAD_DOUBLE_COLUMN: {
+            Column& column = stack[++top];
+            for (int k = 0; k < count; k++) {
+                double value = *reinterpret_cast<const double*>(rows[k] + instruction->offset);
+                column.d[k] = value;
+                column.isNull[k] = value <= DOUBLE_NULL;
+            }
+            break;
+        }
+        case LOAD_BIGINT_PARAMETER:
+        case LOAD_TIMESTAMP_PARAMETER:
+        case LOAD_DOUBLE_PARAMETER:
+        case LOAD_BIGINT_CONSTANT:
+        case LOAD_DOUBLE_CONSTANT: {
+            // the same operand for every row
+            Slot slot;
+            if ( ! loadOperand(*instruction, slot)) {
+                memset(bailed, 1, count);
+                return;
+            }
+            Column& column = stack[++top];
+            for (int k = 0; k < count; k++) {
+                column.i[k] = slot.i;
+                column.d[k] = slot.d;
+                column.isNull[k] = slot.isNull;
+            }
+            break;
+        }
+        case BIGINT_TO_DOUBLE:
+        case LEFT_BIGINT_TO_DOUBLE: {
+            Column& column = stack[instruction->op == BIGINT_TO_DOUBLE ? top : top - 1];
+            for (int k = 0; k < count; k++) {
+                column.d[k] = static_cast<double>(column.i[k]);
+            }
+            break;
+        }
+
+        case ADD_BIGINT:
+        case SUBTRACT_BIGINT:
+        case MULTIPLY_BIGINT:
+        case DIVIDE_BIGINT: {
+            const Column& rhs = stack[top--];
+            Column& lhs = stack[top];
+            switch (instruction->op) {
+            case ADD_BIGINT:
+                applyBigIntRows<ADD_BIGINT>(lhs, rhs, bailed, count);
+                break;
+            case SUBTRACT_BIGINT:
+                applyBigIntRows<SUBTRACT_BIGINT>(lhs, rhs, bailed, count);
+                break;
+            case MULTIPLY_BIGINT:
+                applyBigIntRows<MULTIPLY_BIGINT>(lhs, rhs, bailed, count);
+                break;
+            default:
+                applyBigIntRows<DIVIDE_BIGINT>(lhs, rhs, bailed, count);
+                break;
+            }
+            break;
+        }
+
+        case ADD_DOUBLE:
+        case SUBTRACT_DOUBLE:
+        case MULTIPLY_DOUBLE:
+        case DIVIDE_DOUBLE: {
+            const Column& rhs = stack[top--];
+            Column& lhs = stack[top];
+            switch (instruction->op) {
+            case ADD_DOUBLE:
+                for (int k = 0; k < count; k++) {
+                    lhs.d[k] = lhs.d[k] + rhs.d[k];
+                }
+                break;
+            case SUBTRACT_DOUBLE:
+                for (int k = 0; k < count; k++) {
+                    lhs.d[k] = lhs.d[k] - rhs.d[k];
+                }
+                break;
+            case MULTIPLY_DOUBLE:
+                for (int k = 0; k < count; k++) {
+                    lhs.d[k] = lhs.d[k] * rhs.d[k];
+                }
+                break;
+            default:
+                for (int k = 0; k < count; k++) {
+                    lhs.d[k] = lhs.d[k] / rhs.d[k];
+                }
+                break;
+            }
+            for (int k = 0; k < count; k++) {
+                char isNull = lhs.isNull[k] | rhs.isNull[k];
+                char overflow = ( ! isNull) & ( ! std::isfinite(lhs.d[k]));
+                bailed[k] |= overflow;
+                lhs.isNull[k] = isNull | overflow;
+            }
+            break;
+        }
+
+        case EQUAL_BIGINT:
+        case NOT_EQUAL_BIGINT:
+        case LESS_BIGINT:
+        case GREATER_BIGINT:
+        case LESS_EQUAL_BIGINT:
+        case GREATER_EQUAL_BIGINT: {
+            const Column& rhs = stack[top--];
+            Column& lhs = stack[top];
+            switch (instruction->op - EQUAL_BIGINT) {
+            case 0:
+                compareBigIntRows<0>(lhs.i, lhs.isNull, rhs.i, rhs.isNull, count);
+                break;
+            case 1:
+                compareBigIntRows<1>(lhs.i, lhs.isNull, rhs.i, rhs.isNull, count);
+                break;
+            case 2:
+                compareBigIntRows<2>(lhs.i, lhs.isNull, rhs.i, rhs.isNull, count);
+                break;
+            case 3:
+                compareBigIntRows<3>(lhs.i, lhs.isNull, rhs.i, rhs.isNull, count);
+                break;
+            case 4:
+                compareBigIntRows<4>(lhs.i, lhs.isNull, rhs.i, rhs.isNull, count);
+                break;
+            default:
+                compareBigIntRows<5>(lhs.i, lhs.isNull, rhs.i, rhs.isNull, count);
+                break;
+            }
+            break;
+        }
+        case EQUAL_DOUBLE:
+        case NOT_EQUAL_DOUBLE:
+        case LESS_DOUBLE:
+        case GREATER_DOUBLE:
+        case LESS_EQUAL_DOUBLE:
+        case GREATER_EQUAL_DOUBLE: {
+            const Column& rhs = stack[top--];
+            Column& lhs = stack[top];
+            switch (instruction->op - EQUAL_DOUBLE) {
+            case 0:
+                compareDoubleRows<0>(lhs.i, lhs.isNull, lhs.d, rhs.d, rhs.isNull, count);
+                break;
+            case 1:
+                compareDoubleRows<1>(lhs.i, lhs.isNull, lhs.d, rhs.d, rhs.isNull, count);
+                break;
+            case 2:
+                compareDoubleRows<2>(lhs.i, lhs.isNull, lhs.d, rhs.d, rhs.isNull, count);
+                break;
+            case 3:
+                compareDoubleRows<3>(lhs.i, lhs.isNull, lhs.d, rhs.d, rhs.isNull, count);
+                break;
+            case 4:
+                compareDoubleRows<4>(lhs.i, lhs.isNull, lhs.d, rhs.d, rhs.isNull, count);
+                break;
+            default:
+                compareDoubleRows<5>(lhs.i, lhs.isNull, lhs.d, rhs.d, rhs.isNull, count);
+                break;
+            }
+            break;
+        }
+
+        // Three-valued logic, as in ConjunctionExpression and OperatorNotExpression
+        case AND: {
+            const Column& rhs = stack[top--];
+            Column& lhs = stack[top];
+            for (int k = 0; k < count; k++) {
+                char anyFalse = ( ! lhs.isNull[k] & (lhs.i[k] == 0)) | ( ! rhs.isNull[k] & (rhs.i[k] == 0));
+                lhs.i[k] = ! anyFalse;
+                lhs.isNull[k] = ( ! anyFalse) & (lhs.isNull[k] | rhs.isNull[k]);
+            }
+            break;
+        }
+        case OR: {
+            const Column& rhs = stack[top--];
+            Column& lhs = stack[top];
+            for (int k = 0; k < count; k++) {
+                char anyTrue = ( ! lhs.isNull[k] & (lhs.i[k] != 0)) | ( ! rhs.isNull[k] & (rhs.i[k] != 0));
+                lhs.i[k] = anyTrue;
+                lhs.isNull[k] = ( ! anyTrue) & (lhs.isNull[k] | rhs.isNull[k]);
+            }
+            break;
+        }
+        case NOT: {
+            Column& column = stack[top];
+            for (int k = 0; k < count; k++) {
+                column.i[k] = column.i[k] == 0;
+            }
+            break;
+        }
+        }
+    }
+    assert(top == 0);
+}
+
+}
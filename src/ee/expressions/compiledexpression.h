@@ -0,0 +1,187 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef COMPILEDEXPRESSION_H
+#define COMPILEDEXPRESSION_H
+
+#include "common/NValue.hpp"
+#include "common/tabletuple.h"
+#include "expressions/abstractexpression.h"
+
+#include <vector>
+
+namespace voltdb {
+
+class TupleSchema;
+
+/**
+ * A flattened, type-resolved form of an expression tree over the tuples of
+ * one schema. Column references become loads from fixed tuple offsets,
+ * comparisons and arithmetic become typed instructions on int64_t or double
+ * operands, and the whole tree runs as one loop over a postfix program
+ * without virtual calls or NValue temporaries.
+ *
+ * Only comparisons, AND/OR/NOT and + - * / over TINYINT through BIGINT,
+ * TIMESTAMP (compared only) and FLOAT columns, parameters and constants are
+ * compiled. A row that needs anything the program does not model (an
+ * overflow, a division by zero, a parameter of an unexpected type) is handed
+ * back to the original expression tree, so results and errors are always
+ * those of the interpreted expression.
+ *
+ * The program runs one instruction at a time over a batch of tuples.
+ * There is no way to run it one tuple at a time: in an optimized build that
+ * was no faster than the expression tree for common predicates, while the
+ * batches were faster for every shape, see CompiledExpressionBenchmark.
+ */
+class CompiledExpression {
+public:
+    /**
+     * Compile the expression for tuples of the given schema.
+     * Returns NULL when the expression has a shape the compiler
+     * does not handle; the caller then keeps calling eval().
+     */
+    static CompiledExpression* compile(const AbstractExpression* expr, const TupleSchema* schema);
+
+    const TupleSchema* getSchema() const { return m_schema; }
+
+    /** Most tuples the batch methods below take at once */
+    static const int BATCH_SIZE = 1024;
+
+    /**
+     * Evaluate the expression as a predicate over a batch of tuple addresses.
+     * Fills selection with the positions in tuples of the rows it may be true
+     * for and returns how many there are. A row the program cannot evaluate
+     * is selected too, and batchNeedsTree() tells the caller to decide it
+     * with the expression tree when it gets to it.
+     */
+    int filterBatch(char* const* tuples, int count, int* selection);
+
+    /**
+     * Evaluate the expression over the tuples at the count positions listed in
+     * selection. The value of the k-th of them is then read with batchValue().
+     */
+    void evalBatch(char* const* tuples, const int* selection, int count);
+
+    /** Whether the k-th row of the last batch has to be evaluated by the tree */
+    bool batchNeedsTree(int k) const { return m_batchBailed[k] != 0; }
+
+    /** Same as expr->eval(tuple, NULL), for the k-th row of the last evalBatch() */
+    NValue batchValue(int k, const TableTuple* tuple) const
+    {
+        if (batchNeedsTree(k)) {
+            return m_expr->eval(tuple, NULL);
+        }
+        const Column& result = m_columns[0];
+        return toNValue(result.i[k], result.d[k], result.isNull[k]);
+    }
+
+private:
+    enum OpCode {
+        LOAD_TINYINT_COLUMN,
+        LOAD_SMALLINT_COLUMN,
+        LOAD_INTEGER_COLUMN,
+        LOAD_BIGINT_COLUMN,
+        LOAD_DOUBLE_COLUMN,
+        LOAD_BIGINT_PARAMETER,
+        LOAD_TIMESTAMP_PARAMETER,
+        LOAD_DOUBLE_PARAMETER,
+        LOAD_BIGINT_CONSTANT,
+        LOAD_DOUBLE_CONSTANT,
+        // widen the top or the second to top value
+        BIGINT_TO_DOUBLE,
+        LEFT_BIGINT_TO_DOUBLE,
+        ADD_BIGINT, SUBTRACT_BIGINT, MULTIPLY_BIGINT, DIVIDE_BIGINT,
+        ADD_DOUBLE, SUBTRACT_DOUBLE, MULTIPLY_DOUBLE, DIVIDE_DOUBLE,
+        // comparisons are in the order of the EXPRESSION_TYPE_COMPARE_* values
+        EQUAL_BIGINT, NOT_EQUAL_BIGINT, LESS_BIGINT, GREATER_BIGINT, LESS_EQUAL_BIGINT, GREATER_EQUAL_BIGINT,
+        EQUAL_DOUBLE, NOT_EQUAL_DOUBLE, LESS_DOUBLE, GREATER_DOUBLE, LESS_EQUAL_DOUBLE, GREATER_EQUAL_DOUBLE,
+        AND, OR, NOT
+    };
+
+    /** What a program value holds; every integer type is widened to BIGINT */
+    enum Kind {
+        KIND_BIGINT,
+        KIND_TIMESTAMP,
+        KIND_DOUBLE,
+        KIND_BOOLEAN,
+        KIND_INVALID
+    };
+
+    struct Instruction {
+        OpCode op;
+        // tuple data offset of a column load
+        uint32_t offset;
+        // operand of a parameter load
+        const NValue* param;
+        // operand of a constant load
+        int64_t i;
+        double d;
+    };
+
+    struct Slot {
+        int64_t i;
+        double d;
+        bool isNull;
+    };
+
+    // One operand stack entry for every row of a batch
+    struct Column {
+        int64_t i[BATCH_SIZE];
+        double d[BATCH_SIZE];
+        char isNull[BATCH_SIZE];
+    };
+
+    // deepest operand stack a program may use
+    static const int MAX_STACK_DEPTH = 16;
+
+    CompiledExpression(const AbstractExpression* expr, const TupleSchema* schema)
+        : m_expr(expr), m_schema(schema), m_resultKind(KIND_INVALID), m_depth(0), m_maxDepth(0)
+    {}
+
+    Kind emit(const AbstractExpression* expr);
+    Kind emitNumericOperands(const AbstractExpression* expr);
+    void append(OpCode op, int pushes);
+
+    /**
+     * Run the program over the tuples at the given positions, leaving the
+     * results in m_columns[0] and flagging in m_batchBailed the rows that
+     * have to be evaluated by the expression tree instead.
+     */
+    void runBatch(char* const* tuples, const int* selection, int count);
+
+    NValue toNValue(int64_t i, double d, bool isNull) const;
+
+    static bool loadOperand(const Instruction& instruction, Slot& slot);
+    static bool applyBigInt(OpCode op, int64_t lhs, int64_t rhs, int64_t& result);
+    template <OpCode OP>
+    static void applyBigIntRows(Column& lhs, const Column& rhs, char* bailed, int count);
+
+    const AbstractExpression* m_expr;
+    const TupleSchema* m_schema;
+    std::vector<Instruction> m_program;
+    Kind m_resultKind;
+    int m_depth;
+    int m_maxDepth;
+
+    // operand stack and per-row fallback flags of the batch methods,
+    // allocated by the first batch
+    std::vector<Column> m_columns;
+    std::vector<char> m_batchBailed;
+};
+
+}
+#endif
@@ -47,6 +47,7 @@
 #define COMPACTINGTREEMULTIMAPINDEX_H_
 
 #include <iostream>
+#include <vector>
 #include <cassert>
 #include "indexes/tableindex.h"
 #include "common/tabletuple.h"
@@ -83,6 +84,32 @@ class CompactingTreeMultiMapIndex : public TableIndex
         m_entries.insert(setKeyFromTuple(tuple), tuple->address());
     }
 
+    /**
+     * Build the tree of an empty index bottom-up from the sorted keys
+     * instead of inserting and rebalancing one tuple at a time
+     */
+    bool addEntriesInBulkDo(const std::vector<TableTuple> &tuples,
+                            TableTuple *duplicateTuple, TableTuple *conflictTuple)
+    {
+        if (m_entries.size() != 0) {
+            return TableIndex::addEntriesInBulkDo(tuples, duplicateTuple, conflictTuple);
+        }
+        std::vector<std::pair<KeyType, const void*> > entries;
+        entries.reserve(tuples.size());
+        for (size_t i = 0; i < tuples.size(); i++) {
+            entries.push_back(std::make_pair(setKeyFromTuple(&tuples[i]), tuples[i].address()));
+        }
+        std::vector<const std::pair<KeyType, const void*>*> sorted;
+        sorted.reserve(entries.size());
+        for (size_t i = 0; i < entries.size(); i++) {
+            sorted.push_back(&entries[i]);
+        }
+        m_entries.sortForBulkLoad(sorted);
+        m_entries.bulkLoad(sorted);
+        m_inserts += static_cast<int>(tuples.size());
+        return true;
+    }
+
     bool deleteEntryDo(const TableTuple *tuple)
     {
         ++m_deletes;
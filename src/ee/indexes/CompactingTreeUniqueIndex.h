@@ -47,6 +47,7 @@
 #define COMPACTINGTREEUNIQUEINDEX_H_
 
 #include <iostream>
+#include <vector>
 #include <cassert>
 
 #include "common/debuglog.h"
@@ -83,6 +84,37 @@ class CompactingTreeUniqueIndex : public TableIndex
         }
     }
 
+    /**
+     * Build the tree of an empty index bottom-up from the sorted keys
+     * instead of inserting and rebalancing one tuple at a time
+     */
+    bool addEntriesInBulkDo(const std::vector<TableTuple> &tuples,
+                            TableTuple *duplicateTuple, TableTuple *conflictTuple)
+    {
+        if (m_entries.size() != 0) {
+            return TableIndex::addEntriesInBulkDo(tuples, duplicateTuple, conflictTuple);
+        }
+        std::vector<std::pair<KeyType, const void*> > entries;
+        entries.reserve(tuples.size());
+        for (size_t i = 0; i < tuples.size(); i++) {
+            entries.push_back(std::make_pair(setKeyFromTuple(&tuples[i]), tuples[i].address()));
+        }
+        std::vector<const std::pair<KeyType, const void*>*> sorted;
+        sorted.reserve(entries.size());
+        for (size_t i = 0; i < entries.size(); i++) {
+            sorted.push_back(&entries[i]);
+        }
+        const int64_t duplicate = m_entries.sortForBulkLoad(sorted);
+        if (duplicate >= 0) {
+            duplicateTuple->move(const_cast<void*>(sorted[duplicate + 1]->second));
+            conflictTuple->move(const_cast<void*>(sorted[duplicate]->second));
+            return false;
+        }
+        m_entries.bulkLoad(sorted);
+        m_inserts += static_cast<int>(tuples.size());
+        return true;
+    }
+
     bool deleteEntryDo(const TableTuple *tuple)
     {
         ++m_deletes;
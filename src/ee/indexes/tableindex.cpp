@@ -44,6 +44,7 @@
  */
 
 #include <iostream>
+#include "boost/foreach.hpp"
 #include "indexes/tableindex.h"
 #include "expressions/abstractexpression.h"
 #include "expressions/expressionutil.h"
@@ -173,6 +174,35 @@ void TableIndex::addEntry(const TableTuple *tuple, TableTuple *conflictTuple)
     addEntryDo(tuple, conflictTuple);
 }
 
+bool TableIndex::addEntriesInBulk(const std::vector<TableTuple> &tuples,
+                                  TableTuple *duplicateTuple, TableTuple *conflictTuple)
+{
+    if ( ! isPartialIndex()) {
+        return addEntriesInBulkDo(tuples, duplicateTuple, conflictTuple);
+    }
+    std::vector<TableTuple> matching;
+    matching.reserve(tuples.size());
+    BOOST_FOREACH(const TableTuple &tuple, tuples) {
+        if (getPredicate()->eval(&tuple, NULL).isTrue()) {
+            matching.push_back(tuple);
+        }
+    }
+    return addEntriesInBulkDo(matching, duplicateTuple, conflictTuple);
+}
+
+bool TableIndex::addEntriesInBulkDo(const std::vector<TableTuple> &tuples,
+                                    TableTuple *duplicateTuple, TableTuple *conflictTuple)
+{
+    BOOST_FOREACH(const TableTuple &tuple, tuples) {
+        addEntryDo(&tuple, conflictTuple);
+        if ( ! conflictTuple->isNullTuple()) {
+            duplicateTuple->move(tuple.address());
+            return false;
+        }
+    }
+    return true;
+}
+
 bool TableIndex::deleteEntry(const TableTuple *tuple)
 {
     if (isPartialIndex() && !getPredicate()->eval(tuple, NULL).isTrue()) {
@@ -222,6 +222,15 @@ public:
      */
     void addEntry(const TableTuple *tuple, TableTuple *conflictTuple);
 
+    /**
+     * adds index entries for all the given tuples to an index that has no
+     * entries yet. Returns false if two of the tuples have the same key in a
+     * unique index, with those tuples in duplicateTuple and conflictTuple; the
+     * contents of the index are then unspecified.
+     */
+    bool addEntriesInBulk(const std::vector<TableTuple> &tuples,
+                          TableTuple *duplicateTuple, TableTuple *conflictTuple);
+
     /**
      * removes the index entry linked to given value (and tuple
      * pointer, if it's non-unique index).
@@ -545,6 +554,10 @@ protected:
 protected:
     // Index specific implementations
     virtual void addEntryDo(const TableTuple *tuple, TableTuple *conflictTuple) = 0;
+    // Inserts the tuples one at a time, indexes that can build their
+    // structure from sorted keys do better
+    virtual bool addEntriesInBulkDo(const std::vector<TableTuple> &tuples,
+                                    TableTuple *duplicateTuple, TableTuple *conflictTuple);
     virtual bool deleteEntryDo(const TableTuple *tuple) = 0;
     virtual bool replaceEntryNoKeyChangeDo(const TableTuple &destinationTuple,
                                          const TableTuple &originalTuple) = 0;
@@ -60,4 +60,18 @@ void TempTableLimits::increaseAllocated(int bytes)
     LogManager::getThreadLogger(LOGGERID_SQL)->log(LOGLEVEL_INFO, msg);
 }
 
+void TempTableLimits::increaseSpilled(int64_t bytes)
+{
+    m_currSpilledBytes += bytes;
+    m_spilledBytes += bytes;
+    if (m_currSpilledBytes > m_spillLimit) {
+        int limit_mb = static_cast<int>(m_spillLimit / (1024 * 1024));
+        char msg[1024];
+        snprintf(msg, sizeof(msg),
+                 "More than %d MB of temp table data spilled to disk while executing SQL.  Aborting.",
+                 limit_mb);
+        throw SQLException(SQLException::volt_temp_table_memory_overflow, msg);
+    }
+}
+
 } // namespace voltdb
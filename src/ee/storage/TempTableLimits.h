@@ -19,21 +19,33 @@
 #define _EE_STORAGE_TEMPTABLELIMITS_H_
 
 #include <stdint.h>
+#include <string>
 
 namespace voltdb {
 
 /**
  * Track the amount of memory used by temp tables in a plan fragment's executors.
  * Log or throw exceptions based on thresholds.
+ *
+ * When a spill limit and a spill directory are given, temp tables and the
+ * executors that consume them may write cold data to scratch files instead of
+ * failing at the memory limit. Spilled bytes are tracked against their own
+ * budget and exceeding it throws the same kind of SQLException.
  */
 class TempTableLimits {
 public:
-    TempTableLimits(int64_t memoryLimit = 1024 * 1024 * 100, int64_t logThreshold = -1)
+    TempTableLimits(int64_t memoryLimit = 1024 * 1024 * 100, int64_t logThreshold = -1,
+                    int64_t spillLimit = -1, const std::string &spillDirectory = "")
         : m_currMemoryInBytes(0)
         , m_peakMemoryInBytes(0)
         , m_logThreshold(logThreshold)
         , m_memoryLimit(memoryLimit)
         , m_logLatch(false)
+        , m_spillLimit(spillLimit)
+        , m_spillDirectory(spillDirectory)
+        , m_currSpilledBytes(0)
+        , m_spilledBytes(0)
+        , m_spillTimeNanos(0)
     { }
 
     /**
@@ -48,6 +60,32 @@ public:
     int64_t getPeakMemoryInBytes() const { return m_peakMemoryInBytes; }
     void resetPeakMemory() { m_peakMemoryInBytes = m_currMemoryInBytes; }
 
+    /** True if data may be spilled to scratch files once the memory limit is reached. */
+    bool spillEnabled() const { return m_spillLimit > 0 && m_memoryLimit > 0 && !m_spillDirectory.empty(); }
+    /** True if another allocation of the given size stays within the memory limit. */
+    bool hasRoomFor(int64_t bytes) const {
+        return m_memoryLimit <= 0 || m_currMemoryInBytes + bytes <= m_memoryLimit;
+    }
+    int64_t getMemoryLimit() const { return m_memoryLimit; }
+    const std::string& getSpillDirectory() const { return m_spillDirectory; }
+
+    /**
+     * Track bytes written to scratch files. Throw a SQLException when
+     * the spill limit is exceeded.
+     */
+    void increaseSpilled(int64_t bytes);
+    void reduceSpilled(int64_t bytes) { m_currSpilledBytes -= bytes; }
+    void addSpillTime(int64_t nanos) { m_spillTimeNanos += nanos; }
+
+    /// Bytes written to scratch files and time spent on scratch file I/O
+    /// since the last reset.
+    int64_t getSpilledBytes() const { return m_spilledBytes; }
+    int64_t getSpillTimeNanos() const { return m_spillTimeNanos; }
+    void resetSpillStats() {
+        m_spilledBytes = 0;
+        m_spillTimeNanos = 0;
+    }
+
 private:
     /// The current amount of memory used by temp tables for this plan fragment.
     int64_t m_currMemoryInBytes;
@@ -63,6 +101,17 @@ private:
     /// True if we have already generated a log message for
     /// exceeding the log threshold and not yet dropped below it.
     bool m_logLatch;
+    /// The number of bytes that may live in scratch files at once.
+    /// A non-positive value disables spilling.
+    const int64_t m_spillLimit;
+    /// Where scratch files are created.
+    const std::string m_spillDirectory;
+    /// The bytes currently held in scratch files.
+    int64_t m_currSpilledBytes;
+    /// The bytes written to scratch files since the last reset.
+    int64_t m_spilledBytes;
+    /// Time spent reading and writing scratch files since the last reset.
+    int64_t m_spillTimeNanos;
 };
 
 } // namespace voltdb
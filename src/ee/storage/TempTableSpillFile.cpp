@@ -0,0 +1,169 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "storage/TempTableSpillFile.h"
+#include "common/SerializableEEException.h"
+
+#include <algorithm>
+#include <cerrno>
+#include <cstdio>
+#include <cstring>
+#include <cstdlib>
+#include <sys/time.h>
+#include <unistd.h>
+
+namespace voltdb {
+
+namespace {
+
+int64_t nowNanos() {
+    struct timeval tv;
+    gettimeofday(&tv, NULL);
+    return static_cast<int64_t>(tv.tv_sec) * 1000000000 + static_cast<int64_t>(tv.tv_usec) * 1000;
+}
+
+}
+
+TempTableSpillFile::TempTableSpillFile(TempTableLimits *limits)
+    : m_limits(limits)
+    , m_fd(-1)
+    , m_size(0)
+    , m_charged(0)
+{
+    assert(m_limits != NULL);
+    std::string path = m_limits->getSpillDirectory() + "/volt_spill_XXXXXX";
+    std::vector<char> name(path.begin(), path.end());
+    name.push_back('\0');
+    m_fd = mkstemp(&name[0]);
+    if (m_fd < 0) {
+        throwIOError("create");
+    }
+    // nobody else needs to see the file, so it disappears once it is closed
+    unlink(&name[0]);
+}
+
+TempTableSpillFile::~TempTableSpillFile() {
+    if (m_fd >= 0) {
+        close(m_fd);
+    }
+    m_limits->reduceSpilled(m_charged);
+}
+
+void TempTableSpillFile::throwIOError(const char *operation) {
+    char msg[1024];
+    snprintf(msg, sizeof(msg), "Unable to %s a temp table spill file in %s: %s",
+             operation, m_limits->getSpillDirectory().c_str(), strerror(errno));
+    throw SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EEEXCEPTION, msg);
+}
+
+int64_t TempTableSpillFile::append(const char *data, size_t length) {
+    m_charged += length;
+    m_limits->increaseSpilled(length);
+
+    const int64_t start = nowNanos();
+    const int64_t offset = m_size;
+    size_t written = 0;
+    while (written < length) {
+        ssize_t rc = pwrite(m_fd, data + written, length - written, offset + written);
+        if (rc < 0) {
+            if (errno == EINTR) {
+                continue;
+            }
+            throwIOError("write");
+        }
+        written += rc;
+    }
+    m_size += length;
+    m_limits->addSpillTime(nowNanos() - start);
+    return offset;
+}
+
+void TempTableSpillFile::read(int64_t offset, char *data, size_t length) {
+    const int64_t start = nowNanos();
+    size_t done = 0;
+    while (done < length) {
+        ssize_t rc = pread(m_fd, data + done, length - done, offset + done);
+        if (rc < 0 && errno == EINTR) {
+            continue;
+        }
+        if (rc <= 0) {
+            throwIOError("read");
+        }
+        done += rc;
+    }
+    m_limits->addSpillTime(nowNanos() - start);
+}
+
+void TempTableSpillFile::release(int64_t length) {
+    m_charged -= length;
+    m_limits->reduceSpilled(length);
+}
+
+SpilledTupleStream::SpilledTupleStream(TempTableSpillFile *file, const TupleSchema *schema, size_t bufferSize)
+    : m_file(file)
+    , m_tupleLength(schema->tupleLength() + TUPLE_HEADER_SIZE)
+    , m_bufferTuples(static_cast<uint32_t>(std::max(static_cast<size_t>(1), bufferSize / m_tupleLength)))
+    , m_buffer(new char[m_tupleLength * m_bufferTuples])
+    , m_buffered(0)
+    , m_tupleCount(0)
+    , m_nextExtent(0)
+    , m_readIndex(0)
+    , m_readCount(0)
+{
+}
+
+void SpilledTupleStream::append(const TableTuple &tuple) {
+    if (m_buffered == m_bufferTuples) {
+        flush();
+    }
+    ::memcpy(m_buffer.get() + m_buffered * m_tupleLength, tuple.address(), m_tupleLength);
+    ++m_buffered;
+    ++m_tupleCount;
+}
+
+void SpilledTupleStream::flush() {
+    if (m_buffered == 0) {
+        return;
+    }
+    int64_t offset = m_file->append(m_buffer.get(), m_buffered * m_tupleLength);
+    m_extents.push_back(Extent(offset, m_buffered));
+    m_buffered = 0;
+}
+
+void SpilledTupleStream::rewind() {
+    flush();
+    m_nextExtent = 0;
+    m_readIndex = 0;
+    m_readCount = 0;
+}
+
+bool SpilledTupleStream::next(TableTuple &out) {
+    if (m_readIndex == m_readCount) {
+        if (m_nextExtent == m_extents.size()) {
+            return false;
+        }
+        const Extent &extent = m_extents[m_nextExtent++];
+        m_file->read(extent.first, m_buffer.get(), extent.second * m_tupleLength);
+        m_readIndex = 0;
+        m_readCount = extent.second;
+    }
+    out.move(m_buffer.get() + m_readIndex * m_tupleLength);
+    ++m_readIndex;
+    return true;
+}
+
+} // namespace voltdb
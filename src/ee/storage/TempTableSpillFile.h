@@ -0,0 +1,111 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef _EE_STORAGE_TEMPTABLESPILLFILE_H_
+#define _EE_STORAGE_TEMPTABLESPILLFILE_H_
+
+#include "common/tabletuple.h"
+#include "storage/TempTableLimits.h"
+
+#include <boost/shared_array.hpp>
+
+#include <stdint.h>
+#include <vector>
+
+namespace voltdb {
+
+/**
+ * An anonymous scratch file in the fragment's spill directory. The file is
+ * unlinked as soon as it is created so it never outlives the process, and it
+ * is closed when this object is destroyed. Bytes written and time spent
+ * reading and writing are charged to the fragment's TempTableLimits.
+ */
+class TempTableSpillFile {
+public:
+    TempTableSpillFile(TempTableLimits *limits);
+    ~TempTableSpillFile();
+
+    /**
+     * Write the given bytes at the end of the file and return the offset they
+     * were written at. Throws a SQLException when the spill limit is exceeded.
+     */
+    int64_t append(const char *data, size_t length);
+
+    /** Read back bytes that were written at the given offset. */
+    void read(int64_t offset, char *data, size_t length);
+
+    /** Release the budget of bytes that will not be read again. */
+    void release(int64_t length);
+
+    int64_t size() const { return m_size; }
+
+private:
+    // no copies, no assignment
+    TempTableSpillFile(TempTableSpillFile const&);
+    TempTableSpillFile operator=(TempTableSpillFile const&);
+
+    void throwIOError(const char *operation);
+
+    TempTableLimits *m_limits;
+    int m_fd;
+    int64_t m_size;
+    int64_t m_charged;
+};
+
+/**
+ * A sequence of fixed length tuple images written to a spill file through a
+ * block sized buffer and read back in the same order. Several streams may
+ * share one file; each remembers the extents it wrote. Uninlined column data
+ * is not copied, so the strings the tuples point to must outlive the stream,
+ * as they do for the temp tables of a fragment.
+ */
+class SpilledTupleStream {
+public:
+    SpilledTupleStream(TempTableSpillFile *file, const TupleSchema *schema, size_t bufferSize);
+
+    /** Append a copy of the tuple's storage, including its header. */
+    void append(const TableTuple &tuple);
+
+    /** Write out any buffered tuples and prepare to read from the start. */
+    void rewind();
+
+    /** Point out at the next tuple, which stays valid until the next call. */
+    bool next(TableTuple &out);
+
+    int64_t tupleCount() const { return m_tupleCount; }
+
+private:
+    void flush();
+
+    typedef std::pair<int64_t, uint32_t> Extent;
+
+    TempTableSpillFile *m_file;
+    const size_t m_tupleLength;
+    const uint32_t m_bufferTuples;
+    boost::shared_array<char> m_buffer;
+    std::vector<Extent> m_extents;
+    uint32_t m_buffered;
+    int64_t m_tupleCount;
+    // read position
+    size_t m_nextExtent;
+    uint32_t m_readIndex;
+    uint32_t m_readCount;
+};
+
+} // namespace voltdb
+
+#endif // _EE_STORAGE_TEMPTABLESPILLFILE_H_
@@ -214,6 +214,16 @@ public:
         m_freeList.clear();
     }
 
+    /**
+     * Mark every tuple slot as used. For temp table blocks whose storage
+     * has been read back from a spill file.
+     */
+    inline void markFull() {
+        m_activeTuples = m_tuplesPerBlock;
+        m_nextFreeTuple = m_tuplesPerBlock;
+        m_freeList.clear();
+    }
+
     inline uint32_t unusedTupleBoundry() {
         return m_nextFreeTuple;
     }
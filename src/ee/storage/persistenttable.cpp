@@ -125,7 +125,8 @@ PersistentTable::PersistentTable(int partitionColumn, char * signature, bool isM
     m_noAvailableUniqueIndex(false),
     m_smallestUniqueIndex(NULL),
     m_smallestUniqueIndexCrc(0),
-    m_drTimestampColumnIndex(-1)
+    m_drTimestampColumnIndex(-1),
+    m_indexesSuspended(false)
 {
     // this happens here because m_data might not be initialized above
     m_iter.reset(m_data.begin());
@@ -565,10 +566,13 @@ void PersistentTable::insertTupleCommon(TableTuple &source, TableTuple &target,
         target.setDirtyFalse();
     }
 
-    TableTuple conflict(m_schema);
-    tryInsertOnAllIndexes(&target, &conflict);
-    if (!conflict.isNullTuple()) {
-        throw ConstraintFailureException(this, source, conflict, CONSTRAINT_TYPE_UNIQUE);
+    // In bulk load mode the indexes are built when the load is done.
+    if (!m_indexesSuspended) {
+        TableTuple conflict(m_schema);
+        tryInsertOnAllIndexes(&target, &conflict);
+        if (!conflict.isNullTuple()) {
+            throw ConstraintFailureException(this, source, conflict, CONSTRAINT_TYPE_UNIQUE);
+        }
     }
 
     // this is skipped for inserts that are never expected to fail,
@@ -1093,6 +1097,40 @@ void PersistentTable::tryInsertOnAllIndexes(TableTuple *tuple, TableTuple *confl
     }
 }
 
+bool PersistentTable::suspendIndexes() {
+    if (m_indexesSuspended) {
+        return true;
+    }
+    if (!isPersistentTableEmpty()) {
+        return false;
+    }
+    m_indexesSuspended = true;
+    return true;
+}
+
+void PersistentTable::rebuildSuspendedIndexes() {
+    if (!m_indexesSuspended) {
+        return;
+    }
+    m_indexesSuspended = false;
+
+    std::vector<TableTuple> tuples;
+    tuples.reserve(static_cast<size_t>(activeTupleCount()));
+    TableTuple tuple(m_schema);
+    TableIterator ti(this, m_data.begin());
+    while (ti.next(tuple)) {
+        tuples.push_back(tuple);
+    }
+
+    TableTuple duplicate(m_schema);
+    TableTuple conflict(m_schema);
+    BOOST_FOREACH(TableIndex *index, m_indexes) {
+        if (!index->addEntriesInBulk(tuples, &duplicate, &conflict)) {
+            throw ConstraintFailureException(this, duplicate, conflict, CONSTRAINT_TYPE_UNIQUE);
+        }
+    }
+}
+
 bool PersistentTable::checkUpdateOnUniqueIndexes(TableTuple &targetTupleToUpdate,
                                                  const TableTuple &sourceTupleWithNewValues,
                                                  std::vector<TableIndex*> const &indexesToUpdate)
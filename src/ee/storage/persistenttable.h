@@ -438,6 +438,26 @@ class PersistentTable : public Table, public UndoQuantumReleaseInterest,
         m_tupleLimit = newLimit;
     }
 
+    /**
+     * Enter bulk load mode: tuples inserted while the indexes are suspended
+     * only go to the table storage and are indexed all at once by
+     * rebuildSuspendedIndexes(). Only for tables no transaction can see yet,
+     * e.g. while a rejoining site loads its snapshot. Return false if the table
+     * is not empty.
+     */
+    bool suspendIndexes();
+
+    /**
+     * Leave bulk load mode and index every tuple in the table, building each
+     * tree index bottom-up from its sorted keys.
+     * Throws ConstraintFailureException if a unique index is violated.
+     */
+    void rebuildSuspendedIndexes();
+
+    bool indexesSuspended() const {
+        return m_indexesSuspended;
+    }
+
     bool isPersistentTableEmpty() const
     {
         // The narrow usage of this function (while updating the catalog)
@@ -697,6 +717,11 @@ class PersistentTable : public Table, public UndoQuantumReleaseInterest,
     TableIndex* m_smallestUniqueIndex;
     uint32_t m_smallestUniqueIndexCrc;
     int m_drTimestampColumnIndex;
+
+    // BULK LOAD
+
+    // Set while tuples are loaded without maintaining the indexes.
+    bool m_indexesSuspended;
 };
 
 inline PersistentTableSurgeon::PersistentTableSurgeon(PersistentTable &table) :
@@ -380,6 +380,10 @@ protected:
         throw SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EEEXCEPTION,
                                      "May not use freeLastScanedBlock with streamed tables or persistent tables.");
     }
+    virtual TBPtr reloadSpilledBlock(std::vector<TBPtr>::iterator blockIterator) {
+        throw SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EEEXCEPTION,
+                                     "May not use reloadSpilledBlock with streamed tables or persistent tables.");
+    }
 
     Table(int tableAllocationTargetSize);
     void resetTable();
@@ -81,6 +81,15 @@ public:
      * @return true if succeeded. false if no more active tuple is there.
     */
     bool next(TableTuple &out);
+    /**
+     * Stores the addresses of up to max of the tuples that next() would return,
+     * stopping at the end of the current block: a temp table scanned while
+     * deleting frees each block as the iterator leaves it, so the addresses
+     * stay valid until the following call.
+     * @param out scratch tuple of the table's schema.
+     * @return the number of addresses stored, 0 when there are no more tuples.
+     */
+    int nextBatch(TableTuple &out, char **addresses, int max);
     bool hasNext();
     int getLocation() const;
 
@@ -217,6 +226,21 @@ inline bool TableIterator::next(TableTuple &out) {
     return persistentNext(out);
 }
 
+inline int TableIterator::nextBatch(TableTuple &out, char **addresses, int max) {
+    int count = 0;
+    while (count < max) {
+        if (count > 0 &&
+            (m_currentBlock == NULL || m_blockOffset >= m_currentBlock->unusedTupleBoundry())) {
+            break;
+        }
+        if ( ! next(out)) {
+            break;
+        }
+        addresses[count++] = out.address();
+    }
+    return count;
+}
+
 inline bool TableIterator::persistentNext(TableTuple &out) {
     while (m_foundTuples < m_activeTuples) {
         if (m_currentBlock == NULL ||
@@ -268,6 +292,10 @@ inline bool TableIterator::tempNext(TableTuple &out) {
             }
 
             m_currentBlock = *m_tempBlockIterator;
+            if (m_currentBlock == NULL) {
+                // the block was spilled to disk; this iterator holds the only copy read back
+                m_currentBlock = m_table->reloadSpilledBlock(m_tempBlockIterator);
+            }
             m_dataPtr = m_currentBlock->address();
             m_blockOffset = 0;
             m_tempBlockIterator++;
@@ -46,6 +46,8 @@
 #include "temptable.h"
 #include "common/debuglog.h"
 
+#include <algorithm>
+
 #define TABLE_BLOCKSIZE 131072
 
 namespace voltdb {
@@ -53,7 +55,10 @@ namespace voltdb {
 TempTable::TempTable()
   : Table(TABLE_BLOCKSIZE),
     m_iter(this),
-    m_limits(NULL)
+    m_limits(NULL),
+    m_spillable(false),
+    m_spilledBlockCount(0),
+    m_nextBlockToSpill(1)
 {
     // this happens here because m_data might not be initialized above
     m_iter.reset(m_data.begin());
@@ -78,6 +83,50 @@ bool TempTable::deleteTuple(TableTuple &, bool)
     throwFatalException("TempTable does not support deleting individual tuples");
 }
 
+void TempTable::spillToMakeRoomFor(int64_t bytes) {
+    if ( ! m_spillable || m_limits == NULL || ! m_limits->spillEnabled()) {
+        return;
+    }
+    // The first block is never spilled, as it is never freed either.
+    // Every other block but the last one is full.
+    size_t fullBlocks = m_data.size();
+    if (fullBlocks > 0 && m_data.back() != NULL && m_data.back()->hasFreeTuples()) {
+        --fullBlocks;
+    }
+    const size_t blockBytes = m_tupleLength * m_tuplesPerBlock;
+    while (m_nextBlockToSpill < fullBlocks && !m_limits->hasRoomFor(bytes)) {
+        TBPtr &block = m_data[m_nextBlockToSpill];
+        if (block != NULL) {
+            if (!m_spillFile) {
+                m_spillFile.reset(new TempTableSpillFile(m_limits));
+            }
+            m_spillOffsets[m_nextBlockToSpill] = m_spillFile->append(block->address(), blockBytes);
+            block = NULL;
+            m_limits->reduceAllocated(m_tableAllocationSize);
+            ++m_spilledBlockCount;
+        }
+        ++m_nextBlockToSpill;
+    }
+}
+
+TBPtr TempTable::reloadSpilledBlock(std::vector<TBPtr>::iterator blockIterator) {
+    size_t index = blockIterator - m_data.begin();
+    assert(m_spillOffsets[index] >= 0);
+    // The block read back is owned by the iterator and not charged to the
+    // memory limit; there is at most one per iterator.
+    TBPtr block(new TupleBlock(this, TBBucketPtr()));
+    m_spillFile->read(m_spillOffsets[index], block->address(), m_tupleLength * m_tuplesPerBlock);
+    block->markFull();
+    return block;
+}
+
+void TempTable::resetSpill() {
+    m_spillFile.reset();
+    std::fill(m_spillOffsets.begin(), m_spillOffsets.end(), -1);
+    m_spilledBlockCount = 0;
+    m_nextBlockToSpill = 1;
+}
+
 std::string TempTable::tableType() const { return "TempTable"; }
 
 voltdb::TableStats* TempTable::getTableStats() { return NULL; }
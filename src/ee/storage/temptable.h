@@ -51,8 +51,11 @@
 #include "common/ThreadLocalPool.h"
 #include "storage/tableiterator.h"
 #include "storage/TempTableLimits.h"
+#include "storage/TempTableSpillFile.h"
 #include "storage/TupleBlock.h"
 
+#include <boost/scoped_ptr.hpp>
+
 namespace voltdb {
 
 class TableColumn;
@@ -130,6 +133,24 @@ class TempTable : public Table {
 
     int64_t tempTableTupleCount() const { return m_tupleCount; }
 
+    /**
+     * Allow full blocks of this table to be written to a spill file when
+     * allocating another block would exceed the temp table memory limit.
+     * Only for tables whose consumer reads them once through an iterator and
+     * does not hold on to tuples once the iterator has moved past their block.
+     */
+    void setSpillable(bool spillable) { m_spillable = spillable; }
+
+    /** True if some blocks of this table live in a spill file. */
+    bool hasSpilledBlocks() const { return m_spilledBlockCount > 0; }
+
+    /**
+     * Write full blocks of a spillable table to its spill file, oldest
+     * first, until the temp table limits have room for the given number of
+     * bytes or no full block is left in memory.
+     */
+    void spillToMakeRoomFor(int64_t bytes);
+
     // ------------------------------------------------------------------
     // INDEXES
     // ------------------------------------------------------------------
@@ -157,15 +178,26 @@ class TempTable : public Table {
     void nextFreeTuple(TableTuple *tuple);
 
     void freeLastScanedBlock(std::vector<TBPtr>::iterator nextBlockIterator);
+    TBPtr reloadSpilledBlock(std::vector<TBPtr>::iterator blockIterator);
     std::vector<TBPtr>::iterator getDataEndBlockIterator();
 
     virtual void onSetColumns() {
         m_data.clear();
+        m_spillOffsets.clear();
     };
 
   private:
+    void resetSpill();
+
     // pointers to chunks of data. Specific to table impl. Don't leak this type.
     std::vector<TBPtr> m_data;
+
+    // spill state: the file offset of each block in m_data that was spilled, or -1
+    bool m_spillable;
+    boost::scoped_ptr<TempTableSpillFile> m_spillFile;
+    std::vector<int64_t> m_spillOffsets;
+    size_t m_spilledBlockCount;
+    size_t m_nextBlockToSpill;
 };
 
 inline void TempTable::insertTupleNonVirtualWithDeepCopy(const TableTuple &source, Pool *pool) {
@@ -223,6 +255,7 @@ inline void TempTable::deleteAllTuplesNonVirtual(bool freeAllocatedStrings) {
     }
 
     m_tupleCount = 0;
+    resetSpill();
     while (m_data.size() > 1) {
         // This block of temp table may have been clean up already
         // because of delete as we go feature.
@@ -232,6 +265,7 @@ inline void TempTable::deleteAllTuplesNonVirtual(bool freeAllocatedStrings) {
             m_limits->reduceAllocated(m_tableAllocationSize);
         }
     }
+    m_spillOffsets.resize(m_data.size());
 
     // cheap clear of the preserved first block
     if (!m_data.empty()) {
@@ -240,8 +274,16 @@ inline void TempTable::deleteAllTuplesNonVirtual(bool freeAllocatedStrings) {
 }
 
 inline TBPtr TempTable::allocateNextBlock() {
+    // Leave room for one more block besides this one: the table that reads
+    // this one as it is written holds on to its own first block.
+    if (m_spillable && m_limits && m_limits->spillEnabled() &&
+        !m_limits->hasRoomFor(2 * m_tableAllocationSize)) {
+        spillToMakeRoomFor(2 * m_tableAllocationSize);
+    }
+
     TBPtr block(new TupleBlock(this, TBBucketPtr()));
     m_data.push_back(block);
+    m_spillOffsets.push_back(-1);
 
     if (m_limits) {
         m_limits->increaseAllocated(m_tableAllocationSize);
@@ -272,6 +314,16 @@ inline void TempTable::freeLastScanedBlock(std::vector<TBPtr>::iterator nextBloc
         nextBlockIterator--;
         // somehow we preserve the first block
         if (m_data.begin() != nextBlockIterator) {
+            size_t index = nextBlockIterator - m_data.begin();
+            if (*nextBlockIterator == NULL) {
+                // spilled, and already charged to the spill budget instead
+                if (m_spillOffsets[index] >= 0) {
+                    m_spillFile->release(m_tupleLength * m_tuplesPerBlock);
+                    m_spillOffsets[index] = -1;
+                    --m_spilledBlockCount;
+                }
+                return;
+            }
             *nextBlockIterator = NULL;
             if (m_limits) {
                 m_limits->reduceAllocated(m_tableAllocationSize);
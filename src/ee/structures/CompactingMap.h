@@ -20,9 +20,11 @@
 
 #include "ContiguousAllocator.h"
 
+#include <algorithm>
 #include <cstdlib>
 #include <stdint.h>
 #include <utility>
+#include <vector>
 #include <limits>
 #include <cassert>
 
@@ -202,6 +204,19 @@ public:
     bool erase(const Key &key);
     bool erase(iterator &iter);
 
+    /**
+     * Build the tree of an empty map bottom-up from entries already sorted by
+     * key, in linear time and without any rotations. Keys of a unique map must
+     * be distinct.
+     */
+    void bulkLoad(const std::vector<const std::pair<Key, Data>*> &sorted);
+
+    /**
+     * Sort entries by key for bulkLoad(). For a unique map, returns the position
+     * of the first of two entries with the same key, or -1 if the keys are distinct.
+     */
+    int64_t sortForBulkLoad(std::vector<const std::pair<Key, Data>*> &entries) const;
+
     iterator find(const Key &key) const { return iterator(this, lookup(key)); }
     iterator findRank(int64_t ith) const { return iterator(this, lookupRank(ith)); }
     int64_t size() const { return m_count; }
@@ -248,6 +263,17 @@ protected:
     inline void decSubct(TreeNode* x);
     inline void updateSubct(TreeNode* x);
 
+    struct EntryLess {
+        const Compare &m_comper;
+        EntryLess(const Compare &comper) : m_comper(comper) {}
+        bool operator()(const std::pair<Key, Data> *lhs, const std::pair<Key, Data> *rhs) const {
+            return m_comper(lhs->first, rhs->first) < 0;
+        }
+    };
+
+    TreeNode *buildSubtree(const std::vector<const std::pair<Key, Data>*> &sorted,
+                           int64_t begin, int64_t end, TreeNode *parent, int depth, int redDepth);
+
     TreeNode *minimum(const TreeNode *subRoot) const;
     TreeNode *maximum(const TreeNode *subRoot) const;
     TreeNode *successor(const TreeNode *x) const;
@@ -379,6 +405,61 @@ CompactingMap<KeyValuePair, Compare, hasRank>::insert(const Key &key, const Data
     return NULL;
 }
 
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingMap<KeyValuePair, Compare, hasRank>::bulkLoad(const std::vector<const std::pair<Key, Data>*> &sorted)
+{
+    assert(m_count == 0);
+    if (sorted.empty()) {
+        return;
+    }
+    // Splitting every range at its middle fills all the levels but the deepest one.
+    // Every node above the deepest level is black and every node on it is red, so all
+    // paths have the same number of black nodes and no red node has a red child.
+    int redDepth = 0;
+    for (size_t n = sorted.size(); n > 1; n >>= 1) {
+        ++redDepth;
+    }
+    m_root = buildSubtree(sorted, 0, static_cast<int64_t>(sorted.size()), &NIL, 0, redDepth);
+    m_count = static_cast<int64_t>(sorted.size());
+    assert(m_allocator.count() == m_count);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int64_t CompactingMap<KeyValuePair, Compare, hasRank>::sortForBulkLoad(
+        std::vector<const std::pair<Key, Data>*> &entries) const
+{
+    std::sort(entries.begin(), entries.end(), EntryLess(m_comper));
+    if (m_unique) {
+        for (size_t i = 1; i < entries.size(); i++) {
+            if (m_comper(entries[i - 1]->first, entries[i]->first) == 0) {
+                return static_cast<int64_t>(i - 1);
+            }
+        }
+    }
+    return -1;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingMap<KeyValuePair, Compare, hasRank>::TreeNode *
+CompactingMap<KeyValuePair, Compare, hasRank>::buildSubtree(const std::vector<const std::pair<Key, Data>*> &sorted,
+                                                            int64_t begin, int64_t end, TreeNode *parent,
+                                                            int depth, int redDepth)
+{
+    if (begin >= end) {
+        return &NIL;
+    }
+    const int64_t middle = begin + (end - begin) / 2;
+    TreeNode *z = new (m_allocator) TreeNode(&NIL, parent);
+    z->kv.setKeyValuePair(sorted[middle]->first, sorted[middle]->second);
+    z->color = (depth == redDepth && depth > 0) ? RED : BLACK;
+    z->left = buildSubtree(sorted, begin, middle, z, depth + 1, redDepth);
+    z->right = buildSubtree(sorted, middle + 1, end, z, depth + 1, redDepth);
+    if (hasRank) {
+        z->subct = (end - begin > SUBCTMAX) ? INVALIDCT : static_cast<NodeCount>(end - begin);
+    }
+    return z;
+}
+
 template<typename KeyValuePair, typename Compare, bool hasRank>
 typename CompactingMap<KeyValuePair, Compare, hasRank>::iterator
 CompactingMap<KeyValuePair, Compare, hasRank>::lowerBound(const Key &key) const
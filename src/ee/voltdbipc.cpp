@@ -97,7 +97,9 @@ public:
             voltdb::PlanNodeType planNodeType,
             int64_t tuplesProcessed,
             int64_t currMemoryInBytes,
-            int64_t peakMemoryInBytes);
+            int64_t peakMemoryInBytes,
+            int64_t spilledBytes,
+            int64_t spillTimeNanos);
 
     std::string decodeBase64AndDecompress(const std::string& base64Data);
 
@@ -220,6 +222,7 @@ typedef struct {
     int64_t lastCommittedSpHandle;
     int64_t uniqueId;
     int64_t undoToken;
+    int32_t timeFragments;
     int32_t numFragmentIds;
     char data[0];
 }__attribute__((packed)) querypfs;
@@ -769,7 +772,8 @@ void VoltDBIPC::executePlanFragments(struct ipc_command *cmd) {
                                                 ntohll(queryCommand->spHandle),
                                                 ntohll(queryCommand->lastCommittedSpHandle),
                                                 ntohll(queryCommand->uniqueId),
-                                                ntohll(queryCommand->undoToken));
+                                                ntohll(queryCommand->undoToken),
+                                                ntohl(queryCommand->timeFragments) != 0);
     }
     catch (const FatalException &e) {
         crashVoltDB(e);
@@ -956,14 +960,18 @@ int64_t VoltDBIPC::fragmentProgressUpdate(
         voltdb::PlanNodeType planNodeType,
         int64_t tuplesProcessed,
         int64_t currMemoryInBytes,
-        int64_t peakMemoryInBytes) {
+        int64_t peakMemoryInBytes,
+        int64_t spilledBytes,
+        int64_t spillTimeNanos) {
     int32_t nodeTypeAsInt32 = static_cast<int32_t>(planNodeType);
     char message[sizeof(int8_t) +
                  sizeof(batchIndex) +
                  sizeof(nodeTypeAsInt32) +
                  sizeof(tuplesProcessed) +
                  sizeof(currMemoryInBytes) +
-                 sizeof(peakMemoryInBytes)];
+                 sizeof(peakMemoryInBytes) +
+                 sizeof(spilledBytes) +
+                 sizeof(spillTimeNanos)];
     message[0] = static_cast<int8_t>(kErrorCode_progressUpdate);
     size_t offset = 1;
 
@@ -982,6 +990,12 @@ int64_t VoltDBIPC::fragmentProgressUpdate(
     *reinterpret_cast<int64_t*>(&message[offset]) = htonll(peakMemoryInBytes);
     offset += sizeof(tuplesProcessed);
 
+    *reinterpret_cast<int64_t*>(&message[offset]) = htonll(spilledBytes);
+    offset += sizeof(spilledBytes);
+
+    *reinterpret_cast<int64_t*>(&message[offset]) = htonll(spillTimeNanos);
+    offset += sizeof(spillTimeNanos);
+
     int32_t length;
     ssize_t bytes = read(m_fd, &length, sizeof(int32_t));
     if (bytes != sizeof(length)) {
@@ -270,7 +270,9 @@ SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeIniti
     jlong tempTableMemory,
     jlong networkBufferSize,
     jboolean createDrReplicatedStream,
-    jint compactionThreshold)
+    jint compactionThreshold,
+    jlong tempTableSpillLimit,
+    jbyteArray tempTableSpillDirectory)
 {
     VOLT_DEBUG("nativeInitialize() start");
     VoltDBEngine *engine = castToEngine(enginePtr);
@@ -285,6 +287,10 @@ SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeIniti
         jbyte *hostChars = env->GetByteArrayElements( hostname, NULL);
         std::string hostString(reinterpret_cast<char*>(hostChars), env->GetArrayLength(hostname));
         env->ReleaseByteArrayElements( hostname, hostChars, JNI_ABORT);
+        jbyte *spillDirChars = env->GetByteArrayElements( tempTableSpillDirectory, NULL);
+        std::string spillDirString(reinterpret_cast<char*>(spillDirChars),
+                                   env->GetArrayLength(tempTableSpillDirectory));
+        env->ReleaseByteArrayElements( tempTableSpillDirectory, spillDirChars, JNI_ABORT);
         // initialization is separated from constructor so that constructor
         // never fails.
         VOLT_DEBUG("calling initialize...");
@@ -299,7 +305,9 @@ SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeIniti
                                    tempTableMemory,
                                    networkBufferSize,
                                    createDrReplicatedStream,
-                                   static_cast<int32_t>(compactionThreshold));
+                                   static_cast<int32_t>(compactionThreshold),
+                                   tempTableSpillLimit,
+                                   spillDirString);
         if (success) {
             VOLT_DEBUG("initialize succeeded");
             return org_voltdb_jni_ExecutionEngine_ERRORCODE_SUCCESS;
@@ -458,6 +466,83 @@ Java_org_voltdb_jni_ExecutionEngine_nativeLoadTable (
     return org_voltdb_jni_ExecutionEngine_ERRORCODE_ERROR;
 }
 
+/**
+ * This method is called to load table data straight from a direct buffer
+ * into an empty table, deferring index maintenance until nativeFinishBulkLoad.
+ * @param pointer the VoltDBEngine pointer
+ * @param table_id catalog ID of the table
+ * @param buffer direct buffer holding the serialized table
+ * @param offset position of the serialized table in the buffer
+ * @param length length of the serialized table
+*/
+SHAREDLIB_JNIEXPORT jint JNICALL
+Java_org_voltdb_jni_ExecutionEngine_nativeBulkLoadTable (
+    JNIEnv *env, jobject obj, jlong engine_ptr, jint table_id,
+    jobject buffer, jint offset, jint length)
+{
+    VoltDBEngine *engine = castToEngine(engine_ptr);
+    if (engine == NULL) {
+        return org_voltdb_jni_ExecutionEngine_ERRORCODE_ERROR;
+    }
+    Topend *topend = static_cast<JNITopend*>(engine->getTopend())->updateJNIEnv(env);
+
+    engine->resetReusedResultOutputBuffer();
+
+    //JNIEnv pointer can change between calls, must be updated
+    updateJNILogProxy(engine);
+    VOLT_DEBUG("bulk loading table %d in C++...", table_id);
+
+    char *address = reinterpret_cast<char*>(env->GetDirectBufferAddress(buffer));
+    ReferenceSerializeInputBE serialize_in(address + offset, length);
+    try {
+        try {
+            if (engine->bulkLoadTable(table_id, serialize_in)) {
+                return org_voltdb_jni_ExecutionEngine_ERRORCODE_SUCCESS;
+            }
+        } catch (const SerializableEEException &e) {
+            engine->resetReusedResultOutputBuffer();
+            e.serialize(engine->getExceptionOutputSerializer());
+        }
+    } catch (const FatalException &e) {
+        topend->crashVoltDB(e);
+    }
+
+    return org_voltdb_jni_ExecutionEngine_ERRORCODE_ERROR;
+}
+
+/**
+ * Build the indexes of a table deferred by nativeBulkLoadTable.
+ * @param pointer the VoltDBEngine pointer
+ * @param table_id catalog ID of the table
+*/
+SHAREDLIB_JNIEXPORT jint JNICALL
+Java_org_voltdb_jni_ExecutionEngine_nativeFinishBulkLoad (
+    JNIEnv *env, jobject obj, jlong engine_ptr, jint table_id)
+{
+    VoltDBEngine *engine = castToEngine(engine_ptr);
+    if (engine == NULL) {
+        return org_voltdb_jni_ExecutionEngine_ERRORCODE_ERROR;
+    }
+    Topend *topend = static_cast<JNITopend*>(engine->getTopend())->updateJNIEnv(env);
+
+    engine->resetReusedResultOutputBuffer();
+    updateJNILogProxy(engine);
+    try {
+        try {
+            if (engine->finishBulkLoad(table_id)) {
+                return org_voltdb_jni_ExecutionEngine_ERRORCODE_SUCCESS;
+            }
+        } catch (const SerializableEEException &e) {
+            engine->resetReusedResultOutputBuffer();
+            e.serialize(engine->getExceptionOutputSerializer());
+        }
+    } catch (const FatalException &e) {
+        topend->crashVoltDB(e);
+    }
+
+    return org_voltdb_jni_ExecutionEngine_ERRORCODE_ERROR;
+}
+
 
 ////////////////////////////////////////////////////////////////////////////
 // PlanNode Execution
@@ -560,7 +645,8 @@ SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeExecu
         jlong spHandle,
         jlong lastCommittedSpHandle,
         jlong uniqueId,
-        jlong undoToken)
+        jlong undoToken,
+        jboolean timeFragments)
 {
     //VOLT_DEBUG("nativeExecutePlanFragments() start");
 
@@ -596,7 +682,8 @@ SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeExecu
                                                     spHandle,
                                                     lastCommittedSpHandle,
                                                     uniqueId,
-                                                    undoToken);
+                                                    undoToken,
+                                                    timeFragments);
 
         if (failures > 0) {
             return org_voltdb_jni_ExecutionEngine_ERRORCODE_ERROR;
@@ -23,7 +23,10 @@ import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -48,8 +51,17 @@ public class ForeignHost {
     private static RateLimitedLogger rateLimitedLogger;
     private static long m_logRate;
 
-    final PicoNetwork m_network;
-    final FHInputHandler m_handler;
+    /**
+     * Messages no larger than this are coalesced with the other small messages
+     * queued for the same connection into one frame, 0 to send every message
+     * in a frame of its own.
+     */
+    static final int COALESCE_MESSAGE_BYTES = Integer.getInteger("MESH_COALESCE_MESSAGE_BYTES", 4096);
+    /** Upper bound on the size of a frame of coalesced messages */
+    static final int COALESCE_FRAME_BYTES = Integer.getInteger("MESH_COALESCE_FRAME_BYTES", 64 * 1024);
+
+    /** The connections to the host, messages for a site always use the same one */
+    final Link m_links[];
     private final HostMessenger m_hostMessenger;
     private final Integer m_hostId;
     final InetSocketAddress m_listeningAddress;
@@ -57,20 +69,20 @@ public class ForeignHost {
     private boolean m_closing;
     boolean m_isUp;
 
-    // hold onto the socket so we can kill it
-    private final Socket m_socket;
-
     // Set the default here for TestMessaging, which currently has no VoltDB instance
     private long m_deadHostTimeout;
     private final AtomicLong m_lastMessageMillis = new AtomicLong(Long.MAX_VALUE);
 
     private final AtomicInteger m_deadReportsCount = new AtomicInteger(0);
+    private final AtomicBoolean m_hangupReported = new AtomicBoolean(false);
 
     // used to immediately cut off reads from a foreign host
     // great way to trigger a heartbeat timout / simulate a network partition
     private AtomicBoolean m_linkCutForTest = new AtomicBoolean(false);
 
     public static final int POISON_PILL = -1;
+    // destination count of a frame that holds several complete frames
+    static final int COALESCED_FRAMES = -2;
 
     public static final int CRASH_ALL = 0;
     public static final int CRASH_ME = 1;
@@ -78,6 +90,11 @@ public class ForeignHost {
 
     /** ForeignHost's implementation of InputHandler */
     public class FHInputHandler extends VoltProtocolHandler {
+        private final Link m_link;
+
+        FHInputHandler(Link link) {
+            m_link = link;
+        }
 
         @Override
         public int getMaxRead() {
@@ -91,14 +108,16 @@ public class ForeignHost {
                 return;
             }
 
-            handleRead(message, c);
+            m_link.m_bytesRead += message.remaining() + 4;
+            handleRead(message, m_link);
         }
 
         @Override
         public void stopping(Connection c)
         {
             m_isUp = false;
-            if (!m_closing)
+            // losing any one of the links loses the host, only report it once
+            if (!m_closing && m_hangupReported.compareAndSet(false, true))
             {
                 if (!m_hostMessenger.isShuttingDown()) {
                     VoltDB.dropStackTrace("Received remote hangup from foreign host " + hostnameAndIPAndPort());
@@ -140,26 +159,264 @@ public class ForeignHost {
         m_logRate = logRate;
     }
 
+    /**
+     * One of the connections to the foreign host. Senders append to the link's
+     * queue and only the one that finds it idle wakes the network thread, which
+     * moves everything queued into the write stream at once, putting runs of
+     * small messages into a single frame.
+     */
+    class Link {
+        final int m_index;
+        final PicoNetwork m_network;
+        final FHInputHandler m_handler;
+        // hold onto the socket so we can kill it
+        private final Socket m_socket;
+
+        private final ConcurrentLinkedQueue<DeferredSerialization> m_queue =
+                new ConcurrentLinkedQueue<DeferredSerialization>();
+        private final AtomicInteger m_queued = new AtomicInteger(0);
+        private final AtomicBoolean m_flushScheduled = new AtomicBoolean(false);
+        private final Runnable m_flushTask = new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        };
+
+        // Only written by the network thread
+        volatile long m_bytesRead = 0;
+        volatile long m_messagesRead = 0;
+        volatile long m_bytesWritten = 0;
+        volatile long m_messagesWritten = 0;
+        volatile long m_framesWritten = 0;
+        // most messages found queued by a flush, reset when stats are polled
+        volatile int m_maxQueued = 0;
+
+        Link(int index, SocketChannel socket, PicoNetwork network) {
+            m_index = index;
+            m_socket = socket.socket();
+            m_network = network;
+            m_handler = new FHInputHandler(this);
+        }
+
+        void enqueue(DeferredSerialization ds) {
+            m_queue.offer(ds);
+            m_queued.incrementAndGet();
+            if (!m_flushScheduled.get() && m_flushScheduled.compareAndSet(false, true)) {
+                m_network.queueTask(m_flushTask);
+            }
+        }
+
+        // totals as of the last interval poll, guarded by the link
+        private final long m_lastTotals[] = new long[5];
+
+        /**
+         * Bytes and messages read, bytes, messages and frames written, messages
+         * queued now and the most found queued by a flush
+         */
+        synchronized long[] getStats(boolean interval) {
+            final long totals[] = new long[] {
+                    m_bytesRead, m_messagesRead, m_bytesWritten, m_messagesWritten, m_framesWritten };
+            final long stats[] = new long[totals.length + 2];
+            for (int ii = 0; ii < totals.length; ii++) {
+                stats[ii] = interval ? totals[ii] - m_lastTotals[ii] : totals[ii];
+            }
+            stats[totals.length] = m_queued.get();
+            stats[totals.length + 1] = m_maxQueued;
+            if (interval) {
+                System.arraycopy(totals, 0, m_lastTotals, 0, totals.length);
+                m_maxQueued = 0;
+            }
+            return stats;
+        }
+
+        /*
+         * Runs on the network thread. The flag is cleared before draining so a
+         * sender that finds it clear has its message drained by this or the
+         * next flush.
+         */
+        private void flush() {
+            m_flushScheduled.set(false);
+            List<OutgoingMessage> batch = null;
+            int batchBytes = 0;
+            int drained = 0;
+            DeferredSerialization ds;
+            try {
+                while ((ds = m_queue.poll()) != null) {
+                    drained++;
+                    final int size = ds.getSerializedSize();
+                    if (ds instanceof OutgoingMessage && size <= COALESCE_MESSAGE_BYTES) {
+                        if (batch != null && batchBytes + size > COALESCE_FRAME_BYTES) {
+                            write(batch, batchBytes);
+                            batch = null;
+                        }
+                        if (batch == null) {
+                            batch = new ArrayList<OutgoingMessage>();
+                            batchBytes = COALESCED_HEADER_BYTES;
+                        }
+                        batch.add((OutgoingMessage)ds);
+                        batchBytes += size;
+                        continue;
+                    }
+                    if (batch != null) {
+                        write(batch, batchBytes);
+                        batch = null;
+                    }
+                    write(ds, size, 1);
+                }
+                if (batch != null) {
+                    write(batch, batchBytes);
+                }
+            } catch (IOException e) {
+                // the serialized size of a message is computed without I/O
+                Throwables.propagate(e);
+            }
+            m_queued.addAndGet(-drained);
+            if (drained > m_maxQueued) {
+                m_maxQueued = drained;
+            }
+        }
+
+        private void write(List<OutgoingMessage> batch, int batchBytes) {
+            if (batch.size() == 1) {
+                OutgoingMessage message = batch.get(0);
+                write(message, message.m_size, 1);
+            } else {
+                write(new CoalescedFrame(batch, batchBytes), batchBytes, batch.size());
+            }
+        }
+
+        private void write(DeferredSerialization ds, int size, int messages) {
+            m_network.enqueueFromNetworkThread(ds);
+            m_bytesWritten += size;
+            m_messagesWritten += messages;
+            m_framesWritten++;
+        }
+    }
+
+    /** A message and the sites on the foreign host it is for, in a frame of its own */
+    static final class OutgoingMessage implements DeferredSerialization {
+        private final long m_destinations[];
+        private final VoltMessage m_message;
+        // computed on the network thread, not by the sender
+        private int m_size = 0;
+
+        OutgoingMessage(long destinations[], VoltMessage message) {
+            m_destinations = destinations;
+            m_message = message;
+        }
+
+        @Override
+        public final void serialize(final ByteBuffer buf) throws IOException {
+            buf.putInt(buf.capacity() - 4);
+            buf.putLong(m_message.m_sourceHSId);
+            buf.putInt(m_destinations.length);
+            for (int ii = 0; ii < m_destinations.length; ii++) {
+                buf.putLong(m_destinations[ii]);
+            }
+            m_message.flattenToBuffer(buf);
+            buf.flip();
+        }
+
+        @Override
+        public final void cancel() {
+        /*
+         * Can this be removed?
+         */
+        }
+
+        @Override
+        public String toString() {
+            return m_message.getClass().getName();
+        }
+
+        @Override
+        public int getSerializedSize() {
+            if (m_size == 0) {
+                m_size = 4            /* length prefix */
+                        + 8            /* source hsid */
+                        + 4            /* destinationCount */
+                        + 8 * m_destinations.length  /* destination list */
+                        + m_message.getSerializedSize();
+            }
+            return m_size;
+        }
+    }
+
+    // length prefix, source hsid and destination count of a coalesced frame
+    static final int COALESCED_HEADER_BYTES = 4 + 8 + 4;
+
+    /**
+     * Several complete frames wrapped in one, so the receiver reads and
+     * allocates once for all of them
+     */
+    static final class CoalescedFrame implements DeferredSerialization {
+        private final List<OutgoingMessage> m_messages;
+        private final int m_size;
+
+        CoalescedFrame(List<OutgoingMessage> messages, int size) {
+            m_messages = messages;
+            m_size = size;
+        }
+
+        @Override
+        public void serialize(ByteBuffer buf) throws IOException {
+            buf.putInt(buf.capacity() - 4);
+            buf.putLong(-1);
+            buf.putInt(COALESCED_FRAMES);
+            for (OutgoingMessage message : m_messages) {
+                // messages may check that they fill the buffer they are given exactly
+                ByteBuffer frame = buf.duplicate();
+                frame.limit(frame.position() + message.m_size);
+                frame = frame.slice();
+                message.serialize(frame);
+                buf.position(buf.position() + message.m_size);
+            }
+            buf.flip();
+        }
+
+        @Override
+        public void cancel() {
+            for (OutgoingMessage message : m_messages) {
+                message.cancel();
+            }
+        }
+
+        @Override
+        public int getSerializedSize() {
+            return m_size;
+        }
+
+        @Override
+        public String toString() {
+            return "CoalescedFrame of " + m_messages.size() + " messages";
+        }
+    }
+
     /** Create a ForeignHost and install in VoltNetwork */
-    ForeignHost(HostMessenger host, int hostId, SocketChannel socket, int deadHostTimeout,
-            InetSocketAddress listeningAddress, PicoNetwork network)
+    ForeignHost(HostMessenger host, int hostId, SocketChannel sockets[], int deadHostTimeout,
+            InetSocketAddress listeningAddress, PicoNetwork networks[])
     throws IOException
     {
+        assert(sockets.length > 0 && sockets.length == networks.length);
         m_hostMessenger = host;
-        m_handler = new FHInputHandler();
         m_hostId = hostId;
         m_closing = false;
         m_isUp = true;
-        m_socket = socket.socket();
+        m_links = new Link[sockets.length];
+        for (int ii = 0; ii < sockets.length; ii++) {
+            m_links[ii] = new Link(ii, sockets[ii], networks[ii]);
+        }
         m_deadHostTimeout = deadHostTimeout;
         m_listeningAddress = listeningAddress;
-        m_network = network;
 
         setLogRate(deadHostTimeout);
     }
 
     public void enableRead(Set<Long> verbotenThreads) {
-        m_network.start(m_handler, verbotenThreads);
+        for (Link link : m_links) {
+            link.m_network.start(link.m_handler, verbotenThreads);
+        }
     }
 
     synchronized void close()
@@ -168,7 +425,9 @@ public class ForeignHost {
         if (m_closing) return;
         m_closing = true;
         try {
-            m_network.shutdownAsync();
+            for (Link link : m_links) {
+                link.m_network.shutdownAsync();
+            }
         } catch (InterruptedException e) {
             Throwables.propagate(e);
         }
@@ -180,10 +439,14 @@ public class ForeignHost {
     void killSocket() {
         try {
             m_closing = true;
-            m_socket.setKeepAlive(false);
-            m_socket.setSoLinger(false, 0);
+            for (Link link : m_links) {
+                link.m_socket.setKeepAlive(false);
+                link.m_socket.setSoLinger(false, 0);
+            }
             Thread.sleep(25);
-            m_socket.close();
+            for (Link link : m_links) {
+                link.m_socket.close();
+            }
             Thread.sleep(25);
             System.gc();
             Thread.sleep(25);
@@ -220,42 +483,11 @@ public class ForeignHost {
             return;
         }
 
-        m_network.enqueue(
-                new DeferredSerialization() {
-                    @Override
-                    public final void serialize(final ByteBuffer buf) throws IOException {
-                        buf.putInt(buf.capacity() - 4);
-                        buf.putLong(message.m_sourceHSId);
-                        buf.putInt(destinations.length);
-                        for (int ii = 0; ii < destinations.length; ii++) {
-                            buf.putLong(destinations[ii]);
-                        }
-                        message.flattenToBuffer(buf);
-                        buf.flip();
-                    }
-
-                    @Override
-                    public final void cancel() {
-                    /*
-                     * Can this be removed?
-                     */
-                    }
-
-                    @Override
-                    public String toString() {
-                        return message.getClass().getName();
-                    }
-
-                    @Override
-                    public int getSerializedSize() {
-                        final int len = 4            /* length prefix */
-                                + 8            /* source hsid */
-                                + 4            /* destinationCount */
-                                + 8 * destinations.length  /* destination list */
-                                + message.getSerializedSize();
-                        return len;
-                    }
-                });
+        if (m_links.length == 1) {
+            m_links[0].enqueue(new OutgoingMessage(destinations, message));
+        } else {
+            sendOnLinks(destinations, message);
+        }
 
         long current_time = EstTime.currentTimeMillis();
         long current_delta = current_time - m_lastMessageMillis.get();
@@ -288,12 +520,59 @@ public class ForeignHost {
     }
 
 
+    /**
+     * All the messages for a site go over the same link so they arrive in the
+     * order they were sent. Messages for sites on different links are split
+     * into one message per link.
+     */
+    static int linkIndex(long hsId, int linkCount) {
+        final int siteId = CoreUtils.getSiteIdFromHSId(hsId);
+        return ((siteId % linkCount) + linkCount) % linkCount;
+    }
+
+    private void sendOnLinks(long destinations[], VoltMessage message) {
+        final int firstLink = linkIndex(destinations[0], m_links.length);
+        int ii = 1;
+        while (ii < destinations.length && linkIndex(destinations[ii], m_links.length) == firstLink) {
+            ii++;
+        }
+        if (ii == destinations.length) {
+            m_links[firstLink].enqueue(new OutgoingMessage(destinations, message));
+            return;
+        }
+
+        int counts[] = new int[m_links.length];
+        for (long hsId : destinations) {
+            counts[linkIndex(hsId, m_links.length)]++;
+        }
+        long linkDestinations[][] = new long[m_links.length][];
+        for (int link = 0; link < m_links.length; link++) {
+            if (counts[link] > 0) {
+                linkDestinations[link] = new long[counts[link]];
+                counts[link] = 0;
+            }
+        }
+        for (long hsId : destinations) {
+            final int link = linkIndex(hsId, m_links.length);
+            linkDestinations[link][counts[link]++] = hsId;
+        }
+        for (int link = 0; link < m_links.length; link++) {
+            if (linkDestinations[link] != null) {
+                m_links[link].enqueue(new OutgoingMessage(linkDestinations[link], message));
+            }
+        }
+    }
+
     String hostnameAndIPAndPort() {
-        return m_network.getHostnameAndIPAndPort();
+        return m_links[0].m_network.getHostnameAndIPAndPort();
     }
 
     String hostname() {
-        return m_network.getHostnameOrIP();
+        return m_links[0].m_network.getHostnameOrIP();
+    }
+
+    int getHostId() {
+        return m_hostId;
     }
 
     /** Deliver a deserialized message from the network to a local mailbox */
@@ -303,7 +582,7 @@ public class ForeignHost {
                     m_hostMessenger.getHostId() + " from " + CoreUtils.hsIdToString(message.m_sourceHSId) +
                     " which is a known failed host. The message will be dropped\n",
                     message.getClass().getSimpleName(),
-                    CoreUtils.hsIdToString(destinationHSId), m_socket.getRemoteSocketAddress().toString()));
+                    CoreUtils.hsIdToString(destinationHSId), hostnameAndIPAndPort()));
             return;
         }
 
@@ -316,7 +595,7 @@ public class ForeignHost {
             hostLog.info(String.format("Message (%s) sent to unknown site id: %s @ (%s) at " +
                     m_hostMessenger.getHostId() + " from " + CoreUtils.hsIdToString(message.m_sourceHSId) + "\n",
                     message.getClass().getSimpleName(),
-                    CoreUtils.hsIdToString(destinationHSId), m_socket.getRemoteSocketAddress().toString()));
+                    CoreUtils.hsIdToString(destinationHSId), hostnameAndIPAndPort()));
             /*
              * If it is for the wrong host, that definitely isn't cool
              */
@@ -333,13 +612,25 @@ public class ForeignHost {
      * data is available.
      * @throws IOException
      */
-    private void handleRead(ByteBuffer in, Connection c) throws IOException {
+    private void handleRead(ByteBuffer in, Link link) throws IOException {
         // port is locked by VoltNetwork when in valid use.
         // assert(m_port.m_lock.tryLock() == true);
         long recvDests[] = null;
 
         final long sourceHSId = in.getLong();
         final int destCount = in.getInt();
+        if (destCount == COALESCED_FRAMES) {
+            final int limit = in.limit();
+            while (in.position() < limit) {
+                final int length = in.getInt();
+                final int next = in.position() + length;
+                in.limit(next);
+                handleRead(in, link);
+                in.limit(limit);
+                in.position(next);
+            }
+            return;
+        }
         if (destCount == POISON_PILL) {//This is a poison pill
             //Ignore poison pill during shutdown, in tests we receive crash messages from
             //leader appointer during shutdown
@@ -390,6 +681,7 @@ public class ForeignHost {
         for (int i = 0; i < destCount; i++) {
             deliverMessage( recvDests[i], message);
         }
+        link.m_messagesRead++;
 
         //m_lastMessageMillis = System.currentTimeMillis();
         m_lastMessageMillis.lazySet(EstTime.currentTimeMillis());
@@ -412,7 +704,22 @@ public class ForeignHost {
         message.put(errBytes);
         message.putInt(cause);
         message.flip();
-        m_network.enqueue(message);
+        final ByteBuffer pill = message;
+        // behind whatever is already queued on the link, like any other message
+        m_links[0].enqueue(new DeferredSerialization() {
+            @Override
+            public void serialize(ByteBuffer buf) throws IOException {
+                buf.put(pill);
+            }
+
+            @Override
+            public void cancel() {}
+
+            @Override
+            public int getSerializedSize() {
+                return pill.remaining();
+            }
+        });
     }
 
     public void updateDeadHostTimeout(int timeout) {
@@ -17,6 +17,7 @@
 
 package org.voltcore.messaging;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.nio.ByteBuffer;
@@ -127,6 +128,12 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
         public long backwardsTimeForgivenessWindow = 1000 * 60 * 60 * 24 * 7;
         public VoltMessageFactory factory = new VoltMessageFactory();
         public int networkThreads =  Math.max(2, CoreUtils.availableProcessors() / 4);
+        /*
+         * Connections this node opens to each host it joins the mesh with,
+         * each with its own network thread. Messages for a site always use
+         * the same connection.
+         */
+        public int connectionsPerHost = Integer.getInteger("connectionsPerHost", 1);
         public Queue<String> coreBindIds;
         public AtomicBoolean isPaused = new AtomicBoolean(false);
 
@@ -176,6 +183,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
                 js.key("deadhosttimeout").value(deadHostTimeout);
                 js.key("backwardstimeforgivenesswindow").value(backwardsTimeForgivenessWindow);
                 js.key("networkThreads").value(networkThreads);
+                js.key("connectionsPerHost").value(connectionsPerHost);
                 js.endObject();
 
                 return js.toString();
@@ -293,6 +301,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
                 m_config.coordinatorIp,
                 m_config.internalInterface,
                 m_config.internalPort, m_config.isPaused,
+                m_config.connectionsPerHost,
                 this);
 
         // Register a clean shutdown hook for the network threads.  This gets cranky
@@ -633,12 +642,12 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
      * and put it in the map of foreign hosts
      */
     @Override
-    public void notifyOfJoin(int hostId, SocketChannel socket, InetSocketAddress listeningAddress) {
+    public void notifyOfJoin(int hostId, SocketChannel socket, SocketChannel additionalSockets[],
+            InetSocketAddress listeningAddress) {
         m_networkLog.info(getHostId() + " notified of " + hostId);
-        prepSocketChannel(socket);
         ForeignHost fhost = null;
         try {
-            fhost = new ForeignHost(this, hostId, socket, m_config.deadHostTimeout, listeningAddress, new PicoNetwork(socket));
+            fhost = createForeignHost(hostId, socket, additionalSockets, listeningAddress);
             putForeignHost(hostId, fhost);
             fhost.enableRead(VERBOTEN_THREADS);
         } catch (java.io.IOException e) {
@@ -663,6 +672,22 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
         }
     }
 
+    /*
+     * Wrap the main connection to a host and any additional ones in a foreign host
+     */
+    private ForeignHost createForeignHost(int hostId, SocketChannel socket, SocketChannel additionalSockets[],
+            InetSocketAddress listeningAddress) throws IOException {
+        SocketChannel sockets[] = new SocketChannel[1 + additionalSockets.length];
+        PicoNetwork networks[] = new PicoNetwork[sockets.length];
+        sockets[0] = socket;
+        System.arraycopy(additionalSockets, 0, sockets, 1, additionalSockets.length);
+        for (int ii = 0; ii < sockets.length; ii++) {
+            prepSocketChannel(sockets[ii]);
+            networks[ii] = new PicoNetwork(sockets[ii]);
+        }
+        return new ForeignHost(this, hostId, sockets, m_config.deadHostTimeout, listeningAddress, networks);
+    }
+
     /*
      * Convenience method for doing the verbose COW insert into the map
      */
@@ -706,7 +731,8 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
      * in the MembershipAcceptor.
      */
     @Override
-    public void requestJoin(SocketChannel socket, InetSocketAddress listeningAddress, String request) throws Exception {
+    public void requestJoin(SocketChannel socket, SocketChannel additionalSockets[],
+            InetSocketAddress listeningAddress, String request) throws Exception {
         /*
          * Generate the host id via creating an ephemeral sequential node
          */
@@ -729,6 +755,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
                 writeRequestJoinResponse(hostId, shouldAcceptMember, errMsg.toString(), socket);
                 if (!shouldAcceptMember) {
                     socket.close();
+                    closeSockets(additionalSockets);
                     return;
                 }
 
@@ -745,6 +772,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
                     if (read == -1) {
                         m_networkLog.info("New connection was unable to establish mesh");
                         socket.close();
+                        closeSockets(additionalSockets);
                         return;
                     } else if (read < 1) {
                         Thread.sleep(5);
@@ -754,7 +782,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
                 /*
                  * Now add the host to the mailbox system
                  */
-                fhost = new ForeignHost(this, hostId, socket, m_config.deadHostTimeout, listeningAddress, new PicoNetwork(socket));
+                fhost = createForeignHost(hostId, socket, additionalSockets, listeningAddress);
                 putForeignHost(hostId, fhost);
                 fhost.enableRead(VERBOTEN_THREADS);
             } catch (Exception e) {
@@ -762,6 +790,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
                 addFailedHost(hostId);
                 removeForeignHost(hostId);
                 socket.close();
+                closeSockets(additionalSockets);
                 return;
             }
 
@@ -779,6 +808,14 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
         }
     }
 
+    private static void closeSockets(SocketChannel sockets[]) {
+        for (SocketChannel sc : sockets) {
+            try {
+                sc.close();
+            } catch (IOException e) {}
+        }
+    }
+
     /*
      * Generate a new host id by creating a persistent sequential node
      */
@@ -855,6 +892,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
             int yourHostId,
             int[] hosts,
             SocketChannel[] sockets,
+            SocketChannel[][] additionalSockets,
             InetSocketAddress listeningAddresses[]) throws Exception {
         m_localHostId = yourHostId;
         long agreementHSId = getHSIdForLocalSite(AGREEMENT_SITE_ID);
@@ -870,10 +908,9 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
         for (int ii = 0; ii < hosts.length; ii++) {
             m_networkLog.info(yourHostId + " notified of host " + hosts[ii]);
             agreementSites.add(CoreUtils.getHSIdFromHostAndSite(hosts[ii], AGREEMENT_SITE_ID));
-            prepSocketChannel(sockets[ii]);
             ForeignHost fhost = null;
             try {
-                fhost = new ForeignHost(this, hosts[ii], sockets[ii], m_config.deadHostTimeout, listeningAddresses[ii], new PicoNetwork(sockets[ii]));
+                fhost = createForeignHost(hosts[ii], sockets[ii], additionalSockets[ii], listeningAddresses[ii]);
                 putForeignHost(hosts[ii], fhost);
             } catch (java.io.IOException e) {
                 org.voltdb.VoltDB.crashLocalVoltDB("", true, e);
@@ -1365,12 +1402,31 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
         ArrayList<IOStatsIntf> picoNetworks = new ArrayList<IOStatsIntf>(fhosts.size());
 
         for (ForeignHost fh : fhosts.values()) {
-            picoNetworks.add(fh.m_network);
+            for (ForeignHost.Link link : fh.m_links) {
+                picoNetworks.add(link.m_network);
+            }
         }
 
         return m_network.getIOStats(interval, picoNetworks);
     }
 
+    /**
+     * Traffic and queued messages of each connection to another host, keyed by
+     * the host id and the index of the connection. See ForeignHost.Link.getStats
+     * for the counters.
+     */
+    public Map<Pair<Integer, Integer>, Pair<String, long[]>> getLinkStats(boolean interval) {
+        Map<Pair<Integer, Integer>, Pair<String, long[]>> retval =
+                new HashMap<Pair<Integer, Integer>, Pair<String, long[]>>();
+        for (ForeignHost fh : m_foreignHosts.values()) {
+            for (ForeignHost.Link link : fh.m_links) {
+                retval.put(Pair.of(fh.getHostId(), link.m_index),
+                           Pair.of(fh.hostname(), link.getStats(interval)));
+            }
+        }
+        return retval;
+    }
+
     /**
      * Cut the network connection between two hostids immediately
      * Useful for simulating network partitions
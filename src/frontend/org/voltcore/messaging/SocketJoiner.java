@@ -76,12 +76,14 @@ public class SocketJoiner {
         /*
          * Notify that a specific host has joined with the specified host id.
          */
-        public void notifyOfJoin(int hostId, SocketChannel socket, InetSocketAddress listeningAddress);
+        public void notifyOfJoin(int hostId, SocketChannel socket, SocketChannel additionalSockets[],
+                InetSocketAddress listeningAddress);
 
         /*
          * A node wants to join the socket mesh
          */
-        public void requestJoin(SocketChannel socket, InetSocketAddress listeningAddress, String request) throws Exception;
+        public void requestJoin(SocketChannel socket, SocketChannel additionalSockets[],
+                InetSocketAddress listeningAddress, String request) throws Exception;
 
         public void notifyAsPaused();
         /*
@@ -92,6 +94,7 @@ public class SocketJoiner {
                 int yourLocalHostId,
                 int hosts[],
                 SocketChannel sockets[],
+                SocketChannel additionalSockets[][],
                 InetSocketAddress listeningAddresses[]) throws Exception;
     }
 
@@ -107,10 +110,16 @@ public class SocketJoiner {
     private final List<ServerSocketChannel> m_listenerSockets = new ArrayList<ServerSocketChannel>();
     private Selector m_selector;
     private final JoinHandler m_joinHandler;
+    /*
+     * Connections made ahead of the main connection from a host, keyed by the
+     * token the host will send with the main connection
+     */
+    private final Map<Long, List<SocketChannel>> m_additionalConnections = new HashMap<Long, List<SocketChannel>>();
 
     // from configuration data
     int m_internalPort = 3021;
     String m_internalInterface = "";
+    final int m_connectionsPerHost;
     /*
      * The interface we connected to the leader on
      */
@@ -237,8 +246,9 @@ public class SocketJoiner {
             InetSocketAddress coordIp,
             String internalInterface,
             int internalPort, AtomicBoolean isPaused,
+            int connectionsPerHost,
             JoinHandler jh) {
-        if (internalInterface == null || coordIp == null || jh == null) {
+        if (internalInterface == null || coordIp == null || jh == null || connectionsPerHost < 1) {
             throw new IllegalArgumentException();
         }
         m_coordIp = coordIp;
@@ -246,6 +256,7 @@ public class SocketJoiner {
         m_internalInterface = internalInterface;
         m_internalPort = internalPort;
         m_paused = isPaused;
+        m_connectionsPerHost = connectionsPerHost;
     }
 
     /*
@@ -409,10 +420,29 @@ public class SocketJoiner {
             }
 
             hostLog.info("Received request type " + type);
+            if (type.equals("ADDITIONAL_CONNECTION")) {
+                // held until the main connection carrying the same token arrives
+                final long token = jsObj.getLong("connectionToken");
+                List<SocketChannel> additional = m_additionalConnections.get(token);
+                if (additional == null) {
+                    additional = new ArrayList<SocketChannel>();
+                    m_additionalConnections.put(token, additional);
+                }
+                additional.add(sc);
+                continue;
+            }
+
+            SocketChannel additionalSockets[] = new SocketChannel[0];
+            if (jsObj.has("connectionToken")) {
+                List<SocketChannel> additional = m_additionalConnections.remove(jsObj.getLong("connectionToken"));
+                if (additional != null) {
+                    additionalSockets = additional.toArray(additionalSockets);
+                }
+            }
             if (type.equals("REQUEST_HOSTID")) {
-                m_joinHandler.requestJoin( sc, listeningAddress, jsObj.optString("request"));
+                m_joinHandler.requestJoin( sc, additionalSockets, listeningAddress, jsObj.optString("request"));
             } else if (type.equals("PUBLISH_HOSTID")){
-                m_joinHandler.notifyOfJoin(jsObj.getInt("hostId"), sc, listeningAddress);
+                m_joinHandler.notifyOfJoin(jsObj.getInt("hostId"), sc, additionalSockets, listeningAddress);
             } else {
                 throw new RuntimeException("Unexpected message type " + type + " from " + remoteAddress);
             }
@@ -505,6 +535,66 @@ public class SocketJoiner {
         return paused;
     }
 
+    /*
+     * Open the connections to a host beyond the first one. Each goes through the
+     * same clock and version handshake as the main connection, announcing itself
+     * with the token that the main connection will carry.
+     */
+    private SocketChannel[] openAdditionalConnections(InetSocketAddress hostAddr,
+                                                      long connectionToken,
+                                                      String localVersionString,
+                                                      String localBuildString,
+                                                      Set<String> activeVersions) throws Exception
+    {
+        SocketChannel sockets[] = new SocketChannel[m_connectionsPerHost - 1];
+        for (int ii = 0; ii < sockets.length; ii++) {
+            SocketChannel sc = null;
+            while (sc == null) {
+                try {
+                    sc = SocketChannel.open(hostAddr);
+                }
+                catch (java.net.ConnectException e) {
+                    LOG.warn("Connecting to host failed: " + e.getMessage() + " retrying..");
+                    try {
+                        Thread.sleep(250); //  milliseconds
+                    }
+                    catch (InterruptedException ex) {
+                        // don't really care.
+                    }
+                }
+            }
+            sc.socket().setTcpNoDelay(true);
+            sc.socket().setPerformancePreferences(0, 2, 1);
+            final String remoteAddress = sc.socket().getRemoteSocketAddress().toString();
+
+            // the clock skew is checked on the main connection
+            ByteBuffer currentTimeBuf = ByteBuffer.allocate(8);
+            while (currentTimeBuf.hasRemaining()) {
+                if (sc.read(currentTimeBuf) == -1) {
+                    throw new EOFException(remoteAddress);
+                }
+            }
+
+            JSONObject jsObj = new JSONObject();
+            jsObj.put("type", "ADDITIONAL_CONNECTION");
+            jsObj.put("connectionToken", connectionToken);
+            jsObj.put("port", m_internalPort);
+            jsObj.put("versionString", localVersionString);
+            jsObj.put("paused", m_paused.get());
+
+            byte jsBytes[] = jsObj.toString(4).getBytes(Constants.UTF8ENCODING);
+            ByteBuffer buf = ByteBuffer.allocate(4 + jsBytes.length);
+            buf.putInt(jsBytes.length);
+            buf.put(jsBytes).flip();
+            while (buf.hasRemaining()) {
+                sc.write(buf);
+            }
+            processVersionJSONResponse(sc, remoteAddress, localVersionString, localBuildString, activeVersions);
+            sockets[ii] = sc;
+        }
+        return sockets;
+    }
+
     /*
      * If this node failed to bind to the leader address
      * it must connect to the leader which will generate a host id and
@@ -520,9 +610,22 @@ public class SocketJoiner {
         Set<String> activeVersions = new TreeSet<String>();
 
         SocketChannel socket = null;
+        SocketChannel leaderAdditionalSockets[] = new SocketChannel[0];
         try {
             LOG.debug("Non-Primary Starting & Connecting to Primary");
 
+            String localVersionString = VoltDB.instance().getVersionString();
+            String localBuildString = VoltDB.instance().getBuildString();
+            activeVersions.add(localVersionString);
+
+            /*
+             * Any additional connections to a host are made before the main one,
+             * the host holds on to them until the main one arrives with the same token
+             */
+            final long connectionToken = new Random().nextLong();
+            leaderAdditionalSockets = openAdditionalConnections(m_coordIp, connectionToken,
+                    localVersionString, localBuildString, activeVersions);
+
             while (socket == null) {
                 try {
                     socket = SocketChannel.open(m_coordIp);
@@ -551,13 +654,12 @@ public class SocketJoiner {
             long skew = System.currentTimeMillis() - currentTimeBuf.getLong();
             skews.add(skew);
 
-            String localVersionString = VoltDB.instance().getVersionString();
-            String localBuildString = VoltDB.instance().getBuildString();
-            activeVersions.add(localVersionString);
-
             JSONObject jsObj = new JSONObject();
             jsObj.put("type", "REQUEST_HOSTID");
             jsObj.put("request", request);
+            if (m_connectionsPerHost > 1) {
+                jsObj.put("connectionToken", connectionToken);
+            }
 
             // put the version compatibility status in the json
             jsObj.put("versionString", localVersionString);
@@ -598,6 +700,9 @@ public class SocketJoiner {
             // check if the membership request is accepted
             if (!jsonObj.optBoolean("accepted", true)) {
                 socket.close();
+                for (SocketChannel additional : leaderAdditionalSockets) {
+                    additional.close();
+                }
                 throw new CoreUtils.RetryException(jsonObj.getString("reason"));
             }
 
@@ -615,6 +720,7 @@ public class SocketJoiner {
             JSONArray otherHosts = jsonObj.getJSONArray("hosts");
             int hostIds[] = new int[otherHosts.length()];
             SocketChannel hostSockets[] = new SocketChannel[hostIds.length];
+            SocketChannel additionalSockets[][] = new SocketChannel[hostIds.length][];
             InetSocketAddress listeningAddresses[] = new InetSocketAddress[hostIds.length];
 
             for (int ii = 0; ii < otherHosts.length(); ii++) {
@@ -630,9 +736,12 @@ public class SocketJoiner {
                     hostIds[ii] = hostId;
                     listeningAddresses[ii] = hostAddr;
                     hostSockets[ii] = socket;
+                    additionalSockets[ii] = leaderAdditionalSockets;
                     continue;
                 }
 
+                additionalSockets[ii] = openAdditionalConnections(hostAddr, connectionToken,
+                        localVersionString, localBuildString, activeVersions);
                 SocketChannel hostSocket = null;
                 while (hostSocket == null) {
                     try {
@@ -664,6 +773,9 @@ public class SocketJoiner {
                 jsObj = new JSONObject();
                 jsObj.put("type", "PUBLISH_HOSTID");
                 jsObj.put("hostId", m_localHostId);
+                if (m_connectionsPerHost > 1) {
+                    jsObj.put("connectionToken", connectionToken);
+                }
                 jsObj.put("port", m_internalPort);
                 jsObj.put(
                         "address",
@@ -724,7 +836,7 @@ public class SocketJoiner {
              * Let host messenger know about the connections.
              * It will init the agreement site and then we are done.
              */
-            m_joinHandler.notifyOfHosts( m_localHostId, hostIds, hostSockets, listeningAddresses);
+            m_joinHandler.notifyOfHosts( m_localHostId, hostIds, hostSockets, additionalSockets, listeningAddresses);
         } catch (ClosedByInterruptException e) {
             //This is how shutdown is done
         }
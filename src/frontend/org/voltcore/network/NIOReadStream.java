@@ -166,6 +166,11 @@ public class NIOReadStream {
         return bytesRead;
     }
 
+    /** Whether the stream holds any buffers acquired from a pool */
+    boolean holdsBuffers() {
+        return m_writeBuffer != null || !m_readBuffers.isEmpty();
+    }
+
     void shutdown() {
         for (BBContainer c : m_readBuffers) {
             c.discard();
@@ -85,6 +85,15 @@ public abstract class NIOWriteStreamBase {
         return m_queuedBuffers.isEmpty() && m_currentWriteBuffer == null;
     }
 
+    /**
+     * Whether serialized writes are waiting in buffers acquired from a pool,
+     * regardless of writes queued for serialization
+     */
+    boolean holdsBuffers()
+    {
+        return !m_queuedBuffers.isEmpty() || m_currentWriteBuffer != null;
+    }
+
     abstract int drainTo (final GatheringByteChannel channel) throws IOException;
 
     protected abstract ArrayDeque<DeferredSerialization> getQueuedWrites();
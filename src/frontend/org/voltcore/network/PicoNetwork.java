@@ -169,6 +169,9 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
     //Track how busy the thread is and spin once
     //if there is always work
     private boolean m_hadWork = false;
+    // time spent handling work rather than waiting in select()
+    private long m_busyNanos = 0;
+    private long m_lastBusyNanos = 0;
 
     @Override
     public void run() {
@@ -186,6 +189,7 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
                     m_selector.select();
                 }
 
+                final long busyStart = System.nanoTime();
                 m_hadWork = false;
                 Runnable task = null;
                 while ((task = m_tasks.poll()) != null) {
@@ -194,6 +198,7 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
                 }
                 dispatchReadStream();
                 drainWriteStream();
+                m_busyNanos += System.nanoTime() - busyStart;
             }
         } catch (CancelledKeyException e) {
             networkLog.warn(
@@ -378,6 +383,11 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
             final long read = m_readStream.getBytesRead(interval);
             final long writeInfo[] = m_writeStream.getBytesAndMessagesWritten(interval);
             final long messagesRead = m_messagesRead;
+            final long busyNanos = m_busyNanos;
+            final long busyNanosThisTime = interval ? busyNanos - m_lastBusyNanos : busyNanos;
+            if (interval) {
+                m_lastBusyNanos = busyNanos;
+            }
             retval.put(
                     m_ih.connectionId(),
                     Pair.of(
@@ -386,7 +396,8 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
                                     read,
                                     messagesRead,
                                     writeInfo[0],
-                                    writeInfo[1]}));
+                                    writeInfo[1],
+                                    busyNanosThisTime}));
             retval.put(
                     -1L,
                     Pair.of(
@@ -395,7 +406,8 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
                                     read,
                                     messagesRead,
                                     writeInfo[0],
-                                    writeInfo[1] }));
+                                    writeInfo[1],
+                                    busyNanosThisTime }));
             return retval;
     }
 
@@ -489,9 +501,13 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
         return connectionId();
     }
 
+    /**
+     * Run a task on the network thread before the write stream is next drained
+     */
     @Override
     public void queueTask(Runnable r) {
-        throw new UnsupportedOperationException();
+        m_tasks.offer(r);
+        m_selector.wakeup();
     }
 
     @Override
@@ -509,6 +525,15 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
         m_selector.wakeup();
     }
 
+    /**
+     * Queue a write without going through the task queue, only for
+     * tasks passed to queueTask that produce writes
+     */
+    public void enqueueFromNetworkThread(DeferredSerialization ds) {
+        assert(Thread.currentThread() == m_thread);
+        m_writeStream.enqueue(ds);
+    }
+
     public void enqueue(final ByteBuffer buf) {
         m_tasks.offer(new Runnable() {
             @Override
@@ -107,6 +107,17 @@ class VoltNetwork implements Runnable, IOStatsIntf
 
     private final NinjaKeySet m_ninjaSelectedKeys;
 
+    /** The pool this network belongs to, which may move ports between its networks */
+    private final VoltNetworkPool m_networkPool;
+    private final int m_networkId;
+
+    /**
+     * Time spent running tasks and ready ports rather than waiting in select().
+     * Only written by the network thread, read by the pool to compare load.
+     */
+    private volatile long m_busyNanos = 0;
+    private long m_lastBusyNanos = 0;
+
     /**
      * Start this VoltNetwork's thread;
      */
@@ -120,6 +131,12 @@ class VoltNetwork implements Runnable, IOStatsIntf
      * and runOnce should be called periodically
      **/
     VoltNetwork(int networkId, String coreBindId, String networkName) {
+        this(null, networkId, coreBindId, networkName);
+    }
+
+    VoltNetwork(VoltNetworkPool networkPool, int networkId, String coreBindId, String networkName) {
+        m_networkPool = networkPool;
+        m_networkId = networkId;
         m_thread = new Thread(this, "Volt " + networkName + " Network - " + networkId);
         networkThreadName = new String("Volt " + networkName + " Network - " + networkId);
         m_thread.setDaemon(true);
@@ -134,6 +151,8 @@ class VoltNetwork implements Runnable, IOStatsIntf
     }
 
     VoltNetwork( Selector s) {
+        m_networkPool = null;
+        m_networkId = 0;
         m_thread = null;
         m_selector = s;
         m_coreBindId = null;
@@ -223,6 +242,12 @@ class VoltNetwork implements Runnable, IOStatsIntf
             public void run() {
                 VoltPort port = (VoltPort)c;
                 assert(c != null);
+                // the port moved to another network after this was queued
+                final VoltNetwork network = port.network();
+                if (network != VoltNetwork.this) {
+                    network.unregisterChannel(port);
+                    return;
+                }
                 SelectionKey selectionKey = port.getKey();
 
                 try {
@@ -268,20 +293,38 @@ class VoltNetwork implements Runnable, IOStatsIntf
             m_tasks.offer(new Runnable() {
                 @Override
                 public void run() {
-                    callPort(port);
+                    if (!movedAway(port, true)) {
+                        callPort(port);
+                    }
                 }
             });
         } else {
             m_tasks.offer(new Runnable() {
                 @Override
                 public void run() {
-                    installInterests(port);
+                    if (!movedAway(port, false)) {
+                        installInterests(port);
+                    }
                 }
             });
         }
         m_selector.wakeup();
     }
 
+    /**
+     * Interest changes queued for a port that has since moved to another
+     * network are passed on to it. A port still on its way to this network
+     * gets its current interests when it is registered here.
+     */
+    private boolean movedAway(VoltPort port, boolean runFirst) {
+        final VoltNetwork network = port.network();
+        if (network != this) {
+            network.addToChangeList(port, runFirst);
+            return true;
+        }
+        return port.isMigrating();
+    }
+
     @Override
     public void run() {
         final ThreadLocalRandom r = ThreadLocalRandom.current();
@@ -297,6 +340,7 @@ class VoltNetwork implements Runnable, IOStatsIntf
                         LatencyWatchdog.pet();
 
                         final int readyKeys = m_selector.select();
+                        final long busyStart = System.nanoTime();
 
                         /*
                          * Run the task queue immediately after selection to catch
@@ -323,6 +367,12 @@ class VoltNetwork implements Runnable, IOStatsIntf
                         while ((task = m_tasks.poll()) != null) {
                             task.run();
                         }
+
+                        final long now = System.nanoTime();
+                        m_busyNanos += now - busyStart;
+                        if (m_networkPool != null) {
+                            m_networkPool.maybeRebalance(now);
+                        }
                     }
                 } catch (Throwable ex) {
                     ex.printStackTrace();
@@ -398,6 +448,7 @@ class VoltNetwork implements Runnable, IOStatsIntf
     }
 
     private void callPort(final VoltPort port) {
+        final long start = System.nanoTime();
         try {
             port.lockForHandlingWork();
             port.getKey().interestOps(0);
@@ -419,10 +470,81 @@ class VoltNetwork implements Runnable, IOStatsIntf
                 networkLog.error( "VoltPort died due to an unexpected exception", e);
             }
         } finally {
+            port.addBusyNanos(System.nanoTime() - start);
             installInterests(port);
         }
     }
 
+    /**
+     * Move one port to a less loaded network. Of the ports that can move,
+     * pick the one that was busiest since the last request without its busy
+     * time exceeding half of the load gap, so that the move narrows the gap
+     * rather than swapping which network is hot. The busiest port stays, so
+     * a single hot connection keeps its network and the others leave it.
+     */
+    void migrateOnePort(final VoltNetwork target, final long gapNanos) {
+        queueTask(new Runnable() {
+            @Override
+            public void run() {
+                final long now = System.nanoTime();
+                VoltPort busiest = null;
+                long busiestNanos = -1;
+                VoltPort candidate = null;
+                long candidateNanos = 0;
+                for (VoltPort port : m_ports) {
+                    final long busy = port.takeRecentBusyNanos();
+                    if (busy > busiestNanos) {
+                        // the previous busiest becomes eligible
+                        if (busiest != null && busiestNanos > candidateNanos && busiestNanos <= gapNanos / 2 &&
+                                busiest.canMigrate(now, VoltNetworkPool.MIN_RESIDENCY_NANOS)) {
+                            candidate = busiest;
+                            candidateNanos = busiestNanos;
+                        }
+                        busiest = port;
+                        busiestNanos = busy;
+                    } else if (busy > candidateNanos && busy <= gapNanos / 2 &&
+                            port.canMigrate(now, VoltNetworkPool.MIN_RESIDENCY_NANOS)) {
+                        candidate = port;
+                        candidateNanos = busy;
+                    }
+                }
+                if (candidate != null) {
+                    migratePort(candidate, target, now);
+                }
+            }
+        });
+    }
+
+    private void migratePort(final VoltPort port, final VoltNetwork target, long now) {
+        networkLog.debug("Moving " + port + " from " + networkThreadName + " to " + target.networkThreadName);
+        port.startMigration(target, now);
+        final SelectionKey key = port.getKey();
+        key.attach(null);
+        key.cancel();
+        m_ports.remove(port);
+        m_numPorts.decrementAndGet();
+        target.queueTask(new Runnable() {
+            @Override
+            public void run() {
+                target.adoptPort(port);
+            }
+        });
+    }
+
+    /** Register a port another network of the pool handed off, and catch up on its queued writes */
+    private void adoptPort(VoltPort port) {
+        try {
+            port.finishMigration(m_selector);
+        } catch (IOException e) {
+            // closed while it was moving, nothing left to do
+            networkLog.debug("Port " + port + " closed while moving to " + networkThreadName, e);
+            return;
+        }
+        m_ports.add(port);
+        m_numPorts.incrementAndGet();
+        callPort(port);
+    }
+
     /** Set the selected interest set on the port and run it. */
     protected void invokeCallbacks(ThreadLocalRandom r) {
         final Set<SelectionKey> selectedKeys = m_selector.selectedKeys();
@@ -488,6 +610,7 @@ class VoltNetwork implements Runnable, IOStatsIntf
         long totalMessagesRead = 0;
         long totalWritten = 0;
         long totalMessagesWritten = 0;
+        final long busyNanos = getBusyNanos(interval);
         for (VoltPort p : m_ports) {
             final long read = p.readStream().getBytesRead(interval);
             final long writeInfo[] = p.writeStream().getBytesAndMessagesWritten(interval);
@@ -504,17 +627,18 @@ class VoltNetwork implements Runnable, IOStatsIntf
                                     read,
                                     messagesRead,
                                     writeInfo[0],
-                                    writeInfo[1] }));
+                                    writeInfo[1],
+                                    p.getBusyNanos(interval) }));
         }
-        retval.put(
-                -1L,
-                Pair.of(
-                        "GLOBAL",
-                        new long[] {
-                                totalRead,
-                                totalMessagesRead,
-                                totalWritten,
-                                totalMessagesWritten }));
+        final long[] totals = new long[] {
+                totalRead,
+                totalMessagesRead,
+                totalWritten,
+                totalMessagesWritten,
+                busyNanos };
+        // a row per network thread, keyed below the -1 of the global row
+        retval.put(-2L - m_networkId, Pair.of(networkThreadName, totals));
+        retval.put(-1L, Pair.of("GLOBAL", totals.clone()));
         return retval;
     }
 
@@ -535,6 +659,22 @@ class VoltNetwork implements Runnable, IOStatsIntf
         return ft;
     }
 
+    private long getBusyNanos(boolean interval) {
+        final long busyNanos = m_busyNanos;
+        if (interval) {
+            final long busyNanosThisTime = busyNanos - m_lastBusyNanos;
+            m_lastBusyNanos = busyNanos;
+            return busyNanosThisTime;
+        } else {
+            return busyNanos;
+        }
+    }
+
+    /** Total busy time so far, readable from any thread */
+    long busyNanos() {
+        return m_busyNanos;
+    }
+
     Long getThreadId() {
         return m_thread.getId();
     }
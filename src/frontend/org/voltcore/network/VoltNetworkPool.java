@@ -43,10 +43,26 @@ public class VoltNetworkPool {
 
     private static final VoltLogger m_logger = new VoltLogger(VoltNetworkPool.class.getName());
 
+    /**
+     * How often the pool compares how busy its network threads were and moves a
+     * connection off a hot one, 0 to never move connections once registered.
+     */
+    static final long REBALANCE_INTERVAL_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("NETWORK_REBALANCE_INTERVAL_MS", 1000));
+    /** A network thread must have been busy at least this much of an interval to give up a connection */
+    static final int REBALANCE_BUSY_PERCENT = Integer.getInteger("NETWORK_REBALANCE_BUSY_PERCENT", 50);
+    /** How long a connection stays on a network after moving before it may move again */
+    static final long MIN_RESIDENCY_NANOS = REBALANCE_INTERVAL_NANOS * 10;
+
     private final VoltNetwork m_networks[];
     private final AtomicLong m_nextNetwork = new AtomicLong();
     public final String m_poolName;
 
+    // busy time of each network at the last rebalance, guarded by this
+    private final long m_lastBusyNanos[];
+    private long m_lastRebalanceNanos;
+    private volatile long m_nextRebalanceNanos;
+
     public VoltNetworkPool() {
         this(1, 1, null, "");
     }
@@ -60,16 +76,19 @@ public class VoltNetworkPool {
             m_networks = new VoltNetwork[numThreads];
             for (int ii = 0; ii < numThreads; ii++) {
                 // Adding startThreadId avoids unnecessary polling for non-Server VoltNetworkPools
-                m_networks[ii] = new VoltNetwork(ii+startThreadId, null, poolName);
+                m_networks[ii] = new VoltNetwork(this, ii+startThreadId, null, poolName);
             }
         } else {
             final int coreBindIdsSize = coreBindIds.size();
             m_networks = new VoltNetwork[coreBindIdsSize];
             for (int ii = 0; ii < coreBindIdsSize; ii++) {
                 // Adding startThreadId avoids unnecessary polling for non-Server VoltNetworkPools
-                m_networks[ii] = new VoltNetwork(ii+startThreadId, coreBindIds.poll(), poolName);
+                m_networks[ii] = new VoltNetwork(this, ii+startThreadId, coreBindIds.poll(), poolName);
             }
         }
+        m_lastBusyNanos = new long[m_networks.length];
+        m_lastRebalanceNanos = System.nanoTime();
+        m_nextRebalanceNanos = m_lastRebalanceNanos + REBALANCE_INTERVAL_NANOS;
     }
 
     public void start() {
@@ -107,6 +126,49 @@ public class VoltNetworkPool {
         return vn.registerChannel(channel, handler, interestOps, dns);
     }
 
+    /**
+     * Called by each network thread after every pass of its selection loop.
+     * Once per interval, whichever thread gets here first compares how busy
+     * every network was over the interval. If the busiest was busy for more
+     * than REBALANCE_BUSY_PERCENT of it and the least busy for under half as
+     * long, the busiest is asked to move a connection to the least busy.
+     * Comparing busy time counters means a network idling in select() is
+     * seen as idle without having to wake up.
+     */
+    void maybeRebalance(long now) {
+        if (REBALANCE_INTERVAL_NANOS <= 0 || m_networks.length < 2 || now - m_nextRebalanceNanos < 0) {
+            return;
+        }
+        synchronized (this) {
+            if (now - m_nextRebalanceNanos < 0) {
+                return;
+            }
+            final long elapsed = now - m_lastRebalanceNanos;
+            m_lastRebalanceNanos = now;
+            m_nextRebalanceNanos = now + REBALANCE_INTERVAL_NANOS;
+
+            int hot = 0;
+            int cool = 0;
+            final long busy[] = new long[m_networks.length];
+            for (int ii = 0; ii < m_networks.length; ii++) {
+                final long busyNanos = m_networks[ii].busyNanos();
+                busy[ii] = busyNanos - m_lastBusyNanos[ii];
+                m_lastBusyNanos[ii] = busyNanos;
+                if (busy[ii] > busy[hot]) {
+                    hot = ii;
+                }
+                if (busy[ii] < busy[cool]) {
+                    cool = ii;
+                }
+            }
+            if (hot != cool &&
+                    busy[hot] * 100 >= elapsed * REBALANCE_BUSY_PERCENT &&
+                    busy[cool] * 2 <= busy[hot]) {
+                m_networks[hot].migrateOnePort(m_networks[cool], busy[hot] - busy[cool]);
+            }
+        }
+    }
+
     public List<Long> getThreadIds() {
         ArrayList<Long> ids = new ArrayList<Long>();
         for (VoltNetwork vn : m_networks) {
@@ -22,6 +22,7 @@ import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
@@ -31,12 +32,12 @@ import org.voltcore.logging.VoltLogger;
 /** Encapsulates a socket registration for a VoltNetwork */
 public class VoltPort implements Connection
 {
-    /** The network this port participates in */
-    private final VoltNetwork m_network;
+    /** The network this port participates in, which changes if the port is migrated */
+    private volatile VoltNetwork m_network;
 
     private static final VoltLogger networkLog = new VoltLogger("NETWORK");
 
-    private final NetworkDBBPool m_pool;
+    private volatile NetworkDBBPool m_pool;
 
     /** The currently selected operations on this port. */
     private int m_readyOps = 0;
@@ -49,6 +50,15 @@ public class VoltPort implements Connection
 
     private volatile boolean m_isDead = false;
 
+    /** True from when a network hands this port off until the new network registers it */
+    private volatile boolean m_migrating = false;
+    private long m_migratedAtNanos = Long.MIN_VALUE;
+
+    /** Time the network spent running this port, only accessed by the network thread */
+    private long m_busyNanos = 0;
+    private long m_lastBusyNanos = 0;
+    private long m_recentBusyMark = 0;
+
     private boolean m_isShuttingDown = false;
 
     /** Used internally to make operation changes atomic.
@@ -404,6 +414,83 @@ public class VoltPort implements Connection
         }
     }
 
+    VoltNetwork network() {
+        return m_network;
+    }
+
+    void addBusyNanos(long nanos) {
+        m_busyNanos += nanos;
+    }
+
+    long getBusyNanos(boolean interval) {
+        if (interval) {
+            final long busyNanos = m_busyNanos;
+            final long busyNanosThisTime = busyNanos - m_lastBusyNanos;
+            m_lastBusyNanos = busyNanos;
+            return busyNanosThisTime;
+        } else {
+            return m_busyNanos;
+        }
+    }
+
+    /** Busy time since the last call, for the network to pick a port to migrate */
+    long takeRecentBusyNanos() {
+        final long recent = m_busyNanos - m_recentBusyMark;
+        m_recentBusyMark = m_busyNanos;
+        return recent;
+    }
+
+    boolean isMigrating() {
+        return m_migrating;
+    }
+
+    /**
+     * Whether the owning network can hand this port to another one. Only a
+     * port that holds no buffers from its network's pool can move, since the
+     * pools are not thread safe, and a port stays put for minResidencyNanos
+     * after it last moved.
+     */
+    boolean canMigrate(long now, long minResidencyNanos) {
+        if (m_isDead || m_isShuttingDown || m_running || m_selectionKey == null || !m_selectionKey.isValid()) {
+            return false;
+        }
+        if (m_migratedAtNanos != Long.MIN_VALUE && now - m_migratedAtNanos < minResidencyNanos) {
+            return false;
+        }
+        if (m_readStream.holdsBuffers()) {
+            return false;
+        }
+        synchronized (m_writeStream) {
+            return !m_writeStream.holdsBuffers();
+        }
+    }
+
+    /**
+     * Point the port at its new network. Called by the old network, which then
+     * cancels the old selection key and queues the registration on the new one.
+     */
+    void startMigration(VoltNetwork network, long now) {
+        synchronized(m_lock) {
+            assert(!m_running);
+            m_migrating = true;
+            m_migratedAtNanos = now;
+            m_network = network;
+            m_pool = network.m_pool;
+        }
+    }
+
+    /** Register with the new network's selector with the interests the port has now */
+    SelectionKey finishMigration(Selector selector) throws IOException {
+        synchronized(m_lock) {
+            try {
+                m_selectionKey = m_channel.register(selector, m_interestOps, this);
+                return m_selectionKey;
+            } finally {
+                m_migrating = false;
+            }
+        }
+    }
+
     long getMessagesRead(boolean interval) {
         if (interval) {
             final long messagesRead = m_messagesRead;
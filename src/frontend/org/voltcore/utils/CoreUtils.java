@@ -485,6 +485,21 @@ public class CoreUtils {
         return MoreExecutors.listeningDecorator(tpe);
     }
 
+    /**
+     * Create a bounded thread pool executor with a fixed number of threads that rejects
+     * requests if more than capacity requests are waiting for a thread.
+     */
+    public static ListeningExecutorService getBoundedListeningExecutorService(String name, int threads, int capacity) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Must specify > 0 threads");
+        }
+        LinkedBlockingQueue<Runnable> lbq = new LinkedBlockingQueue<Runnable>(capacity);
+        ThreadPoolExecutor tpe =
+                new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, lbq,
+                        getThreadFactory(null, name, SMALL_STACK_SIZE, threads > 1, null));
+        return MoreExecutors.listeningDecorator(tpe);
+    }
+
     /*
      * Have shutdown actually means shutdown. Tasks that need to complete should use
      * futures.
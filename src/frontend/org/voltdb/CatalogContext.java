@@ -75,7 +75,9 @@ public class CatalogContext {
 
     /*
      * Planner associated with this catalog version.
-     * Not thread-safe, should only be accessed by AsyncCompilerAgent
+     * Not thread-safe, should only be accessed by AsyncCompilerAgent.
+     * When the AsyncCompilerAgent runs several planner threads, each of them
+     * builds its own PlannerTool for this catalog instead.
      */
     public final PlannerTool m_ptool;
 
@@ -18,12 +18,14 @@
 package org.voltdb;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.util.concurrent.TimeUnit;
 
 import org.json_voltpatches.JSONException;
 import org.json_voltpatches.JSONString;
 import org.json_voltpatches.JSONStringer;
+import org.json_voltpatches.JSONWriter;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.client.ClientUtils;
 import org.voltdb.common.Constants;
@@ -213,6 +215,18 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
      * @return buf to allow call chaining.
      */
     public ByteBuffer flattenToBuffer(ByteBuffer buf) {
+        flattenHeaderToBuffer(buf);
+        for (VoltTable vt : results)
+        {
+            vt.flattenToBuffer(buf);
+        }
+        return buf;
+    }
+
+    /*
+     * Everything up to and including the number of result tables
+     */
+    private void flattenHeaderToBuffer(ByteBuffer buf) {
         assert setProperly;
         buf.put((byte)0); //version
         buf.putLong(clientHandle);
@@ -242,11 +256,6 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
             buf.putInt(m_hash.intValue());
         }
         buf.putShort((short) results.length);
-        for (VoltTable vt : results)
-        {
-            vt.flattenToBuffer(buf);
-        }
-        return buf;
     }
 
     @Override
@@ -295,24 +304,7 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
     public String toJSONString() {
         JSONStringer js = new JSONStringer();
         try {
-            js.object();
-
-            js.key(JSON_STATUS_KEY);
-            js.value(status);
-            js.key(JSON_APPSTATUS_KEY);
-            js.value(appStatus);
-            js.key(JSON_STATUSSTRING_KEY);
-            js.value(statusString);
-            js.key(JSON_APPSTATUSSTRING_KEY);
-            js.value(appStatusString);
-            js.key(JSON_RESULTS_KEY);
-            js.array();
-            for (VoltTable o : results) {
-                js.value(o);
-            }
-            js.endArray();
-
-            js.endObject();
+            toJSON(js);
         }
         catch (JSONException e) {
             e.printStackTrace();
@@ -321,6 +313,60 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
         return js.toString();
     }
 
+    /**
+     * Write the same JSON as toJSONString to a writer, one result table at a
+     * time, so a large response never exists as a single string.
+     */
+    public void toJSON(JSONWriter js) throws JSONException {
+        js.object();
+
+        js.key(JSON_STATUS_KEY);
+        js.value(status);
+        js.key(JSON_APPSTATUS_KEY);
+        js.value(appStatus);
+        js.key(JSON_STATUSSTRING_KEY);
+        js.value(statusString);
+        js.key(JSON_APPSTATUSSTRING_KEY);
+        js.value(appStatusString);
+        js.key(JSON_RESULTS_KEY);
+        js.array();
+        for (VoltTable o : results) {
+            o.toJSON(js);
+        }
+        js.endArray();
+
+        js.endObject();
+    }
+
+    /**
+     * Write the same bytes as flattenToBuffer to a stream. Result tables are
+     * copied from their own buffers in chunks instead of into one buffer
+     * holding the whole response.
+     */
+    public void flattenToStream(OutputStream out) throws IOException {
+        int tablesSize = 0;
+        for (VoltTable vt : results) {
+            tablesSize += vt.getSerializedSize();
+        }
+        // also encodes the status strings
+        ByteBuffer header = ByteBuffer.allocate(getSerializedSize() - tablesSize);
+        flattenHeaderToBuffer(header);
+        out.write(header.array(), 0, header.position());
+
+        byte chunk[] = new byte[8192];
+        for (VoltTable vt : results) {
+            ByteBuffer table = vt.getBuffer();
+            header.clear();
+            header.putInt(table.remaining());
+            out.write(header.array(), 0, 4);
+            while (table.hasRemaining()) {
+                final int length = Math.min(chunk.length, table.remaining());
+                table.get(chunk, 0, length);
+                out.write(chunk, 0, length);
+            }
+        }
+    }
+
     /**
      * @return MD5 hash as int of the tables in the result. Only hashes first bits of big results.
      */
@@ -123,6 +123,11 @@ public interface CommandLog {
          */
         public void setUniqueIdListener(DurableUniqueIdListener listener);
 
+        /**
+         * The partition whose transactions this listener tracks
+         */
+        public int getPartitionId();
+
         /**
          * Called from Scheduler to set up how all future completion checks will be handled
          */
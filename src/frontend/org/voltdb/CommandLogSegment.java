@@ -0,0 +1,416 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.hadoop_voltpatches.util.PureJavaCrc32C;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.InstanceId;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+
+/**
+ * One file of a partition's command log.
+ *
+ * A segment starts with a fixed size header followed by records. Every record
+ * is prefixed with its payload length and a CRC32C of the payload, so that a
+ * record torn by a crash in the middle of a write is detected and treated as
+ * the end of the log.
+ *
+ * Header:  magic, version, partition id, segment index, cluster instance id
+ *          (coordinator, timestamp), txnId of the truncation snapshot the log
+ *          starts after.
+ * Record:  length, crc, type, then the type specific payload.
+ *
+ * Segments are only appended to by the command log writer thread and are
+ * read back in one piece during replay.
+ */
+public class CommandLogSegment {
+    private static final VoltLogger LOG = new VoltLogger("LOGGING");
+
+    static final int MAGIC = 0x56434c47; // "VCLG"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 4 + 4 + 4 + 8 + 4 + 8 + 8;
+    static final int RECORD_HEADER_SIZE = 4 + 4;
+
+    static final byte INVOCATION_RECORD = 1;
+    static final byte FAULT_RECORD = 2;
+
+    private static final String FILE_PREFIX = "partition_";
+    private static final String FILE_SUFFIX = ".vcl";
+
+    public static final FilenameFilter FILTER = new FilenameFilter() {
+        @Override
+        public boolean accept(File dir, String name) {
+            return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX);
+        }
+    };
+
+    /** Orders segments of the same partition by index */
+    public static final Comparator<Header> INDEX_ORDER = new Comparator<Header>() {
+        @Override
+        public int compare(Header o1, Header o2) {
+            return Long.compare(o1.segmentIndex, o2.segmentIndex);
+        }
+    };
+
+    public static String fileName(int partitionId, long segmentIndex) {
+        return FILE_PREFIX + partitionId + "_" + segmentIndex + FILE_SUFFIX;
+    }
+
+    public static class Header {
+        public final File file;
+        public final int partitionId;
+        public final long segmentIndex;
+        public final InstanceId instanceId;
+        public final long truncationTxnId;
+
+        Header(File file, int partitionId, long segmentIndex, InstanceId instanceId, long truncationTxnId) {
+            this.file = file;
+            this.partitionId = partitionId;
+            this.segmentIndex = segmentIndex;
+            this.instanceId = instanceId;
+            this.truncationTxnId = truncationTxnId;
+        }
+
+        @Override
+        public String toString() {
+            return file.getName() + " (partition " + partitionId + ", index " + segmentIndex + ")";
+        }
+    }
+
+    /** A decoded log record */
+    public static class Record {
+        public final byte type;
+        public final long spHandle;
+        public final long txnId;
+        public final long uniqueId;
+        public final boolean isSinglePartition;
+        public final boolean isReadOnly;
+        // null for single partition work
+        public final int[] involvedPartitions;
+        // null for fault records
+        public final StoredProcedureInvocation invocation;
+        public final int invocationSize;
+
+        Record(byte type, long spHandle, long txnId, long uniqueId,
+               boolean isSinglePartition, boolean isReadOnly, int[] involvedPartitions,
+               StoredProcedureInvocation invocation, int invocationSize) {
+            this.type = type;
+            this.spHandle = spHandle;
+            this.txnId = txnId;
+            this.uniqueId = uniqueId;
+            this.isSinglePartition = isSinglePartition;
+            this.isReadOnly = isReadOnly;
+            this.involvedPartitions = involvedPartitions;
+            this.invocation = invocation;
+            this.invocationSize = invocationSize;
+        }
+
+        public boolean isMultiPartition() {
+            return involvedPartitions != null;
+        }
+    }
+
+    /**
+     * Serialize an initiation into a record, ready to be appended to a segment.
+     */
+    public static ByteBuffer invocationRecord(Iv2InitiateTaskMessage message, long spHandle,
+                                              int[] involvedPartitions) throws IOException {
+        final StoredProcedureInvocation invocation = message.getStoredProcedureInvocation();
+        final int invocationSize = invocation.getSerializedSize();
+        final int partitionCount = involvedPartitions == null ? 0 : involvedPartitions.length;
+        final int payloadSize = 1 + 8 + 8 + 8 + 1 + 4 + 4 * partitionCount + invocationSize;
+
+        ByteBuffer buf = ByteBuffer.allocate(RECORD_HEADER_SIZE + payloadSize);
+        buf.position(RECORD_HEADER_SIZE);
+        buf.put(INVOCATION_RECORD);
+        buf.putLong(spHandle);
+        buf.putLong(message.getTxnId());
+        buf.putLong(message.getUniqueId());
+        buf.put((byte) ((message.isSinglePartition() ? 1 : 0) | (message.isReadOnly() ? 2 : 0)));
+        buf.putInt(involvedPartitions == null ? -1 : partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            buf.putInt(involvedPartitions[i]);
+        }
+        invocation.flattenToBuffer(buf);
+        return finishRecord(buf, payloadSize);
+    }
+
+    /**
+     * Serialize an Iv2 fault entry into a record.
+     */
+    public static ByteBuffer faultRecord(long spHandle, long writerHSId, Set<Long> survivors) {
+        final int payloadSize = 1 + 8 + 8 + 4 + 8 * survivors.size();
+        ByteBuffer buf = ByteBuffer.allocate(RECORD_HEADER_SIZE + payloadSize);
+        buf.position(RECORD_HEADER_SIZE);
+        buf.put(FAULT_RECORD);
+        buf.putLong(spHandle);
+        buf.putLong(writerHSId);
+        buf.putInt(survivors.size());
+        for (long hsId : survivors) {
+            buf.putLong(hsId);
+        }
+        return finishRecord(buf, payloadSize);
+    }
+
+    private static ByteBuffer finishRecord(ByteBuffer buf, int payloadSize) {
+        assert(!buf.hasRemaining());
+        PureJavaCrc32C crc = new PureJavaCrc32C();
+        crc.update(buf.array(), buf.arrayOffset() + RECORD_HEADER_SIZE, payloadSize);
+        buf.putInt(0, payloadSize);
+        buf.putInt(4, (int) crc.getValue());
+        buf.flip();
+        return buf;
+    }
+
+    private final Header m_header;
+    private final FileChannel m_channel;
+    private long m_size;
+    private long m_lastSpHandle = Long.MIN_VALUE;
+
+    private CommandLogSegment(Header header, FileChannel channel, long size) {
+        m_header = header;
+        m_channel = channel;
+        m_size = size;
+    }
+
+    /**
+     * Create a new, empty segment and write its header.
+     */
+    public static CommandLogSegment create(File dir, int partitionId, long segmentIndex,
+                                           InstanceId instanceId, long truncationTxnId) throws IOException {
+        final File file = new File(dir, fileName(partitionId, segmentIndex));
+        if (file.exists()) {
+            throw new IOException("Command log segment " + file + " already exists");
+        }
+        @SuppressWarnings("resource")
+        final FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(partitionId);
+        header.putLong(segmentIndex);
+        header.putInt(instanceId == null ? 0 : instanceId.getCoord());
+        header.putLong(instanceId == null ? 0 : instanceId.getTimestamp());
+        header.putLong(truncationTxnId);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        return new CommandLogSegment(new Header(file, partitionId, segmentIndex, instanceId, truncationTxnId),
+                                     channel, HEADER_SIZE);
+    }
+
+    public Header getHeader() {
+        return m_header;
+    }
+
+    /**
+     * @return the number of bytes in the segment, including the header
+     */
+    public long size() {
+        return m_size;
+    }
+
+    /**
+     * @return the SP handle of the newest record written to this segment
+     */
+    public long getLastSpHandle() {
+        return m_lastSpHandle;
+    }
+
+    /**
+     * Append a run of serialized records to the end of the segment. Does not fsync.
+     */
+    public void write(ByteBuffer records, long lastSpHandle) throws IOException {
+        while (records.hasRemaining()) {
+            m_size += m_channel.write(records);
+        }
+        m_lastSpHandle = Math.max(m_lastSpHandle, lastSpHandle);
+    }
+
+    public void force() throws IOException {
+        m_channel.force(false);
+    }
+
+    public void close() throws IOException {
+        m_channel.close();
+    }
+
+    /**
+     * Read just the header of a segment file.
+     * @return the header, or null if the file isn't a valid segment
+     */
+    public static Header readHeader(File file) {
+        FileInputStream fis = null;
+        try {
+            fis = new FileInputStream(file);
+            FileChannel channel = fis.getChannel();
+            ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE);
+            while (buf.hasRemaining()) {
+                if (channel.read(buf) < 0) {
+                    LOG.warn("Ignoring command log segment " + file + " with a truncated header");
+                    return null;
+                }
+            }
+            buf.flip();
+            if (buf.getInt() != MAGIC) {
+                LOG.warn("Ignoring file " + file + " which is not a command log segment");
+                return null;
+            }
+            final int version = buf.getInt();
+            if (version != VERSION) {
+                LOG.warn("Ignoring command log segment " + file + " with unsupported version " + version);
+                return null;
+            }
+            final int partitionId = buf.getInt();
+            final long segmentIndex = buf.getLong();
+            final int coord = buf.getInt();
+            final long timestamp = buf.getLong();
+            final long truncationTxnId = buf.getLong();
+            return new Header(file, partitionId, segmentIndex, new InstanceId(coord, timestamp), truncationTxnId);
+        } catch (IOException e) {
+            LOG.warn("Unable to read command log segment " + file, e);
+            return null;
+        } finally {
+            if (fis != null) {
+                try {
+                    fis.close();
+                } catch (IOException ignore) {}
+            }
+        }
+    }
+
+    /**
+     * Find all the segments in a command log directory
+     * @return valid segment headers, in index order
+     */
+    public static List<Header> listSegments(File dir) {
+        List<Header> headers = new ArrayList<Header>();
+        File[] files = dir.listFiles(FILTER);
+        if (files == null) {
+            return headers;
+        }
+        for (File file : files) {
+            Header header = readHeader(file);
+            if (header != null) {
+                headers.add(header);
+            }
+        }
+        Collections.sort(headers, INDEX_ORDER);
+        return headers;
+    }
+
+    /**
+     * Read all intact records of a segment. Reading stops at the first
+     * incomplete or corrupt record, which is where the last write before a
+     * crash was torn.
+     */
+    public static List<Record> readRecords(Header header) throws IOException {
+        final ByteBuffer buf;
+        FileInputStream fis = new FileInputStream(header.file);
+        try {
+            FileChannel channel = fis.getChannel();
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Command log segment " + header.file + " is too large to replay");
+            }
+            buf = ByteBuffer.allocate((int) size);
+            while (buf.hasRemaining()) {
+                if (channel.read(buf) < 0) {
+                    break;
+                }
+            }
+            buf.flip();
+        } finally {
+            fis.close();
+        }
+
+        List<Record> records = new ArrayList<Record>();
+        buf.position(HEADER_SIZE);
+        PureJavaCrc32C crc = new PureJavaCrc32C();
+        while (buf.remaining() >= RECORD_HEADER_SIZE) {
+            final int start = buf.position();
+            final int length = buf.getInt();
+            final int checksum = buf.getInt();
+            if (length <= 0 || length > buf.remaining()) {
+                buf.position(start);
+                break;
+            }
+            crc.reset();
+            crc.update(buf.array(), buf.arrayOffset() + buf.position(), length);
+            if ((int) crc.getValue() != checksum) {
+                buf.position(start);
+                break;
+            }
+            final int end = buf.position() + length;
+            records.add(decode(buf, end));
+            buf.position(end);
+        }
+        if (buf.hasRemaining()) {
+            LOG.info("Ignoring " + buf.remaining() + " bytes of incomplete records at the end of " +
+                     header.file);
+        }
+        return records;
+    }
+
+    private static Record decode(ByteBuffer buf, int end) throws IOException {
+        final byte type = buf.get();
+        final long spHandle = buf.getLong();
+        if (type == FAULT_RECORD) {
+            return new Record(type, spHandle, spHandle, Long.MIN_VALUE, true, false, null, null, 0);
+        }
+        if (type != INVOCATION_RECORD) {
+            throw new IOException("Unknown command log record type " + type);
+        }
+        final long txnId = buf.getLong();
+        final long uniqueId = buf.getLong();
+        final byte flags = buf.get();
+        final int partitionCount = buf.getInt();
+        int[] involvedPartitions = null;
+        if (partitionCount >= 0) {
+            involvedPartitions = new int[partitionCount];
+            for (int i = 0; i < partitionCount; i++) {
+                involvedPartitions[i] = buf.getInt();
+            }
+        }
+
+        // copy the invocation out so it doesn't pin the whole segment in memory
+        final int invocationSize = end - buf.position();
+        ByteBuffer invocationBuf = ByteBuffer.allocate(invocationSize);
+        invocationBuf.put(buf.array(), buf.arrayOffset() + buf.position(), invocationSize);
+        invocationBuf.flip();
+        StoredProcedureInvocation invocation = new StoredProcedureInvocation();
+        invocation.initFromBuffer(invocationBuf);
+
+        return new Record(type, spHandle, txnId, uniqueId, (flags & 1) != 0, (flags & 2) != 0,
+                          involvedPartitions, invocation, invocationSize);
+    }
+}
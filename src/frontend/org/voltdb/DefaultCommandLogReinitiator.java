@@ -17,18 +17,171 @@
 
 package org.voltdb;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
 
+import org.apache.zookeeper_voltpatches.CreateMode;
+import org.apache.zookeeper_voltpatches.ZooDefs.Ids;
+import org.apache.zookeeper_voltpatches.ZooKeeper;
+import org.json_voltpatches.JSONArray;
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONStringer;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.messaging.HostMessenger;
 import org.voltcore.utils.InstanceId;
+import org.voltcore.zk.ZKCountdownLatch;
+import org.voltcore.zk.ZKUtil;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.common.Constants;
 import org.voltdb.dtxn.TransactionCreator;
+import org.voltdb.iv2.MpInitiator;
 
 /**
  * The default command log reinitiator for community edition VoltDB.
+ *
+ * Without a command log directory it has nothing to replay. Given the
+ * directory written by {@link GroupCommitCommandLog} it replays the logged
+ * transactions that are newer than the restored snapshot.
+ *
+ * Every host publishes which partitions it has logs for in ZooKeeper while
+ * the restore plan is generated. Each partition is then replayed by exactly
+ * one host, the one with the most complete log that still reaches back to
+ * the restored snapshot. Single partition transactions are reinitiated with
+ * their original txnId and uniqueId, multi-partition transactions leave a
+ * sentinel in the stream of every partition and are initiated once by the
+ * host that generated the restore plan.
  */
 public class DefaultCommandLogReinitiator implements CommandLogReinitiator
 {
+    private static final VoltLogger LOG = new VoltLogger("LOGGING");
+
+    // Limit on replayed transactions waiting for a response
+    private static final int MAX_OUTSTANDING_TXNS = Integer.getInteger("COMMANDLOG_REPLAY_MAX_OUTSTANDING", 10000);
+
+    /** What one host knows about its log of one partition */
+    private static class PartitionLogInfo {
+        final int m_hostId;
+        final long m_startTxnId;
+        final long m_lastUniqueId;
+
+        PartitionLogInfo(int hostId, long startTxnId, long lastUniqueId) {
+            m_hostId = hostId;
+            m_startTxnId = startTxnId;
+            m_lastUniqueId = lastUniqueId;
+        }
+    }
+
+    /** Reads the records of one partition, one segment at a time */
+    private static class PartitionStream {
+        final int m_partitionId;
+        final Iterator<CommandLogSegment.Header> m_segments;
+        Iterator<CommandLogSegment.Record> m_records = null;
+        CommandLogSegment.Record m_head = null;
+
+        PartitionStream(int partitionId, List<CommandLogSegment.Header> segments) {
+            m_partitionId = partitionId;
+            m_segments = segments.iterator();
+        }
+
+        /** @return false once the partition's log is exhausted */
+        boolean advance() throws IOException {
+            while (true) {
+                while (m_records == null || !m_records.hasNext()) {
+                    if (!m_segments.hasNext()) {
+                        m_head = null;
+                        return false;
+                    }
+                    m_records = CommandLogSegment.readRecords(m_segments.next()).iterator();
+                }
+                m_head = m_records.next();
+                if (m_head.type == CommandLogSegment.INVOCATION_RECORD) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    private static final Comparator<PartitionStream> HEAD_ORDER = new Comparator<PartitionStream>() {
+        @Override
+        public int compare(PartitionStream o1, PartitionStream o2) {
+            return Long.compare(o1.m_head.uniqueId, o2.m_head.uniqueId);
+        }
+    };
+
     private Callback m_callback;
 
+    private final int m_hostId;
+    private final ZooKeeper m_zk;
+    private final File m_logDir;
+    private final Set<Integer> m_liveHosts;
+
+    // Local segments by partition, in index order
+    private final Map<Integer, List<CommandLogSegment.Header>> m_segments =
+            new TreeMap<Integer, List<CommandLogSegment.Header>>();
+    private final Map<Integer, Long> m_startTxnIds = new HashMap<Integer, Long>();
+    private InstanceId m_instanceId = null;
+
+    // Filled in by generateReplayPlan(), the logs of every host by partition
+    private Map<Integer, List<PartitionLogInfo>> m_clusterLogs = null;
+    private boolean m_isMPINode = false;
+    private RestoreAgent.SnapshotInfo m_snapshotInfo = null;
+
+    private TransactionCreator m_initiator;
+    private final SimpleClientResponseAdapter m_adapter =
+            new SimpleClientResponseAdapter(ClientInterface.CL_REPLAY_BASE_CID, "CommandLogReplayAdapter");
+    private final Semaphore m_outstanding = new Semaphore(MAX_OUTSTANDING_TXNS);
+    private volatile long m_replayedTxns = 0;
+
+    public DefaultCommandLogReinitiator() {
+        m_hostId = -1;
+        m_zk = null;
+        m_logDir = null;
+        m_liveHosts = null;
+    }
+
+    public DefaultCommandLogReinitiator(int hostId, StartAction action, HostMessenger messenger,
+                                        String clPath, Set<Integer> liveHosts) {
+        m_hostId = hostId;
+        m_zk = messenger.getZK();
+        m_logDir = new File(clPath);
+        m_liveHosts = liveHosts;
+
+        if (!action.doesRecover()) {
+            // The log of a new database is discarded when command logging starts
+            return;
+        }
+        for (CommandLogSegment.Header header : CommandLogSegment.listSegments(m_logDir)) {
+            List<CommandLogSegment.Header> segments = m_segments.get(header.partitionId);
+            if (segments == null) {
+                segments = new ArrayList<CommandLogSegment.Header>();
+                m_segments.put(header.partitionId, segments);
+            }
+            segments.add(header);
+            if (header.truncationTxnId != Long.MIN_VALUE) {
+                Long start = m_startTxnIds.get(header.partitionId);
+                if (start == null || header.truncationTxnId < start) {
+                    m_startTxnIds.put(header.partitionId, header.truncationTxnId);
+                }
+            }
+            // listSegments() sorts by index, the newest segment has the current instance id
+            m_instanceId = header.instanceId;
+        }
+        if (!m_segments.isEmpty()) {
+            LOG.info("Found command log segments for partitions " + m_segments.keySet() + " in " + m_logDir);
+        }
+    }
+
     @Override
     public void setCallback(Callback callback) {
         m_callback = callback;
@@ -39,34 +192,66 @@ public class DefaultCommandLogReinitiator implements CommandLogReinitiator
         new Thread(new Runnable() {
             @Override
             public void run() {
+                if (m_clusterLogs != null) {
+                    try {
+                        replayLogs();
+                    } catch (Exception e) {
+                        VoltDB.crashGlobalVoltDB("Failed to replay the command log", true, e);
+                    }
+                }
+                else if (!m_segments.isEmpty()) {
+                    LOG.warn("No snapshot was restored, ignoring the command log in " + m_logDir);
+                }
                 if (m_callback != null) {
                     m_callback.onReplayCompletion();
                 }
             }
-        }).start();
+        }, "Command Log Replay").start();
     }
 
     @Override
     public boolean hasReplayedSegments() {
-        return false;
+        if (m_clusterLogs != null) {
+            return !m_clusterLogs.isEmpty();
+        }
+        return !m_segments.isEmpty();
     }
 
     @Override
     public Long getMaxLastSeenTxn() {
-        return null;
+        if (m_segments.isEmpty()) {
+            return null;
+        }
+        long max = Long.MIN_VALUE;
+        for (long start : m_startTxnIds.values()) {
+            max = Math.max(max, start);
+        }
+        return max;
     }
 
     @Override
     public Map<Integer, Long> getMaxLastSeenTxnByPartition() {
-        return null;
+        if (m_segments.isEmpty()) {
+            return null;
+        }
+        return new HashMap<Integer, Long>(m_startTxnIds);
     }
 
     @Override
     public void setSnapshotTxnId(RestoreAgent.SnapshotInfo info) {
+        m_snapshotInfo = info;
     }
 
     @Override
     public void returnAllSegments() {
+        for (List<CommandLogSegment.Header> segments : m_segments.values()) {
+            for (CommandLogSegment.Header header : segments) {
+                if (!header.file.delete()) {
+                    LOG.warn("Unable to delete replayed command log segment " + header);
+                }
+            }
+        }
+        m_segments.clear();
     }
 
     @Override
@@ -77,23 +262,218 @@ public class DefaultCommandLogReinitiator implements CommandLogReinitiator
 
     @Override
     public boolean hasReplayedTxns() {
-        return false;
+        return m_replayedTxns > 0;
     }
 
+    /**
+     * Publish the local logs to the other hosts and collect theirs. The
+     * partitions are assigned to hosts once the restored snapshot is known.
+     */
     @Override
     public void generateReplayPlan(long snapshotTimeStamp, long snapshotTxnId,
             int newPartitionCount, boolean isMpiNode) {
+        if (m_logDir == null) {
+            return;
+        }
+        m_isMPINode = isMpiNode;
+        try {
+            ZKCountdownLatch barrier =
+                    new ZKCountdownLatch(m_zk, VoltZK.commandlog_replay_plan_barrier, m_liveHosts.size());
+            ZKUtil.mkdirs(m_zk, VoltZK.commandlog_replay_plan);
+            m_zk.create(ZKUtil.joinZKPath(VoltZK.commandlog_replay_plan, "host_" + m_hostId),
+                        serializeLocalLogs().getBytes(Constants.UTF8ENCODING),
+                        Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            barrier.countDown();
+            barrier.await();
+
+            Map<Integer, List<PartitionLogInfo>> clusterLogs = new TreeMap<Integer, List<PartitionLogInfo>>();
+            for (String child : m_zk.getChildren(VoltZK.commandlog_replay_plan, false)) {
+                byte[] data = m_zk.getData(ZKUtil.joinZKPath(VoltZK.commandlog_replay_plan, child), false, null);
+                JSONObject json = new JSONObject(new String(data, Constants.UTF8ENCODING));
+                int hostId = json.getInt("hostId");
+                JSONArray partitions = json.getJSONArray("partitions");
+                for (int i = 0; i < partitions.length(); i++) {
+                    JSONObject partition = partitions.getJSONObject(i);
+                    int partitionId = partition.getInt("id");
+                    List<PartitionLogInfo> logs = clusterLogs.get(partitionId);
+                    if (logs == null) {
+                        logs = new ArrayList<PartitionLogInfo>();
+                        clusterLogs.put(partitionId, logs);
+                    }
+                    logs.add(new PartitionLogInfo(hostId, partition.getLong("start"), partition.getLong("last")));
+                }
+            }
+            m_clusterLogs = clusterLogs;
+        } catch (Exception e) {
+            VoltDB.crashGlobalVoltDB("Failed to exchange command log replay plans", true, e);
+        }
+    }
+
+    private String serializeLocalLogs() throws Exception {
+        JSONStringer stringer = new JSONStringer();
+        stringer.object();
+        stringer.key("hostId").value(m_hostId);
+        stringer.key("partitions").array();
+        for (Map.Entry<Integer, List<CommandLogSegment.Header>> e : m_segments.entrySet()) {
+            Long start = m_startTxnIds.get(e.getKey());
+            stringer.object();
+            stringer.key("id").value(e.getKey());
+            stringer.key("start").value(start == null ? Long.MIN_VALUE : start);
+            stringer.key("last").value(lastUniqueId(e.getValue()));
+            stringer.endObject();
+        }
+        stringer.endArray();
+        stringer.endObject();
+        return stringer.toString();
+    }
+
+    private static long lastUniqueId(List<CommandLogSegment.Header> segments) throws IOException {
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            List<CommandLogSegment.Record> records = CommandLogSegment.readRecords(segments.get(i));
+            for (int j = records.size() - 1; j >= 0; j--) {
+                if (records.get(j).type == CommandLogSegment.INVOCATION_RECORD) {
+                    return records.get(j).uniqueId;
+                }
+            }
+        }
+        return Long.MIN_VALUE;
+    }
+
+    /**
+     * Pick the host that replays each partition: among the hosts whose log
+     * reaches back to the restored snapshot, the one that logged the newest
+     * transaction, lowest host id on ties. Every host computes the same plan.
+     */
+    private Set<Integer> assignedPartitions() {
+        Set<Integer> assigned = new HashSet<Integer>();
+        for (Map.Entry<Integer, List<PartitionLogInfo>> e : m_clusterLogs.entrySet()) {
+            Long snapshotTxnId = m_snapshotInfo == null ? null : m_snapshotInfo.partitionToTxnId.get(e.getKey());
+            PartitionLogInfo best = null;
+            for (PartitionLogInfo log : e.getValue()) {
+                if (snapshotTxnId != null && log.m_startTxnId > snapshotTxnId) {
+                    continue;
+                }
+                if (best == null || log.m_lastUniqueId > best.m_lastUniqueId ||
+                        (log.m_lastUniqueId == best.m_lastUniqueId && log.m_hostId < best.m_hostId)) {
+                    best = log;
+                }
+            }
+            if (best == null) {
+                VoltDB.crashGlobalVoltDB("No host has a command log for partition " + e.getKey() +
+                                         " that overlaps the restored snapshot", false, null);
+            }
+            else if (best.m_hostId == m_hostId) {
+                assigned.add(e.getKey());
+            }
+        }
+        return assigned;
+    }
+
+    private void replayLogs() throws Exception {
+        final Set<Integer> assigned = assignedPartitions();
+        final long mpSnapshotTxnId = m_snapshotInfo == null ? Long.MIN_VALUE : m_snapshotInfo.txnId;
+        LOG.info("Replaying command log for partitions " + assigned +
+                 (m_isMPINode ? " and multi-partition transactions" : ""));
+
+        // Merge the local partition logs in uniqueId order
+        PriorityQueue<PartitionStream> streams = new PriorityQueue<PartitionStream>(
+                Math.max(1, m_segments.size()), HEAD_ORDER);
+        for (Map.Entry<Integer, List<CommandLogSegment.Header>> e : m_segments.entrySet()) {
+            if (!assigned.contains(e.getKey()) && !m_isMPINode) {
+                continue;
+            }
+            PartitionStream stream = new PartitionStream(e.getKey(), e.getValue());
+            if (stream.advance()) {
+                streams.add(stream);
+            }
+        }
+
+        final SimpleClientResponseAdapter.Callback callback = new SimpleClientResponseAdapter.Callback() {
+            @Override
+            public void handleResponse(ClientResponse response) {
+                m_outstanding.release();
+            }
+        };
+
+        Set<Long> initiatedMPs = new HashSet<Long>();
+        long replayed = 0;
+        PartitionStream stream;
+        while ((stream = streams.poll()) != null) {
+            final CommandLogSegment.Record record = stream.m_head;
+            final int partitionId = stream.m_partitionId;
+            final Long partitionSnapshotTxnId =
+                    m_snapshotInfo == null ? null : m_snapshotInfo.partitionToTxnId.get(partitionId);
+            final boolean afterSnapshot = partitionSnapshotTxnId == null || record.spHandle > partitionSnapshotTxnId;
+
+            if (record.isMultiPartition()) {
+                if (m_isMPINode && record.txnId > mpSnapshotTxnId && initiatedMPs.add(record.uniqueId)) {
+                    initiate(record, false, MpInitiator.MP_INIT_PID, callback);
+                    replayed++;
+                }
+                if (assigned.contains(partitionId) && afterSnapshot) {
+                    m_initiator.sendSentinel(record.uniqueId, partitionId);
+                }
+            }
+            else if (assigned.contains(partitionId) && afterSnapshot) {
+                initiate(record, true, partitionId, callback);
+                replayed++;
+            }
+
+            if (stream.advance()) {
+                streams.add(stream);
+            }
+        }
+        m_replayedTxns = replayed;
+        LOG.info("Reinitiated " + replayed + " transactions from the command log");
+
+        ZKCountdownLatch sent = new ZKCountdownLatch(m_zk, VoltZK.commandlog_replay_sent_barrier, m_liveHosts.size());
+        ZKCountdownLatch done = new ZKCountdownLatch(m_zk, VoltZK.commandlog_replay_done_barrier, m_liveHosts.size());
+        sent.countDown();
+        if (m_isMPINode) {
+            // Everyone's sentinels are in, let the partitions drain the ones without an MP
+            sent.await();
+            m_initiator.sendEOLMessage(MpInitiator.MP_INIT_PID);
+        }
+
+        m_outstanding.acquire(MAX_OUTSTANDING_TXNS);
+        m_outstanding.release(MAX_OUTSTANDING_TXNS);
+        done.countDown();
+        done.await();
+    }
+
+    private void initiate(CommandLogSegment.Record record, boolean isSinglePartition, int partitionId,
+                          SimpleClientResponseAdapter.Callback callback) throws InterruptedException {
+        m_outstanding.acquire();
+        record.invocation.setClientHandle(m_adapter.registerCallback(callback));
+        if (!m_initiator.createTransaction(m_adapter.connectionId(),
+                                           record.txnId,
+                                           record.uniqueId,
+                                           record.invocation,
+                                           record.isReadOnly,
+                                           isSinglePartition,
+                                           false,
+                                           partitionId,
+                                           record.invocationSize,
+                                           System.nanoTime())) {
+            m_outstanding.release();
+            throw new RuntimeException("Failed to reinitiate " + record.invocation.getProcName() +
+                                       " with txnId " + record.txnId);
+        }
     }
 
     @Override
     public void setInitiator(TransactionCreator initiator) {
+        m_initiator = initiator;
+        if (m_logDir != null) {
+            m_initiator.bindAdapter(m_adapter);
+        }
     }
 
     @Override
     public InstanceId getInstanceId() {
         // When we don't have a command log, return null to cause the instance ID
         // check to get skipped entirely in RestoreAgent.generatePlans()
-        return null;
+        return m_instanceId;
     }
 
     @Override
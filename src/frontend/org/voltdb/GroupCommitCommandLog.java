@@ -0,0 +1,622 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.zookeeper_voltpatches.CreateMode;
+import org.apache.zookeeper_voltpatches.ZooDefs.Ids;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.InstanceId;
+import org.voltcore.utils.Pair;
+import org.voltdb.iv2.TransactionTask;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+import com.google_voltpatches.common.util.concurrent.SettableFuture;
+
+/**
+ * Command log that writes every durable initiation to per-partition segment
+ * files in the command log directory.
+ *
+ * Sites hand their initiations to log(), which only serializes them onto the
+ * pending batch of their partition. A single writer thread wakes up once per
+ * fsync interval, or as soon as the configured number of transactions is
+ * pending, writes the batches of all partitions on this host and fsyncs each
+ * segment it touched once for the whole group. Only then are the durability
+ * listeners of the sites told which of their transactions are durable.
+ *
+ * In synchronous mode the SpSchedulers hold transactions back until that
+ * notification. In asynchronous mode transactions run right away, and log()
+ * only hands out an incomplete backpressure future once more than
+ * COMMANDLOG_MAX_ASYNC_OUTSTANDING_BYTES are waiting to be written.
+ *
+ * Until init() is called, which happens once command log replay and the
+ * truncation snapshot after it are done, everything is considered durable as
+ * soon as it is logged, because that snapshot covers it.
+ *
+ * Segments roll over at COMMANDLOG_SEGMENT_SIZE bytes and are deleted once a
+ * truncation snapshot covers all of their transactions. A truncation snapshot
+ * is requested whenever the segments on disk outgrow the configured log size.
+ */
+public class GroupCommitCommandLog implements CommandLog, SnapshotCompletionInterest {
+    private static final VoltLogger LOG = new VoltLogger("LOGGING");
+
+    static final long SEGMENT_SIZE = Long.getLong("COMMANDLOG_SEGMENT_SIZE", 64L * 1024 * 1024);
+    static final long MAX_ASYNC_OUTSTANDING_BYTES =
+            Long.getLong("COMMANDLOG_MAX_ASYNC_OUTSTANDING_BYTES", 64L * 1024 * 1024);
+    // largest buffer a partition's records are gathered in before writing
+    static final int MAX_WRITE_BUFFER_BYTES = Integer.getInteger("COMMANDLOG_MAX_WRITE_BUFFER_BYTES", 64 * 1024 * 1024);
+
+    /** The log of one partition on this host */
+    private static class PartitionLog {
+        final int m_partitionId;
+
+        // Guarded by m_lock
+        ArrayList<ByteBuffer> m_pending = new ArrayList<ByteBuffer>();
+        long m_pendingBytes = 0;
+        long m_pendingLastSpHandle = Long.MIN_VALUE;
+
+        // Only accessed by the writer thread, the last segment is the one being appended to
+        final ArrayDeque<CommandLogSegment> m_segments = new ArrayDeque<CommandLogSegment>();
+        boolean m_activeSegmentFull = false;
+
+        PartitionLog(int partitionId) {
+            m_partitionId = partitionId;
+        }
+    }
+
+    /** Everything swapped out of the pending state for one group commit */
+    private static class Batch {
+        final List<Pair<PartitionLog, List<ByteBuffer>>> m_records =
+                new ArrayList<Pair<PartitionLog, List<ByteBuffer>>>();
+        final List<Long> m_lastSpHandles = new ArrayList<Long>();
+        final List<Pair<DurabilityListener, CompletionChecks>> m_checks =
+                new ArrayList<Pair<DurabilityListener, CompletionChecks>>();
+        List<SettableFuture<Object>> m_futures;
+        long m_bytes;
+        long m_largestPartitionBytes;
+    }
+
+    private final boolean m_synchronous;
+    private final long m_fsyncIntervalNanos;
+    private final int m_maxTxnsBeforeFsync;
+    private final File m_logDir;
+    // Package-private so tests can shrink them
+    long m_segmentSize = SEGMENT_SIZE;
+    long m_maxAsyncOutstandingBytes = MAX_ASYNC_OUTSTANDING_BYTES;
+    int m_maxWriteBufferBytes = MAX_WRITE_BUFFER_BYTES;
+
+    private final Object m_lock = new Object();
+    private final Map<Integer, PartitionLog> m_partitionLogs = new HashMap<Integer, PartitionLog>();
+    private final Set<DurabilityListener> m_touchedListeners = new HashSet<DurabilityListener>();
+    private List<SettableFuture<Object>> m_backpressureFutures = new ArrayList<SettableFuture<Object>>();
+    private long m_pendingBytes = 0;
+    private int m_pendingTxns = 0;
+    private boolean m_shutdown = false;
+    private volatile boolean m_initialized = false;
+
+    // Latest truncation point of each partition, written to the header of new segments
+    private Map<Integer, Long> m_truncationTxnIds = new HashMap<Integer, Long>();
+    private Map<Integer, Long> m_pendingTruncation = null;
+    private final AtomicBoolean m_truncationRequested = new AtomicBoolean(false);
+
+    private Thread m_writer;
+    private SnapshotCompletionMonitor m_snapshotMonitor;
+    private InstanceId m_instanceId;
+    private long m_logSizeBytes;
+    private long m_nextSegmentIndex = 0;
+    private long m_segmentBytes = 0;
+
+    // Stats, written by the writer thread
+    private volatile long m_writingBytes = 0;
+    private volatile int m_writingTxns = 0;
+    private volatile int m_activeSegmentCount = 0;
+    private volatile int m_segmentCount = 0;
+    private volatile long m_fsyncIntervalTotalNanos = 0;
+    private volatile long m_fsyncCount = 0;
+
+    public GroupCommitCommandLog(boolean synchronous, int fsyncIntervalMs, int maxTxnsBeforeFsync, String logPath) {
+        m_synchronous = synchronous;
+        m_fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, fsyncIntervalMs));
+        m_maxTxnsBeforeFsync = Math.max(1, maxTxnsBeforeFsync);
+        m_logDir = new File(logPath);
+    }
+
+    @Override
+    public void init(int logSize, long txnId, int partitionCount, String coreBinding,
+                     Map<Integer, Long> perPartitionTxnId) {
+        start(logSize * 1024L * 1024L, perPartitionTxnId, VoltDB.instance().getHostMessenger().getInstanceId());
+        m_snapshotMonitor = VoltDB.instance().getSnapshotCompletionMonitor();
+        m_snapshotMonitor.addInterest(this);
+    }
+
+    @Override
+    public void initForRejoin(int logSize, long txnId, int partitionCount, boolean isRejoin,
+                              String coreBinding, Map<Integer, Long> perPartitionTxnId) {
+        // The data of a rejoining node comes from the cluster, and the truncation snapshot
+        // taken once it is done covers everything logged from here on.
+        init(logSize, txnId, partitionCount, coreBinding, perPartitionTxnId);
+    }
+
+    /**
+     * Start logging to disk. Any segments left in the log directory belong to
+     * a previous incarnation of the cluster, which has been replayed and
+     * truncated by now, or was discarded by creating a new database.
+     */
+    void start(long logSizeBytes, Map<Integer, Long> perPartitionTxnId, InstanceId instanceId) {
+        synchronized (m_lock) {
+            if (m_initialized) {
+                return;
+            }
+            if (!m_logDir.exists() && !m_logDir.mkdirs()) {
+                VoltDB.crashLocalVoltDB("Unable to create command log directory " + m_logDir, false, null);
+            }
+            for (CommandLogSegment.Header stale : CommandLogSegment.listSegments(m_logDir)) {
+                m_nextSegmentIndex = Math.max(m_nextSegmentIndex, stale.segmentIndex + 1);
+                LOG.info("Removing old command log segment " + stale);
+                if (!stale.file.delete()) {
+                    VoltDB.crashLocalVoltDB("Unable to delete old command log segment " + stale.file, false, null);
+                }
+            }
+            m_logSizeBytes = logSizeBytes;
+            m_instanceId = instanceId;
+            if (perPartitionTxnId != null) {
+                m_truncationTxnIds.putAll(perPartitionTxnId);
+            }
+            m_writer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    runWriter();
+                }
+            }, "Command Log Writer");
+            m_writer.setDaemon(true);
+            m_writer.start();
+            m_initialized = true;
+        }
+        LOG.info("Command logging to " + m_logDir + " in " + (m_synchronous ? "synchronous" : "asynchronous") +
+                 " mode, fsync interval " + TimeUnit.NANOSECONDS.toMillis(m_fsyncIntervalNanos) + "ms");
+    }
+
+    @Override
+    public boolean needsInitialization() {
+        return !m_initialized;
+    }
+
+    @Override
+    public ListenableFuture<Object> log(Iv2InitiateTaskMessage message, long spHandle, int[] involvedPartitions,
+                                        DurabilityListener listener, TransactionTask durabilityHandle) {
+        if (!m_initialized) {
+            // Covered by the truncation snapshot that ends recovery
+            CompletionChecks checks;
+            synchronized (m_lock) {
+                listener.addTransaction(durabilityHandle);
+                checks = listener.startNewTaskList(listener.getNumberOfTasks());
+            }
+            listener.processDurabilityChecks(checks);
+            return m_synchronous ? null : CoreUtils.COMPLETED_FUTURE;
+        }
+
+        final ByteBuffer record;
+        try {
+            record = CommandLogSegment.invocationRecord(message, spHandle, involvedPartitions);
+        } catch (IOException e) {
+            VoltDB.crashLocalVoltDB("Unable to serialize " + message.getStoredProcedureName() +
+                                    " for the command log", true, e);
+            return null;
+        }
+
+        synchronized (m_lock) {
+            append(listener.getPartitionId(), record, spHandle);
+            listener.addTransaction(durabilityHandle);
+            m_touchedListeners.add(listener);
+            if (++m_pendingTxns >= m_maxTxnsBeforeFsync) {
+                m_lock.notify();
+            }
+            if (m_synchronous) {
+                return null;
+            }
+            if (m_pendingBytes + m_writingBytes > m_maxAsyncOutstandingBytes) {
+                SettableFuture<Object> backpressure = SettableFuture.create();
+                m_backpressureFutures.add(backpressure);
+                return backpressure;
+            }
+        }
+        return CoreUtils.COMPLETED_FUTURE;
+    }
+
+    // Must hold m_lock
+    private void append(int partitionId, ByteBuffer record, long spHandle) {
+        PartitionLog partitionLog = getPartitionLog(partitionId);
+        partitionLog.m_pending.add(record);
+        partitionLog.m_pendingBytes += record.remaining();
+        partitionLog.m_pendingLastSpHandle = Math.max(partitionLog.m_pendingLastSpHandle, spHandle);
+        m_pendingBytes += record.remaining();
+    }
+
+    // Must hold m_lock
+    private PartitionLog getPartitionLog(int partitionId) {
+        PartitionLog partitionLog = m_partitionLogs.get(partitionId);
+        if (partitionLog == null) {
+            partitionLog = new PartitionLog(partitionId);
+            m_partitionLogs.put(partitionId, partitionLog);
+        }
+        return partitionLog;
+    }
+
+    @Override
+    public void logIv2Fault(long writerHSId, Set<Long> survivorHSId, int partitionId, long spHandle) {
+        if (!m_initialized) {
+            return;
+        }
+        ByteBuffer record = CommandLogSegment.faultRecord(spHandle, writerHSId, survivorHSId);
+        synchronized (m_lock) {
+            append(partitionId, record, spHandle);
+        }
+    }
+
+    @Override
+    public void initializeLastDurableUniqueId(DurabilityListener listener, long uniqueId) {
+        CompletionChecks checks = null;
+        synchronized (m_lock) {
+            listener.initializeLastDurableUniqueId(uniqueId);
+            if (m_initialized) {
+                m_touchedListeners.add(listener);
+            }
+            else {
+                checks = listener.startNewTaskList(listener.getNumberOfTasks());
+            }
+        }
+        if (checks != null) {
+            listener.processDurabilityChecks(checks);
+        }
+    }
+
+    @Override
+    public void registerDurabilityListener(DurabilityListener durabilityListener) {
+        synchronized (m_lock) {
+            getPartitionLog(durabilityListener.getPartitionId());
+        }
+    }
+
+    /**
+     * Wait for the next group commit and swap out everything pending for it.
+     * @return the batch, or null if the log was shut down with nothing left to write
+     */
+    private Batch takeBatch(long deadline) throws InterruptedException {
+        synchronized (m_lock) {
+            while (!m_shutdown && m_pendingTxns < m_maxTxnsBeforeFsync) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                TimeUnit.NANOSECONDS.timedWait(m_lock, remaining);
+            }
+            if (m_shutdown && m_pendingBytes == 0 && m_touchedListeners.isEmpty()) {
+                return null;
+            }
+
+            Batch batch = new Batch();
+            for (PartitionLog partitionLog : m_partitionLogs.values()) {
+                if (partitionLog.m_pending.isEmpty()) {
+                    continue;
+                }
+                batch.m_records.add(Pair.<PartitionLog, List<ByteBuffer>>of(partitionLog, partitionLog.m_pending));
+                batch.m_lastSpHandles.add(partitionLog.m_pendingLastSpHandle);
+                batch.m_largestPartitionBytes =
+                        Math.max(batch.m_largestPartitionBytes, partitionLog.m_pendingBytes);
+                partitionLog.m_pending = new ArrayList<ByteBuffer>(partitionLog.m_pending.size());
+                partitionLog.m_pendingBytes = 0;
+            }
+            for (DurabilityListener listener : m_touchedListeners) {
+                batch.m_checks.add(Pair.of(listener, listener.startNewTaskList(listener.getNumberOfTasks())));
+            }
+            m_touchedListeners.clear();
+            batch.m_futures = m_backpressureFutures;
+            m_backpressureFutures = new ArrayList<SettableFuture<Object>>();
+            batch.m_bytes = m_pendingBytes;
+            m_writingBytes = m_pendingBytes;
+            m_writingTxns = m_pendingTxns;
+            m_pendingBytes = 0;
+            m_pendingTxns = 0;
+            return batch;
+        }
+    }
+
+    private void runWriter() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.min(1024 * 1024, m_maxWriteBufferBytes));
+        long lastSync = System.nanoTime();
+        try {
+            while (true) {
+                final Batch batch = takeBatch(lastSync + m_fsyncIntervalNanos);
+                if (batch == null) {
+                    break;
+                }
+                final int bufferSize = writeBufferSize(batch.m_largestPartitionBytes, m_maxWriteBufferBytes);
+                if (buffer.capacity() < bufferSize) {
+                    buffer = ByteBuffer.allocateDirect(bufferSize);
+                }
+                writeBatch(batch, buffer);
+
+                final long now = System.nanoTime();
+                if (batch.m_bytes > 0) {
+                    m_fsyncIntervalTotalNanos += now - lastSync;
+                    m_fsyncCount++;
+                }
+                lastSync = now;
+                m_writingBytes = 0;
+                m_writingTxns = 0;
+
+                for (Pair<DurabilityListener, CompletionChecks> checks : batch.m_checks) {
+                    checks.getFirst().processDurabilityChecks(checks.getSecond());
+                }
+                truncateSegments();
+            }
+        } catch (Throwable t) {
+            VoltDB.crashLocalVoltDB("Command log writer failed", true, t);
+        } finally {
+            closeSegments();
+        }
+    }
+
+    /**
+     * The size of the buffer to gather a partition's records in: the next power
+     * of two that holds them, up to maxBytes. Larger batches are written in pieces.
+     */
+    static int writeBufferSize(long bytes, int maxBytes) {
+        long size = Long.highestOneBit(Math.max(bytes, 1));
+        if (size < bytes) {
+            size <<= 1;
+        }
+        return (int) Math.min(size, maxBytes);
+    }
+
+    private void writeBatch(Batch batch, ByteBuffer buffer) throws IOException {
+        List<CommandLogSegment> written = new ArrayList<CommandLogSegment>(batch.m_records.size());
+        for (int i = 0; i < batch.m_records.size(); i++) {
+            final PartitionLog partitionLog = batch.m_records.get(i).getFirst();
+            final long lastSpHandle = batch.m_lastSpHandles.get(i);
+            CommandLogSegment segment = activeSegment(partitionLog);
+            buffer.clear();
+            for (ByteBuffer record : batch.m_records.get(i).getSecond()) {
+                if (record.remaining() > buffer.remaining()) {
+                    writeBuffer(segment, buffer, lastSpHandle);
+                }
+                if (record.remaining() > buffer.remaining()) {
+                    // doesn't fit even an empty buffer, write it as it is
+                    m_segmentBytes += record.remaining();
+                    segment.write(record, lastSpHandle);
+                }
+                else {
+                    buffer.put(record);
+                }
+            }
+            writeBuffer(segment, buffer, lastSpHandle);
+            written.add(segment);
+        }
+
+        // async backpressure only waits for the write
+        for (SettableFuture<Object> future : batch.m_futures) {
+            future.set(null);
+        }
+
+        for (CommandLogSegment segment : written) {
+            segment.force();
+        }
+
+        for (Pair<PartitionLog, List<ByteBuffer>> records : batch.m_records) {
+            final PartitionLog partitionLog = records.getFirst();
+            if (partitionLog.m_segments.getLast().size() >= m_segmentSize) {
+                partitionLog.m_activeSegmentFull = true;
+            }
+        }
+        if (m_segmentBytes > m_logSizeBytes) {
+            requestTruncationSnapshot(false);
+        }
+    }
+
+    private void writeBuffer(CommandLogSegment segment, ByteBuffer buffer, long lastSpHandle) throws IOException {
+        buffer.flip();
+        m_segmentBytes += buffer.limit();
+        segment.write(buffer, lastSpHandle);
+        buffer.clear();
+    }
+
+    private CommandLogSegment activeSegment(PartitionLog partitionLog) throws IOException {
+        if (partitionLog.m_segments.isEmpty() || partitionLog.m_activeSegmentFull) {
+            if (!partitionLog.m_segments.isEmpty()) {
+                partitionLog.m_segments.getLast().close();
+            }
+            final long segmentIndex;
+            final Long truncationTxnId;
+            synchronized (m_lock) {
+                segmentIndex = m_nextSegmentIndex++;
+                truncationTxnId = m_truncationTxnIds.get(partitionLog.m_partitionId);
+            }
+            CommandLogSegment segment = CommandLogSegment.create(m_logDir, partitionLog.m_partitionId, segmentIndex,
+                    m_instanceId, truncationTxnId == null ? Long.MIN_VALUE : truncationTxnId);
+            m_segmentBytes += segment.size();
+            partitionLog.m_segments.addLast(segment);
+            partitionLog.m_activeSegmentFull = false;
+            updateSegmentCounts();
+        }
+        return partitionLog.m_segments.getLast();
+    }
+
+    /**
+     * Delete all segments that only contain transactions covered by the latest
+     * truncation snapshot.
+     */
+    private void truncateSegments() throws IOException {
+        final Map<Integer, Long> truncation;
+        final List<PartitionLog> partitionLogs;
+        synchronized (m_lock) {
+            if (m_pendingTruncation == null) {
+                return;
+            }
+            truncation = m_pendingTruncation;
+            m_pendingTruncation = null;
+            partitionLogs = new ArrayList<PartitionLog>(m_partitionLogs.values());
+        }
+
+        for (PartitionLog partitionLog : partitionLogs) {
+            final Long truncationTxnId = truncation.get(partitionLog.m_partitionId);
+            if (truncationTxnId == null) {
+                continue;
+            }
+            Iterator<CommandLogSegment> iter = partitionLog.m_segments.iterator();
+            while (iter.hasNext()) {
+                CommandLogSegment segment = iter.next();
+                if (segment.getLastSpHandle() > truncationTxnId) {
+                    break;
+                }
+                final boolean active = !iter.hasNext();
+                if (active) {
+                    partitionLog.m_activeSegmentFull = false;
+                }
+                segment.close();
+                iter.remove();
+                m_segmentBytes -= segment.size();
+                if (!segment.getHeader().file.delete()) {
+                    LOG.warn("Unable to delete truncated command log segment " + segment.getHeader());
+                }
+            }
+        }
+        updateSegmentCounts();
+    }
+
+    private void updateSegmentCounts() {
+        int active = 0;
+        int total = 0;
+        synchronized (m_lock) {
+            for (PartitionLog partitionLog : m_partitionLogs.values()) {
+                if (!partitionLog.m_segments.isEmpty()) {
+                    active++;
+                    total += partitionLog.m_segments.size();
+                }
+            }
+        }
+        m_activeSegmentCount = active;
+        m_segmentCount = total;
+    }
+
+    private void closeSegments() {
+        synchronized (m_lock) {
+            for (PartitionLog partitionLog : m_partitionLogs.values()) {
+                for (CommandLogSegment segment : partitionLog.m_segments) {
+                    try {
+                        segment.close();
+                    } catch (IOException e) {
+                        LOG.warn("Unable to close command log segment " + segment.getHeader(), e);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public CountDownLatch snapshotCompleted(SnapshotCompletionEvent event) {
+        if (event.truncationSnapshot && event.didSucceed) {
+            synchronized (m_lock) {
+                m_truncationTxnIds = new HashMap<Integer, Long>(event.partitionTxnIds);
+                m_pendingTruncation = m_truncationTxnIds;
+            }
+            m_truncationRequested.set(false);
+        }
+        return new CountDownLatch(0);
+    }
+
+    @Override
+    public void shutdown() throws InterruptedException {
+        final Thread writer;
+        synchronized (m_lock) {
+            m_shutdown = true;
+            m_lock.notify();
+            writer = m_writer;
+        }
+        if (writer != null) {
+            writer.join();
+        }
+        if (m_snapshotMonitor != null) {
+            m_snapshotMonitor.removeInterest(this);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void requestTruncationSnapshot(final boolean queueIfPending) {
+        if (!m_truncationRequested.compareAndSet(false, true) && !queueIfPending) {
+            return;
+        }
+        try {
+            VoltDB.instance().getHostMessenger().getZK().create(VoltZK.request_truncation_snapshot_node, null,
+                    Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT_SEQUENTIAL);
+        } catch (Exception e) {
+            m_truncationRequested.set(false);
+            LOG.error("Unable to request a command log truncation snapshot", e);
+        }
+    }
+
+    @Override
+    public void populateCommandLogStats(Map<String, Integer> columnNameToIndex, Object[] rowValues) {
+        final long fsyncCount = m_fsyncCount;
+        final long fsyncInterval = fsyncCount == 0 ? 0 :
+            TimeUnit.NANOSECONDS.toMillis(m_fsyncIntervalTotalNanos / fsyncCount);
+        long outstandingBytes;
+        long outstandingTxns;
+        synchronized (m_lock) {
+            outstandingBytes = m_pendingBytes;
+            outstandingTxns = m_pendingTxns;
+        }
+        outstandingBytes += m_writingBytes;
+        outstandingTxns += m_writingTxns;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.OUTSTANDING_BYTES.name())] = outstandingBytes;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.OUTSTANDING_TXNS.name())] = outstandingTxns;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.IN_USE_SEGMENT_COUNT.name())] = m_activeSegmentCount;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.SEGMENT_COUNT.name())] = m_segmentCount;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.FSYNC_INTERVAL.name())] = (int) fsyncInterval;
+    }
+
+    @Override
+    public boolean isSynchronous() {
+        return m_synchronous;
+    }
+
+    @Override
+    public boolean canOfferTask() {
+        return !m_synchronous;
+    }
+}
@@ -18,6 +18,7 @@
 package org.voltdb;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -35,6 +36,8 @@ import org.ietf.jgss.GSSException;
 import org.ietf.jgss.GSSManager;
 import org.ietf.jgss.GSSName;
 import org.ietf.jgss.Oid;
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONWriter;
 import org.voltcore.logging.Level;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.EstTime;
@@ -64,12 +67,19 @@ public class HTTPClientInterface {
     public static final String PARAM_PASSWORD = "Password";
     public static final String PARAM_HASHEDPASSWORD = "Hashedpassword";
     public static final String PARAM_ADMIN = "admin";
+    /*
+     * Responses are JSON unless this is "binary", which returns the response
+     * serialized as in the client wire protocol, without the length prefix
+     */
+    public static final String PARAM_FORMAT = "Format";
+    public static final String FORMAT_JSON = "json";
+    public static final String FORMAT_BINARY = "binary";
     int m_timeout = 0;
 
     final boolean m_spnegoEnabled;
     final String m_servicePrincipal;
 
-    final String m_timeoutResponse;
+    final ClientResponseImpl m_timeoutResponse;
 
     private final Supplier<InternalConnectionHandler> m_invocationHandler =
             Suppliers.memoize(new Supplier<InternalConnectionHandler>() {
@@ -96,14 +106,12 @@ public class HTTPClientInterface {
 
         final AtomicBoolean m_complete = new AtomicBoolean(false);
         final Continuation m_continuation;
-        final String m_jsonp;
 
-        public JSONProcCallback(Continuation continuation, String jsonp) {
+        public JSONProcCallback(Continuation continuation) {
             assert continuation != null : "given continuation is null";
 
             m_continuation = continuation;
             m_continuation.addContinuationListener(this);
-            m_jsonp = jsonp;
         }
 
         @Override
@@ -118,14 +126,8 @@ public class HTTPClientInterface {
                 }
                 return;
             }
-            ClientResponseImpl rimpl = (ClientResponseImpl) clientResponse;
-            String msg = rimpl.toJSONString();
-
-            // handle jsonp pattern
-            // http://en.wikipedia.org/wiki/JSON#The_Basic_Idea:_Retrieving_JSON_via_Script_Tags
-            msg = asJsonp(m_jsonp, msg);
-
-            m_continuation.setAttribute("result", msg);
+            // serialized by the resumed request, straight to the response
+            m_continuation.setAttribute("result", clientResponse);
             try {
                 m_continuation.resume();
             } catch (IllegalStateException e) {
@@ -154,7 +156,7 @@ public class HTTPClientInterface {
     public HTTPClientInterface() {
         final ClientResponseImpl r = new ClientResponseImpl(ClientResponse.CONNECTION_TIMEOUT,
                 new VoltTable[0], "Request Timeout");
-        m_timeoutResponse = r.toJSONString();
+        m_timeoutResponse = r;
         m_servicePrincipal = getAuthSystem().getServicePrincipal();
         m_spnegoEnabled = m_servicePrincipal != null && !m_servicePrincipal.isEmpty();
     }
@@ -168,6 +170,29 @@ public class HTTPClientInterface {
         return sb.append(jsonp).append("( ").append(msg).append(" )").toString();
     }
 
+    /**
+     * Stream a response as JSON, wrapped for jsonp if asked to be. The writer
+     * is the response's, which sends its buffer on as it fills.
+     */
+    final static void writeJSON(String jsonp, ClientResponseImpl response, Writer writer) throws IOException {
+        // handle jsonp pattern
+        // http://en.wikipedia.org/wiki/JSON#The_Basic_Idea:_Retrieving_JSON_via_Script_Tags
+        if (jsonp != null) {
+            writer.write(jsonp);
+            writer.write("( ");
+        }
+        try {
+            response.toJSON(new JSONWriter(writer));
+        } catch (JSONException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+            throw new IOException("Failed to serialize a response to JSON", e);
+        }
+        if (jsonp != null) {
+            writer.write(" )");
+        }
+        writer.flush();
+    }
+
     private final static void simpleJsonResponse(String jsonp, String message, HttpServletResponse rsp, int code) {
         ClientResponseImpl rimpl = new ClientResponseImpl(
                 ClientResponse.UNEXPECTED_FAILURE, new VoltTable[0], message);
@@ -211,11 +236,17 @@ public class HTTPClientInterface {
         }
 
         final Continuation continuation = ContinuationSupport.getContinuation(request);
-        String result = (String)continuation.getAttribute("result");
+        ClientResponseImpl result = (ClientResponseImpl)continuation.getAttribute("result");
         if (result != null) {
             try {
                 response.setStatus(HttpServletResponse.SC_OK);
-                response.getWriter().print(result);
+                if (Boolean.TRUE.equals(continuation.getAttribute(FORMAT_BINARY))) {
+                    response.setContentType("application/octet-stream");
+                    result.flattenToStream(response.getOutputStream());
+                } else {
+                    writeJSON(jsonp == null ? (String)request.getAttribute(JSONP) : jsonp,
+                              result, response.getWriter());
+                }
                 request.setHandled(true);
             } catch (IllegalStateException | IOException e){
                // Thrown when we shut down the server via the JSON/HTTP (web studio) API
@@ -261,6 +292,13 @@ public class HTTPClientInterface {
             String procName = request.getParameter("Procedure");
             String params = request.getParameter("Parameters");
             String timeoutStr = request.getParameter(QUERY_TIMEOUT_PARAM);
+            String format = request.getParameter(PARAM_FORMAT);
+
+            if (format != null && !format.equalsIgnoreCase(FORMAT_JSON) && !format.equalsIgnoreCase(FORMAT_BINARY)) {
+                badRequest(jsonp, "invalid output format: " + format, response);
+                request.setHandled(true);
+                return;
+            }
 
             // null procs are bad news
             if (procName == null) {
@@ -293,7 +331,7 @@ public class HTTPClientInterface {
             continuation.suspend(response);
             suspended = true;
 
-            JSONProcCallback cb = new JSONProcCallback(continuation, jsonp);
+            JSONProcCallback cb = new JSONProcCallback(continuation);
             boolean success;
             if (params != null) {
                 ParameterSet paramSet = null;
@@ -328,6 +366,9 @@ public class HTTPClientInterface {
             if (jsonp != null) {
                 request.setAttribute("jsonp", jsonp);
             }
+            if (FORMAT_BINARY.equalsIgnoreCase(format)) {
+                continuation.setAttribute(FORMAT_BINARY, Boolean.TRUE);
+            }
             continuation.setAttribute("SQLSUBMITTED", Boolean.TRUE);
         } catch (Exception e) {
             String msg = Throwables.getStackTraceAsString(e);
@@ -69,6 +69,7 @@ public class IOStats extends StatsSource {
         columns.add(new ColumnInfo("MESSAGES_READ", VoltType.BIGINT));
         columns.add(new ColumnInfo("BYTES_WRITTEN", VoltType.BIGINT));
         columns.add(new ColumnInfo("MESSAGES_WRITTEN", VoltType.BIGINT));
+        columns.add(new ColumnInfo("BUSY_TIME_NANOS", VoltType.BIGINT));
 
     }
 
@@ -83,6 +84,7 @@ public class IOStats extends StatsSource {
         rowValues[columnNameToIndex.get("MESSAGES_READ")] = counters[1];
         rowValues[columnNameToIndex.get("BYTES_WRITTEN")] = counters[2];
         rowValues[columnNameToIndex.get("MESSAGES_WRITTEN")] = counters[3];
+        rowValues[columnNameToIndex.get("BUSY_TIME_NANOS")] = counters[4];
         super.updateStatsRow(rowKey, rowValues);
     }
 
@@ -0,0 +1,113 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.voltcore.utils.Pair;
+import org.voltdb.VoltTable.ColumnInfo;
+
+/**
+ * Traffic over each connection this host has to the other hosts in the mesh,
+ * and how many messages are waiting to be handed to the connection's network
+ * thread. A host has as many connections to each other host as the node that
+ * joined later of the two opened.
+ */
+
+public class MeshStats extends StatsSource {
+
+    public enum StatName {
+        REMOTE_HOST_ID,
+        REMOTE_HOSTNAME,
+        CONNECTION,
+        BYTES_READ,
+        MESSAGES_READ,
+        BYTES_WRITTEN,
+        MESSAGES_WRITTEN,
+        FRAMES_WRITTEN,
+        QUEUED_MESSAGES,
+        MAX_QUEUED_MESSAGES
+    }
+
+    private Map<Pair<Integer, Integer>, Pair<String, long[]>> m_linkStats =
+            new HashMap<Pair<Integer, Integer>, Pair<String, long[]>>();
+
+    public MeshStats() {
+        super(false);
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo(StatName.REMOTE_HOST_ID.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.REMOTE_HOSTNAME.name(), VoltType.STRING));
+        columns.add(new ColumnInfo(StatName.CONNECTION.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.BYTES_READ.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.MESSAGES_READ.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.BYTES_WRITTEN.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.MESSAGES_WRITTEN.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.FRAMES_WRITTEN.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.QUEUED_MESSAGES.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.MAX_QUEUED_MESSAGES.name(), VoltType.BIGINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        @SuppressWarnings("unchecked")
+        final Pair<Integer, Integer> link = (Pair<Integer, Integer>) rowKey;
+        final Pair<String, long[]> info = m_linkStats.get(link);
+        final long[] counters = info.getSecond();
+
+        rowValues[columnNameToIndex.get(StatName.REMOTE_HOST_ID.name())] = link.getFirst();
+        rowValues[columnNameToIndex.get(StatName.REMOTE_HOSTNAME.name())] = info.getFirst();
+        rowValues[columnNameToIndex.get(StatName.CONNECTION.name())] = link.getSecond();
+        rowValues[columnNameToIndex.get(StatName.BYTES_READ.name())] = counters[0];
+        rowValues[columnNameToIndex.get(StatName.MESSAGES_READ.name())] = counters[1];
+        rowValues[columnNameToIndex.get(StatName.BYTES_WRITTEN.name())] = counters[2];
+        rowValues[columnNameToIndex.get(StatName.MESSAGES_WRITTEN.name())] = counters[3];
+        rowValues[columnNameToIndex.get(StatName.FRAMES_WRITTEN.name())] = counters[4];
+        rowValues[columnNameToIndex.get(StatName.QUEUED_MESSAGES.name())] = counters[5];
+        rowValues[columnNameToIndex.get(StatName.MAX_QUEUED_MESSAGES.name())] = counters[6];
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        m_linkStats = VoltDB.instance().getHostMessenger().getLinkStats(interval);
+        final Iterator<Pair<Integer, Integer>> keys = m_linkStats.keySet().iterator();
+        return new Iterator<Object>() {
+            @Override
+            public boolean hasNext() {
+                return keys.hasNext();
+            }
+
+            @Override
+            public Object next() {
+                return keys.next();
+            }
+
+            @Override
+            public void remove() {
+                keys.remove();
+            }
+        };
+    }
+}
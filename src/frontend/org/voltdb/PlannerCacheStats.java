@@ -0,0 +1,156 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.compiler.AdHocCompilerCache;
+import org.voltdb.compiler.SegmentedPlanCache;
+
+/**
+ * Reports hit rates, evictions and memory use of both levels of the
+ * ad hoc plan cache for the current catalog. One row per cache level.
+ */
+public class PlannerCacheStats extends StatsSource {
+
+    public enum CacheLevel {
+        LITERAL,
+        CORE
+    }
+
+    public enum StatName {
+        CACHE_LEVEL,
+        ENTRIES,
+        BYTES_USED,
+        HITS,
+        MISSES,
+        HIT_RATE,
+        INSERTIONS,
+        EVICTIONS,
+        REJECTIONS
+    }
+
+    // the cache the interval baselines below belong to
+    private AdHocCompilerCache m_lastCache = null;
+    private final SegmentedPlanCache.Stats[] m_lastStats = new SegmentedPlanCache.Stats[CacheLevel.values().length];
+
+    private boolean m_interval = false;
+
+    public PlannerCacheStats() {
+        super(false);
+        resetIntervals();
+    }
+
+    private void resetIntervals() {
+        for (int i = 0; i < m_lastStats.length; i++) {
+            m_lastStats[i] = new SegmentedPlanCache.Stats();
+        }
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo(StatName.CACHE_LEVEL.name(), VoltType.STRING));
+        columns.add(new ColumnInfo(StatName.ENTRIES.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.BYTES_USED.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.HITS.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.MISSES.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.HIT_RATE.name(), VoltType.FLOAT));
+        columns.add(new ColumnInfo(StatName.INSERTIONS.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.EVICTIONS.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.REJECTIONS.name(), VoltType.BIGINT));
+    }
+
+    private AdHocCompilerCache getCurrentCache() {
+        CatalogContext context = VoltDB.instance().getCatalogContext();
+        if (context == null) {
+            return null;
+        }
+        return AdHocCompilerCache.getCacheForCatalogHash(context.getCatalogHash());
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        CacheLevel level = (CacheLevel) rowKey;
+        AdHocCompilerCache cache = getCurrentCache();
+        SegmentedPlanCache.Stats stats = new SegmentedPlanCache.Stats();
+        if (cache != null) {
+            stats = (level == CacheLevel.LITERAL) ? cache.getLiteralStats() : cache.getCoreStats();
+        }
+        if (cache != m_lastCache) {
+            // new catalog, new cache: start counting intervals again
+            m_lastCache = cache;
+            resetIntervals();
+        }
+
+        long hits = stats.hits;
+        long misses = stats.misses;
+        long insertions = stats.insertions;
+        long evictions = stats.evictions;
+        long rejections = stats.rejections;
+        if (m_interval) {
+            SegmentedPlanCache.Stats last = m_lastStats[level.ordinal()];
+            hits -= last.hits;
+            misses -= last.misses;
+            insertions -= last.insertions;
+            evictions -= last.evictions;
+            rejections -= last.rejections;
+            m_lastStats[level.ordinal()] = stats;
+        }
+
+        rowValues[columnNameToIndex.get(StatName.CACHE_LEVEL.name())] = level.name();
+        rowValues[columnNameToIndex.get(StatName.ENTRIES.name())] = stats.entries;
+        rowValues[columnNameToIndex.get(StatName.BYTES_USED.name())] = stats.bytes;
+        rowValues[columnNameToIndex.get(StatName.HITS.name())] = hits;
+        rowValues[columnNameToIndex.get(StatName.MISSES.name())] = misses;
+        rowValues[columnNameToIndex.get(StatName.HIT_RATE.name())] =
+                (hits + misses) == 0 ? 0.0 : ((double) hits) / (hits + misses);
+        rowValues[columnNameToIndex.get(StatName.INSERTIONS.name())] = insertions;
+        rowValues[columnNameToIndex.get(StatName.EVICTIONS.name())] = evictions;
+        rowValues[columnNameToIndex.get(StatName.REJECTIONS.name())] = rejections;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        m_interval = interval;
+        return new Iterator<Object>() {
+            int m_next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return m_next < CacheLevel.values().length;
+            }
+
+            @Override
+            public Object next() {
+                if (hasNext()) {
+                    return CacheLevel.values()[m_next++];
+                }
+                return null;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -36,11 +36,6 @@ public class PlannerStatsCollector extends StatsSource {
      */
     private boolean m_interval = false;
 
-    /**
-     * Record timings every N invocations
-     */
-    final long m_collectionFrequency = 20;
-
     /**
      * Flag indicating cache disposition of a planned statement.
      */
@@ -95,17 +90,18 @@ public class PlannerStatsCollector extends StatsSource {
     long m_cacheMisses = 0;
     long m_lastCacheMisses = 0;
 
-    /**
-     * Time of last planning start
-     */
-    Long m_currentStartTime = null;
-
     /**
      * Total amount of planning time
      */
     long m_totalPlanningTime = 0;
     long m_lastTimedPlanningTime = 0;
 
+    /**
+     * Number of planning requests whose time was recorded
+     */
+    long m_timedInvocations = 0;
+    long m_lastTimedInvocations = 0;
+
     /**
      * Shortest amount of time used for planning
      */
@@ -147,14 +143,6 @@ public class PlannerStatsCollector extends StatsSource {
         return m_lastInvocations;
     }
 
-    /**
-     * Calculate the sample count based on the invocation count and the collection frequency.
-     * @return  sample count
-     */
-    long getSampleCount() {
-        return getInvocations() / m_collectionFrequency;
-    }
-
     /**
      * Constructor
      *
@@ -168,7 +156,7 @@ public class PlannerStatsCollector extends StatsSource {
     /**
      * Used to update EE cache stats without changing tracked time
      */
-    public void updateEECacheStats(long eeCacheSize, long hits, long misses, int partitionId) {
+    public synchronized void updateEECacheStats(long eeCacheSize, long hits, long misses, int partitionId) {
         m_cache1Level = eeCacheSize;
         m_cache1Hits += hits;
         m_cacheMisses += misses;
@@ -179,38 +167,40 @@ public class PlannerStatsCollector extends StatsSource {
 
     /**
      * Called before doing planning. Starts timer.
+     * Several planner threads may be planning at once, so the caller keeps
+     * the start time and hands it back to {@link #endStatsCollection}.
+     *
+     * @return the start time of this planning request
      */
-    public void startStatsCollection() {
-        if (getInvocations() % m_collectionFrequency == 0) {
-            m_currentStartTime = System.nanoTime();
-        }
+    public long startStatsCollection() {
+        return System.nanoTime();
     }
 
     /**
      * Called after planning or failing to plan. Records timer and cache stats.
      *
+     * @param startTime    value returned by the matching startStatsCollection call
      * @param cache1Size   number of entries in level 1 cache
      * @param cache2Size   number of entries in level 2 cache
      * @param cacheUse     where the planned statement came from
      * @param partitionId  partition id
      */
-    public void endStatsCollection(long cache1Size, long cache2Size, CacheUse cacheUse, long partitionId) {
-        if (m_currentStartTime != null) {
-            long delta = System.nanoTime() - m_currentStartTime;
-            if (delta < 0) {
-                if (Math.abs(delta) > 1000000000) {
-                    log.info("Planner statistics recorded a negative planning time larger than one second: " +
-                             delta);
-                }
+    public synchronized void endStatsCollection(long startTime, long cache1Size, long cache2Size,
+            CacheUse cacheUse, long partitionId) {
+        long delta = System.nanoTime() - startTime;
+        if (delta < 0) {
+            if (Math.abs(delta) > 1000000000) {
+                log.info("Planner statistics recorded a negative planning time larger than one second: " +
+                         delta);
             }
-            else {
-                m_totalPlanningTime += delta;
-                m_minPlanningTime = Math.min(delta, m_minPlanningTime);
-                m_maxPlanningTime = Math.max(delta, m_maxPlanningTime);
-                m_lastMinPlanningTime = Math.min(delta, m_lastMinPlanningTime);
-                m_lastMaxPlanningTime = Math.max(delta, m_lastMaxPlanningTime);
-            }
-            m_currentStartTime = null;
+        }
+        else {
+            m_totalPlanningTime += delta;
+            m_timedInvocations++;
+            m_minPlanningTime = Math.min(delta, m_minPlanningTime);
+            m_maxPlanningTime = Math.max(delta, m_maxPlanningTime);
+            m_lastMinPlanningTime = Math.min(delta, m_lastMinPlanningTime);
+            m_lastMaxPlanningTime = Math.max(delta, m_lastMaxPlanningTime);
         }
 
         m_cache1Level = cache1Size;
@@ -242,11 +232,12 @@ public class PlannerStatsCollector extends StatsSource {
      * @param values Values of each column of the row of stats. Used as output.
      */
     @Override
-    protected void updateStatsRow(Object rowKey, Object rowValues[]) {
+    protected synchronized void updateStatsRow(Object rowKey, Object rowValues[]) {
         super.updateStatsRow(rowKey, rowValues);
 
         rowValues[columnNameToIndex.get("PARTITION_ID")] = m_partitionId;
         long totalTimedExecutionTime = m_totalPlanningTime;
+        long timedInvocations = m_timedInvocations;
         long minExecutionTime = m_minPlanningTime;
         long maxExecutionTime = m_maxPlanningTime;
         long cache1Level = m_cache1Level;
@@ -259,6 +250,8 @@ public class PlannerStatsCollector extends StatsSource {
         if (m_interval) {
             totalTimedExecutionTime = m_totalPlanningTime - m_lastTimedPlanningTime;
             m_lastTimedPlanningTime = m_totalPlanningTime;
+            timedInvocations = m_timedInvocations - m_lastTimedInvocations;
+            m_lastTimedInvocations = m_timedInvocations;
 
             minExecutionTime = m_lastMinPlanningTime;
             maxExecutionTime = m_lastMaxPlanningTime;
@@ -295,9 +288,9 @@ public class PlannerStatsCollector extends StatsSource {
         rowValues[columnNameToIndex.get("CACHE_MISSES")] = cacheMisses;
         rowValues[columnNameToIndex.get("PLAN_TIME_MIN")] = minExecutionTime;
         rowValues[columnNameToIndex.get("PLAN_TIME_MAX")] = maxExecutionTime;
-        if (getSampleCount() != 0) {
+        if (timedInvocations != 0) {
             rowValues[columnNameToIndex.get("PLAN_TIME_AVG")] =
-                 (totalTimedExecutionTime / getSampleCount());
+                 (totalTimedExecutionTime / timedInvocations);
         } else {
             rowValues[columnNameToIndex.get("PLAN_TIME_AVG")] = 0L;
         }
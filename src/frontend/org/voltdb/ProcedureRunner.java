@@ -454,6 +454,105 @@ public class ProcedureRunner {
         return retval;
     }
 
+    /**
+     * True for a read-only single partition procedure made of a single statement
+     * and no Java. Transactions of such procedures are independent reads of the
+     * same state, so the site can run several of them back to back in one call
+     * to the EE, see executeReadBatch().
+     */
+    public boolean isBatchableRead() {
+        return m_isSinglePartition && m_isReadOnly && !m_hasJava && !m_isSysProc &&
+            getNonVoltDBBackendIfExists() == null;
+    }
+
+    /**
+     * Convert the parameters of a transaction of this procedure for its statement
+     * in a read batch. Returns null if they don't fit, the transaction should then
+     * run on its own through call() to produce the error response.
+     */
+    public ParameterSet prepareBatchedRead(Object[] paramList) {
+        assert(isBatchableRead());
+        if (paramList.length != m_paramTypes.length) {
+            return null;
+        }
+        Object[] converted = new Object[paramList.length];
+        try {
+            for (int i = 0; i < m_paramTypes.length; i++) {
+                converted[i] = ParameterConverter.tryToMakeCompatible(m_paramTypes[i], paramList[i]);
+            }
+            return getCleanParams(m_cachedSingleStmt.stmt, false, converted);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Execute the statements of several transactions of batchable read procedures,
+     * one statement each, in a single call to the EE and build the response of each
+     * transaction. Every statement runs with the first transaction's ids, so NOW()
+     * reads the time of the first transaction in the batch.
+     *
+     * Each transaction is charged the time the EE spent on its own statement
+     * plus the time to build its response, not the time of the whole batch.
+     *
+     * Returns null if the EE failed the batch. The statements only read, so each
+     * transaction can simply be run again on its own to get its own result or error.
+     */
+    public static ClientResponseImpl[] executeReadBatch(ProcedureRunner[] runners,
+                                                        ParameterSet[] params,
+                                                        TransactionState[] txnStates,
+                                                        int count) {
+        final SiteProcedureConnection site = runners[0].m_site;
+        final long[] fragmentIds = new long[count];
+        final String[] sqlTexts = new String[count];
+        for (int i = 0; i < count; i++) {
+            SQLStmt stmt = runners[i].m_cachedSingleStmt.stmt;
+            fragmentIds[i] = stmt.aggregator.id;
+            sqlTexts[i] = stmt.getText();
+        }
+
+        VoltTable[] results;
+        site.setProcedureName(runners[0].m_procedureName);
+        site.setBatch(0);
+        try {
+            results = site.executePlanFragments(
+                    count,
+                    fragmentIds,
+                    null,
+                    params,
+                    sqlTexts,
+                    txnStates[0].txnId,
+                    txnStates[0].m_spHandle,
+                    txnStates[0].uniqueId,
+                    true,
+                    true);
+        } catch (SerializableException e) {
+            return null;
+        } finally {
+            site.setProcedureName(null);
+        }
+
+        ClientResponseImpl[] responses = new ClientResponseImpl[count];
+        for (int i = 0; i < count; i++) {
+            ProcedureRunner runner = runners[i];
+            VoltTable[] txnResults = new VoltTable[] { results[i] };
+            StoredProcedureInvocation invocation = txnStates[i].getInvocation();
+            runner.m_statsCollector.beginProcedure(System.nanoTime() - site.getFragmentExecutionNanos(i));
+            runner.m_statsCollector.endProcedure(false, false, txnResults,
+                    invocation != null ? invocation.getParams() : null);
+            responses[i] = new ClientResponseImpl(
+                    ClientResponse.SUCCESS,
+                    ClientResponse.UNINITIALIZED_APP_STATUS_CODE,
+                    null,
+                    txnResults,
+                    null);
+            if (invocation != null && ProcedureInvocationType.isDeprecatedInternalDRType(invocation.getType())) {
+                responses[i].convertResultsToHashForDeterminism();
+            }
+        }
+        return responses;
+    }
+
     /**
      * Check if the txn hashes to this partition. If not, it should be restarted.
      * @param txnState
@@ -1620,7 +1719,8 @@ public class ProcedureRunner {
                    m_txnState.txnId,
                    m_txnState.m_spHandle,
                    m_txnState.uniqueId,
-                   m_isReadOnly);
+                   m_isReadOnly,
+                   false);
        } catch (Throwable ex) {
            if (! m_isReadOnly) {
                // roll back the current batch and re-throw the EE exception
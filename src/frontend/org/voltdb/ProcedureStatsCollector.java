@@ -145,6 +145,17 @@ class ProcedureStatsCollector extends SiteStatsSource {
         }
     }
 
+    /**
+     * Called when a procedure that started executing at the given System.nanoTime()
+     * is being accounted for, e.g. a transaction in a read batch whose start is
+     * put back by the time the EE spent on its own statement.
+     */
+    public final void beginProcedure(long startTime) {
+        if (m_invocations % timeCollectionInterval == 0) {
+            m_currentStartTime = startTime;
+        }
+    }
+
     /**
      * Called after a procedure is finished executing. Compares the start and end time and calculates
      * the statistics.
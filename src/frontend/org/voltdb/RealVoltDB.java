@@ -107,6 +107,7 @@ import org.voltdb.dtxn.LatencyHistogramStats;
 import org.voltdb.dtxn.LatencyStats;
 import org.voltdb.dtxn.SiteTracker;
 import org.voltdb.export.ExportManager;
+import org.voltdb.export.ExportStats;
 import org.voltdb.importer.ImportManager;
 import org.voltdb.iv2.BaseInitiator;
 import org.voltdb.iv2.Cartographer;
@@ -726,6 +727,7 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
             m_ioStats = new IOStats();
             getStatsAgent().registerStatsSource(StatsSelector.IOSTATS,
                     0, m_ioStats);
+            getStatsAgent().registerStatsSource(StatsSelector.MESH, 0, new MeshStats());
             m_memoryStats = new MemoryStats();
             getStatsAgent().registerStatsSource(StatsSelector.MEMORY,
                     0, m_memoryStats);
@@ -755,6 +757,7 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
             // ENG-6321
             m_commandLogStats = new CommandLogStats(m_commandLog);
             getStatsAgent().registerStatsSource(StatsSelector.COMMANDLOG, 0, m_commandLogStats);
+            getStatsAgent().registerStatsSource(StatsSelector.EXPORT, 0, new ExportStats());
 
             /*
              * Initialize the command log on rejoin and join before configuring the IV2
@@ -815,8 +818,7 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
                 VoltDB.crashLocalVoltDB(e.getMessage(), true, e);
             }
 
-            boolean usingCommandLog = m_config.m_isEnterprise &&
-                    m_catalogContext.cluster.getLogconfig().get("log").getEnabled();
+            boolean usingCommandLog = m_commandLog.isEnabled();
             String clSnapshotPath = null;
             if (m_catalogContext.cluster.getLogconfig().get("log").getEnabled()) {
                 clSnapshotPath = m_catalogContext.cluster.getLogconfig().get("log").getInternalsnapshotpath();
@@ -2598,7 +2600,7 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
         try {
             final ZooKeeper zk = m_messenger.getZK();
             boolean logRecoveryCompleted = false;
-            if (getCommandLog().getClass().getName().equals("org.voltdb.CommandLogImpl")) {
+            if (getCommandLog().isEnabled()) {
                 String requestNode = zk.create(VoltZK.request_truncation_snapshot_node, null,
                         Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT_SEQUENTIAL);
                 if (m_rejoinTruncationReqId == null) {
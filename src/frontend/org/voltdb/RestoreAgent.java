@@ -455,7 +455,7 @@ SnapshotCompletionInterest, Promotable
         m_callback = callback;
         m_action = action;
         m_zk = hostMessenger.getZK();
-        m_clEnabled = VoltDB.instance().getConfig().m_isEnterprise ? clEnabled : false;
+        m_clEnabled = clEnabled;
         m_clPath = clPath;
         m_clSnapshotPath = clSnapshotPath;
         m_snapshotPath = snapshotPath;
@@ -485,6 +485,13 @@ SnapshotCompletionInterest, Promotable
                                                                     m_clPath,
                                                                     m_liveHosts);
             }
+            else if (m_clEnabled) {
+                m_replayAgent = new DefaultCommandLogReinitiator(m_hostId,
+                                                                 m_action,
+                                                                 hostMessenger,
+                                                                 m_clPath,
+                                                                 m_liveHosts);
+            }
         } catch (Exception e) {
             VoltDB.crashGlobalVoltDB("Unable to instantiate command log reinitiator",
                                      true, e);
@@ -1334,7 +1341,7 @@ SnapshotCompletionInterest, Promotable
          * they can be set individually
          */
         List<String> paths = new ArrayList<String>();
-        if (VoltDB.instance().getConfig().m_isEnterprise) {
+        if (VoltDB.instance().getConfig().m_isEnterprise || m_clEnabled) {
             if (m_clSnapshotPath != null) {
                 paths.add(m_clSnapshotPath);
             }
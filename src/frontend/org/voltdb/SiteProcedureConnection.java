@@ -17,6 +17,7 @@
 
 package org.voltdb;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Future;
@@ -97,10 +98,23 @@ public interface SiteProcedureConnection {
             boolean shouldDRStream,
             boolean undo);
 
+    /**
+     * Load serialized snapshot rows into an empty table, deferring index
+     * maintenance until finishBulkLoad(). Not transactional.
+     */
+    public void bulkLoadTable(int tableId, ByteBuffer rows);
+
+    /**
+     * Build the indexes deferred by bulkLoadTable().
+     */
+    public void finishBulkLoad(int tableId);
+
     /**
      * Execute a set of plan fragments.
      * Note: it's ok to pass null for inputDepIds if the fragments
      * have no dependencies.
+     * If timeFragments is set the EE also measures the time of each fragment,
+     * see getFragmentExecutionNanos().
      */
     public VoltTable[] executePlanFragments(
             int numFragmentIds,
@@ -111,7 +125,8 @@ public interface SiteProcedureConnection {
             long txnId,
             long spHandle,
             long uniqueId,
-            boolean readOnly) throws EEException;
+            boolean readOnly,
+            boolean timeFragments) throws EEException;
 
     /**
      * Let the EE know which batch of sql is running so it can include this
@@ -125,6 +140,12 @@ public interface SiteProcedureConnection {
      */
     public void setProcedureName(String procedureName);
 
+    /**
+     * The nanoseconds the EE spent on the fragment at the given index of the
+     * last batch of plan fragments, 0 if that batch wasn't timed.
+     */
+    public long getFragmentExecutionNanos(int batchIndex);
+
     public void setBatchTimeout(int batchTimeout);
     public int getBatchTimeout();
 
@@ -394,6 +394,9 @@ public class StatsAgent extends OpsAgent
         case PLANNER:
             stats = collectStats(StatsSelector.PLANNER, interval);
             break;
+        case PLANNER_CACHE:
+            stats = collectStats(StatsSelector.PLANNER_CACHE, interval);
+            break;
         case LIVECLIENTS:
             stats = collectStats(StatsSelector.LIVECLIENTS, interval);
             break;
@@ -424,6 +427,24 @@ public class StatsAgent extends OpsAgent
         case COMMANDLOG:
             stats = collectStats(StatsSelector.COMMANDLOG, false);
             break;
+        case EXPORT:
+            stats = collectStats(StatsSelector.EXPORT, interval);
+            break;
+        case MP_READ_POOL:
+            stats = collectStats(StatsSelector.MP_READ_POOL, interval);
+            break;
+        case REPAIR_LOG:
+            stats = collectStats(StatsSelector.REPAIR_LOG, interval);
+            break;
+        case TASK_QUEUE:
+            stats = collectStats(StatsSelector.TASK_QUEUE, interval);
+            break;
+        case SPILL:
+            stats = collectStats(StatsSelector.SPILL, interval);
+            break;
+        case MESH:
+            stats = collectStats(StatsSelector.MESH, interval);
+            break;
         case IMPORTER:
             stats = collectStats(StatsSelector.IMPORTER, interval);
             break;
@@ -587,13 +608,17 @@ public class StatsAgent extends OpsAgent
         if (!firstSource.isEEStats())
             columns = firstSource.getColumnSchema().toArray(new VoltTable.ColumnInfo[0]);
         else {
-            final VoltTable table = firstSource.getStatsTable();
-            if (table == null)
-                return null;
-            columns = new VoltTable.ColumnInfo[table.getColumnCount()];
-            for (int i = 0; i < columns.length; i++)
-                columns[i] = new VoltTable.ColumnInfo(table.getColumnName(i),
-                        table.getColumnType(i));
+            // EE stats tables may be backed by pooled buffers the site
+            // replaces, so only read them holding the source's monitor
+            synchronized (firstSource) {
+                final VoltTable table = firstSource.getStatsTable();
+                if (table == null)
+                    return null;
+                columns = new VoltTable.ColumnInfo[table.getColumnCount()];
+                for (int i = 0; i < columns.length; i++)
+                    columns[i] = new VoltTable.ColumnInfo(table.getColumnName(i),
+                            table.getColumnType(i));
+            }
         }
 
         // Append to previous results if provided.
@@ -614,13 +639,15 @@ public class StatsAgent extends OpsAgent
                  * statistics
                  */
                 if (ss.isEEStats()) {
-                    final VoltTable table = ss.getStatsTable();
-                    // this table can be null during recovery, at least
-                    if (table != null) {
-                        while (table.advanceRow()) {
-                            resultTable.add(table);
+                    synchronized (ss) {
+                        final VoltTable table = ss.getStatsTable();
+                        // this table can be null during recovery, at least
+                        if (table != null) {
+                            while (table.advanceRow()) {
+                                resultTable.add(table);
+                            }
+                            table.resetRowPosition();
                         }
-                        table.resetRowPosition();
                     }
                 } else {
                     Object statsRows[][] = ss.getStatsRows(interval, now);
@@ -29,6 +29,7 @@ public enum StatsSelector {
     MEMORY,           // info about node's memory usage
     LIVECLIENTS,      // info about the currently connected clients
     PLANNER,          // info about planner and EE performance and cache usage
+    PLANNER_CACHE,    // hit rates, evictions and memory use of the ad hoc plan cache levels
     MANAGEMENT,       // Returns pretty much everything
     PROCEDUREPROFILE, // performs an aggregation of the procedure statistics
     SNAPSHOTSTATUS,
@@ -54,5 +55,11 @@ public enum StatsSelector {
     CPU,            // Return CPU Stats
 
     COMMANDLOG,     // return number of outstanding bytes and txns on this node
+    EXPORT,         // throughput, overflow and ack latency of each export stream and partition
+    MP_READ_POOL,   // size, utilization and queueing of the MPI read-only site pool
+    REPAIR_LOG,     // entries, off-heap bytes and age of each initiator's repair log
+    TASK_QUEUE,     // depth of and time spent waiting in each site's task queue
+    SPILL,          // temp table data each site's plan fragments spilled to disk
+    MESH,           // traffic and queued messages of each connection to the other hosts
     IMPORTER
 }
@@ -20,6 +20,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 
 import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.jni.PooledVoltTables;
 
 /**
  * Abstract superclass of all sources of statistical information inside the Java frontend.
@@ -36,6 +37,8 @@ public abstract class StatsSource {
 
     //Volatile for safe publication of the table objects
     private volatile VoltTable m_table = null;
+    // pooled buffer m_table is backed by, if any, guarded by this
+    private PooledVoltTables m_tableBacking = null;
 
     /**
      * Column schema for statistical result rows
@@ -158,7 +161,26 @@ public abstract class StatsSource {
      *            The VoltTable which contains the statistics.
      */
     public void setStatsTable(VoltTable statsTable) {
+        setStatsTable(statsTable, null);
+    }
+
+    /**
+     * Sets the VoltTable which contains the statistics, backed by a pooled
+     * buffer that is discarded when the table is replaced. A table set this
+     * way, and any view of it from getStatsTable(), must only be read while
+     * holding the monitor of this source.
+     *
+     * @param statsTable
+     *            The VoltTable which contains the statistics.
+     * @param backing
+     *            The pooled tables statsTable belongs to, or null.
+     */
+    public synchronized void setStatsTable(VoltTable statsTable, PooledVoltTables backing) {
         m_table = statsTable;
+        if (m_tableBacking != null) {
+            m_tableBacking.discard();
+        }
+        m_tableBacking = backing;
     }
 
     /**
@@ -167,7 +189,7 @@ public abstract class StatsSource {
      * clients to reset the tracking table without having to build an empty stats table and call setStatsTable()
      */
     public void resetStatsTable() {
-        m_table = new VoltTable(columns.toArray(new ColumnInfo[columns.size()]));
+        setStatsTable(new VoltTable(columns.toArray(new ColumnInfo[columns.size()])), null);
     }
 
     private Long now = System.currentTimeMillis();
@@ -30,6 +30,7 @@ import org.json_voltpatches.JSONException;
 import org.json_voltpatches.JSONObject;
 import org.json_voltpatches.JSONString;
 import org.json_voltpatches.JSONStringer;
+import org.json_voltpatches.JSONWriter;
 import org.voltdb.client.ClientUtils;
 import org.voltdb.common.Constants;
 import org.voltdb.types.GeographyPointValue;
@@ -508,6 +509,8 @@ public final class VoltTable extends VoltTableRow implements JSONString {
         m_buffer.position(m_rowStart);
         m_buffer.putInt(0);
         m_rowCount = 0;
+        // drop any row that was being built
+        m_appendRowStart = -1;
         assert(verifyTableInvariants());
     }
 
@@ -993,6 +996,9 @@ public final class VoltTable extends VoltTableRow implements JSONString {
         if (row.getColumnCount() != m_colCount) {
             throw new IllegalArgumentException(row.getColumnCount() + " arguments but table has " + m_colCount + " columns");
         }
+        if (m_appendRowStart >= 0) {
+            throw new IllegalStateException("Row in progress, call endRow() first");
+        }
 
         // memoize the start of this row in case we roll back
         final int pos = m_buffer.position();
@@ -1105,6 +1111,9 @@ public final class VoltTable extends VoltTableRow implements JSONString {
         if (values.length != m_colCount) {
             throw new IllegalArgumentException(values.length + " arguments but table has " + m_colCount + " columns");
         }
+        if (m_appendRowStart >= 0) {
+            throw new IllegalStateException("Row in progress, call endRow() first");
+        }
 
         // memoize the start of this row in case we roll back
         final int pos = m_buffer.position();
@@ -1194,6 +1203,328 @@ public final class VoltTable extends VoltTableRow implements JSONString {
         m_buffer = buf2;
     }
 
+    /*
+     * Typed row building. startRow(), one append call per column in schema
+     * order and endRow() write a row straight into the table buffer without
+     * boxing the values or converting them through addColumnValue(). Each
+     * append checks the type byte of its column in the schema header, and
+     * endRow() checks the column count, so a finished row is always valid.
+     * Any failure throws away the partial row, leaving the table as it was.
+     */
+
+    // where the type bytes start: skip rowstart + status code + colcount
+    private static final int COLUMN_TYPES_OFFSET = 4 + 1 + 2;
+    // buffer position of the row being built, or -1 if there is none
+    private int m_appendRowStart = -1;
+    // index of the next column to append to the row being built
+    private int m_appendColumn = 0;
+
+    /**
+     * Start appending a new row to the table. Follow with one typed append
+     * call per column, in column order, and then {@link #endRow()}. This is a
+     * cheaper alternative to {@link #addRow(Object...)} when the column types
+     * are known, as no values are boxed and strings are encoded directly into
+     * the table buffer.
+     * @return This table, to allow chaining the append calls.
+     * @throws IllegalStateException if the table is read-only or another row
+     *         is still being built.
+     */
+    public final VoltTable startRow() {
+        assert(verifyTableInvariants());
+        if (m_readOnly) {
+            throw new IllegalStateException("Table is read-only. Make a copy before changing.");
+        }
+        if (m_colCount == 0) {
+            throw new IllegalStateException("Table has no columns defined");
+        }
+        if (m_appendRowStart >= 0) {
+            throw new IllegalStateException("Previous row was not ended with endRow()");
+        }
+        m_appendRowStart = m_buffer.position();
+        m_appendColumn = 0;
+        // Allow the buffer to grow to max capacity while the row is built
+        m_buffer.limit(m_buffer.capacity());
+        ensureAppendCapacity(4);
+        // advance past the row size value
+        m_buffer.position(m_appendRowStart + 4);
+        return this;
+    }
+
+    /**
+     * Finish the row started with {@link #startRow()} and add it to the table.
+     * @throws IllegalStateException if no row was started or not every column
+     *         was appended.
+     * @throws VoltOverflowException if the row is larger than the maximum
+     *         row size.
+     */
+    public final void endRow() {
+        checkAppending();
+        final int pos = m_appendRowStart;
+        if (m_appendColumn != m_colCount) {
+            final int appended = m_appendColumn;
+            abortRow();
+            throw new IllegalStateException(appended + " values appended but table has " +
+                                            m_colCount + " columns");
+        }
+        final int rowsize = m_buffer.position() - pos - 4;
+        if (rowsize > VoltTableRow.MAX_TUPLE_LENGTH) {
+            abortRow();
+            throw new VoltOverflowException(
+                    "Table row total length larger than allowed max " + VoltTableRow.MAX_TUPLE_LENGTH_STR);
+        }
+        m_buffer.putInt(pos, rowsize);
+        m_rowCount++;
+        m_buffer.putInt(m_rowStart, m_rowCount);
+        m_buffer.limit(m_buffer.position());
+        m_appendRowStart = -1;
+        assert(verifyTableInvariants());
+    }
+
+    /**
+     * Append a TINYINT value to the row being built.
+     * @param value Value of the next column.
+     * @return This table, to allow chaining the append calls.
+     */
+    public final VoltTable appendTinyInt(byte value) {
+        nextAppendColumn(VoltType.TINYINT, 1);
+        m_buffer.put(value);
+        return this;
+    }
+
+    /**
+     * Append a SMALLINT value to the row being built.
+     * @param value Value of the next column.
+     * @return This table, to allow chaining the append calls.
+     */
+    public final VoltTable appendSmallInt(short value) {
+        nextAppendColumn(VoltType.SMALLINT, 2);
+        m_buffer.putShort(value);
+        return this;
+    }
+
+    /**
+     * Append an INTEGER value to the row being built.
+     * @param value Value of the next column.
+     * @return This table, to allow chaining the append calls.
+     */
+    public final VoltTable appendInteger(int value) {
+        nextAppendColumn(VoltType.INTEGER, 4);
+        m_buffer.putInt(value);
+        return this;
+    }
+
+    /**
+     * Append a BIGINT value to the row being built.
+     * @param value Value of the next column.
+     * @return This table, to allow chaining the append calls.
+     */
+    public final VoltTable appendLong(long value) {
+        nextAppendColumn(VoltType.BIGINT, 8);
+        m_buffer.putLong(value);
+        return this;
+    }
+
+    /**
+     * Append a FLOAT value to the row being built.
+     * @param value Value of the next column.
+     * @return This table, to allow chaining the append calls.
+     */
+    public final VoltTable appendDouble(double value) {
+        nextAppendColumn(VoltType.FLOAT, 8);
+        m_buffer.putDouble(value);
+        return this;
+    }
+
+    /**
+     * Append a TIMESTAMP value to the row being built.
+     * @param microsSinceEpoch Value of the next column in microseconds since
+     *        the epoch.
+     * @return This table, to allow chaining the append calls.
+     */
+    public final VoltTable appendTimestamp(long microsSinceEpoch) {
+        nextAppendColumn(VoltType.TIMESTAMP, 8);
+        m_buffer.putLong(microsSinceEpoch);
+        return this;
+    }
+
+    /**
+     * Append a TIMESTAMP value to the row being built.
+     * @param value Value of the next column, or null.
+     * @return This table, to allow chaining the append calls.
+     */
+    public final VoltTable appendTimestamp(TimestampType value) {
+        if (value == null) {
+            return appendNull(VoltType.TIMESTAMP);
+        }
+        return appendTimestamp(value.getTime());
+    }
+
+    /**
+     * Append a VARCHAR value to the row being built. The string is encoded
+     * as UTF-8 directly into the table buffer.
+     * @param value Value of the next column, or null.
+     * @return This table, to allow chaining the append calls.
+     */
+    public final VoltTable appendString(String value) {
+        if (value == null) {
+            return appendNull(VoltType.STRING);
+        }
+        final int length = value.length();
+        // a UTF-16 char never takes more than 3 bytes of UTF-8
+        final int col = nextAppendColumn(VoltType.STRING, 4 + length * 3);
+        if (m_extraMetadata != null && length > m_extraMetadata.originalColumnInfos[col].size) {
+            abortRow();
+            throw new VoltOverflowException("Value in VoltTable.appendString(...) larger than allowed max " +
+                    VoltType.humanReadableSize(m_extraMetadata.originalColumnInfos[col].size));
+        }
+        final int lengthPos = m_buffer.position();
+        m_buffer.position(lengthPos + 4);
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                m_buffer.put((byte) c);
+            }
+            else if (c < 0x800) {
+                m_buffer.put((byte) (0xc0 | (c >> 6)));
+                m_buffer.put((byte) (0x80 | (c & 0x3f)));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < length &&
+                     Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int cp = Character.toCodePoint(c, value.charAt(++i));
+                m_buffer.put((byte) (0xf0 | (cp >> 18)));
+                m_buffer.put((byte) (0x80 | ((cp >> 12) & 0x3f)));
+                m_buffer.put((byte) (0x80 | ((cp >> 6) & 0x3f)));
+                m_buffer.put((byte) (0x80 | (cp & 0x3f)));
+            }
+            else if (Character.isSurrogate(c)) {
+                // unpaired surrogate, replaced the same way String.getBytes() does
+                m_buffer.put((byte) '?');
+            }
+            else {
+                m_buffer.put((byte) (0xe0 | (c >> 12)));
+                m_buffer.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+                m_buffer.put((byte) (0x80 | (c & 0x3f)));
+            }
+        }
+        final int byteLength = m_buffer.position() - lengthPos - 4;
+        if (byteLength > VoltType.MAX_VALUE_LENGTH) {
+            abortRow();
+            throw new VoltOverflowException("Value in VoltTable.appendString(...) larger than allowed max " +
+                    VoltType.humanReadableSize(VoltType.MAX_VALUE_LENGTH));
+        }
+        m_buffer.putInt(lengthPos, byteLength);
+        return this;
+    }
+
+    /**
+     * Append a VARBINARY value to the row being built.
+     * @param value Value of the next column, or null.
+     * @return This table, to allow chaining the append calls.
+     */
+    public final VoltTable appendVarbinary(byte[] value) {
+        if (value == null) {
+            return appendNull(VoltType.VARBINARY);
+        }
+        final int col = nextAppendColumn(VoltType.VARBINARY, 4 + value.length);
+        final int maxColSize = m_extraMetadata != null ?
+                m_extraMetadata.originalColumnInfos[col].size : VoltType.MAX_VALUE_LENGTH;
+        if (value.length > maxColSize) {
+            abortRow();
+            throw new VoltOverflowException("Value in VoltTable.appendVarbinary(...) larger than allowed max " +
+                    VoltType.humanReadableSize(maxColSize));
+        }
+        writeStringOrVarbinaryToBuffer(value, m_buffer);
+        return this;
+    }
+
+    /**
+     * Append a DECIMAL value to the row being built.
+     * @param value Value of the next column, or null.
+     * @return This table, to allow chaining the append calls.
+     */
+    public final VoltTable appendDecimal(BigDecimal value) {
+        if (value == null) {
+            return appendNull(VoltType.DECIMAL);
+        }
+        nextAppendColumn(VoltType.DECIMAL, 16);
+        try {
+            VoltDecimalHelper.serializeBigDecimal(value, m_buffer);
+        }
+        catch (RuntimeException e) {
+            abortRow();
+            throw e;
+        }
+        return this;
+    }
+
+    /**
+     * Append a SQL NULL of whatever type the next column has to the row
+     * being built.
+     * @return This table, to allow chaining the append calls.
+     */
+    public final VoltTable appendNull() {
+        checkAppending();
+        if (m_appendColumn >= m_colCount) {
+            return appendNull(VoltType.NULL);
+        }
+        return appendNull(VoltType.get(m_buffer.get(COLUMN_TYPES_OFFSET + m_appendColumn)));
+    }
+
+    private VoltTable appendNull(VoltType type) {
+        // 16 bytes covers the widest null representation (DECIMAL)
+        final int col = nextAppendColumn(type, 16);
+        try {
+            addColumnValue(null, type, col);
+        }
+        catch (RuntimeException e) {
+            abortRow();
+            throw e;
+        }
+        return this;
+    }
+
+    private void checkAppending() {
+        if (m_appendRowStart < 0) {
+            throw new IllegalStateException("No row in progress, call startRow() first");
+        }
+    }
+
+    /**
+     * Check that the next column of the row being built has the given type
+     * and make room for it.
+     * @return The index of the column.
+     */
+    private int nextAppendColumn(VoltType type, int maxBytes) {
+        checkAppending();
+        final int col = m_appendColumn;
+        if (col >= m_colCount) {
+            abortRow();
+            throw new IllegalStateException("More values appended than the " + m_colCount +
+                                            " columns of the table");
+        }
+        if (m_buffer.get(COLUMN_TYPES_OFFSET + col) != type.getValue()) {
+            abortRow();
+            throw new VoltTypeException("Value for column " + col + " (" + getColumnName(col) +
+                    ") is type " + type + " when type " + getColumnType(col) + " was expected.");
+        }
+        ensureAppendCapacity(maxBytes);
+        m_appendColumn = col + 1;
+        return col;
+    }
+
+    private void ensureAppendCapacity(int bytes) {
+        while (m_buffer.capacity() - m_buffer.position() < bytes) {
+            expandBuffer();
+        }
+    }
+
+    /** Throw away the row being built, restoring the table to how it was before startRow() */
+    private void abortRow() {
+        m_buffer.position(m_appendRowStart);
+        m_buffer.limit(m_appendRowStart);
+        m_appendRowStart = -1;
+    }
+
     /**
      * Tables containing a single row and a single integer column can be read using this convenience
      * method.
@@ -1557,42 +1888,51 @@ public final class VoltTable extends VoltTableRow implements JSONString {
     public String toJSONString() {
         JSONStringer js = new JSONStringer();
         try {
+            toJSON(js);
+        }
+        catch (JSONException e) {
+            e.printStackTrace();
+            throw new RuntimeException("Failed to serialized a table to JSON.", e);
+        }
+        return js.toString();
+    }
 
-            js.object();
+    /**
+     * Write the JSON representation of this table to a writer, row by row,
+     * without building it as a string first.
+     * @param js The writer to append the table to as a value.
+     * @throws JSONException if the writer fails or is not expecting a value.
+     */
+    public void toJSON(JSONWriter js) throws JSONException {
+        js.object();
 
-            // status code (1 byte)
-            js.key(JSON_STATUS_KEY).value(getStatusCode());
+        // status code (1 byte)
+        js.key(JSON_STATUS_KEY).value(getStatusCode());
 
-            // column schema
-            js.key(JSON_SCHEMA_KEY).array();
-            for (int i = 0; i < getColumnCount(); i++) {
-                js.object();
-                js.key(JSON_NAME_KEY).value(getColumnName(i));
-                js.key(JSON_TYPE_KEY).value(getColumnType(i).getValue());
-                js.endObject();
-            }
-            js.endArray();
+        // column schema
+        js.key(JSON_SCHEMA_KEY).array();
+        for (int i = 0; i < getColumnCount(); i++) {
+            js.object();
+            js.key(JSON_NAME_KEY).value(getColumnName(i));
+            js.key(JSON_TYPE_KEY).value(getColumnType(i).getValue());
+            js.endObject();
+        }
+        js.endArray();
 
-            // row data
-            js.key(JSON_DATA_KEY).array();
-            VoltTableRow row = cloneRow();
-            row.resetRowPosition();
-            while (row.advanceRow()) {
-                js.array();
-                for (int i = 0; i < getColumnCount(); i++) {
-                    row.putJSONRep(i, js);
-                }
-                js.endArray();
+        // row data
+        js.key(JSON_DATA_KEY).array();
+        VoltTableRow row = cloneRow();
+        row.resetRowPosition();
+        while (row.advanceRow()) {
+            js.array();
+            for (int i = 0; i < getColumnCount(); i++) {
+                row.putJSONRep(i, js);
             }
             js.endArray();
-
-            js.endObject();
         }
-        catch (JSONException e) {
-            e.printStackTrace();
-            throw new RuntimeException("Failed to serialized a table to JSON.", e);
-        }
-        return js.toString();
+        js.endArray();
+
+        js.endObject();
     }
 
     /**
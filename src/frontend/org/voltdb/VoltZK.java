@@ -96,6 +96,10 @@ public class VoltZK {
     public static final String user_snapshot_request = "/db/user_snapshot_request";
     public static final String user_snapshot_response = "/db/user_snapshot_response";
     public static final String commandlog_init_barrier = "/db/commmandlog_init_barrier";
+    public static final String commandlog_replay_plan = "/db/commandlog_replay/plan";
+    public static final String commandlog_replay_plan_barrier = "/db/commandlog_replay/plan_barrier";
+    public static final String commandlog_replay_sent_barrier = "/db/commandlog_replay/sent_barrier";
+    public static final String commandlog_replay_done_barrier = "/db/commandlog_replay/done_barrier";
 
     // leader election
     public static final String iv2masters = "/db/iv2masters";
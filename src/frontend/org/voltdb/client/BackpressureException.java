@@ -0,0 +1,34 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.client;
+
+import java.io.IOException;
+
+/**
+ * <code>Exception</code> a future returned by {@link Client#callProcedureAsync(String, Object...)}
+ * fails with when the invocation could not be queued without blocking, because every connection
+ * has backpressure or the client already has the maximum number of transactions outstanding.
+ * Nothing was sent to the database, so the invocation can be retried once earlier ones complete.
+ */
+public class BackpressureException extends IOException {
+    private static final long serialVersionUID = 6510923340276543171L;
+
+    BackpressureException(String message) {
+        super(message);
+    }
+}
@@ -27,6 +27,8 @@ import java.util.List;
 import org.voltdb.client.VoltBulkLoader.BulkLoaderFailureCallBack;
 import org.voltdb.client.VoltBulkLoader.VoltBulkLoader;
 
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
 /**
  *  <p>
  *  A <code>Client</code> that connects to one or more nodes in a volt cluster
@@ -152,6 +154,42 @@ public interface Client {
     public boolean callProcedureWithTimeout(ProcedureCallback callback, int queryTimeout, String procName, Object... parameters)
     throws IOException, NoConnectionsException;
 
+    /**
+     * <p>Asynchronously invoke a replicated procedure, returning a future for the response. The future is
+     * completed by the single thread backing the client instance when the response arrives, so
+     * listeners added with a same thread executor run on that thread and are subject to the same restrictions
+     * as a {@link ProcedureCallback}. Futures can be composed with the utilities in
+     * <code>com.google_voltpatches.common.util.concurrent.Futures</code>.</p>
+     *
+     * <p>The future completes normally with any response the callback based methods would deliver, including
+     * failures and client side timeouts, so check {@link ClientResponse#getStatus()}. This call never blocks
+     * on backpressure. If the invocation can't be queued immediately the returned future fails with a
+     * {@link BackpressureException}, and if there are no connections or the client is shut down it fails with a
+     * {@link NoConnectionsException}.</p>
+     *
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param parameters vararg list of procedure's parameter values.
+     * @return future for the {@link ClientResponse} of the invocation.
+     */
+    public ListenableFuture<ClientResponse> callProcedureAsync(String procName, Object... parameters);
+
+    /**
+     * <p>Asynchronously invoke a replicated procedure with timeout, returning a future for the response.
+     * See {@link #callProcedureAsync(String, Object...)} for how the future is completed and how backpressure
+     * is reported.</p>
+     *
+     * <p>WARNING: Use of a queryTimeout value that is greater than the global timeout value for your VoltDB configuration
+     * will temporarily override that safeguard. Currently, non-privileged users (requiring only SQLREAD permissions)
+     * can invoke this method, potentially degrading system performance with an uncontrolled long-running procedure.</p>
+     *
+     * @param queryTimeout query batch timeout setting in milliseconds of queries in a batch for read only procedures.
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param parameters vararg list of procedure's parameter values.
+     * @return future for the {@link ClientResponse} of the invocation.
+     */
+    public ListenableFuture<ClientResponse> callProcedureAsyncWithTimeout(int queryTimeout, String procName,
+                                                                          Object... parameters);
+
     /**
      * <p>Asynchronously invoke a replicated procedure. If there is backpressure
      * this call will block until the invocation is queued. If configureBlocking(false) is invoked
@@ -39,6 +39,9 @@ import org.voltdb.client.VoltBulkLoader.VoltBulkLoader;
 import org.voltdb.common.Constants;
 import org.voltdb.utils.Encoder;
 
+import com.google_voltpatches.common.util.concurrent.Futures;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
 /**
  *  A client that connects to one or more nodes in a VoltCluster
  *  and provides methods to call stored procedures and receive
@@ -359,6 +362,58 @@ public final class ClientImpl implements Client, ReplicaProcCaller {
         return private_callProcedure(callback, 0, invocation, unit.toNanos(timeout));
     }
 
+    @Override
+    public ListenableFuture<ClientResponse> callProcedureAsync(String procName, Object... parameters) {
+        //Time unit doesn't matter in this case since the timeout isn't being specified
+        return callProcedureAsyncWithClientTimeout(BatchTimeoutOverrideType.NO_TIMEOUT, procName,
+                Distributer.USE_DEFAULT_CLIENT_TIMEOUT, TimeUnit.NANOSECONDS, parameters);
+    }
+
+    @Override
+    public ListenableFuture<ClientResponse> callProcedureAsyncWithTimeout(int batchTimeout, String procName,
+            Object... parameters) {
+        if (batchTimeout < 0) {
+            throw new IllegalArgumentException("Timeout value can't be negative." );
+        }
+
+        return callProcedureAsyncWithClientTimeout(batchTimeout, procName,
+                Distributer.USE_DEFAULT_CLIENT_TIMEOUT, TimeUnit.NANOSECONDS, parameters);
+    }
+
+    /**
+     * Asynchronously invoke a procedure call, returning a future for the response.
+     * A client side timeout completes the future with a CONNECTION_TIMEOUT response.
+     *
+     * @param batchTimeout procedure invocation batch timeout.
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param timeout timeout for the procedure
+     * @param unit TimeUnit of procedure timeout
+     * @param parameters vararg list of procedure's parameter values.
+     * @return future for the response, failed with a BackpressureException if the
+     * invocation couldn't be queued without blocking
+     */
+    public ListenableFuture<ClientResponse> callProcedureAsyncWithClientTimeout(int batchTimeout, String procName,
+            long timeout, TimeUnit unit, Object... parameters) {
+        if (m_isShutdown) {
+            return Futures.immediateFailedFuture(new NoConnectionsException("Client instance is shutdown"));
+        }
+        final ProcedureInvocation invocation
+            = new ProcedureInvocation(m_handle.getAndIncrement(), batchTimeout, procName, parameters);
+        final ProcedureFuture future = new ProcedureFuture();
+
+        //Blessed threads (the ones that invoke callbacks) are not subject to backpressure
+        final boolean isBlessed = m_blessedThreadIds.contains(Thread.currentThread().getId());
+        try {
+            if (!m_distributer.queue(invocation, future, isBlessed, System.nanoTime(), unit.toNanos(timeout), true)) {
+                return Futures.immediateFailedFuture(
+                        new BackpressureException("Unable to queue " + procName + " without blocking on backpressure"));
+            }
+        } catch (NoConnectionsException e) {
+            return Futures.immediateFailedFuture(e);
+        }
+        return future;
+    }
+
     /**
      * Asynchronously invoke a replicated procedure. If there is backpressure
      * this call will block until the invocation is queued. If configureBlocking(false) is invoked
@@ -369,6 +369,17 @@ class Distributer {
          */
         public void createWork(final long nowNanos, long handle, String name, ByteBuffer c,
                 ProcedureCallback callback, boolean ignoreBackpressure, long timeoutNanos) {
+            createWork(nowNanos, handle, name, c, callback, ignoreBackpressure, timeoutNanos, false);
+        }
+
+        /*
+         * With failOnBackpressure the rate limiter is never allowed to block. If the
+         * rate or max outstanding limit would have blocked, nothing is queued and
+         * false is returned so the caller can fail the invocation.
+         */
+        public boolean createWork(final long nowNanos, long handle, String name, ByteBuffer c,
+                ProcedureCallback callback, boolean ignoreBackpressure, long timeoutNanos,
+                boolean failOnBackpressure) {
             assert(callback != null);
 
             //How long from the starting point in time to wait to get this stuff done
@@ -386,17 +397,24 @@ class Distributer {
              * the rate limiter which can block. If it blocks we can still get a timeout
              * exception to give prompt timeouts
              */
-            try {
-                afterRateLimitNanos = m_rateLimiter.sendTxnWithOptionalBlockAndReturnCurrentTime(
-                        nowNanos, timeoutNanos, ignoreBackpressure);
-            } catch (TimeoutException e) {
-                /*
-                 * It's possible we need to timeout because it took too long to get
-                 * the transaction out on the wire due to max outstanding
-                 */
-                final long deltaNanos = Math.max(1, System.nanoTime() - nowNanos);
-                    invokeCallbackWithTimeout(name, callback, deltaNanos, afterRateLimitNanos,  timeoutNanos, handle, ignoreBackpressure);
-                return;
+            if (failOnBackpressure && !ignoreBackpressure) {
+                if (!m_rateLimiter.trySendTxn(nowNanos)) {
+                    return false;
+                }
+                afterRateLimitNanos = nowNanos;
+            } else {
+                try {
+                    afterRateLimitNanos = m_rateLimiter.sendTxnWithOptionalBlockAndReturnCurrentTime(
+                            nowNanos, timeoutNanos, ignoreBackpressure);
+                } catch (TimeoutException e) {
+                    /*
+                     * It's possible we need to timeout because it took too long to get
+                     * the transaction out on the wire due to max outstanding
+                     */
+                    final long deltaNanos = Math.max(1, System.nanoTime() - nowNanos);
+                        invokeCallbackWithTimeout(name, callback, deltaNanos, afterRateLimitNanos,  timeoutNanos, handle, ignoreBackpressure);
+                    return true;
+                }
             }
 
             assert(m_callbacks.containsKey(handle) == false);
@@ -423,7 +441,7 @@ class Distributer {
             if (!m_isConnected) {
                 //Check if the disconnect or expiration already handled the callback
                 if (m_callbacks.remove(handle) == null) {
-                    return;
+                    return true;
                 }
                 final ClientResponse r = new ClientResponseImpl(
                         ClientResponse.CONNECTION_LOST, new VoltTable[0],
@@ -441,10 +459,10 @@ class Distributer {
 
                 //for bookkeeping, but it feels dishonest to call this here
                 m_rateLimiter.transactionResponseReceived(nowNanos, -1, ignoreBackpressure);
-                return;
             } else {
                 m_connection.writeStream().enqueue(c);
             }
+            return true;
         }
 
         /*
@@ -1021,6 +1039,28 @@ class Distributer {
             ProcedureCallback cb,
             final boolean ignoreBackpressure, final long nowNanos, final long timeoutNanos)
             throws NoConnectionsException {
+        return queue(invocation, cb, ignoreBackpressure, nowNanos, timeoutNanos, false);
+    }
+
+    /**
+     * Queue invocation on first node connection without backpressure. If there is none with without backpressure
+     * then return false and don't queue the invocation. With failOnBackpressure the max outstanding and
+     * rate limits are also checked without blocking, and false is returned if either would have blocked.
+     * @param invocation
+     * @param cb
+     * @param ignoreBackpressure If true the invocation will be queued even if there is backpressure
+     * @param nowNanos Current time in nanoseconds using System.nanoTime
+     * @param timeoutNanos nanoseconds from nowNanos where timeout should fire
+     * @param failOnBackpressure If true the rate limiter is never allowed to block the caller
+     * @return True if the message was queued and false if the message was not queued due to backpressure
+     * @throws NoConnectionsException
+     */
+    boolean queue(
+            ProcedureInvocation invocation,
+            ProcedureCallback cb,
+            final boolean ignoreBackpressure, final long nowNanos, final long timeoutNanos,
+            final boolean failOnBackpressure)
+            throws NoConnectionsException {
         assert(invocation != null);
         assert(cb != null);
 
@@ -1147,7 +1187,10 @@ class Distributer {
             } catch (Exception e) {
                 Throwables.propagate(e);
             }
-            cxn.createWork(nowNanos, invocation.getHandle(), invocation.getProcName(), buf, cb, ignoreBackpressure, timeoutNanos);
+            if (!cxn.createWork(nowNanos, invocation.getHandle(), invocation.getProcName(), buf, cb,
+                                ignoreBackpressure, timeoutNanos, failOnBackpressure)) {
+                return false;
+            }
         }
 
         return !backpressure;
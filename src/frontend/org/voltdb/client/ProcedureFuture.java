@@ -0,0 +1,32 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.client;
+
+import com.google_voltpatches.common.util.concurrent.AbstractFuture;
+
+/**
+ * The future handed out by {@link Client#callProcedureAsync(String, Object...)}. It is also the
+ * callback the invocation is queued with, so the future is completed by the thread that would
+ * have invoked the callback, with no hand off to another thread.
+ */
+final class ProcedureFuture extends AbstractFuture<ClientResponse> implements ProcedureCallback {
+    @Override
+    public void clientCallback(ClientResponse clientResponse) {
+        set(clientResponse);
+    }
+}
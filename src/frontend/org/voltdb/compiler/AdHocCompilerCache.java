@@ -19,9 +19,8 @@ package org.voltdb.compiler;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -43,6 +42,9 @@ import com.google_voltpatches.common.cache.CacheBuilder;
  * statement mapped to core parameterized plans. These parameterized
  * plans need parameter values and sql literals in order to be
  * actually used.
+ *
+ * Both levels are segmented, memory bounded caches that several
+ * planner threads may use at once, see {@link SegmentedPlanCache}.
  */
 public class AdHocCompilerCache implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -59,6 +61,17 @@ public class AdHocCompilerCache implements Serializable {
         m_catalogHashMatch.invalidateAll();
     }
 
+    /**
+     * Drop the plans cached for every catalog, while keeping the caches themselves.
+     * Used when the estimates the plans were chosen by have changed.
+     */
+    public synchronized static void clearAllPlans() {
+        for (AdHocCompilerCache cache : m_catalogHashMatch.asMap().values()) {
+            cache.m_literalCache.clear();
+            cache.m_coreCache.clear();
+        }
+    }
+
     /**
      * Get the global cache for a given hash of the catalog. Note that there can be only
      * one cache per catalogHash at a time.
@@ -79,26 +92,25 @@ public class AdHocCompilerCache implements Serializable {
 
     // cache sizes determined at construction time
     final int MAX_LITERAL_ENTRIES;
-    // max cache size for parameterized plans
+    // max cache size for full literal plans
     final long MAX_LITERAL_MEM  = Long.getLong("ADHOC_COMPILER_CACHE_MAX_LITERAL_MEM_BYTES", 32*1024*1024);
     final int MAX_CORE_ENTRIES;
+    // max cache size for parameterized plans
+    final long MAX_CORE_MEM  = Long.getLong("ADHOC_COMPILER_CACHE_MAX_CORE_MEM_BYTES", 32*1024*1024);
+    // number of independently locked segments in each cache level
+    static final int CONCURRENCY = Integer.getInteger("ADHOC_COMPILER_CACHE_CONCURRENCY", 16);
+
+    // rough on-heap overhead of a String key and of a cache entry around a value
+    private static final int STRING_OVERHEAD = 40;
+    private static final int ENTRY_OVERHEAD = 64;
 
     /** cache of literals to full plans */
-    final Map<String, AdHocPlannedStatement> m_literalCache;
+    final transient SegmentedPlanCache<AdHocPlannedStatement> m_literalCache;
     /** cache of parameterized plan descriptions to one or more core parameterized plans,
      *  each plan optionally has its own requirements for which parameters need to be bound
-     *  to what values to enable its specialized (expression-indexed) plan. */
-    final Map<String, List<BoundPlan> > m_coreCache;
-
-    // placeholder stats used during development that may/may not survive
-    long m_literalHits = 0;
-    long m_literalQueries = 0;
-    long m_literalInsertions = 0;
-    long m_literalEvictions = 0;
-    long m_planHits = 0;
-    long m_planQueries = 0;
-    long m_planInsertions = 0;
-    long m_planEvictions = 0;
+     *  to what values to enable its specialized (expression-indexed) plan.
+     *  The lists are never modified once cached, adding a variant replaces the list. */
+    final transient SegmentedPlanCache<List<BoundPlan>> m_coreCache;
 
     /** {@see this#startPeriodicStatsPrinting() } */
     Timer m_statsTimer = null;
@@ -114,129 +126,70 @@ public class AdHocCompilerCache implements Serializable {
      * Constructor with specific cache sizes is only called directly for testing.
      *
      * @param maxLiteralEntries cache size for literals
-     * @param maxLiteralMem cache memory for literals
+     * @param maxCoreEntries cache size for parameterized plans
      */
     AdHocCompilerCache(int maxLiteralEntries, int maxCoreEntries) {
         MAX_LITERAL_ENTRIES = maxLiteralEntries;
         MAX_CORE_ENTRIES = maxCoreEntries;
 
-        // an LRU cache map
-        m_literalCache = new AdHocStatementCache(MAX_LITERAL_ENTRIES, MAX_LITERAL_MEM);
-
-        // an LRU cache map
-        m_coreCache = new LinkedHashMap<String, List<BoundPlan> >(MAX_CORE_ENTRIES * 2, .75f, true) {
-            private static final long serialVersionUID = 1L;
-
-            // This method is called just after a new entry has been added
-            @Override
-            public boolean removeEldestEntry(Map.Entry<String, List<BoundPlan> > eldest) {
-                if (size() > MAX_CORE_ENTRIES) {
-                    ++m_planEvictions;
-                    return true;
-                }
-                return false;
-            }
-
-        };
+        m_literalCache = new SegmentedPlanCache<AdHocPlannedStatement>(
+                MAX_LITERAL_ENTRIES, MAX_LITERAL_MEM, CONCURRENCY,
+                new SegmentedPlanCache.Weigher<AdHocPlannedStatement>() {
+                    @Override
+                    public long weigh(String sql, AdHocPlannedStatement plan) {
+                        return ENTRY_OVERHEAD + stringSize(sql) + plan.getSerializedSize();
+                    }
+                });
+
+        m_coreCache = new SegmentedPlanCache<List<BoundPlan>>(
+                MAX_CORE_ENTRIES, MAX_CORE_MEM, CONCURRENCY,
+                new SegmentedPlanCache.Weigher<List<BoundPlan>>() {
+                    @Override
+                    public long weigh(String parsedToken, List<BoundPlan> boundVariants) {
+                        long size = ENTRY_OVERHEAD + stringSize(parsedToken);
+                        for (BoundPlan boundPlan : boundVariants) {
+                            size += ENTRY_OVERHEAD + boundPlan.m_core.getSerializedSize();
+                            if (boundPlan.m_constants != null) {
+                                for (String constant : boundPlan.m_constants) {
+                                    size += 8 + stringSize(constant);
+                                }
+                            }
+                        }
+                        return size;
+                    }
+                });
     }
 
-    // define a LinkedHashMap based LRU cache bounds by both entry number and entry value on-heap size
-    // without changing Map.Entry, only works for value of type AdHocPlannedStatement
-    // only extend put, remove,clear and removeEldestEntry methods to account weight
-    public class AdHocStatementCache extends LinkedHashMap<String, AdHocPlannedStatement>{
-       private static final long serialVersionUID = 2988383448026641836L;
-        private final int maxEntries;
-        private final long maxMemory; // in bytes
-        private long currentMemory;   // in bytes
-
-        public AdHocStatementCache() {
-            // default max entry of 1000
-            // default max value size of 32MB
-            this(1000, 32 * 1024 * 1024);
-        }
-
-        public AdHocStatementCache(final int maxEntries) {
-            this(maxEntries, 32 * 1024 * 1024);
-        }
-
-        public AdHocStatementCache(final int maxEntries, final long maxMemory) {
-            // set accessOrder to true for LRU
-            super(maxEntries * 2, .75f, true);
-            this.maxEntries = maxEntries;
-            this.maxMemory = maxMemory;
-            this.currentMemory = 0;
-        }
-
-        // This method is called just after a new entry has been added
-        @Override
-        public boolean removeEldestEntry(final Map.Entry<String, AdHocPlannedStatement> eldest) {
-            if ((size() > maxEntries) || (this.currentMemory > this.maxMemory))  {
-                ++m_literalEvictions;
-                this.currentMemory -= eldest.getValue().getSerializedSize();
-                return true;
-            }
-            return false;
-        }
-
-        @Override
-        public AdHocPlannedStatement put(String key, AdHocPlannedStatement value) {
-            this.currentMemory += value.getSerializedSize();
-            return super.put(key,value);
-        }
-
-        @Override
-        public AdHocPlannedStatement remove(Object key) {
-            AdHocPlannedStatement value = super.remove(key);
-            if (value != null) {
-                this.currentMemory -= value.getSerializedSize();
-            }
-            return value;
-        }
-
-        @Override
-        public void clear() {
-            super.clear();
-            this.currentMemory = 0;
-        }
+    private static long stringSize(String str) {
+        return (str == null) ? 0 : STRING_OVERHEAD + 2L * str.length();
     }
 
     /**
      * Stats printing method used during development.
      * Probably shouldn't live past real stats integration.
      */
-    synchronized void printStats() {
-        String line1 = String.format("CACHE STATS - Literals: Hits %d/%d (%.1f%%), Inserts %d Evictions %d\n",
-                m_literalHits, m_literalQueries, (m_literalHits * 100.0) / m_literalQueries,
-                m_literalInsertions, m_literalEvictions);
-        String line2 = String.format("CACHE STATS - Plans:    Hits %d/%d (%.1f%%), Inserts %d Evictions %d\n",
-                m_planHits, m_planQueries, (m_planHits * 100.0) /m_planQueries,
-                m_planInsertions, m_planEvictions);
+    void printStats() {
+        SegmentedPlanCache.Stats literal = getLiteralStats();
+        SegmentedPlanCache.Stats core = getCoreStats();
+        long literalQueries = literal.hits + literal.misses;
+        long coreQueries = core.hits + core.misses;
+        String line1 = String.format("CACHE STATS - Literals: Hits %d/%d (%.1f%%), Inserts %d Evictions %d Bytes %d\n",
+                literal.hits, literalQueries, (literal.hits * 100.0) / literalQueries,
+                literal.insertions, literal.evictions, literal.bytes);
+        String line2 = String.format("CACHE STATS - Plans:    Hits %d/%d (%.1f%%), Inserts %d Evictions %d Bytes %d\n",
+                core.hits, coreQueries, (core.hits * 100.0) / coreQueries,
+                core.insertions, core.evictions, core.bytes);
 
         System.out.print(line1 + line2);
         System.out.flush();
-
-        // reset these
-        m_literalHits = 0;
-        m_literalQueries = 0;
-        m_literalInsertions = 0;
-        m_literalEvictions = 0;
-        m_planHits = 0;
-        m_planQueries = 0;
-        m_planInsertions = 0;
-        m_planEvictions = 0;
     }
 
     /**
      * @param sql SQL literal
      * @return full, ready-to-go plan
      */
-    public synchronized AdHocPlannedStatement getWithSQL(String sql) {
-        ++m_literalQueries;
-        AdHocPlannedStatement retval = m_literalCache.get(sql);
-        if (retval != null) {
-            ++m_literalHits;
-        }
-        return retval;
+    public AdHocPlannedStatement getWithSQL(String sql) {
+        return m_literalCache.get(sql);
     }
 
     /**
@@ -244,13 +197,8 @@ public class AdHocCompilerCache implements Serializable {
      * SQL statement
      * @return A CorePlan that needs parameter values to run.
      */
-    public synchronized List<BoundPlan> getWithParsedToken(String parsedToken) {
-        ++m_planQueries;
-        List<BoundPlan> retval = m_coreCache.get(parsedToken);
-        if (retval != null) {
-            ++m_planHits;
-        }
-        return retval;
+    public List<BoundPlan> getWithParsedToken(String parsedToken) {
+        return m_coreCache.get(parsedToken);
     }
 
     /**
@@ -271,12 +219,12 @@ public class AdHocCompilerCache implements Serializable {
      * @param hasUserQuestionMarkParameters is user provided parameterized query
      * @param hasAutoParameterizedException is the auto parameterized query has parameter exception
      */
-    public synchronized void put(String sql,
-                                 String parsedToken,
-                                 AdHocPlannedStatement planIn,
-                                 String[] extractedLiterals,
-                                 boolean hasUserQuestionMarkParameters,
-                                 boolean hasAutoParameterizedException)
+    public void put(String sql,
+                    String parsedToken,
+                    AdHocPlannedStatement planIn,
+                    String[] extractedLiterals,
+                    boolean hasUserQuestionMarkParameters,
+                    boolean hasAutoParameterizedException)
     {
         assert(sql != null);
         assert(parsedToken != null);
@@ -296,18 +244,8 @@ public class AdHocCompilerCache implements Serializable {
             BoundPlan matched = null;
             BoundPlan unmatched = new BoundPlan(planIn.core, planIn.parameterBindings(extractedLiterals));
             // deal with the parameterized plan cache first
-            List<BoundPlan> boundVariants = m_coreCache.get(parsedToken);
-            if (boundVariants == null) {
-                boundVariants = new ArrayList<BoundPlan>();
-                m_coreCache.put(parsedToken, boundVariants);
-                // Note that there is an edge case in which more than one plan is getting counted as one
-                // "plan insertion". This only happens when two different plans arose from the same parameterized
-                // query (token) because one invocation used the correct constants to trigger an expression index and
-                // another invocation did not.  These are not counted separately (which would have to happen below
-                // after each call to boundVariants.add) because they are not evicted separately.
-                // It seems saner to use consistent units when counting insertions vs. evictions.
-                ++m_planInsertions;
-            } else {
+            List<BoundPlan> boundVariants = m_coreCache.peek(parsedToken);
+            if (boundVariants != null) {
                 for (BoundPlan boundPlan : boundVariants) {
                     if (boundPlan.equals(unmatched)) {
                         matched = boundPlan;
@@ -324,18 +262,29 @@ public class AdHocCompilerCache implements Serializable {
                 }
             }
             if (matched == null) {
-                // Don't count insertions (of possibly repeated tokens) here
-                //  -- see the comment above where only UNIQUE token insertions are being counted, instead.
-                boundVariants.add(unmatched);
+                // Cached variant lists may be in use by other planner threads,
+                // so add the new variant to a copy. Two threads racing to add
+                // variants for the same token may lose one of them, which only
+                // costs a re-plan later.
+                // Note that there is an edge case in which more than one plan is getting counted as one
+                // "plan insertion". This only happens when two different plans arose from the same parameterized
+                // query (token) because one invocation used the correct constants to trigger an expression index and
+                // another invocation did not.
+                List<BoundPlan> newVariants = new ArrayList<BoundPlan>(
+                        boundVariants == null ? 1 : boundVariants.size() + 1);
+                if (boundVariants != null) {
+                    newVariants.addAll(boundVariants);
+                }
+                newVariants.add(unmatched);
+                m_coreCache.put(parsedToken, Collections.unmodifiableList(newVariants));
             }
         }
 
         // then deal with the L1 cache
         if (! hasUserQuestionMarkParameters) {
-            AdHocPlannedStatement cachedPlan = m_literalCache.get(sql);
+            AdHocPlannedStatement cachedPlan = m_literalCache.peek(sql);
             if (cachedPlan == null) {
                 m_literalCache.put(sql, plan);
-                ++m_literalInsertions;
             }
             else {
                 assert(cachedPlan.equals(plan));
@@ -374,4 +323,18 @@ public class AdHocCompilerCache implements Serializable {
     public int getCoreCacheSize() {
         return m_coreCache.size();
     }
+
+    /**
+     * @return hit, eviction and memory use counters of the literal cache
+     */
+    public SegmentedPlanCache.Stats getLiteralStats() {
+        return m_literalCache.getStats();
+    }
+
+    /**
+     * @return hit, eviction and memory use counters of the core (parameterized) cache
+     */
+    public SegmentedPlanCache.Stats getCoreStats() {
+        return m_coreCache.getStats();
+    }
 }
@@ -66,9 +66,35 @@ public class AsyncCompilerAgent {
     // of Europe, Scandinavia, and the sub-continent.
     final AsyncCompilerAgentHelper m_helper;
 
-    // do work in this executor service
+    // Number of threads planning ad hoc DML and queries in parallel. Each thread
+    // plans with its own PlannerTool (and HSQL session), all of which share the
+    // AdHocCompilerCache for the catalog they plan against.
+    static final int PLANNER_THREADS = Integer.getInteger("ADHOC_PLANNER_THREADS",
+            Math.max(1, Math.min(8, CoreUtils.availableProcessors() / 4)));
+
+    // do catalog change work (@UAC, @UpdateClasses and ad hoc DDL) in this executor service.
+    // Catalog changes must be serialized, so there is only one thread.
     final ListeningExecutorService m_es =
-        CoreUtils.getBoundedSingleThreadExecutor("Ad Hoc Planner", MAX_QUEUE_DEPTH);
+        CoreUtils.getBoundedSingleThreadExecutor("Ad Hoc Catalog Compiler", MAX_QUEUE_DEPTH);
+
+    // do ad hoc planning work in this executor service
+    final ListeningExecutorService m_plannerEs =
+        CoreUtils.getBoundedListeningExecutorService("Ad Hoc Planner", PLANNER_THREADS, MAX_QUEUE_DEPTH);
+
+    /**
+     * The PlannerTool used by a planner thread and the catalog it was built for.
+     * Rebuilt lazily by a planner thread the first time it sees a new catalog.
+     */
+    private static class ThreadPlanner {
+        final CatalogContext m_context;
+        final PlannerTool m_ptool;
+
+        ThreadPlanner(CatalogContext context, PlannerTool ptool) {
+            m_context = context;
+            m_ptool = ptool;
+        }
+    }
+    private final ThreadLocal<ThreadPlanner> m_threadPlanner = new ThreadLocal<ThreadPlanner>();
 
     // Enable debug hooks when the "asynccompilerdebug" sys prop is set to "true" or "yes".
     private final static MiscUtils.BooleanSystemProperty DEBUG_MODE =
@@ -82,6 +108,10 @@ public class AsyncCompilerAgent {
     // intended for integration test use. finish planning what's in
     // the queue and terminate the TPE.
     public void shutdown() throws InterruptedException {
+        if (m_plannerEs != null) {
+            m_plannerEs.shutdown();
+            m_plannerEs.awaitTermination(120, TimeUnit.SECONDS);
+        }
         if (m_es != null) {
             m_es.shutdown();
             m_es.awaitTermination(120, TimeUnit.SECONDS);
@@ -99,15 +129,19 @@ public class AsyncCompilerAgent {
 
             @Override
             public void deliver(final VoltMessage message) {
+                // Ad hoc work goes to the planner pool, it finds out there
+                // whether it is DDL and hands that back to the catalog thread.
+                final LocalObjectMessage wrapper = (LocalObjectMessage)message;
+                final ListeningExecutorService es =
+                        (wrapper.payload instanceof AdHocPlannerWork) ? m_plannerEs : m_es;
                 try {
-                    m_es.submit(new Runnable() {
+                    es.submit(new Runnable() {
                         @Override
                         public void run() {
                             handleMailboxMessage(message);
                         }
                     });
                 } catch (RejectedExecutionException rejected) {
-                    final LocalObjectMessage wrapper = (LocalObjectMessage)message;
                     AsyncCompilerWork work = (AsyncCompilerWork)(wrapper.payload);
                     generateErrorResult("Ad Hoc Planner task queue is full. Try again.", work);
                 }
@@ -275,7 +309,26 @@ public class AsyncCompilerAgent {
                 return;
             }
             final CatalogChangeWork ccw = new CatalogChangeWork(w);
-            dispatchCatalogChangeWork(ccw);
+            try {
+                m_es.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            dispatchCatalogChangeWork(ccw);
+                        }
+                        catch (RuntimeException e) {
+                            AsyncCompilerResult errResult =
+                                AsyncCompilerResult.makeErrorResult(ccw,
+                                    String.format("Unexpected async compiler exception for %s: %s",
+                                            ccw.getClass().getName(), e.getLocalizedMessage()));
+                            ccw.completionHandler.onCompletion(errResult);
+                        }
+                    }
+                });
+            }
+            catch (RejectedExecutionException rejected) {
+                generateErrorResult("Ad Hoc Planner task queue is full. Try again.", ccw);
+            }
         }
     }
 
@@ -313,7 +366,7 @@ public class AsyncCompilerAgent {
     }
 
     public void compileAdHocPlanForProcedure(final AdHocPlannerWork apw) {
-        m_es.submit(new Runnable() {
+        m_plannerEs.submit(new Runnable() {
             @Override
             public void run(){
                 apw.completionHandler.onCompletion(compileAdHocPlan(apw));
@@ -354,7 +407,7 @@ public class AsyncCompilerAgent {
             context = VoltDB.instance().getCatalogContext();
         }
 
-        final PlannerTool ptool = context.m_ptool;
+        final PlannerTool ptool = getPlannerTool(context);
 
         List<String> errorMsgs = new ArrayList<String>();
         List<AdHocPlannedStatement> stmts = new ArrayList<AdHocPlannedStatement>();
@@ -444,6 +497,26 @@ public class AsyncCompilerAgent {
         return plannedStmtBatch;
     }
 
+    /**
+     * Get the PlannerTool the current planner thread should use for the given catalog.
+     * With a single planner thread this is the catalog's own PlannerTool, otherwise
+     * every planner thread builds (and keeps) a private one for the latest catalog it saw.
+     * @param context  catalog to plan against
+     * @return planner tool that is only used by the current thread
+     */
+    private PlannerTool getPlannerTool(CatalogContext context) {
+        if (PLANNER_THREADS == 1) {
+            return context.m_ptool;
+        }
+        ThreadPlanner planner = m_threadPlanner.get();
+        if (planner == null || planner.m_context != context) {
+            planner = new ThreadPlanner(context,
+                    new PlannerTool(context.cluster, context.database, context.getCatalogHash()));
+            m_threadPlanner.set(planner);
+        }
+        return planner.m_ptool;
+    }
+
     /**
      * Log ad hoc batch info
      * @param batch  planned statement batch
@@ -19,6 +19,7 @@ package org.voltdb.compiler;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Map;
 
 public class DatabaseEstimates {
 
@@ -26,9 +27,23 @@ public class DatabaseEstimates {
         public long maxTuples = 1000000;
         public long minTuples = 100000;
         public ArrayList<ScalarValueHints> valueHints = new ArrayList<ScalarValueHints>();
+        // Set when maxTuples and distinctValues were measured by @Analyze
+        // rather than guessed. Counts are per partition.
+        public boolean analyzed = false;
+        public HashMap<String, Long> distinctValues = new HashMap<String, Long>();
+
+        /**
+         * @return the number of distinct values @Analyze found in the named column
+         * of one partition, or -1 if it was not measured.
+         */
+        public long getDistinctValues(String columnName) {
+            Long count = distinctValues.get(columnName);
+            return count == null ? -1 : count;
+        }
     }
 
     HashMap<String, TableEstimates> tables = new HashMap<String, TableEstimates>();
+    boolean m_hasAnalyzedTables = false;
 
     public TableEstimates getEstimatesForTable(String tableName) {
         if (tables.containsKey(tableName) == false)
@@ -36,4 +51,27 @@ public class DatabaseEstimates {
 
         return tables.get(tableName);
     }
+
+    /**
+     * Replace the guessed size of a table with the figures measured by @Analyze.
+     */
+    public void setAnalyzedEstimates(String tableName, long tupleCount, Map<String, Long> distinctValues) {
+        TableEstimates tableEstimates = getEstimatesForTable(tableName);
+        // An empty table still costs something to scan, and a zero
+        // here would make every join order through it look free.
+        tableEstimates.maxTuples = Math.max(tupleCount, 1);
+        tableEstimates.minTuples = tableEstimates.maxTuples;
+        tableEstimates.distinctValues.putAll(distinctValues);
+        tableEstimates.analyzed = true;
+        m_hasAnalyzedTables = true;
+    }
+
+    /**
+     * Plan nodes cost joins by the cardinality of their inputs only once real
+     * table sizes are known. Until then, the fictional default sizes would
+     * make multiplied join costs meaningless.
+     */
+    public boolean hasAnalyzedTables() {
+        return m_hasAnalyzedTables;
+    }
 }
@@ -23,6 +23,7 @@ import org.hsqldb_voltpatches.HSQLInterface;
 import org.hsqldb_voltpatches.HSQLInterface.HSQLParseException;
 import org.voltcore.logging.VoltLogger;
 import org.voltdb.ParameterSet;
+import org.voltdb.PlannerCacheStats;
 import org.voltdb.PlannerStatsCollector;
 import org.voltdb.PlannerStatsCollector.CacheUse;
 import org.voltdb.StatsAgent;
@@ -54,7 +55,7 @@ public class PlannerTool {
     private final HSQLInterface m_hsql;
     private final byte[] m_catalogHash;
     private final AdHocCompilerCache m_cache;
-    private static PlannerStatsCollector m_plannerStats;
+    private static volatile PlannerStatsCollector m_plannerStats;
 
     private static final int AD_HOC_JOINED_TABLE_LIMIT = 5;
 
@@ -98,6 +99,7 @@ public class PlannerTool {
                     if (statsAgent != null) {
                         m_plannerStats = new PlannerStatsCollector(-1);
                         statsAgent.registerStatsSource(StatsSelector.PLANNER, -1, m_plannerStats);
+                        statsAgent.registerStatsSource(StatsSelector.PLANNER_CACHE, -1, new PlannerCacheStats());
                     }
                 }
             }
@@ -119,6 +121,7 @@ public class PlannerTool {
     public synchronized CompiledPlan planSqlCore(String sql, StatementPartitioning partitioning) {
         TrivialCostModel costModel = new TrivialCostModel();
         DatabaseEstimates estimates = new DatabaseEstimates();
+        TableStatisticsRepository.populateEstimates(estimates, m_database);
         QueryPlanner planner = new QueryPlanner(
             sql, "PlannerTool", "PlannerToolProc", m_cluster, m_database,
             partitioning, m_hsql, estimates, true,
@@ -155,8 +158,9 @@ public class PlannerTool {
             boolean isExplainMode, final Object[] userParams) {
 
         CacheUse cacheUse = CacheUse.FAIL;
+        long startTime = 0;
         if (m_plannerStats != null) {
-            m_plannerStats.startStatsCollection();
+            startTime = m_plannerStats.startStatsCollection();
         }
         boolean hasUserQuestionMark = false;
         boolean wrongNumberParameters = false;
@@ -195,6 +199,7 @@ public class PlannerTool {
 
             TrivialCostModel costModel = new TrivialCostModel();
             DatabaseEstimates estimates = new DatabaseEstimates();
+            TableStatisticsRepository.populateEstimates(estimates, m_database);
             QueryPlanner planner = new QueryPlanner(
                     sql, "PlannerTool", "PlannerToolProc", m_cluster, m_database,
                     partitioning, m_hsql, estimates, true,
@@ -312,7 +317,7 @@ public class PlannerTool {
         }
         finally {
             if (m_plannerStats != null) {
-                m_plannerStats.endStatsCollection(m_cache.getLiteralCacheSize(), m_cache.getCoreCacheSize(), cacheUse, -1);
+                m_plannerStats.endStatsCollection(startTime, m_cache.getLiteralCacheSize(), m_cache.getCoreCacheSize(), cacheUse, -1);
             }
         }
     }
@@ -0,0 +1,369 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.compiler;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltdb.utils.FrequencySketch;
+
+/**
+ * One level of the ad hoc plan cache.
+ *
+ * The cache is split into segments by key hash, each with its own lock, so
+ * that planner threads looking up different statements don't contend on a
+ * single monitor. Every segment is bounded by its share of the entry count.
+ * The estimated on-heap size of the entries is bounded for the cache as a
+ * whole, so one plan may take up to the whole byte budget. When an insert
+ * takes the cache over that budget, entries are evicted from whichever
+ * segment holds the most bytes, least recently used first, until the cache
+ * is back within it. The entry being inserted is never evicted to make room
+ * for itself, and only one segment is locked at a time.
+ *
+ * Each segment is a small LRU "window" in front of a larger LRU main area
+ * (W-TinyLFU). New entries land in the window. When the window overflows
+ * its eldest entry only makes it into a full main area if it has been
+ * requested more often recently than the main area's LRU victim, so a burst
+ * of one-off statements can't flush the plans that are actually reused.
+ *
+ * Values are expected to be immutable once cached.
+ */
+public class SegmentedPlanCache<V> {
+
+    /** Estimates the on-heap size of a cache entry in bytes. */
+    public interface Weigher<V> {
+        long weigh(String key, V value);
+    }
+
+    // Minimum number of entries per segment, small caches get fewer segments
+    private static final int MIN_SEGMENT_ENTRIES = 16;
+    // Share of each segment's entries kept in the admission window, in percent
+    private static final int WINDOW_PERCENT = 1;
+
+    /** Counters for one level of the cache, summed over its segments. */
+    public static class Stats {
+        public long entries = 0;
+        public long bytes = 0;
+        public long hits = 0;
+        public long misses = 0;
+        public long insertions = 0;
+        public long evictions = 0;
+        public long rejections = 0;
+    }
+
+    private static final class Entry<V> {
+        final V m_value;
+        final long m_weight;
+
+        Entry(V value, long weight) {
+            m_value = value;
+            m_weight = weight;
+        }
+    }
+
+    private final class Segment {
+        // both maps are in access order, eldest is the LRU entry
+        final LinkedHashMap<String, Entry<V>> m_window;
+        final LinkedHashMap<String, Entry<V>> m_main;
+        final FrequencySketch m_sketch;
+        final int m_maxEntries;
+        final int m_maxWindowEntries;
+        long m_bytes = 0;
+
+        long m_hits = 0;
+        long m_misses = 0;
+        long m_insertions = 0;
+        long m_evictions = 0;
+        long m_rejections = 0;
+
+        Segment(int maxEntries) {
+            m_maxEntries = maxEntries;
+            m_maxWindowEntries = Math.max(1, (maxEntries * WINDOW_PERCENT) / 100);
+            m_window = new LinkedHashMap<String, Entry<V>>(m_maxWindowEntries * 2, .75f, true);
+            m_main = new LinkedHashMap<String, Entry<V>>(maxEntries * 2, .75f, true);
+            m_sketch = new FrequencySketch(maxEntries);
+        }
+
+        synchronized V get(String key, boolean recordStats) {
+            if (recordStats) {
+                m_sketch.increment(key.hashCode());
+            }
+            Entry<V> entry = m_window.get(key);
+            if (entry == null) {
+                entry = m_main.get(key);
+            }
+            if (recordStats) {
+                if (entry != null) {
+                    ++m_hits;
+                }
+                else {
+                    ++m_misses;
+                }
+            }
+            return entry == null ? null : entry.m_value;
+        }
+
+        synchronized void put(String key, V value) {
+            long weight = m_weigher.weigh(key, value);
+            removeEntry(key);
+            if (weight > m_maxBytes) {
+                // would never fit, don't flush everything else trying
+                ++m_rejections;
+                return;
+            }
+            m_window.put(key, new Entry<V>(value, weight));
+            addBytes(weight);
+            ++m_insertions;
+
+            // graduate window overflow into the main area, if it earns its place
+            while (m_window.size() > m_maxWindowEntries) {
+                Map.Entry<String, Entry<V>> candidate = eldest(m_window);
+                m_window.remove(candidate.getKey());
+                if (size() < m_maxEntries && m_totalBytes.get() <= m_maxBytes) {
+                    m_main.put(candidate.getKey(), candidate.getValue());
+                    continue;
+                }
+                Map.Entry<String, Entry<V>> victim = eldest(m_main);
+                if (victim == null ||
+                        m_sketch.frequency(candidate.getKey().hashCode()) >
+                        m_sketch.frequency(victim.getKey().hashCode())) {
+                    if (victim != null) {
+                        m_main.remove(victim.getKey());
+                        addBytes(-victim.getValue().m_weight);
+                        ++m_evictions;
+                    }
+                    m_main.put(candidate.getKey(), candidate.getValue());
+                }
+                else {
+                    addBytes(-candidate.getValue().m_weight);
+                    ++m_rejections;
+                }
+            }
+
+            // enforce the entry bound, main area first, the byte bound is
+            // enforced over all segments by the caller
+            while (size() > m_maxEntries) {
+                evictEldest(key);
+            }
+        }
+
+        /**
+         * Evict the least recently used entry other than keep, main area first.
+         * @return false if there is no such entry
+         */
+        synchronized boolean evict(String keep) {
+            return evictEldest(keep);
+        }
+
+        synchronized long bytes() {
+            return m_bytes;
+        }
+
+        synchronized void remove(String key) {
+            removeEntry(key);
+        }
+
+        synchronized void clear() {
+            m_window.clear();
+            m_main.clear();
+            addBytes(-m_bytes);
+        }
+
+        synchronized void collect(Stats stats) {
+            stats.entries += size();
+            stats.bytes += m_bytes;
+            stats.hits += m_hits;
+            stats.misses += m_misses;
+            stats.insertions += m_insertions;
+            stats.evictions += m_evictions;
+            stats.rejections += m_rejections;
+        }
+
+        synchronized int entryCount() {
+            return size();
+        }
+
+        private int size() {
+            return m_window.size() + m_main.size();
+        }
+
+        private boolean evictEldest(String keep) {
+            return evictEldest(m_main, keep) || evictEldest(m_window, keep);
+        }
+
+        private boolean evictEldest(LinkedHashMap<String, Entry<V>> area, String keep) {
+            for (Map.Entry<String, Entry<V>> victim : area.entrySet()) {
+                if ( ! victim.getKey().equals(keep)) {
+                    area.remove(victim.getKey());
+                    addBytes(-victim.getValue().m_weight);
+                    ++m_evictions;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void removeEntry(String key) {
+            Entry<V> old = m_window.remove(key);
+            if (old == null) {
+                old = m_main.remove(key);
+            }
+            if (old != null) {
+                addBytes(-old.m_weight);
+            }
+        }
+
+        private void addBytes(long delta) {
+            m_bytes += delta;
+            m_totalBytes.addAndGet(delta);
+        }
+    }
+
+    private final List<Segment> m_segments;
+    private final int m_segmentShift;
+    private final Weigher<V> m_weigher;
+    private final long m_maxBytes;
+    // estimated size of the entries of all segments
+    private final AtomicLong m_totalBytes = new AtomicLong();
+
+    /**
+     * @param maxEntries   maximum number of entries in the whole cache
+     * @param maxBytes     maximum estimated size of all entries in bytes
+     * @param concurrency  desired number of segments, rounded down to a power of two
+     * @param weigher      estimates the size of an entry
+     */
+    public SegmentedPlanCache(int maxEntries, long maxBytes, int concurrency, Weigher<V> weigher) {
+        assert(maxEntries > 0);
+        assert(maxBytes > 0);
+        int segmentCount = Math.max(1, Math.min(concurrency, maxEntries / MIN_SEGMENT_ENTRIES));
+        segmentCount = Integer.highestOneBit(segmentCount);
+        m_segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+        m_weigher = weigher;
+        m_maxBytes = maxBytes;
+        m_segments = new ArrayList<Segment>(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            // spread any remainder over the first segments
+            int entries = maxEntries / segmentCount + (i < maxEntries % segmentCount ? 1 : 0);
+            m_segments.add(new Segment(entries));
+        }
+    }
+
+    private Segment segmentFor(String key) {
+        if (m_segments.size() == 1) {
+            return m_segments.get(0);
+        }
+        int h = key.hashCode() * 0x9E3779B9;
+        return m_segments.get(h >>> m_segmentShift);
+    }
+
+    private static <V> Map.Entry<String, Entry<V>> eldest(LinkedHashMap<String, Entry<V>> map) {
+        Iterator<Map.Entry<String, Entry<V>>> iter = map.entrySet().iterator();
+        return iter.hasNext() ? iter.next() : null;
+    }
+
+    /**
+     * Look up a key, counting it as a hit or miss.
+     * @return the cached value or null
+     */
+    public V get(String key) {
+        return segmentFor(key).get(key, true);
+    }
+
+    /**
+     * Look up a key without counting it towards hit rates or admission.
+     * @return the cached value or null
+     */
+    public V peek(String key) {
+        return segmentFor(key).get(key, false);
+    }
+
+    /**
+     * Insert or replace an entry. The entry may not be admitted, or may be
+     * evicted again immediately, if the cache is full of more popular entries.
+     */
+    public void put(String key, V value) {
+        segmentFor(key).put(key, value);
+        enforceByteBound(key);
+    }
+
+    /**
+     * Evict from the segment holding the most bytes until the cache is within
+     * its byte budget. Segments are locked one at a time, so concurrent puts
+     * may briefly overshoot the budget, but never deadlock.
+     */
+    private void enforceByteBound(String keep) {
+        boolean[] exhausted = new boolean[m_segments.size()];
+        while (m_totalBytes.get() > m_maxBytes) {
+            int largest = -1;
+            long largestBytes = 0;
+            for (int i = 0; i < m_segments.size(); i++) {
+                long bytes = m_segments.get(i).bytes();
+                if ( ! exhausted[i] && bytes > largestBytes) {
+                    largest = i;
+                    largestBytes = bytes;
+                }
+            }
+            if (largest < 0) {
+                return;
+            }
+            if ( ! m_segments.get(largest).evict(keep)) {
+                exhausted[largest] = true;
+            }
+        }
+    }
+
+    public void remove(String key) {
+        segmentFor(key).remove(key);
+    }
+
+    public void clear() {
+        for (Segment segment : m_segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * @return the number of entries currently cached
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : m_segments) {
+            size += segment.entryCount();
+        }
+        return size;
+    }
+
+    /**
+     * @return a snapshot of the counters of this cache level
+     */
+    public Stats getStats() {
+        Stats stats = new Stats();
+        for (Segment segment : m_segments) {
+            segment.collect(stats);
+        }
+        return stats;
+    }
+
+    int getSegmentCount() {
+        return m_segments.size();
+    }
+}
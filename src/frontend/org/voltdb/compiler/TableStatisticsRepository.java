@@ -0,0 +1,129 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.compiler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.Database;
+import org.voltdb.catalog.Table;
+import org.voltdb.utils.CatalogUtil;
+
+/**
+ * Holds the table statistics last measured by @Analyze on this node, and
+ * hands them to the planner through {@link DatabaseEstimates}.
+ *
+ * The statistics are per partition: the tuple count of a partitioned table is
+ * the average count of one partition, and a distinct value count is the number
+ * of distinct values a single partition is expected to hold.
+ *
+ * The statistics of a table are kept with the signature of the table they
+ * were measured on. The planner only gets them while every table of the
+ * schema it plans for has statistics that match its current signature. Until
+ * then it plans with the default estimates of every table, so a table created
+ * or changed since @Analyze ran never has its guessed size weighed against
+ * the measured sizes of the others.
+ */
+public abstract class TableStatisticsRepository {
+
+    /// Schema of the table @Analyze publishes. A row with a null COLUMN_NAME
+    /// holds the tuple count of a table, the other rows the distinct value
+    /// count of one of its columns.
+    public static final VoltTable.ColumnInfo[] SCHEMA = new VoltTable.ColumnInfo[] {
+        new VoltTable.ColumnInfo("TABLE_NAME", VoltType.STRING),
+        new VoltTable.ColumnInfo("COLUMN_NAME", VoltType.STRING),
+        new VoltTable.ColumnInfo("TUPLE_COUNT", VoltType.BIGINT),
+        new VoltTable.ColumnInfo("DISTINCT_VALUES", VoltType.BIGINT)
+    };
+
+    private static class TableStatistics {
+        final String signature;
+        long tupleCount = 0;
+        final Map<String, Long> distinctValues = new HashMap<String, Long>();
+
+        TableStatistics(String signature) {
+            this.signature = signature;
+        }
+    }
+
+    /// Replaced as a whole on every update, so planner threads read it without locking.
+    private static volatile Map<String, TableStatistics> m_statistics = new HashMap<String, TableStatistics>();
+
+    /**
+     * Replace the statistics of one table with the given ones and drop the
+     * cached ad hoc plans that were chosen without them.
+     * @param signature  catalog signature of the table the statistics were measured on
+     * @param statistics rows of a single table in the layout of {@link #SCHEMA}
+     */
+    public static synchronized void update(String signature, VoltTable statistics) {
+        TableStatistics table = new TableStatistics(signature);
+        String tableName = null;
+        statistics.resetRowPosition();
+        while (statistics.advanceRow()) {
+            tableName = statistics.getString("TABLE_NAME");
+            String columnName = statistics.getString("COLUMN_NAME");
+            if (columnName == null) {
+                table.tupleCount = statistics.getLong("TUPLE_COUNT");
+            }
+            else {
+                table.distinctValues.put(columnName, statistics.getLong("DISTINCT_VALUES"));
+            }
+        }
+        if (tableName == null) {
+            return;
+        }
+        Map<String, TableStatistics> tables = new HashMap<String, TableStatistics>(m_statistics);
+        tables.put(tableName, table);
+        m_statistics = tables;
+        AdHocCompilerCache.clearAllPlans();
+    }
+
+    public static synchronized void clear() {
+        m_statistics = new HashMap<String, TableStatistics>();
+        AdHocCompilerCache.clearAllPlans();
+    }
+
+    /**
+     * Overwrite the default estimates of every table of the database, if all
+     * of them have statistics measured on their current definition.
+     */
+    public static void populateEstimates(DatabaseEstimates estimates, Database db) {
+        Map<String, TableStatistics> statistics = m_statistics;
+        if (statistics.isEmpty()) {
+            return;
+        }
+        Map<String, TableStatistics> current = new HashMap<String, TableStatistics>();
+        for (Table table : db.getTables()) {
+            if (CatalogUtil.isTableExportOnly(db, table)) {
+                continue;
+            }
+            TableStatistics tableStatistics = statistics.get(table.getTypeName());
+            if (tableStatistics == null || ! tableStatistics.signature.equals(table.getSignature())) {
+                return;
+            }
+            current.put(table.getTypeName(), tableStatistics);
+        }
+        for (Map.Entry<String, TableStatistics> entry : current.entrySet()) {
+            estimates.setAnalyzedEstimates(entry.getKey(),
+                                           entry.getValue().tupleCount,
+                                           entry.getValue().distinctValues);
+        }
+    }
+}
@@ -1569,14 +1569,9 @@ public class VoltCompiler {
     }
 
     static void addDatabaseEstimatesInfo(final DatabaseEstimates estimates, final Database db) {
-        // Not implemented yet. Don't panic.
-
-        /*for (Table table : db.getTables()) {
-            DatabaseEstimates.TableEstimates tableEst = new DatabaseEstimates.TableEstimates();
-            tableEst.maxTuples = 1000000;
-            tableEst.minTuples = 100000;
-            estimates.tables.put(table, tableEst);
-        }*/
+        // Only a compiler running inside a server that has run @Analyze has
+        // measured statistics. Everywhere else the default estimates stand.
+        TableStatisticsRepository.populateEstimates(estimates, db);
     }
 
     ProcedureDescriptor getProcedure(
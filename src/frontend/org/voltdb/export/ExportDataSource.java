@@ -27,9 +27,12 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.LinkedTransferQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.json_voltpatches.JSONArray;
@@ -73,6 +76,18 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
      */
     private static final VoltLogger exportLog = new VoltLogger("EXPORT");
 
+    /*
+     * EE buffers no larger than half of this that are pushed while the processor
+     * is busy with earlier data are copied into one block of up to this many bytes,
+     * header included, so overflow, polls and acks happen once per block instead of
+     * once per EE buffer. The blocks come from the pool of direct buffers, keep this
+     * a power of 2 so none of the pooled buffer is wasted.
+     * 0 turns coalescing off and every EE buffer becomes a block of its own.
+     */
+    static final int COALESCE_BYTES = Integer.getInteger("EXPORT_COALESCE_BYTES", 4 * 1024 * 1024);
+
+    private static final long NO_PENDING_ACK = -1;
+
     private final String m_database;
     private final String m_tableName;
     private String m_partitionColumnName = "";
@@ -110,6 +125,35 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
     private final LinkedTransferQueue<RunnableWithES> m_queuedActions = new LinkedTransferQueue<>();
     private RunnableWithES m_firstAction = null;
 
+    // Block being coalesced from small EE buffers and the USO of its first byte,
+    // only touched by the executor
+    private BBContainer m_coalesceBuffer = null;
+    private long m_coalesceUso = 0;
+
+    // Acks are queued here and applied in batches by one task on the executor
+    private final ConcurrentLinkedQueue<AckingContainer> m_pendingAcks =
+            new ConcurrentLinkedQueue<AckingContainer>();
+    private final AtomicLong m_pendingReplicaAckUso = new AtomicLong(NO_PENDING_ACK);
+    private final AtomicBoolean m_ackDrainScheduled = new AtomicBoolean(false);
+
+    // Written by the executor only
+    private volatile long m_bytesPushed = 0;
+    private volatile long m_ackCount = 0;
+    private volatile long m_ackLatencyNanos = 0;
+    private volatile long m_maxAckLatencyNanos = 0;
+
+    /**
+     * Point in time counters of one data source, reported by ExportStats
+     */
+    public static class Stats {
+        public long bytesPushed;
+        public long pendingBytes;
+        public int overflowBlocks;
+        public long acks;
+        public long ackLatencyNanos;
+        public long maxAckLatencyNanos;
+    }
+
     /**
      * Create a new data source.
      * @param db
@@ -440,7 +484,7 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
                 return es.submit(new Callable<Long>() {
                     @Override
                     public Long call() throws Exception {
-                        return m_committedBuffers.sizeInBytes();
+                        return m_committedBuffers.sizeInBytes() + coalescedBytes();
                     }
                 }).get();
             }
@@ -452,6 +496,78 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
         }
     }
 
+    public Stats getStats() {
+        Callable<Stats> collect = new Callable<Stats>() {
+            @Override
+            public Stats call() throws Exception {
+                Stats stats = new Stats();
+                stats.bytesPushed = m_bytesPushed;
+                stats.pendingBytes = m_committedBuffers.sizeInBytes() + coalescedBytes();
+                stats.overflowBlocks = m_committedBuffers.overflowBlockCount();
+                stats.acks = m_ackCount;
+                stats.ackLatencyNanos = m_ackLatencyNanos;
+                stats.maxAckLatencyNanos = m_maxAckLatencyNanos;
+                return stats;
+            }
+        };
+        try {
+            ListeningExecutorService es = getExecutorService();
+            if (es == null) {
+                return collect.call();
+            }
+            return es.submit(collect).get();
+        } catch (RejectedExecutionException e) {
+            return new Stats();
+        } catch (Throwable t) {
+            Throwables.propagate(t);
+            return null;
+        }
+    }
+
+    private long coalescedBytes() {
+        if (m_coalesceBuffer == null) {
+            return 0;
+        }
+        return m_coalesceBuffer.b().position() - StreamBlock.HEADER_SIZE;
+    }
+
+    /**
+     * Copy a small EE buffer into the block being coalesced, starting a new block if
+     * it doesn't continue the current one or doesn't fit. Returns false if the buffer
+     * should be queued as a block of its own: coalescing is off, the buffer is large,
+     * or the processor is waiting for data and shouldn't wait on a fuller block.
+     */
+    private boolean coalesce(long uso, ByteBuffer buffer) throws IOException {
+        final int size = buffer.capacity() - StreamBlock.HEADER_SIZE;
+        if (size > (COALESCE_BYTES - StreamBlock.HEADER_SIZE) / 2 || m_pollFuture != null) {
+            return false;
+        }
+        if (m_coalesceBuffer != null &&
+                (m_coalesceUso + coalescedBytes() != uso || m_coalesceBuffer.b().remaining() < size)) {
+            flushCoalescedBlock();
+        }
+        if (m_coalesceBuffer == null) {
+            m_coalesceBuffer = DBBPool.allocateDirectAndPool(COALESCE_BYTES);
+            m_coalesceBuffer.b().position(StreamBlock.HEADER_SIZE);
+            m_coalesceUso = uso;
+        }
+        ByteBuffer data = buffer.duplicate();
+        data.limit(buffer.capacity());
+        data.position(StreamBlock.HEADER_SIZE);
+        m_coalesceBuffer.b().put(data);
+        return true;
+    }
+
+    private void flushCoalescedBlock() throws IOException {
+        if (m_coalesceBuffer == null) {
+            return;
+        }
+        final BBContainer cont = m_coalesceBuffer;
+        m_coalesceBuffer = null;
+        cont.b().flip();
+        m_committedBuffers.offer(new StreamBlock(cont, m_coalesceUso, false));
+    }
+
     private void pushExportBufferImpl(
             long uso,
             ByteBuffer buffer,
@@ -465,6 +581,11 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
 
             m_endOfStream = endOfStream;
 
+            try {
+                flushCoalescedBlock();
+            } catch (IOException e) {
+                VoltDB.crashLocalVoltDB("Unable to write to export overflow.", true, e);
+            }
             if (m_committedBuffers.isEmpty()) {
                 exportLog.info("Pushed EOS buffer with 0 bytes remaining");
                 if (m_pollFuture != null) {
@@ -496,16 +617,22 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
                     cont.discard();
                     return;
                 }
+                m_bytesPushed += buffer.capacity() - StreamBlock.HEADER_SIZE;
                 try {
-                    m_committedBuffers.offer(new StreamBlock(
-                            new BBContainer(buffer) {
-                                @Override
-                                public void discard() {
-                                    checkDoubleFree();
-                                    cont.discard();
-                                    deleted.set(true);
-                                }
-                            }, uso, false));
+                    if (coalesce(uso, buffer)) {
+                        cont.discard();
+                    } else {
+                        flushCoalescedBlock();
+                        m_committedBuffers.offer(new StreamBlock(
+                                new BBContainer(buffer) {
+                                    @Override
+                                    public void discard() {
+                                        checkDoubleFree();
+                                        cont.discard();
+                                        deleted.set(true);
+                                    }
+                                }, uso, false));
+                    }
                 } catch (IOException e) {
                     VoltDB.crashLocalVoltDB("Unable to write to export overflow.", true, e);
                 }
@@ -517,6 +644,11 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
                  */
                 exportLog.info("Syncing first unpolled USO to " + uso + " for table "
                         + m_tableName + " partition " + m_partitionId);
+                try {
+                    flushCoalescedBlock();
+                } catch (IOException e) {
+                    VoltDB.crashLocalVoltDB("Unable to write to export overflow.", true, e);
+                }
                 m_firstUnpolledUso = uso;
             }
         }
@@ -524,6 +656,7 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
             try {
                 //Don't do a real sync, just write the in memory buffers
                 //to a file. @Quiesce or blocking snapshot will do the sync
+                flushCoalescedBlock();
                 m_committedBuffers.sync(true);
             } catch (IOException e) {
                 VoltDB.crashLocalVoltDB("Unable to write to export overflow.", true, e);
@@ -581,6 +714,10 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
             @Override
             public void run() {
                 try {
+                    if (m_coalesceBuffer != null) {
+                        m_coalesceBuffer.discard();
+                        m_coalesceBuffer = null;
+                    }
                     m_committedBuffers.closeAndDelete();
                 } catch(IOException e) {
                     exportLog.rateLimitedLog(60, Level.WARN, e, "Error closing commit buffers");
@@ -602,6 +739,7 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
             @Override
             public void run() {
                 try {
+                    assert(m_coalesceBuffer == null);
                     m_committedBuffers.truncateToTxnId(txnId, m_nullArrayLength);
                     if (m_committedBuffers.isEmpty() && m_endOfStream) {
                         if (m_pollFuture != null) {
@@ -630,6 +768,7 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
         @Override
         public void run() {
             try {
+                flushCoalescedBlock();
                 m_committedBuffers.sync(m_nofsync);
             } catch (IOException e) {
                 exportLog.error("failed to sync export overflow", e);
@@ -655,6 +794,7 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
             @Override
             public void run() {
                 try {
+                    flushCoalescedBlock();
                     m_committedBuffers.close();
                 } catch (IOException e) {
                     exportLog.error(e);
@@ -754,8 +894,12 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
                 }
             }
 
-            //If there are no unpolled blocks return the firstUnpolledUSO with no data
-            if (first_unpolled_block == null) {
+            //If there are no unpolled blocks hand out whatever has been coalesced so far,
+            //otherwise return the firstUnpolledUSO with no data
+            if (first_unpolled_block == null && m_coalesceBuffer != null) {
+                flushCoalescedBlock();
+                pollImpl(fut);
+            } else if (first_unpolled_block == null) {
                 m_pollFuture = fut;
             } else {
                 fut.set(
@@ -771,6 +915,8 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
     class AckingContainer extends BBContainer {
         final long m_uso;
         final BBContainer m_backingCont;
+        final long m_polledAt = System.nanoTime();
+        long m_ackLatency;
         public AckingContainer(BBContainer cont, long uso) {
             super(cont.b());
             m_uso = uso;
@@ -780,27 +926,56 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
         @Override
         public void discard() {
             checkDoubleFree();
-            RunnableWithES runnable = new RunnableWithES() {
-                @Override
-                public void run() {
+            m_ackLatency = System.nanoTime() - m_polledAt;
+            m_pendingAcks.offer(this);
+            scheduleAckDrain();
+        }
+    }
+
+    /*
+     * One drain task applies every ack queued since it was scheduled: the blocks
+     * of all of them are released up to the highest USO, and the replicas are
+     * told about it with a single message.
+     */
+    private void scheduleAckDrain() {
+        if (!m_ackDrainScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        RunnableWithES runnable = new RunnableWithES() {
+            @Override
+            public void run() {
+                m_ackDrainScheduled.set(false);
+                long localUso = NO_PENDING_ACK;
+                try {
+                    AckingContainer ack;
+                    while ((ack = m_pendingAcks.poll()) != null) {
+                        ack.m_backingCont.discard();
+                        localUso = Math.max(localUso, ack.m_uso);
+                        m_ackCount++;
+                        m_ackLatencyNanos += ack.m_ackLatency;
+                        m_maxAckLatencyNanos = Math.max(m_maxAckLatencyNanos, ack.m_ackLatency);
+                    }
+                    final long uso = Math.max(localUso, m_pendingReplicaAckUso.getAndSet(NO_PENDING_ACK));
+                    if (uso == NO_PENDING_ACK) {
+                        return;
+                    }
                     try {
-                        m_backingCont.discard();
-                        try {
-                            if (!getLocalExecutorService().isShutdown()) {
-                                ackImpl(m_uso);
-                            }
-                        } finally {
-                            forwardAckToOtherReplicas(m_uso);
+                        if (!getLocalExecutorService().isShutdown()) {
+                            ackImpl(uso);
+                        }
+                    } finally {
+                        if (localUso != NO_PENDING_ACK) {
+                            forwardAckToOtherReplicas(localUso);
                         }
-                    } catch (Exception e) {
-                        exportLog.error("Error acking export buffer", e);
-                    } catch (Error e) {
-                        VoltDB.crashLocalVoltDB("Error acking export buffer", true, e);
                     }
+                } catch (Exception e) {
+                    exportLog.error("Error acking export buffer", e);
+                } catch (Error e) {
+                    VoltDB.crashLocalVoltDB("Error acking export buffer", true, e);
                 }
-            };
-            stashOrSubmitTask(runnable, true, false);
-        }
+            }
+        };
+        stashOrSubmitTask(runnable, true, false);
     }
 
     private void forwardAckToOtherReplicas(long uso) {
@@ -846,6 +1021,16 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
         }
 
         //In replicated only master will be doing this.
+        if (uso != Long.MIN_VALUE) {
+            long pending;
+            do {
+                pending = m_pendingReplicaAckUso.get();
+            } while (uso > pending && !m_pendingReplicaAckUso.compareAndSet(pending, uso));
+            scheduleAckDrain();
+            return;
+        }
+
+        //The drain marker is not merged with other acks
         RunnableWithES runnable = new RunnableWithES() {
             @Override
             public void run() {
@@ -20,6 +20,7 @@ package org.voltdb.export;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -345,6 +346,19 @@ public class ExportManager
         return m_self;
     }
 
+    /**
+     * Data sources of every generation on this host, for statistics
+     */
+    public synchronized List<ExportDataSource> getDataSources() {
+        List<ExportDataSource> sources = new ArrayList<ExportDataSource>();
+        for (ExportGeneration generation : m_generations.values()) {
+            for (Map<String, ExportDataSource> partitionSources : generation.getDataSourceByPartition().values()) {
+                sources.addAll(partitionSources.values());
+            }
+        }
+        return sources;
+    }
+
     public static void setInstanceForTest(ExportManager self) {
         m_self = self;
     }
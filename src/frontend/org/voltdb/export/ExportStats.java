@@ -0,0 +1,143 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.export;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.voltdb.StatsSource;
+import org.voltdb.VoltType;
+import org.voltdb.VoltTable.ColumnInfo;
+
+/**
+ * Throughput, overflow depth and ack latency of every export stream on this
+ * host, one row per stream and partition. BYTES_PER_SECOND is measured since
+ * the previous collection of the row.
+ */
+public class ExportStats extends StatsSource {
+
+    public enum StatName {
+        PARTITION_ID,
+        SOURCE_NAME,
+        GENERATION,
+        BYTES_PUSHED,
+        BYTES_PER_SECOND,
+        PENDING_BYTES,
+        OVERFLOW_BLOCKS,
+        ACKS,
+        AVG_ACK_LATENCY_MS,
+        MAX_ACK_LATENCY_MS
+    }
+
+    private static class Sample {
+        final long m_time;
+        final ExportDataSource.Stats m_stats;
+
+        Sample(long time, ExportDataSource.Stats stats) {
+            m_time = time;
+            m_stats = stats;
+        }
+    }
+
+    // previous collection of each source, the generations share equal sources
+    private final Map<ExportDataSource, Sample> m_lastSamples = new IdentityHashMap<ExportDataSource, Sample>();
+
+    private boolean m_interval = false;
+
+    public ExportStats() {
+        super(false);
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo(StatName.PARTITION_ID.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.SOURCE_NAME.name(), VoltType.STRING));
+        columns.add(new ColumnInfo(StatName.GENERATION.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.BYTES_PUSHED.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.BYTES_PER_SECOND.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.PENDING_BYTES.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.OVERFLOW_BLOCKS.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.ACKS.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.AVG_ACK_LATENCY_MS.name(), VoltType.FLOAT));
+        columns.add(new ColumnInfo(StatName.MAX_ACK_LATENCY_MS.name(), VoltType.FLOAT));
+    }
+
+    @Override
+    protected synchronized void updateStatsRow(Object rowKey, Object[] rowValues) {
+        ExportDataSource source = (ExportDataSource) rowKey;
+        final long now = System.nanoTime();
+        ExportDataSource.Stats stats = source.getStats();
+        Sample last = m_lastSamples.put(source, new Sample(now, stats));
+
+        long bytesPushed = stats.bytesPushed;
+        long acks = stats.acks;
+        long ackLatency = stats.ackLatencyNanos;
+        long bytesPerSecond = 0;
+        if (last != null) {
+            long elapsed = now - last.m_time;
+            if (elapsed > 0) {
+                bytesPerSecond = (stats.bytesPushed - last.m_stats.bytesPushed) * TimeUnit.SECONDS.toNanos(1) / elapsed;
+            }
+            if (m_interval) {
+                bytesPushed -= last.m_stats.bytesPushed;
+                acks -= last.m_stats.acks;
+                ackLatency -= last.m_stats.ackLatencyNanos;
+            }
+        }
+
+        rowValues[columnNameToIndex.get(StatName.PARTITION_ID.name())] = source.getPartitionId();
+        rowValues[columnNameToIndex.get(StatName.SOURCE_NAME.name())] = source.getTableName();
+        rowValues[columnNameToIndex.get(StatName.GENERATION.name())] = source.getGeneration();
+        rowValues[columnNameToIndex.get(StatName.BYTES_PUSHED.name())] = bytesPushed;
+        rowValues[columnNameToIndex.get(StatName.BYTES_PER_SECOND.name())] = bytesPerSecond;
+        rowValues[columnNameToIndex.get(StatName.PENDING_BYTES.name())] = stats.pendingBytes;
+        rowValues[columnNameToIndex.get(StatName.OVERFLOW_BLOCKS.name())] = stats.overflowBlocks;
+        rowValues[columnNameToIndex.get(StatName.ACKS.name())] = acks;
+        rowValues[columnNameToIndex.get(StatName.AVG_ACK_LATENCY_MS.name())] =
+                acks == 0 ? 0.0 : ackLatency / (double) acks / TimeUnit.MILLISECONDS.toNanos(1);
+        rowValues[columnNameToIndex.get(StatName.MAX_ACK_LATENCY_MS.name())] =
+                stats.maxAckLatencyNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected synchronized Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        m_interval = interval;
+        ExportManager manager = ExportManager.instance();
+        List<ExportDataSource> sources = new ArrayList<ExportDataSource>();
+        if (manager != null) {
+            sources = manager.getDataSources();
+        }
+        // forget sources of generations that are gone
+        Map<ExportDataSource, Sample> samples = new IdentityHashMap<ExportDataSource, Sample>();
+        for (ExportDataSource source : sources) {
+            Sample sample = m_lastSamples.get(source);
+            if (sample != null) {
+                samples.put(source, sample);
+            }
+        }
+        m_lastSamples.clear();
+        m_lastSamples.putAll(samples);
+        return new ArrayList<Object>(sources).iterator();
+    }
+}
@@ -45,6 +45,12 @@ public class StreamBlockQueue {
 
     private static final VoltLogger exportLog = new VoltLogger("EXPORT");
 
+    /**
+     * Blocks that overflow to disk are compressed by the persistent deque unless this is false
+     */
+    static final boolean COMPRESS_OVERFLOW =
+            Boolean.valueOf(System.getProperty("EXPORT_OVERFLOW_COMPRESSION", "true"));
+
     /**
      * Deque containing reference to stream blocks that are in memory. Some of these
      * stream blocks may still be persisted to disk others are stored completely in memory
@@ -194,12 +200,12 @@ public class StreamBlockQueue {
     public void offer(StreamBlock streamBlock) throws IOException {
         //Already have two blocks, put it in the deque
         if (m_memoryDeque.size() > 1) {
-            m_persistentDeque.offer(streamBlock.asBBContainer());
+            m_persistentDeque.offer(streamBlock.asBBContainer(), COMPRESS_OVERFLOW);
         } else {
             //Don't offer into the memory deque if there is anything waiting to be
             //polled out of the persistent deque. Check the persistent deque
             if (pollPersistentDeque(false) != null) {
-               m_persistentDeque.offer( streamBlock.asBBContainer());
+               m_persistentDeque.offer( streamBlock.asBBContainer(), COMPRESS_OVERFLOW);
             } else {
             //Persistent deque is empty put this in memory
                m_memoryDeque.offer(streamBlock);
@@ -252,6 +258,13 @@ public class StreamBlockQueue {
         return memoryBlockUsage + m_persistentDeque.sizeInBytes() - (8 * m_persistentDeque.getNumObjects());
     }
 
+    /**
+     * Number of blocks waiting in the persistent deque that haven't been read back into memory
+     */
+    public int overflowBlockCount() {
+        return m_persistentDeque.getNumObjects();
+    }
+
     public void close() throws IOException {
         sync(true);
         m_persistentDeque.close();
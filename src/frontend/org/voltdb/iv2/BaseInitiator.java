@@ -109,6 +109,12 @@ public abstract class BaseInitiator implements Initiator
         agent.registerStatsSource(StatsSelector.STARVATION,
                                   getInitiatorHSId(),
                                   st);
+        agent.registerStatsSource(StatsSelector.REPAIR_LOG,
+                                  getInitiatorHSId(),
+                                  new RepairLogStats(getInitiatorHSId(), m_partitionId, m_repairLog));
+        agent.registerStatsSource(StatsSelector.TASK_QUEUE,
+                                  getInitiatorHSId(),
+                                  new TaskQueueStats(getInitiatorHSId(), m_partitionId, m_scheduler.getQueue()));
 
         String partitionString = " ";
         if (m_partitionId != -1) {
@@ -203,6 +209,12 @@ public abstract class BaseInitiator implements Initiator
             tmLog.info("Exception during shutdown.", e);
         }
 
+        if (m_initiatorMailbox != null) {
+            synchronized (m_initiatorMailbox) {
+                m_repairLog.shutdown();
+            }
+        }
+
         if (m_siteThread != null) {
             try {
                 m_siteThread.join();
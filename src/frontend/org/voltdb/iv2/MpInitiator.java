@@ -20,6 +20,7 @@ package org.voltdb.iv2;
 import java.util.List;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.zookeeper_voltpatches.KeeperException;
 import org.apache.zookeeper_voltpatches.ZooKeeper;
@@ -34,6 +35,7 @@ import org.voltdb.ProducerDRGateway;
 import org.voltdb.Promotable;
 import org.voltdb.StartAction;
 import org.voltdb.StatsAgent;
+import org.voltdb.StatsSelector;
 import org.voltdb.VoltDB;
 import org.voltdb.VoltZK;
 import org.voltdb.iv2.RepairAlgo.RepairResult;
@@ -95,6 +97,18 @@ public class MpInitiator extends BaseInitiator implements Promotable
                 csp);
         sched.setMpRoSitePool(sitePool);
 
+        final MpTransactionTaskQueue pendingTasks = sched.getPendingTasks();
+        VoltDB.instance().getStatsAgent().registerStatsSource(StatsSelector.MP_READ_POOL,
+                getInitiatorHSId(), new MpRoSitePoolStats(pendingTasks));
+        // Check for idle read sites a few times per idle timeout
+        final long trimInterval = Math.max(1000, sitePool.getIdleTimeoutMs() / 4);
+        VoltDB.instance().scheduleWork(new Runnable() {
+            @Override
+            public void run() {
+                pendingTasks.trimReadPool();
+            }
+        }, trimInterval, trimInterval, TimeUnit.MILLISECONDS);
+
         // add ourselves to the ephemeral node list which BabySitters will watch for this
         // partition
         LeaderElector.createParticipantNode(m_messenger.getZK(),
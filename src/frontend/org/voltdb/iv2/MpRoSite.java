@@ -17,6 +17,7 @@
 
 package org.voltdb.iv2;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Future;
@@ -416,6 +417,18 @@ public class MpRoSite implements Runnable, SiteProcedureConnection
         throw new RuntimeException("RO MP Site doesn't do this, shouldn't be here.");
     }
 
+    @Override
+    public void bulkLoadTable(int tableId, ByteBuffer rows)
+    {
+        throw new RuntimeException("RO MP Site doesn't do this, shouldn't be here.");
+    }
+
+    @Override
+    public void finishBulkLoad(int tableId)
+    {
+        throw new RuntimeException("RO MP Site doesn't do this, shouldn't be here.");
+    }
+
     @Override
     public void updateBackendLogLevels()
     {
@@ -543,7 +556,8 @@ public class MpRoSite implements Runnable, SiteProcedureConnection
             long txnId,
             long spHandle,
             long uniqueId,
-            boolean readOnly)
+            boolean readOnly,
+            boolean timeFragments)
             throws EEException
     {
         throw new RuntimeException("RO MP Site doesn't do this, shouldn't be here.");
@@ -598,6 +612,11 @@ public class MpRoSite implements Runnable, SiteProcedureConnection
         // don't need to do anything here I think?
     }
 
+    @Override
+    public long getFragmentExecutionNanos(int batchIndex) {
+        throw new UnsupportedOperationException("RO MP Site doesn't do this, shouldn't be here");
+    }
+
     @Override
     public void notifyOfSnapshotNonce(String nonce, long snapshotSpHandle) {
         // TODO Auto-generated method stub
@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.CoreUtils;
@@ -37,12 +38,41 @@ import org.voltdb.StarvationTracker;
  * Provide a pool of MP Read-only sites to do MP RO work.
  * This should be owned by the MpTransactionTaskQueue and expects all operations
  * to be done while holding its lock.
+ *
+ * The pool grows by one site whenever a read finds no idle site, up to
+ * mpiReadPoolSize sites. Sites that stay idle for mpiReadPoolIdleTimeoutMs are
+ * retired by trimIdleSites(), longest idle first, down to mpiReadPoolMinSize
+ * sites. Nothing is retired while reads have had to queue for a site within
+ * the last idle timeout, so a pool sized by one burst survives the gap before
+ * the next one.
  */
 class MpRoSitePool {
     final static VoltLogger tmLog = new VoltLogger("TM");
 
     static int DEFAULT_MAX_POOL_SIZE = 20;
     static int INITIAL_POOL_SIZE = 1;
+    static long DEFAULT_IDLE_TIMEOUT_MS = 60 * 1000;
+
+    /**
+     * Counters of the pool, all times in nanoseconds. Peak and max values
+     * cover the time since the previous snapshot.
+     */
+    static class Stats {
+        int poolSize;
+        int busySites;
+        int minPoolSize;
+        int maxPoolSize;
+        int queueDepth;
+        int peakBusySites;
+        // integrals of busy sites and pool size over time
+        long busySiteNanos;
+        long poolSiteNanos;
+        long reads;
+        long waitNanos;
+        long maxWaitNanos;
+        long sitesCreated;
+        long sitesRetired;
+    }
 
     class MpRoSiteContext {
         final private BackendTarget m_backend;
@@ -52,6 +82,7 @@ class MpRoSitePool {
         final private ProcedureRunnerFactory m_prf;
         final private LoadedProcedureSet m_loadedProcedures;
         final private Thread m_siteThread;
+        private long m_idleSince = System.nanoTime();
 
         MpRoSiteContext(long siteId, BackendTarget backend,
                 CatalogContext context, int partitionId,
@@ -114,6 +145,15 @@ class MpRoSitePool {
     private CatalogSpecificPlanner m_csp;
     private ThreadFactory m_poolThreadFactory;
     private final int m_poolSize;
+    private final int m_minPoolSize;
+    private final long m_idleTimeoutNanos;
+
+    // Time the pool was last full while reads were waiting for a site
+    private long m_lastSaturated = Long.MIN_VALUE;
+    private boolean m_shutdown = false;
+
+    private final Stats m_stats = new Stats();
+    private long m_lastSizeChange = System.nanoTime();
 
     MpRoSitePool(
             long siteId,
@@ -138,21 +178,118 @@ class MpRoSitePool {
             poolSize = DEFAULT_MAX_POOL_SIZE;
         }
         m_poolSize = poolSize;
-        tmLog.info("Setting maximum size of MPI read pool to: " + m_poolSize);
+        m_minPoolSize = Math.min(m_poolSize, Integer.getInteger("mpiReadPoolMinSize", INITIAL_POOL_SIZE));
+        m_idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(
+                Long.getLong("mpiReadPoolIdleTimeoutMs", DEFAULT_IDLE_TIMEOUT_MS));
+        tmLog.info("Setting size of MPI read pool to between " + m_minPoolSize + " and " + m_poolSize +
+                " sites, idle timeout " + TimeUnit.NANOSECONDS.toMillis(m_idleTimeoutNanos) + "ms");
 
         // Construct the initial pool
-        for (int i = 0; i < INITIAL_POOL_SIZE; i++) {
-            m_idleSites.push(new MpRoSiteContext(m_siteId,
-                        m_backend,
-                        m_catalogContext,
-                        m_partitionId,
-                        m_initiatorMailbox,
-                        m_csp,
-                        m_poolThreadFactory));
+        for (int i = 0; i < m_minPoolSize; i++) {
+            m_idleSites.push(newSite());
         }
 
     }
 
+    private MpRoSiteContext newSite()
+    {
+        updateUtilization();
+        m_stats.sitesCreated++;
+        return new MpRoSiteContext(m_siteId,
+                m_backend,
+                m_catalogContext,
+                m_partitionId,
+                m_initiatorMailbox,
+                m_csp,
+                m_poolThreadFactory);
+    }
+
+    private void retireSite(MpRoSiteContext site)
+    {
+        updateUtilization();
+        m_stats.sitesRetired++;
+        site.shutdown();
+    }
+
+    /**
+     * Accumulate busy and total site time up to now, called before either changes
+     */
+    private void updateUtilization()
+    {
+        final long now = System.nanoTime();
+        final long elapsed = now - m_lastSizeChange;
+        m_lastSizeChange = now;
+        m_stats.busySiteNanos += elapsed * m_busySites.size();
+        m_stats.poolSiteNanos += elapsed * (m_busySites.size() + m_idleSites.size());
+    }
+
+    /**
+     * Note that reads are waiting in the backlog because no site could take them
+     */
+    void saturated()
+    {
+        m_lastSaturated = System.nanoTime();
+    }
+
+    /**
+     * Record how long a read waited in the backlog before it was handed to a site
+     */
+    void recordWait(long waitNanos)
+    {
+        m_stats.reads++;
+        m_stats.waitNanos += waitNanos;
+        m_stats.maxWaitNanos = Math.max(m_stats.maxWaitNanos, waitNanos);
+    }
+
+    /**
+     * Retire sites that have been idle longer than the idle timeout, unless
+     * reads had to wait for a site recently.
+     */
+    void trimIdleSites()
+    {
+        if (m_shutdown) {
+            return;
+        }
+        final long now = System.nanoTime();
+        if (m_lastSaturated != Long.MIN_VALUE && now - m_lastSaturated < m_idleTimeoutNanos) {
+            return;
+        }
+        // The idle stack has the most recently used site on top, so the
+        // longest idle ones are at the bottom
+        while (m_idleSites.size() + m_busySites.size() > m_minPoolSize &&
+                !m_idleSites.isEmpty() &&
+                now - m_idleSites.peekLast().m_idleSince >= m_idleTimeoutNanos) {
+            retireSite(m_idleSites.pollLast());
+        }
+    }
+
+    long getIdleTimeoutMs()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(m_idleTimeoutNanos);
+    }
+
+    Stats getStats(int queueDepth)
+    {
+        updateUtilization();
+        Stats stats = new Stats();
+        stats.poolSize = m_idleSites.size() + m_busySites.size();
+        stats.busySites = m_busySites.size();
+        stats.minPoolSize = m_minPoolSize;
+        stats.maxPoolSize = m_poolSize;
+        stats.queueDepth = queueDepth;
+        stats.peakBusySites = Math.max(m_stats.peakBusySites, m_busySites.size());
+        stats.busySiteNanos = m_stats.busySiteNanos;
+        stats.poolSiteNanos = m_stats.poolSiteNanos;
+        stats.reads = m_stats.reads;
+        stats.waitNanos = m_stats.waitNanos;
+        stats.maxWaitNanos = m_stats.maxWaitNanos;
+        stats.sitesCreated = m_stats.sitesCreated;
+        stats.sitesRetired = m_stats.sitesRetired;
+        m_stats.peakBusySites = m_busySites.size();
+        m_stats.maxWaitNanos = 0;
+        return stats;
+    }
+
     /**
      * Update the catalog
      */
@@ -168,8 +305,8 @@ class MpRoSitePool {
             MpRoSiteContext site = siterator.next();
             if (site.getCatalogCRC() != m_catalogContext.getCatalogCRC()
                     || site.getCatalogVersion() != m_catalogContext.catalogVersion) {
-                site.shutdown();
-                m_idleSites.remove(site);
+                retireSite(site);
+                siterator.remove();
             }
         }
     }
@@ -217,16 +354,12 @@ class MpRoSitePool {
         }
         else {
             if (m_idleSites.isEmpty()) {
-                m_idleSites.push(new MpRoSiteContext(m_siteId,
-                            m_backend,
-                            m_catalogContext,
-                            m_partitionId,
-                            m_initiatorMailbox,
-                            m_csp,
-                            m_poolThreadFactory));
+                m_idleSites.push(newSite());
             }
+            updateUtilization();
             site = m_idleSites.pop();
             m_busySites.put(txnId, site);
+            m_stats.peakBusySites = Math.max(m_stats.peakBusySites, m_busySites.size());
         }
         site.offer(task);
         return true;
@@ -237,6 +370,7 @@ class MpRoSitePool {
      */
     void completeWork(long txnId)
     {
+        updateUtilization();
         MpRoSiteContext site = m_busySites.remove(txnId);
         if (site == null) {
             throw new RuntimeException("No busy site for txnID: " + txnId + " found, shouldn't happen.");
@@ -246,15 +380,17 @@ class MpRoSitePool {
         // pool with the updated catalog.
         if (site.getCatalogCRC() == m_catalogContext.getCatalogCRC()
                 && site.getCatalogVersion() == m_catalogContext.catalogVersion) {
+            site.m_idleSince = System.nanoTime();
             m_idleSites.push(site);
         }
         else {
-            site.shutdown();
+            retireSite(site);
         }
     }
 
     void shutdown()
     {
+        m_shutdown = true;
         // Shutdown all, then join all, hopefully save some shutdown time for tests.
         for (MpRoSiteContext site : m_idleSites) {
             site.shutdown();
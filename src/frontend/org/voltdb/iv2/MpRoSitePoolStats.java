@@ -0,0 +1,139 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.voltdb.StatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Size, utilization and queueing of the MPI read-only site pool. UTILIZATION,
+ * PEAK_BUSY_SITES and MAX_WAIT_MS cover the time since the previous collection.
+ */
+class MpRoSitePoolStats extends StatsSource {
+
+    public enum StatName {
+        POOL_SIZE,
+        BUSY_SITES,
+        MIN_POOL_SIZE,
+        MAX_POOL_SIZE,
+        QUEUE_DEPTH,
+        PEAK_BUSY_SITES,
+        UTILIZATION,
+        READS,
+        AVG_WAIT_MS,
+        MAX_WAIT_MS,
+        SITES_CREATED,
+        SITES_RETIRED
+    }
+
+    private final MpTransactionTaskQueue m_queue;
+    private MpRoSitePool.Stats m_last = new MpRoSitePool.Stats();
+    private boolean m_interval = false;
+
+    MpRoSitePoolStats(MpTransactionTaskQueue queue) {
+        super(false);
+        m_queue = queue;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo(StatName.POOL_SIZE.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.BUSY_SITES.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.MIN_POOL_SIZE.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.MAX_POOL_SIZE.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.QUEUE_DEPTH.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.PEAK_BUSY_SITES.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.UTILIZATION.name(), VoltType.FLOAT));
+        columns.add(new ColumnInfo(StatName.READS.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.AVG_WAIT_MS.name(), VoltType.FLOAT));
+        columns.add(new ColumnInfo(StatName.MAX_WAIT_MS.name(), VoltType.FLOAT));
+        columns.add(new ColumnInfo(StatName.SITES_CREATED.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.SITES_RETIRED.name(), VoltType.BIGINT));
+    }
+
+    @Override
+    protected synchronized void updateStatsRow(Object rowKey, Object[] rowValues) {
+        MpRoSitePool.Stats stats = m_queue.getReadPoolStats();
+        MpRoSitePool.Stats last = m_last;
+        m_last = stats;
+
+        final long poolTime = stats.poolSiteNanos - last.poolSiteNanos;
+        final double utilization =
+                poolTime == 0 ? 0.0 : (stats.busySiteNanos - last.busySiteNanos) / (double) poolTime;
+        long reads = stats.reads;
+        long waitNanos = stats.waitNanos;
+        long created = stats.sitesCreated;
+        long retired = stats.sitesRetired;
+        if (m_interval) {
+            reads -= last.reads;
+            waitNanos -= last.waitNanos;
+            created -= last.sitesCreated;
+            retired -= last.sitesRetired;
+        }
+        final double nanosPerMs = TimeUnit.MILLISECONDS.toNanos(1);
+
+        rowValues[columnNameToIndex.get(StatName.POOL_SIZE.name())] = stats.poolSize;
+        rowValues[columnNameToIndex.get(StatName.BUSY_SITES.name())] = stats.busySites;
+        rowValues[columnNameToIndex.get(StatName.MIN_POOL_SIZE.name())] = stats.minPoolSize;
+        rowValues[columnNameToIndex.get(StatName.MAX_POOL_SIZE.name())] = stats.maxPoolSize;
+        rowValues[columnNameToIndex.get(StatName.QUEUE_DEPTH.name())] = stats.queueDepth;
+        rowValues[columnNameToIndex.get(StatName.PEAK_BUSY_SITES.name())] = stats.peakBusySites;
+        rowValues[columnNameToIndex.get(StatName.UTILIZATION.name())] = utilization;
+        rowValues[columnNameToIndex.get(StatName.READS.name())] = reads;
+        rowValues[columnNameToIndex.get(StatName.AVG_WAIT_MS.name())] =
+                reads == 0 ? 0.0 : waitNanos / (double) reads / nanosPerMs;
+        rowValues[columnNameToIndex.get(StatName.MAX_WAIT_MS.name())] = stats.maxWaitNanos / nanosPerMs;
+        rowValues[columnNameToIndex.get(StatName.SITES_CREATED.name())] = created;
+        rowValues[columnNameToIndex.get(StatName.SITES_RETIRED.name())] = retired;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected synchronized Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        m_interval = interval;
+        return new Iterator<Object>() {
+            boolean returnRow = true;
+
+            @Override
+            public boolean hasNext() {
+                return returnRow;
+            }
+
+            @Override
+            public Object next() {
+                if (returnRow) {
+                    returnRow = false;
+                    return new Object();
+                } else {
+                    return null;
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
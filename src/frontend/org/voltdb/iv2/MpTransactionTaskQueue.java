@@ -46,6 +46,8 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
     private final Map<Long, TransactionTask> m_currentWrites = new HashMap<Long, TransactionTask>();
     private final Map<Long, TransactionTask> m_currentReads = new HashMap<Long, TransactionTask>();
     private Deque<TransactionTask> m_backlog = new ArrayDeque<TransactionTask>();
+    // System.nanoTime() each backlog entry was offered at, in backlog order
+    private Deque<Long> m_backlogOfferTimes = new ArrayDeque<Long>();
 
     private MpRoSitePool m_sitePool = null;
 
@@ -69,6 +71,19 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
         m_sitePool.shutdown();
     }
 
+    /**
+     * Let the read pool retire sites that have been idle too long
+     */
+    synchronized void trimReadPool()
+    {
+        m_sitePool.trimIdleSites();
+    }
+
+    synchronized MpRoSitePool.Stats getReadPoolStats()
+    {
+        return m_sitePool.getStats(m_backlog.size());
+    }
+
     /**
      * Stick this task in the backlog.
      * Many network threads may be racing to reach here, synchronize to
@@ -81,6 +96,7 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
     {
         Iv2Trace.logTransactionTaskQueueOffer(task);
         m_backlog.addLast(task);
+        m_backlogOfferTimes.addLast(System.nanoTime());
         taskQueueOffer();
         return true;
     }
@@ -182,6 +198,7 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
             if (!task.getTransactionState().isReadOnly()) {
                 if (m_currentReads.isEmpty() && m_currentWrites.isEmpty()) {
                     task = m_backlog.pollFirst();
+                    m_backlogOfferTimes.pollFirst();
                     m_currentWrites.put(task.getTxnId(), task);
                     taskQueueOffer(task);
                     retval = true;
@@ -192,6 +209,7 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
                        m_sitePool.canAcceptWork())
                 {
                     task = m_backlog.pollFirst();
+                    m_sitePool.recordWait(System.nanoTime() - m_backlogOfferTimes.pollFirst());
                     assert(task.getTransactionState().isReadOnly());
                     m_currentReads.put(task.getTxnId(), task);
                     taskQueueOffer(task);
@@ -200,6 +218,10 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
                     // task will be null
                     task = m_backlog.peekFirst();
                 }
+                if (task != null && task.getTransactionState().isReadOnly()) {
+                    // reads are left waiting because every site in the pool is busy
+                    m_sitePool.saturated();
+                }
             }
         }
         return retval;
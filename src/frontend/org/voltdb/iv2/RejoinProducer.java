@@ -47,6 +47,10 @@ import org.voltdb.rejoin.TaskLog;
  */
 public class RejoinProducer extends JoinProducerBase {
     private static final VoltLogger REJOINLOG = new VoltLogger("REJOIN");
+    // The rejoining site runs nothing against its tables until the stream is done,
+    // so their indexes are built once at the end instead of per row
+    private static final boolean REJOIN_BULK_INDEX_BUILD =
+            Boolean.valueOf(System.getProperty("REJOIN_BULK_INDEX_BUILD", "true"));
 
     private final AtomicBoolean m_currentlyRejoining;
     private static ScheduledFuture<?> m_timeFuture;
@@ -204,7 +208,7 @@ public class RejoinProducer extends JoinProducerBase {
         m_schemaHasNoTables = message.schemaHasNoTables();
         if (!m_schemaHasNoTables) {
             m_streamSnapshotMb = VoltDB.instance().getHostMessenger().createMailbox();
-            m_rejoinSiteProcessor = new StreamSnapshotSink(m_streamSnapshotMb);
+            m_rejoinSiteProcessor = new StreamSnapshotSink(m_streamSnapshotMb, REJOIN_BULK_INDEX_BUILD);
         }
         else {
             m_streamSnapshotMb = null;
@@ -274,6 +278,7 @@ public class RejoinProducer extends JoinProducerBase {
                 returnToTaskQueue(sourcesReady);
             } else {
                 REJOINLOG.debug(m_whoami + "Rejoin snapshot transfer is finished");
+                m_rejoinSiteProcessor.finishBulkLoads(siteConnection);
                 m_rejoinSiteProcessor.close();
 
                 if (m_streamSnapshotMb != null) {
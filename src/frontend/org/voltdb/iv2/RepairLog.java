@@ -17,6 +17,8 @@
 
 package org.voltdb.iv2;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.Comparator;
@@ -28,12 +30,16 @@ import java.util.List;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.messaging.VoltMessage;
 import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltcore.utils.EstTime;
 import org.voltdb.TheHashinator;
 import org.voltdb.messaging.CompleteTransactionMessage;
 import org.voltdb.messaging.DumpMessage;
 import org.voltdb.messaging.FragmentTaskMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
 import org.voltdb.messaging.Iv2RepairLogResponseMessage;
+import org.voltdb.messaging.VoltDbMessageFactory;
 
 /**
  * The repair log stores messages received from a partition initiator (leader) in case
@@ -41,12 +47,24 @@ import org.voltdb.messaging.Iv2RepairLogResponseMessage;
  * initiator (leader) shed its mortal coil.  This includes recording and sharing messages
  * starting and completing multipartition transactions so that a new MPI can repair the
  * cluster state on promotion.
+ *
+ * Messages of OFFHEAP_THRESHOLD bytes or more are kept serialized in pooled
+ * direct buffers of BUFFER_SIZE bytes rather than as objects, so a long MP
+ * transaction or a slow replica doesn't pin large parameter sets in the old
+ * generation. They are only deserialized when the log contents are requested
+ * for repair. A buffer goes back to the pool once every message in it has
+ * been truncated.
  */
 public class RepairLog
 {
     private static final boolean IS_SP = true;
     private static final boolean IS_MP = false;
 
+    // Messages smaller than this stay on the heap, set to 0 to keep every message off-heap
+    static final int OFFHEAP_THRESHOLD = Integer.getInteger("REPAIR_LOG_OFFHEAP_THRESHOLD", 256);
+    // Size of the pooled buffers messages are appended to, larger messages get a buffer of their own
+    static final int BUFFER_SIZE = Integer.getInteger("REPAIR_LOG_BUFFER_SIZE", 256 * 1024);
+
     VoltLogger tmLog = new VoltLogger("TM");
 
     // Initialize to Long MAX_VALUE to prevent feeding a newly joined node
@@ -60,20 +78,98 @@ public class RepairLog
     // The HSID of this initiator, for logging purposes
     long m_HSId = Long.MIN_VALUE;
 
+    // A pooled direct buffer serialized messages are appended to.
+    // Only the current buffer takes new messages, the others are sealed.
+    class Buffer
+    {
+        final BBContainer m_container;
+        int m_messages = 0;
+        boolean m_sealed = false;
+
+        Buffer(int size)
+        {
+            m_container = DBBPool.allocateDirectAndPool(size);
+            m_bufferBytes += m_container.b().capacity();
+        }
+
+        void seal()
+        {
+            m_sealed = true;
+            if (m_messages == 0) {
+                discard();
+            }
+        }
+
+        void release(int length)
+        {
+            m_offHeapBytes -= length;
+            if (--m_messages == 0) {
+                if (m_sealed) {
+                    discard();
+                } else {
+                    // nothing left in the current buffer, start over at the front
+                    m_container.b().position(0);
+                }
+            }
+        }
+
+        private void discard()
+        {
+            m_bufferBytes -= m_container.b().capacity();
+            m_container.discard();
+        }
+    }
+
     // want voltmessage as payload with message-independent metadata.
     static class Item
     {
+        // either the message itself or where it is serialized
         final VoltMessage m_msg;
+        final Buffer m_buffer;
+        final int m_offset;
+        final int m_length;
+        final long m_sourceHSId;
         final long m_handle;
         final long m_txnId;
         final boolean m_type;
+        final long m_timestamp = EstTime.currentTimeMillis();
 
         Item(boolean type, VoltMessage msg, long handle, long txnId)
         {
             m_type = type;
             m_msg = msg;
+            m_buffer = null;
+            m_offset = 0;
+            m_length = 0;
+            m_sourceHSId = -1;
+            m_handle = handle;
+            m_txnId = txnId;
+        }
+
+        Item(boolean type, Buffer buffer, int offset, int length, long sourceHSId, long handle, long txnId)
+        {
+            m_type = type;
+            m_msg = null;
+            m_buffer = buffer;
+            m_offset = offset;
+            m_length = length;
+            m_sourceHSId = sourceHSId;
             m_handle = handle;
             m_txnId = txnId;
+            buffer.m_messages++;
+        }
+
+        boolean isOffHeap()
+        {
+            return m_buffer != null;
+        }
+
+        // Called once the item has been truncated from the log
+        void release()
+        {
+            if (m_buffer != null) {
+                m_buffer.release(m_length);
+            }
         }
 
         long getHandle()
@@ -87,7 +183,20 @@ public class RepairLog
 
         VoltMessage getMessage()
         {
-            return m_msg;
+            if (m_msg != null) {
+                return m_msg;
+            }
+            // Deserialize from a heap copy, messages may keep slices of the buffer they came from
+            ByteBuffer serialized = ByteBuffer.allocate(m_length);
+            ByteBuffer src = m_buffer.m_container.bDR();
+            src.limit(m_offset + m_length).position(m_offset);
+            serialized.put(src);
+            serialized.flip();
+            try {
+                return m_messageFactory.createMessageFromBuffer(serialized, m_sourceHSId);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to deserialize a repair log message", e);
+            }
         }
 
         boolean isSP()
@@ -112,10 +221,24 @@ public class RepairLog
         }
     }
 
+    private static final VoltDbMessageFactory m_messageFactory = new VoltDbMessageFactory();
+
     // log storage.
     final Deque<Item> m_logSP;
     final Deque<Item> m_logMP;
 
+    // the buffer new off-heap messages are appended to
+    private Buffer m_currentBuffer = null;
+    private boolean m_shutdown = false;
+
+    // Written by the thread that owns the log, read by the statistics
+    volatile long m_offHeapBytes = 0;
+    volatile long m_bufferBytes = 0;
+    volatile int m_spEntries = 0;
+    volatile int m_mpEntries = 0;
+    // timestamp of the oldest entry, Long.MAX_VALUE if the log is empty
+    volatile long m_oldestTimestamp = Long.MAX_VALUE;
+
     RepairLog()
     {
         m_logSP = new ArrayDeque<Item>();
@@ -137,6 +260,7 @@ public class RepairLog
         // action always happens after repair is completed.
         if (m_isLeader) {
             truncate(Long.MAX_VALUE, IS_SP);
+            updateStats();
         }
     }
 
@@ -151,7 +275,7 @@ public class RepairLog
             if (!m.isReadOnly()) {
                 m_lastSpHandle = m.getSpHandle();
                 truncate(m.getTruncationHandle(), IS_SP);
-                m_logSP.add(new Item(IS_SP, m, m.getSpHandle(), m.getTxnId()));
+                m_logSP.add(newItem(IS_SP, m, m.getSpHandle(), m.getTxnId()));
             }
         } else if (msg instanceof FragmentTaskMessage) {
             final FragmentTaskMessage m = (FragmentTaskMessage) msg;
@@ -159,7 +283,7 @@ public class RepairLog
                 truncate(m.getTruncationHandle(), IS_MP);
                 // only log the first fragment of a procedure (and handle 1st case)
                 if (m.getTxnId() > m_lastMpHandle || m_lastMpHandle == Long.MAX_VALUE) {
-                    m_logMP.add(new Item(IS_MP, m, m.getSpHandle(), m.getTxnId()));
+                    m_logMP.add(newItem(IS_MP, m, m.getSpHandle(), m.getTxnId()));
                     m_lastMpHandle = m.getTxnId();
                     m_lastSpHandle = m.getSpHandle();
                 }
@@ -171,7 +295,7 @@ public class RepairLog
             CompleteTransactionMessage ctm = (CompleteTransactionMessage)msg;
             if (!ctm.isReadOnly() && !ctm.isRestart()) {
                 truncate(ctm.getTruncationHandle(), IS_MP);
-                m_logMP.add(new Item(IS_MP, ctm, ctm.getSpHandle(), ctm.getTxnId()));
+                m_logMP.add(newItem(IS_MP, ctm, ctm.getSpHandle(), ctm.getTxnId()));
                 //Restore will send a complete transaction message with a lower mp transaction id because
                 //the restore transaction precedes the loading of the right mp transaction id from the snapshot
                 //Hence Math.max
@@ -187,6 +311,92 @@ public class RepairLog
                tmLog.warn("" + who + ": msg: " + il);
             }
         }
+        updateStats();
+    }
+
+    // Keep small messages as they are and serialize the rest off-heap
+    private Item newItem(boolean type, VoltMessage msg, long handle, long txnId)
+    {
+        // A fragment task without fragments has no serialized form
+        if (msg instanceof FragmentTaskMessage && ((FragmentTaskMessage) msg).isEmpty()) {
+            return new Item(type, msg, handle, txnId);
+        }
+        final int size = msg.getSerializedSize();
+        if (m_shutdown || size < OFFHEAP_THRESHOLD || size <= 0) {
+            return new Item(type, msg, handle, txnId);
+        }
+
+        Buffer buffer;
+        if (size > BUFFER_SIZE) {
+            buffer = new Buffer(size);
+        } else {
+            if (m_currentBuffer == null || m_currentBuffer.m_container.b().remaining() < size) {
+                if (m_currentBuffer != null) {
+                    m_currentBuffer.seal();
+                }
+                m_currentBuffer = new Buffer(BUFFER_SIZE);
+            }
+            buffer = m_currentBuffer;
+        }
+
+        ByteBuffer b = buffer.m_container.b();
+        final int offset = b.position();
+        try {
+            // Messages expect a buffer of exactly their serialized size,
+            // so hand them a slice of the shared one.
+            ByteBuffer slice = b.duplicate();
+            slice.limit(offset + size);
+            slice = slice.slice();
+            msg.flattenToBuffer(slice);
+            b.position(offset + slice.position());
+        } catch (Exception e) {
+            // Keep the message itself if it doesn't serialize to its advertised size
+            tmLog.debug("Keeping a repair log message on the heap, it failed to serialize", e);
+            b.position(offset);
+            if (buffer != m_currentBuffer) {
+                buffer.seal();
+            }
+            return new Item(type, msg, handle, txnId);
+        }
+
+        Item item = new Item(type, buffer, offset, b.position() - offset, msg.m_sourceHSId, handle, txnId);
+        m_offHeapBytes += item.m_length;
+        if (buffer != m_currentBuffer) {
+            buffer.seal();
+        }
+        return item;
+    }
+
+    private void updateStats()
+    {
+        m_spEntries = m_logSP.size();
+        m_mpEntries = m_logMP.size();
+        long oldest = Long.MAX_VALUE;
+        Item item = m_logSP.peek();
+        if (item != null) {
+            oldest = item.m_timestamp;
+        }
+        item = m_logMP.peek();
+        if (item != null) {
+            oldest = Math.min(oldest, item.m_timestamp);
+        }
+        m_oldestTimestamp = oldest;
+    }
+
+    // Return the off-heap buffers to the pool, later messages stay on the heap
+    void shutdown()
+    {
+        if (m_shutdown) {
+            return;
+        }
+        m_shutdown = true;
+        truncate(Long.MAX_VALUE, IS_SP);
+        truncate(Long.MAX_VALUE, IS_MP);
+        if (m_currentBuffer != null) {
+            m_currentBuffer.seal();
+            m_currentBuffer = null;
+        }
+        updateStats();
     }
 
     // trim unnecessary log messages.
@@ -209,6 +419,7 @@ public class RepairLog
         while ((item = deq.peek()) != null) {
             if (item.canTruncate(handle)) {
                 deq.poll();
+                item.release();
             } else {
                 break;
             }
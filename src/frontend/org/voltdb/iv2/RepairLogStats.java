@@ -0,0 +1,102 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.voltcore.utils.EstTime;
+import org.voltdb.SiteStatsSource;
+import org.voltdb.VoltSystemProcedure;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Size and age of the repair log of one initiator. OLDEST_ENTRY_AGE_MS is 0
+ * when the log is empty.
+ */
+class RepairLogStats extends SiteStatsSource {
+
+    public enum StatName {
+        SP_ENTRIES,
+        MP_ENTRIES,
+        OFFHEAP_BYTES,
+        BUFFER_BYTES,
+        OLDEST_ENTRY_AGE_MS
+    }
+
+    private final RepairLog m_repairLog;
+    private final int m_partitionId;
+
+    RepairLogStats(long initiatorHSId, int partitionId, RepairLog repairLog) {
+        super(initiatorHSId, false);
+        m_partitionId = partitionId;
+        m_repairLog = repairLog;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo(VoltSystemProcedure.CNAME_PARTITION_ID, VoltSystemProcedure.CTYPE_ID));
+        columns.add(new ColumnInfo(StatName.SP_ENTRIES.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.MP_ENTRIES.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.OFFHEAP_BYTES.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.BUFFER_BYTES.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.OLDEST_ENTRY_AGE_MS.name(), VoltType.BIGINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        final long oldest = m_repairLog.m_oldestTimestamp;
+        rowValues[columnNameToIndex.get(VoltSystemProcedure.CNAME_PARTITION_ID)] = m_partitionId;
+        rowValues[columnNameToIndex.get(StatName.SP_ENTRIES.name())] = m_repairLog.m_spEntries;
+        rowValues[columnNameToIndex.get(StatName.MP_ENTRIES.name())] = m_repairLog.m_mpEntries;
+        rowValues[columnNameToIndex.get(StatName.OFFHEAP_BYTES.name())] = m_repairLog.m_offHeapBytes;
+        rowValues[columnNameToIndex.get(StatName.BUFFER_BYTES.name())] = m_repairLog.m_bufferBytes;
+        rowValues[columnNameToIndex.get(StatName.OLDEST_ENTRY_AGE_MS.name())] =
+                oldest == Long.MAX_VALUE ? 0L : Math.max(0L, EstTime.currentTimeMillis() - oldest);
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        return new Iterator<Object>() {
+            boolean returnRow = true;
+
+            @Override
+            public boolean hasNext() {
+                return returnRow;
+            }
+
+            @Override
+            public Object next() {
+                if (returnRow) {
+                    returnRow = false;
+                    return new Object();
+                } else {
+                    return null;
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
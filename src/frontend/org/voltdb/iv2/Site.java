@@ -20,6 +20,7 @@ package org.voltdb.iv2;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.HashMap;
@@ -90,6 +91,7 @@ import org.voltdb.jni.ExecutionEngine.TaskType;
 import org.voltdb.jni.ExecutionEngineIPC;
 import org.voltdb.jni.ExecutionEngineJNI;
 import org.voltdb.jni.MockExecutionEngine;
+import org.voltdb.jni.PooledVoltTables;
 import org.voltdb.messaging.CompleteTransactionMessage;
 import org.voltdb.messaging.FragmentTaskMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
@@ -113,6 +115,12 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
     private static final double m_taskLogReplayRatio =
             Double.valueOf(System.getProperty("TASKLOG_REPLAY_RATIO", "0.6"));
 
+    // Up to how many queued single statement SP reads to run in one EE call, 1 to disable
+    private static final int SP_READ_BATCH_SIZE =
+            Math.max(1, Math.min(Integer.getInteger("SP_READ_BATCH_SIZE", 1), 200));
+    private final SpProcedureTask[] m_readBatch = new SpProcedureTask[SP_READ_BATCH_SIZE];
+    private final ProcedureRunner[] m_readBatchRunners = new ProcedureRunner[SP_READ_BATCH_SIZE];
+
     // Set to false trigger shutdown.
     volatile boolean m_shouldContinue = true;
 
@@ -157,6 +165,7 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
     // Stats
     final TableStats m_tableStats;
     final IndexStats m_indexStats;
+    final TempTableSpillStats m_spillStats;
     final MemoryStats m_memStats;
 
     // Each execution site manages snapshot using a SnapshotSiteProcessor
@@ -593,11 +602,16 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
             agent.registerStatsSource(StatsSelector.INDEX,
                                       m_siteId,
                                       m_indexStats);
+            m_spillStats = new TempTableSpillStats(m_siteId, partitionId);
+            agent.registerStatsSource(StatsSelector.SPILL,
+                                      m_siteId,
+                                      m_spillStats);
             m_memStats = memStats;
         } else {
             // MPI doesn't need to track these stats
             m_tableStats = null;
             m_indexStats = null;
+            m_spillStats = null;
             m_memStats = null;
         }
     }
@@ -736,6 +750,12 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                 if (m_rejoinState == kStateRunning) {
                     // Normal operation blocks the site thread on the sitetasker queue.
                     SiteTasker task = m_scheduler.take();
+                    if (SP_READ_BATCH_SIZE > 1 && task instanceof SpProcedureTask) {
+                        task = runReadBatch((SpProcedureTask)task);
+                        if (task == null) {
+                            continue;
+                        }
+                    }
                     if (task instanceof TransactionTask) {
                         m_currentTxnId = ((TransactionTask)task).getTxnId();
                         m_lastTxnTime = EstTime.currentTimeMillis();
@@ -794,6 +814,43 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
             CompressionService.releaseThreadLocal();        }
     }
 
+    /**
+     * Run the given task together with the batchable SP reads queued right behind
+     * it, see SpProcedureTask.runReadBatch(). Returns the task taken from the queue
+     * that ended the batch, or the given task itself if it can't start one, for the
+     * run loop to run next.
+     */
+    private SiteTasker runReadBatch(SpProcedureTask first)
+    {
+        final SiteProcedureConnection conn = getSiteProcedureConnection();
+        ProcedureRunner runner = first.getBatchableReadRunner(conn);
+        if (runner == null) {
+            return first;
+        }
+        m_readBatch[0] = first;
+        m_readBatchRunners[0] = runner;
+        int count = 1;
+        SiteTasker next = null;
+        while (count < SP_READ_BATCH_SIZE && (next = m_scheduler.poll()) != null) {
+            if (!(next instanceof SpProcedureTask) ||
+                    (runner = ((SpProcedureTask)next).getBatchableReadRunner(conn)) == null) {
+                break;
+            }
+            m_readBatch[count] = (SpProcedureTask)next;
+            m_readBatchRunners[count++] = runner;
+            next = null;
+        }
+        m_currentTxnId = m_readBatch[count - 1].getTxnId();
+        m_lastTxnTime = EstTime.currentTimeMillis();
+        try {
+            SpProcedureTask.runReadBatch(conn, m_readBatch, m_readBatchRunners, count);
+        } finally {
+            Arrays.fill(m_readBatch, 0, count, null);
+            Arrays.fill(m_readBatchRunners, 0, count, null);
+        }
+        return next;
+    }
+
     ParticipantTransactionState global_replay_mpTxn = null;
     boolean replayFromTaskLog(MinimumRatioMaintainer mrm) throws IOException
     {
@@ -1009,6 +1066,18 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                 undo ? getNextUndoToken(m_currentTxnId) : Long.MAX_VALUE);
     }
 
+    @Override
+    public void bulkLoadTable(int tableId, ByteBuffer rows)
+    {
+        m_ee.bulkLoadTable(tableId, rows);
+    }
+
+    @Override
+    public void finishBulkLoad(int tableId)
+    {
+        m_ee.finishBulkLoad(tableId);
+    }
+
     @Override
     public void updateBackendLogLevels()
     {
@@ -1188,10 +1257,12 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
             long stringMem = 0;
 
             // update table stats
-            final VoltTable[] s1 =
-                m_ee.getStats(StatsSelector.TABLE, tableIds, false, time);
-            if ((s1 != null) && (s1.length > 0)) {
-                VoltTable stats = s1[0];
+            // the tables stay in pooled buffers the stats sources discard
+            // when the next tick replaces them
+            final PooledVoltTables s1 =
+                m_ee.getPooledStats(StatsSelector.TABLE, tableIds, false, time);
+            if ((s1 != null) && (s1.getTables().length > 0)) {
+                VoltTable stats = s1.getTables()[0];
                 assert(stats != null);
 
                 // rollup the table memory stats for this site
@@ -1208,19 +1279,22 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                 }
                 stats.resetRowPosition();
 
-                m_tableStats.setStatsTable(stats);
+                m_tableStats.setStatsTable(stats, s1);
             }
             else {
+                if (s1 != null) {
+                    s1.discard();
+                }
                 // the EE returned no table stats, which means there are no tables.
                 // Need to ensure the cached stats are cleared to reflect that
                 m_tableStats.resetStatsTable();
             }
 
             // update index stats
-            final VoltTable[] s2 =
-                m_ee.getStats(StatsSelector.INDEX, tableIds, false, time);
-            if ((s2 != null) && (s2.length > 0)) {
-                VoltTable stats = s2[0];
+            final PooledVoltTables s2 =
+                m_ee.getPooledStats(StatsSelector.INDEX, tableIds, false, time);
+            if ((s2 != null) && (s2.getTables().length > 0)) {
+                VoltTable stats = s2.getTables()[0];
                 assert(stats != null);
 
                 // rollup the index memory stats for this site
@@ -1231,9 +1305,12 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                 }
                 stats.resetRowPosition();
 
-                m_indexStats.setStatsTable(stats);
+                m_indexStats.setStatsTable(stats, s2);
             }
             else {
+                if (s2 != null) {
+                    s2.discard();
+                }
                 // the EE returned no index stats, which means there are no indexes.
                 // Need to ensure the cached stats are cleared to reflect that
                 m_indexStats.resetStatsTable();
@@ -1249,6 +1326,13 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                                             stringMem,
                                             m_ee.getThreadLocalPoolAllocations());
             }
+
+            // update the temp table spill totals, which only a native EE keeps
+            if (!(m_ee instanceof MockExecutionEngine)) {
+                ByteBuffer spill = ByteBuffer.wrap(
+                        m_ee.executeTask(TaskType.GET_TEMP_TABLE_SPILL_STATS, ByteBuffer.allocate(0)));
+                m_spillStats.update(spill.getLong(), spill.getLong(), spill.getLong());
+            }
         }
     }
 
@@ -1373,7 +1457,8 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                                             long txnId,
                                             long spHandle,
                                             long uniqueId,
-                                            boolean readOnly)
+                                            boolean readOnly,
+                                            boolean timeFragments)
             throws EEException
     {
         return m_ee.executePlanFragments(
@@ -1386,7 +1471,8 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                 spHandle,
                 m_lastCommittedSpHandle,
                 uniqueId,
-                readOnly ? Long.MAX_VALUE : getNextUndoTokenBroken());
+                readOnly ? Long.MAX_VALUE : getNextUndoTokenBroken(),
+                timeFragments);
     }
 
     @Override
@@ -1526,6 +1612,11 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
         m_ee.setProcedureName(procedureName);
     }
 
+    @Override
+    public long getFragmentExecutionNanos(int batchIndex) {
+        return m_ee.getFragmentExecutionNanos(batchIndex);
+    }
+
     @Override
     public void notifyOfSnapshotNonce(String nonce, long snapshotSpHandle) {
         m_initiatorMailbox.notifyOfSnapshotNonce(nonce, snapshotSpHandle);
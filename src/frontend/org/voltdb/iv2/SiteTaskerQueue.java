@@ -14,36 +14,107 @@
  * You should have received a copy of the GNU Affero General Public License
  * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
  */
-
 package org.voltdb.iv2;
 
-import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
+import org.HdrHistogram_voltpatches.Histogram;
+import org.HdrHistogram_voltpatches.SingleWriterRecorder;
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.StarvationTracker;
 
-/** SiteTaskerScheduler orders SiteTaskers for execution. */
+/**
+ * SiteTaskerScheduler orders SiteTaskers for execution.
+ *
+ * Any number of threads offer tasks but only the site thread takes them, so
+ * this is a linked multi-producer single-consumer queue. Offering a task is a
+ * single atomic swap of the tail and taking one never writes anything the
+ * producers read. The site thread spins for QUEUE_SPIN_MICROS and then parks
+ * when the queue runs dry, the next offer unparks it.
+ *
+ * The site thread also records how long each task waited in the queue and how
+ * deep the queue was when it was taken, see TaskQueueStats.
+ */
 public class SiteTaskerQueue
 {
-    private final LinkedTransferQueue<SiteTasker> m_tasks = new LinkedTransferQueue<SiteTasker>();
+    private static final class Node {
+        SiteTasker m_task;
+        long m_offeredAt;
+        volatile Node m_next;
+
+        Node(SiteTasker task, long offeredAt) {
+            m_task = task;
+            m_offeredAt = offeredAt;
+        }
+    }
+
+    // Producers swap their node in here then link it behind the previous tail
+    private final AtomicReference<Node> m_tail;
+    // Consumed node, the next task is in m_head.m_next. Only used by the site thread.
+    private Node m_head;
+
+    private final AtomicLong m_offered = new AtomicLong();
+    private long m_taken = 0;
+
+    // Set while the site thread is parked waiting for a task
+    private volatile Thread m_waiter;
+
     private StarvationTracker m_starvationTracker;
 
+    // Written only by the site thread, sampled by the stats thread
+    private final SingleWriterRecorder m_waitTimes = new SingleWriterRecorder(2);
+    private final SingleWriterRecorder m_depths = new SingleWriterRecorder(2);
+
+    public SiteTaskerQueue()
+    {
+        m_head = new Node(null, 0);
+        m_tail = new AtomicReference<Node>(m_head);
+    }
+
     public boolean offer(SiteTasker task)
     {
-        return m_tasks.offer(task);
+        Node node = new Node(task, System.nanoTime());
+        m_offered.incrementAndGet();
+        Node prev = m_tail.getAndSet(node);
+        prev.m_next = node;
+        Thread waiter = m_waiter;
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+        return true;
     }
 
     // Block on the site tasker queue.
     public SiteTasker take() throws InterruptedException
     {
-        SiteTasker task = m_tasks.poll();
-        if (task == null) {
-            m_starvationTracker.beginStarvation();
-        } else {
+        SiteTasker task = poll();
+        if (task != null) {
             return task;
         }
+        m_starvationTracker.beginStarvation();
         try {
-            return CoreUtils.queueSpinTake(m_tasks);
+            long spinStart = System.nanoTime();
+            while (System.nanoTime() - spinStart < CoreUtils.QUEUE_SPIN_MICROSECONDS) {
+                if ((task = poll()) != null) {
+                    return task;
+                }
+            }
+            m_waiter = Thread.currentThread();
+            try {
+                // Recheck after publishing the waiter, an offer either sees
+                // the waiter and unparks or is visible to this poll.
+                while ((task = poll()) == null) {
+                    LockSupport.park(this);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+                return task;
+            } finally {
+                m_waiter = null;
+            }
         } finally {
             m_starvationTracker.endStarvation();
         }
@@ -52,14 +123,56 @@ public class SiteTaskerQueue
     // Non-blocking poll on the site tasker queue.
     public SiteTasker poll()
     {
-        return m_tasks.poll();
+        Node next = m_head.m_next;
+        if (next == null) {
+            // Empty, or a producer has swapped the tail but not linked it yet.
+            // The producer will link it right away, spin rather than report
+            // a task that was already offered as missing.
+            if (m_tail.get() == m_head) {
+                return null;
+            }
+            while ((next = m_head.m_next) == null) {
+                Thread.yield();
+            }
+        }
+        SiteTasker task = next.m_task;
+        next.m_task = null;
+        m_head = next;
+        final long depth = m_offered.get() - m_taken;
+        m_taken++;
+        m_depths.recordValue(depth);
+        m_waitTimes.recordValue(Math.max(0, (System.nanoTime() - next.m_offeredAt) / 1000));
+        return task;
     }
 
     public boolean isEmpty() {
-        return m_tasks.isEmpty();
+        return m_head.m_next == null && m_tail.get() == m_head;
+    }
+
+    /**
+     * @return tasks offered but not yet taken
+     */
+    public long size() {
+        return Math.max(0, m_offered.get() - m_taken);
     }
 
     public void setStarvationTracker(StarvationTracker tracker) {
         m_starvationTracker = tracker;
     }
+
+    /**
+     * Microseconds each task taken since the last call waited in the queue.
+     * Pass back the previously returned histogram to reuse it.
+     */
+    Histogram getIntervalWaitTimes(Histogram recycle) {
+        return m_waitTimes.getIntervalHistogram(recycle);
+    }
+
+    /**
+     * Queue depth seen by each task taken since the last call, itself included.
+     * Pass back the previously returned histogram to reuse it.
+     */
+    Histogram getIntervalDepths(Histogram recycle) {
+        return m_depths.getIntervalHistogram(recycle);
+    }
 }
@@ -24,11 +24,14 @@ import org.voltcore.messaging.Mailbox;
 import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.LatencyWatchdog;
 import org.voltdb.ClientResponseImpl;
+import org.voltdb.ParameterSet;
 import org.voltdb.PartitionDRGateway;
+import org.voltdb.ProcedureRunner;
 import org.voltdb.SiteProcedureConnection;
 import org.voltdb.VoltTable;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.client.BatchTimeoutOverrideType;
+import org.voltdb.dtxn.TransactionState;
 import org.voltdb.messaging.InitiateResponseMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
 import org.voltdb.rejoin.TaskLog;
@@ -108,6 +111,103 @@ public class SpProcedureTask extends ProcedureTask
         logToDR(txnState, response);
     }
 
+    /**
+     * The runner of this transaction's procedure if the transaction can join a
+     * read batch, see ProcedureRunner.isBatchableRead(), null otherwise.
+     */
+    ProcedureRunner getBatchableReadRunner(SiteProcedureConnection siteConnection)
+    {
+        if (!m_txnState.isReadOnly() ||
+                BatchTimeoutOverrideType.isUserSetTimeout(m_txnState.getInvocation().getBatchTimeout())) {
+            return null;
+        }
+        ProcedureRunner runner = siteConnection.getProcedureRunner(m_procName);
+        if (runner == null || !runner.isBatchableRead()) {
+            return null;
+        }
+        return runner;
+    }
+
+    /**
+     * Run consecutive read transactions taken from the site's queue, all with a
+     * runner from getBatchableReadRunner(), with their statements in one call
+     * to the EE. Nothing writes in between, so this is the same as running them
+     * one after the other. A transaction whose parameters or partitioning don't
+     * check out, or every transaction if the EE fails the batch, runs on its own
+     * instead to produce exactly the response it would have had. Responses go
+     * out in queue order either way, the client interface expects them so.
+     */
+    static void runReadBatch(SiteProcedureConnection siteConnection,
+                             SpProcedureTask[] tasks,
+                             ProcedureRunner[] runners,
+                             int count)
+    {
+        LatencyWatchdog.pet();
+
+        final ProcedureRunner[] batchRunners = new ProcedureRunner[count];
+        final ParameterSet[] params = new ParameterSet[count];
+        final TransactionState[] txnStates = new TransactionState[count];
+        // the index in the batch of each task, -1 for those that run on their own
+        final int[] batchIndexes = new int[count];
+        int batched = 0;
+        for (int i = 0; i < count; i++) {
+            SpProcedureTask task = tasks[i];
+            ParameterSet taskParams = null;
+            task.waitOnDurabilityBackpressureFuture();
+            try {
+                Object[] callerParams = ((SpTransactionState)task.m_txnState).m_initiationMsg.getParameters();
+                if (runners[i].checkPartition(task.m_txnState, siteConnection.getCurrentHashinator())) {
+                    taskParams = runners[i].prepareBatchedRead(callerParams);
+                }
+            } catch (RuntimeException e) {
+                // leave it to run() to report
+            }
+            if (taskParams == null) {
+                batchIndexes[i] = -1;
+                continue;
+            }
+            batchIndexes[i] = batched;
+            batchRunners[batched] = runners[i];
+            params[batched] = taskParams;
+            txnStates[batched] = task.m_txnState;
+            batched++;
+        }
+
+        ClientResponseImpl[] responses = null;
+        if (batched > 1) {
+            responses = ProcedureRunner.executeReadBatch(batchRunners, params, txnStates, batched);
+        }
+        for (int i = 0; i < count; i++) {
+            if (responses == null || batchIndexes[i] < 0) {
+                tasks[i].run(siteConnection);
+            } else {
+                tasks[i].completeBatchedRead(siteConnection, responses[batchIndexes[i]]);
+            }
+        }
+    }
+
+    /** Second half of run() for a transaction whose statement ran in a read batch */
+    private void completeBatchedRead(SiteProcedureConnection siteConnection, ClientResponseImpl cr)
+    {
+        if (HOST_DEBUG_ENABLED) {
+            hostLog.debug("STARTING BATCHED: " + this);
+        }
+        SpTransactionState txnState = (SpTransactionState)m_txnState;
+        final InitiateResponseMessage response = new InitiateResponseMessage(txnState.m_initiationMsg);
+        m_txnState.setHash(cr.getHash());
+        response.setResults(cr);
+
+        completeInitiateTask(siteConnection);
+        response.m_sourceHSId = m_initiator.getHSId();
+        m_initiator.deliver(response);
+        if (EXEC_TRACE_ENABLED) {
+            execLog.l7dlog( Level.TRACE, LogKeys.org_voltdb_ExecutionSite_SendingCompletedWUToDtxn.name(), null);
+        }
+        if (HOST_DEBUG_ENABLED) {
+            hostLog.debug("COMPLETE: " + this);
+        }
+    }
+
     @Override
     public void runForRejoin(SiteProcedureConnection siteConnection, TaskLog taskLog)
     throws IOException
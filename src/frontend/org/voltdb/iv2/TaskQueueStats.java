@@ -0,0 +1,148 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.HdrHistogram_voltpatches.Histogram;
+import org.voltdb.SiteStatsSource;
+import org.voltdb.VoltSystemProcedure;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Depth of a site's task queue and how long tasks waited in it before the
+ * site took them. Percentiles come from histograms recorded by the site thread
+ * as it takes each task, waits are in microseconds.
+ */
+class TaskQueueStats extends SiteStatsSource {
+
+    public enum StatName {
+        CURRENT_DEPTH,
+        TASKS,
+        DEPTH_AVG,
+        DEPTH_P99,
+        DEPTH_MAX,
+        WAIT_AVG,
+        WAIT_P50,
+        WAIT_P99,
+        WAIT_MAX
+    }
+
+    private final SiteTaskerQueue m_queue;
+    private final int m_partitionId;
+
+    // Everything recorded since startup, and since the last interval poll
+    private final Histogram m_totalWaits = new Histogram(2);
+    private final Histogram m_totalDepths = new Histogram(2);
+    private final Histogram m_intervalWaits = new Histogram(2);
+    private final Histogram m_intervalDepths = new Histogram(2);
+    // Handed back to the queue to swap in on the next sample
+    private Histogram m_sampledWaits = null;
+    private Histogram m_sampledDepths = null;
+
+    private Histogram m_waits;
+    private Histogram m_depths;
+
+    TaskQueueStats(long siteId, int partitionId, SiteTaskerQueue queue) {
+        super(siteId, false);
+        m_partitionId = partitionId;
+        m_queue = queue;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo(VoltSystemProcedure.CNAME_PARTITION_ID, VoltSystemProcedure.CTYPE_ID));
+        columns.add(new ColumnInfo(StatName.CURRENT_DEPTH.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.TASKS.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.DEPTH_AVG.name(), VoltType.FLOAT));
+        columns.add(new ColumnInfo(StatName.DEPTH_P99.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.DEPTH_MAX.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.WAIT_AVG.name(), VoltType.FLOAT));
+        columns.add(new ColumnInfo(StatName.WAIT_P50.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.WAIT_P99.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.WAIT_MAX.name(), VoltType.BIGINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        final long tasks = m_waits.getTotalCount();
+        rowValues[columnNameToIndex.get(VoltSystemProcedure.CNAME_PARTITION_ID)] = m_partitionId;
+        rowValues[columnNameToIndex.get(StatName.CURRENT_DEPTH.name())] = m_queue.size();
+        rowValues[columnNameToIndex.get(StatName.TASKS.name())] = tasks;
+        rowValues[columnNameToIndex.get(StatName.DEPTH_AVG.name())] = tasks == 0 ? 0.0 : m_depths.getMean();
+        rowValues[columnNameToIndex.get(StatName.DEPTH_P99.name())] = m_depths.getValueAtPercentile(99.0);
+        rowValues[columnNameToIndex.get(StatName.DEPTH_MAX.name())] = m_depths.getMaxValue();
+        rowValues[columnNameToIndex.get(StatName.WAIT_AVG.name())] = tasks == 0 ? 0.0 : m_waits.getMean();
+        rowValues[columnNameToIndex.get(StatName.WAIT_P50.name())] = m_waits.getValueAtPercentile(50.0);
+        rowValues[columnNameToIndex.get(StatName.WAIT_P99.name())] = m_waits.getValueAtPercentile(99.0);
+        rowValues[columnNameToIndex.get(StatName.WAIT_MAX.name())] = m_waits.getMaxValue();
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    /**
+     * Fold what the site recorded since the last poll into the running totals
+     * and pick the histograms this poll reports.
+     */
+    private synchronized void sample(boolean interval) {
+        m_sampledWaits = m_queue.getIntervalWaitTimes(m_sampledWaits);
+        m_sampledDepths = m_queue.getIntervalDepths(m_sampledDepths);
+        m_totalWaits.add(m_sampledWaits);
+        m_totalDepths.add(m_sampledDepths);
+        m_intervalWaits.add(m_sampledWaits);
+        m_intervalDepths.add(m_sampledDepths);
+        if (interval) {
+            m_waits = m_intervalWaits.copy();
+            m_depths = m_intervalDepths.copy();
+            m_intervalWaits.reset();
+            m_intervalDepths.reset();
+        } else {
+            m_waits = m_totalWaits;
+            m_depths = m_totalDepths;
+        }
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        sample(interval);
+        return new Iterator<Object>() {
+            boolean returnRow = true;
+
+            @Override
+            public boolean hasNext() {
+                return returnRow;
+            }
+
+            @Override
+            public Object next() {
+                if (returnRow) {
+                    returnRow = false;
+                    return new Object();
+                } else {
+                    return null;
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
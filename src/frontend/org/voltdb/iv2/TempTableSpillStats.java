@@ -0,0 +1,125 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.voltdb.SiteStatsSource;
+import org.voltdb.VoltSystemProcedure;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Temp table data a site's plan fragments spilled to scratch files once they
+ * reached the temp table memory limit, as in external sorts and partitioned
+ * hash aggregation. The EE keeps running totals that the site copies in on
+ * each stats tick; spill time is in milliseconds.
+ */
+class TempTableSpillStats extends SiteStatsSource {
+
+    public enum StatName {
+        SPILLING_FRAGMENTS,
+        SPILLED_BYTES,
+        SPILL_TIME
+    }
+
+    private final int m_partitionId;
+
+    // EE totals as of the last tick, and as of the last interval poll
+    private long m_fragments = 0;
+    private long m_bytes = 0;
+    private long m_nanos = 0;
+    private long m_intervalFragments = 0;
+    private long m_intervalBytes = 0;
+    private long m_intervalNanos = 0;
+
+    // what the current poll reports
+    private long m_reportedFragments;
+    private long m_reportedBytes;
+    private long m_reportedNanos;
+
+    TempTableSpillStats(long siteId, int partitionId) {
+        super(siteId, false);
+        m_partitionId = partitionId;
+    }
+
+    /** Called on the site thread with the running totals of its EE. */
+    synchronized void update(long spillingFragments, long spilledBytes, long spillTimeNanos) {
+        m_fragments = spillingFragments;
+        m_bytes = spilledBytes;
+        m_nanos = spillTimeNanos;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo(VoltSystemProcedure.CNAME_PARTITION_ID, VoltSystemProcedure.CTYPE_ID));
+        columns.add(new ColumnInfo(StatName.SPILLING_FRAGMENTS.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.SPILLED_BYTES.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.SPILL_TIME.name(), VoltType.BIGINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        rowValues[columnNameToIndex.get(VoltSystemProcedure.CNAME_PARTITION_ID)] = m_partitionId;
+        rowValues[columnNameToIndex.get(StatName.SPILLING_FRAGMENTS.name())] = m_reportedFragments;
+        rowValues[columnNameToIndex.get(StatName.SPILLED_BYTES.name())] = m_reportedBytes;
+        rowValues[columnNameToIndex.get(StatName.SPILL_TIME.name())] = m_reportedNanos / 1000000;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected synchronized Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        if (interval) {
+            m_reportedFragments = m_fragments - m_intervalFragments;
+            m_reportedBytes = m_bytes - m_intervalBytes;
+            m_reportedNanos = m_nanos - m_intervalNanos;
+            m_intervalFragments = m_fragments;
+            m_intervalBytes = m_bytes;
+            m_intervalNanos = m_nanos;
+        } else {
+            m_reportedFragments = m_fragments;
+            m_reportedBytes = m_bytes;
+            m_reportedNanos = m_nanos;
+        }
+        return new Iterator<Object>() {
+            boolean returnRow = true;
+
+            @Override
+            public boolean hasNext() {
+                return returnRow;
+            }
+
+            @Override
+            public Object next() {
+                if (returnRow) {
+                    returnRow = false;
+                    return new Object();
+                } else {
+                    return null;
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
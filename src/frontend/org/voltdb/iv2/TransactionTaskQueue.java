@@ -20,6 +20,8 @@ package org.voltdb.iv2;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltdb.dtxn.TransactionState;
@@ -28,8 +30,18 @@ public class TransactionTaskQueue
 {
     protected static final VoltLogger hostLog = new VoltLogger("HOST");
 
+    /*
+     * Let the fragments of several read-only multi-part transactions run
+     * interleaved at this partition instead of one multi-part at a time.
+     * Off unless enabled with -DPIPELINE_MP_READS=true.
+     */
+    static final boolean PIPELINE_MP_READS =
+            Boolean.valueOf(System.getProperty("PIPELINE_MP_READS", "false"));
+
     final protected SiteTaskerQueue m_taskQueue;
 
+    private final boolean m_pipelineMpReads;
+
     /*
      * Multi-part transactions create a backlog of tasks behind them. A queue is
      * created for each multi-part task to maintain the backlog until the next
@@ -37,15 +49,39 @@ public class TransactionTaskQueue
      */
     private Deque<TransactionTask> m_backlog = new ArrayDeque<TransactionTask>();
 
+    /*
+     * Read-only multi-part transactions released while the head of the backlog
+     * is itself a read-only multi-part, keyed by txnId in the order they were
+     * released. Nothing that writes may run until all of them are done, so they
+     * take turns at the head of the backlog as the previous head completes.
+     */
+    private final Map<Long, TransactionTask> m_concurrentReads =
+        new LinkedHashMap<Long, TransactionTask>();
+
+    /*
+     * Whether anything is in the backlog, readable without the lock. The site
+     * thread flushes after every transaction; when no multi-part is blocking
+     * the queue that flush has nothing to do and shouldn't contend with the
+     * threads offering new tasks. Set before the blocking task is offered to
+     * the site, so the site can never miss a backlog its own task created.
+     */
+    private volatile boolean m_hasBacklog = false;
+
     /*
      * Track the maximum spHandle offered to the task queue
      */
     private long m_maxTaskedSpHandle;
 
     TransactionTaskQueue(SiteTaskerQueue queue, long initialSpHandle)
+    {
+        this(queue, initialSpHandle, PIPELINE_MP_READS);
+    }
+
+    TransactionTaskQueue(SiteTaskerQueue queue, long initialSpHandle, boolean pipelineMpReads)
     {
         m_taskQueue = queue;
         m_maxTaskedSpHandle = initialSpHandle;
+        m_pipelineMpReads = pipelineMpReads;
     }
 
     /**
@@ -70,14 +106,22 @@ public class TransactionTaskQueue
              * are being queued behind it. The txnid check catches tasks that are part of the multi-part
              * and immediately queues them for execution.
              */
-            if (task.getTxnId() != m_backlog.getFirst().getTxnId())
-            {
-                m_backlog.addLast(task);
-                retval = true;
+            if (task.getTxnId() == m_backlog.getFirst().getTxnId() ||
+                    m_concurrentReads.containsKey(task.getTxnId())) {
+                taskQueueOffer(task);
             }
-            else {
+            else if (m_backlog.size() == 1 && canRunAlongsideHead(task)) {
+                /*
+                 * Nothing is waiting and both this and the blocking multi-part only
+                 * read, start this one now instead of after the head completes.
+                 */
+                m_concurrentReads.put(task.getTxnId(), task);
                 taskQueueOffer(task);
             }
+            else {
+                m_backlog.addLast(task);
+                retval = true;
+            }
         }
         else {
             /*
@@ -88,6 +132,7 @@ public class TransactionTaskQueue
              */
             if (!txnState.isSinglePartition()) {
                 m_backlog.addLast(task);
+                m_hasBacklog = true;
                 retval = true;
             }
             taskQueueOffer(task);
@@ -95,6 +140,25 @@ public class TransactionTaskQueue
         return retval;
     }
 
+    /**
+     * A task may be released ahead of the blocking multi-part if both are
+     * read-only multi-part user transactions. Sysprocs are left alone since
+     * some of them rely on the backlog to sequence side effects.
+     */
+    private boolean canRunAlongsideHead(TransactionTask task)
+    {
+        return m_pipelineMpReads && isPipelinableRead(task) && isPipelinableRead(m_backlog.getFirst());
+    }
+
+    private static boolean isPipelinableRead(TransactionTask task)
+    {
+        TransactionState txnState = task.getTransactionState();
+        return task instanceof FragmentTask &&
+            txnState.isReadOnly() &&
+            !txnState.isSinglePartition() &&
+            !((FragmentTask)task).m_fragmentMsg.isSysProcTask();
+    }
+
     // Add a local method to offer to the SiteTaskerQueue so we have
     // a single point we can log through.
     private void taskQueueOffer(TransactionTask task)
@@ -115,7 +179,15 @@ public class TransactionTaskQueue
      * @param txnId The transaction ID of the TransactionTask which is completing and causing the flush
      * @return the number of TransactionTasks queued to the SiteTaskerQueue
      */
-    synchronized int flush(long txnId)
+    int flush(long txnId)
+    {
+        if (!m_hasBacklog) {
+            return 0;
+        }
+        return flushBacklog();
+    }
+
+    private synchronized int flushBacklog()
     {
         int offered = 0;
         // If the first entry of the backlog is a completed transaction, clear it so it no longer
@@ -132,10 +204,24 @@ public class TransactionTaskQueue
         // If we don't flush all the associated tasks now then flush won't be called again because it is waiting
         // for the complete transaction task that is languishing in the queue to do the flush post multi-part.
         // It can't be called eagerly because that would destructively flush single parts as well.
+        Iterator<TransactionTask> readIter = m_concurrentReads.values().iterator();
+        while (readIter.hasNext()) {
+            if (readIter.next().getTransactionState().isDone()) {
+                readIter.remove();
+            }
+        }
         if (m_backlog.isEmpty() || !m_backlog.getFirst().getTransactionState().isDone()) {
             return offered;
         }
         m_backlog.removeFirst();
+        // Reads that started alongside the completed head still block everything
+        // else, the oldest of them becomes the new head. It was already offered.
+        if (!m_concurrentReads.isEmpty()) {
+            readIter = m_concurrentReads.values().iterator();
+            m_backlog.addFirst(readIter.next());
+            readIter.remove();
+            return offered;
+        }
         Iterator<TransactionTask> iter = m_backlog.iterator();
         while (iter.hasNext()) {
             TransactionTask task = iter.next();
@@ -161,6 +247,36 @@ public class TransactionTaskQueue
                 break;
             }
         }
+        offered += releaseConcurrentReads();
+        m_hasBacklog = !m_backlog.isEmpty();
+        return offered;
+    }
+
+    /**
+     * If the new head of the backlog is a read-only multi-part, also start the
+     * read-only multi-parts queued directly behind it. Stops at the first task
+     * that can't run alongside the head so nothing is reordered around a write.
+     */
+    private int releaseConcurrentReads()
+    {
+        int offered = 0;
+        if (!m_pipelineMpReads || m_backlog.size() < 2 || !isPipelinableRead(m_backlog.getFirst())) {
+            return offered;
+        }
+        Iterator<TransactionTask> iter = m_backlog.iterator();
+        iter.next();
+        while (iter.hasNext()) {
+            TransactionTask task = iter.next();
+            if (!isPipelinableRead(task) && !m_concurrentReads.containsKey(task.getTxnId())) {
+                break;
+            }
+            iter.remove();
+            if (!m_concurrentReads.containsKey(task.getTxnId())) {
+                m_concurrentReads.put(task.getTxnId(), task);
+            }
+            taskQueueOffer(task);
+            ++offered;
+        }
         return offered;
     }
 
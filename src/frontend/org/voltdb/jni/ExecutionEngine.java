@@ -63,7 +63,8 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
         SET_DR_PROTOCOL_VERSION(3),
         SP_JAVA_GET_DRID_TRACKER(4),
         SET_DRID_TRACKER(5),
-        GENERATE_DR_EVENT(6);
+        GENERATE_DR_EVENT(6),
+        GET_TEMP_TABLE_SPILL_STATS(7);
 
         private TaskType(int taskId) {
             this.taskId = taskId;
@@ -107,6 +108,7 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
 
     /** Statistics collector (provided later) */
     private PlannerStatsCollector m_plannerStats = null;
+    private long m_plannerStatsStartTime = 0;
 
     // used for tracking statistics about the plan cache in the EE
     private int m_cacheMisses = 0;
@@ -126,6 +128,9 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
 
     String m_currentProcedureName = null;
     int m_currentBatchIndex = 0;
+    /** Nanoseconds each fragment of the last timed batch took in the EE */
+    long[] m_fragmentNanos = new long[0];
+    int m_fragmentNanosCount = 0;
     private boolean m_readOnly;
     private long m_startTime;
     private long m_lastMsgTime;
@@ -137,6 +142,25 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
     public long m_lastTuplesAccessed = 0;
     public long m_currMemoryInBytes = 0;
     public long m_peakMemoryInBytes = 0;
+    public long m_spilledBytes = 0;
+    public long m_spillTimeNanos = 0;
+
+    /**
+     * Calls that returned result tables, and the heap allocations and bytes
+     * spent copying those tables out of the EE, to measure copy-free paths.
+     */
+    public long m_resultCalls = 0;
+    public long m_resultHeapAllocations = 0;
+    public long m_resultHeapBytes = 0;
+
+    protected void countResultCall() {
+        m_resultCalls++;
+    }
+
+    protected void countResultHeapCopy(int bytes) {
+        m_resultHeapAllocations++;
+        m_resultHeapBytes += bytes;
+    }
 
     /** Make the EE clean and ready to do new transactional work. */
     public void resetDirtyStatus() {
@@ -376,12 +400,16 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
             int planNodeTypeAsInt,
             long tuplesProcessed,
             long currMemoryInBytes,
-            long peakMemoryInBytes)
+            long peakMemoryInBytes,
+            long spilledBytes,
+            long spillTimeNanos)
     {
         ++m_callsFromEE;
         m_lastTuplesAccessed = tuplesProcessed;
         m_currMemoryInBytes = currMemoryInBytes;
         m_peakMemoryInBytes = peakMemoryInBytes;
+        m_spilledBytes = spilledBytes;
+        m_spillTimeNanos = spillTimeNanos;
 
         long currentTime = System.currentTimeMillis();
         if (m_startTime == 0) {
@@ -439,7 +467,8 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
                         "%d to voltExecuteSQL on site " +
                         "%s. Current temp table uses " +
                         "%d bytes memory, and the peak usage of memory for temp table is " +
-                        "%d bytes.",
+                        "%d bytes. %d bytes of temp table data were spilled to disk in " +
+                        "%.2f seconds.",
                         m_currentProcedureName,
                         status,
                         latency / 1000.0,
@@ -448,7 +477,9 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
                         m_currentBatchIndex,
                         CoreUtils.hsIdToString(m_siteId),
                         m_currMemoryInBytes,
-                        m_peakMemoryInBytes);
+                        m_peakMemoryInBytes,
+                        m_spilledBytes,
+                        m_spillTimeNanos / 1000000000.0);
 
         if (m_sqlTexts != null
                 && indexFromFragmentTask >= 0
@@ -522,6 +553,32 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
     public abstract Pair<Long, int[]> tableStreamSerializeMore(int tableId, TableStreamType type,
                                                                List<DBBPool.BBContainer> outputBuffers);
 
+    /**
+     * Load a serialized table into an empty table with index maintenance
+     * deferred until {@link #finishBulkLoad(int)}. Used to load the snapshot
+     * data streamed to a rejoining site without a round trip through a heap copy.
+     * Engines that can't defer index maintenance load the rows normally.
+     *
+     * @param tableId Catalog ID of the table
+     * @param rows Serialized table between position and limit, preferably direct
+     */
+    public void bulkLoadTable(int tableId, ByteBuffer rows) {
+        ByteBuffer copy = ByteBuffer.allocate(rows.remaining());
+        copy.put(rows.duplicate());
+        copy.flip();
+        VoltTable table = PrivateVoltTableFactory.createVoltTableFromBuffer(copy, true);
+        loadTable(tableId, table, 0, 0, 0, 0, false, false, Long.MAX_VALUE);
+    }
+
+    /**
+     * Build the indexes of a table whose maintenance was deferred by
+     * {@link #bulkLoadTable(int, ByteBuffer)}.
+     *
+     * @param tableId Catalog ID of the table
+     */
+    public void finishBulkLoad(int tableId) {
+    }
+
     public abstract void processRecoveryMessage( ByteBuffer buffer, long pointer);
 
     /** Releases the Engine object. */
@@ -553,6 +610,25 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
         m_currentProcedureName = procedureName;
     }
 
+    /**
+     * The time the EE spent on the fragment at the given index of the last
+     * batch, or 0 if that batch wasn't timed or the engine doesn't measure it.
+     */
+    public long getFragmentExecutionNanos(int batchIndex) {
+        return batchIndex < m_fragmentNanosCount ? m_fragmentNanos[batchIndex] : 0;
+    }
+
+    /** Read the fragment times the EE writes after the results of a timed batch */
+    final void readFragmentNanos(ByteBuffer buf, int batchSize) {
+        if (m_fragmentNanos.length < batchSize) {
+            m_fragmentNanos = new long[batchSize];
+        }
+        for (int i = 0; i < batchSize; ++i) {
+            m_fragmentNanos[i] = buf.getLong();
+        }
+        m_fragmentNanosCount = batchSize;
+    }
+
     /** Run multiple plan fragments */
     public VoltTable[] executePlanFragments(int numFragmentIds,
                                             long[] planFragmentIds,
@@ -565,6 +641,28 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
                                             long uniqueId,
                                             long undoQuantumToken) throws EEException
     {
+        return executePlanFragments(numFragmentIds, planFragmentIds, inputDepIds, parameterSets, sqlTexts,
+                txnId, spHandle, lastCommittedSpHandle, uniqueId, undoQuantumToken, false);
+    }
+
+    /**
+     * Run multiple plan fragments. If timeFragments is set the EE also reports
+     * the time of each fragment, see getFragmentExecutionNanos().
+     */
+    public VoltTable[] executePlanFragments(int numFragmentIds,
+                                            long[] planFragmentIds,
+                                            long[] inputDepIds,
+                                            Object[] parameterSets,
+                                            String[] sqlTexts,
+                                            long txnId,
+                                            long spHandle,
+                                            long lastCommittedSpHandle,
+                                            long uniqueId,
+                                            long undoQuantumToken,
+                                            boolean timeFragments) throws EEException
+    {
+        // forget the times of the previous batch, engines only set them for timed batches
+        m_fragmentNanosCount = 0;
         try {
             // For now, re-transform undoQuantumToken to readOnly. Redundancy work in site.executePlanFragments()
             m_readOnly = (undoQuantumToken == Long.MAX_VALUE) ? true : false;
@@ -575,7 +673,8 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
             m_sqlTexts = sqlTexts;
 
             VoltTable[] results = coreExecutePlanFragments(numFragmentIds, planFragmentIds, inputDepIds,
-                    parameterSets, txnId, spHandle, lastCommittedSpHandle, uniqueId, undoQuantumToken);
+                    parameterSets, txnId, spHandle, lastCommittedSpHandle, uniqueId, undoQuantumToken,
+                    timeFragments);
             m_plannerStats.updateEECacheStats(m_eeCacheSize, numFragmentIds - m_cacheMisses,
                     m_cacheMisses, m_partitionId);
             return results;
@@ -598,7 +697,8 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
                                                             long spHandle,
                                                             long lastCommittedSpHandle,
                                                             long uniqueId,
-                                                            long undoQuantumToken) throws EEException;
+                                                            long undoQuantumToken,
+                                                            boolean timeFragments) throws EEException;
 
     /** Used for test code only (AFAIK jhugg) */
     public abstract VoltTable serializeTable(int tableId) throws EEException;
@@ -645,6 +745,22 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
             boolean interval,
             Long now);
 
+    /**
+     * Retrieve a set of statistics like {@link #getStats}, without copying
+     * each result table to the Java heap where the engine supports it. The
+     * caller owns the returned tables and must discard them once read.
+     * @return The result tables, or null on failure.
+     */
+    public PooledVoltTables getPooledStats(
+            StatsSelector selector,
+            int locators[],
+            boolean interval,
+            Long now)
+    {
+        final VoltTable[] results = getStats(selector, locators, interval, now);
+        return results == null ? null : new PooledVoltTables(null, results);
+    }
+
     /**
      * Instruct the EE to start/stop its profiler.
      */
@@ -767,6 +883,8 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      * @param partitionId id of partitioned assigned to this EE
      * @param hostId id of the host this EE is running on
      * @param hostname name of the host this EE is running on
+     * @param tempTableSpillLimit bytes of temp table data a fragment may spill to disk, 0 to disable spilling
+     * @param tempTableSpillDirectory where spilled temp table data is written
      * @return error code
      */
     protected native int nativeInitialize(
@@ -781,7 +899,9 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
             long tempTableMemory,
             long networkBufferSize,
             boolean createDrReplicatedStream,
-            int compactionThreshold);
+            int compactionThreshold,
+            long tempTableSpillLimit,
+            byte tempTableSpillDirectory[]);
 
     /**
      * Sets (or re-sets) all the shared direct byte buffers in the EE.
@@ -838,6 +958,7 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      * @param pointer the VoltDBEngine pointer
      * @param planFragmentIds ID of the plan fragment to be executed.
      * @param inputDepIds list of input dependency ids or null if no deps expected
+     * @param timeFragments write the time of each fragment after the results
      * @return error code
      */
     protected native int nativeExecutePlanFragments(
@@ -849,7 +970,8 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
             long spHandle,
             long lastCommittedSpHandle,
             long uniqueId,
-            long undoToken);
+            long undoToken,
+            boolean timeFragments);
 
     /**
      * Serialize the result temporary table.
@@ -967,6 +1089,25 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      */
     protected native long nativeTableStreamSerializeMore(long pointer, int tableId, int streamType, byte[] data);
 
+    /**
+     * Load a serialized table from a direct buffer into an empty table, deferring index builds.
+     * @param pointer Pointer to an engine instance
+     * @param tableId Catalog ID of the table
+     * @param buffer Direct buffer holding the serialized table
+     * @param offset Position of the serialized table in the buffer
+     * @param length Length of the serialized table
+     * @return error code
+     */
+    protected native int nativeBulkLoadTable(long pointer, int tableId, ByteBuffer buffer, int offset, int length);
+
+    /**
+     * Build the indexes deferred by nativeBulkLoadTable.
+     * @param pointer Pointer to an engine instance
+     * @param tableId Catalog ID of the table
+     * @return error code
+     */
+    protected native int nativeFinishBulkLoad(long pointer, int tableId);
+
     /**
      * Process a recovery message and load the data it contains.
      * @param pointer Pointer to an engine instance
@@ -1046,7 +1187,7 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      */
     protected void startStatsCollection() {
         if (m_plannerStats != null) {
-            m_plannerStats.startStatsCollection();
+            m_plannerStatsStartTime = m_plannerStats.startStatsCollection();
         }
     }
 
@@ -1058,7 +1199,7 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      */
     protected void endStatsCollection(long cacheSize, CacheUse cacheUse) {
         if (m_plannerStats != null) {
-            m_plannerStats.endStatsCollection(cacheSize, 0, cacheUse, m_partitionId);
+            m_plannerStats.endStatsCollection(m_plannerStatsStartTime, cacheSize, 0, cacheUse, m_partitionId);
         }
     }
 
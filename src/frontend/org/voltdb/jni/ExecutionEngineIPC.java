@@ -433,9 +433,10 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         /**
          * Read and deserialize some number of tables from the wire. Assumes that the message is length prefixed.
          * @param tables Output array as well as indicator of exactly how many tables to read off of the wire
+         * @param timeFragments whether the time of each fragment follows the tables
          * @throws IOException
          */
-        public void readResultTables(final VoltTable tables[]) throws IOException {
+        public void readResultTables(final VoltTable tables[], boolean timeFragments) throws IOException {
             final ByteBuffer resultTablesLengthBytes = ByteBuffer.allocate(4);
 
             //resultTablesLengthBytes.order(ByteOrder.LITTLE_ENDIAN);
@@ -483,6 +484,9 @@ public class ExecutionEngineIPC extends ExecutionEngine {
                 resultTablesBuffer.getInt(); // ignore the dependency ID
                 tables[ii] = PrivateVoltTableFactory.createVoltTableFromSharedBuffer(resultTablesBuffer);
             }
+            if (timeFragments) {
+                readFragmentNanos(resultTablesBuffer, tables.length);
+            }
         }
 
         /**
@@ -812,7 +816,8 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             final long spHandle,
             final long lastCommittedSpHandle,
             final long uniqueId,
-            final long undoToken)
+            final long undoToken,
+            final boolean timeFragments)
     {
         // big endian, not direct
         final FastSerializer fser = new FastSerializer();
@@ -851,6 +856,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         m_data.putLong(lastCommittedSpHandle);
         m_data.putLong(uniqueId);
         m_data.putLong(undoToken);
+        m_data.putInt(timeFragments ? 1 : 0);
         m_data.putInt(numFragmentIds);
         for (int i = 0; i < numFragmentIds; ++i) {
             m_data.putLong(planFragmentIds[i]);
@@ -880,10 +886,11 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             final long spHandle,
             final long lastCommittedSpHandle,
             final long uniqueId,
-            final long undoToken) throws EEException {
+            final long undoToken,
+            final boolean timeFragments) throws EEException {
         sendPlanFragmentsInvocation(Commands.QueryPlanFragments,
                 numFragmentIds, planFragmentIds, inputDepIds, parameterSets, txnId,
-                spHandle, lastCommittedSpHandle, uniqueId, undoToken);
+                spHandle, lastCommittedSpHandle, uniqueId, undoToken, timeFragments);
         int result = ExecutionEngine.ERRORCODE_ERROR;
 
         while (true) {
@@ -904,8 +911,10 @@ public class ExecutionEngineIPC extends ExecutionEngine {
                     long tuplesFound = m_connection.readLong();
                     long currMemoryInBytes = m_connection.readLong();
                     long peakMemoryInBytes = m_connection.readLong();
+                    long spilledBytes = m_connection.readLong();
+                    long spillTimeNanos = m_connection.readLong();
                     long nextStep = fragmentProgressUpdate(batchIndex, planNodeTypeAsInt, tuplesFound,
-                            currMemoryInBytes, peakMemoryInBytes);
+                            currMemoryInBytes, peakMemoryInBytes, spilledBytes, spillTimeNanos);
                     m_data.clear();
                     m_data.putLong(nextStep);
                     m_data.flip();
@@ -917,7 +926,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
                         resultTables[ii] = PrivateVoltTableFactory.createUninitializedVoltTable();
                     }
                     try {
-                        m_connection.readResultTables(resultTables);
+                        m_connection.readResultTables(resultTables, timeFragments);
                     } catch (final IOException e) {
                         throw new EEException(
                                 ExecutionEngine.ERRORCODE_WRONG_SERIALIZED_BYTES);
@@ -62,6 +62,16 @@ public class ExecutionEngineJNI extends ExecutionEngine {
      */
     public static final int EE_COMPACTION_THRESHOLD;
 
+    /*
+     * Megabytes of temp table data each plan fragment may spill to scratch files
+     * in EE_SPILL_DIRECTORY once its temp tables reach the temp table memory limit.
+     * Large sorts and hash aggregates then run out of core instead of failing.
+     * 0, the default, disables spilling.
+     */
+    public static final int EE_SPILL_LIMIT_MB = Integer.getInteger("EE_SPILL_LIMIT_MB", 0);
+    public static final String EE_SPILL_DIRECTORY =
+            System.getProperty("EE_SPILL_DIRECTORY", System.getProperty("java.io.tmpdir"));
+
     /** java.util.logging logger. */
     private static final VoltLogger LOG = new VoltLogger("HOST");
 
@@ -84,6 +94,9 @@ public class ExecutionEngineJNI extends ExecutionEngine {
     private BBContainer psetBufferC = null;
     private ByteBuffer psetBuffer = null;
 
+    /** Direct copy of heap blocks passed to bulkLoadTable(), released by finishBulkLoad(). */
+    private BBContainer m_bulkLoadBuffer = null;
+
     /**
      * A deserializer backed by a direct byte buffer, for fast access from C++.
      * Since this is generally the largest shared buffer between Java and C++
@@ -150,7 +163,9 @@ public class ExecutionEngineJNI extends ExecutionEngine {
                     tempTableMemory * 1024 * 1024,
                     networkBufferSize,
                     createDrReplicatedStream,
-                    EE_COMPACTION_THRESHOLD);
+                    EE_COMPACTION_THRESHOLD,
+                    EE_SPILL_LIMIT_MB * 1024L * 1024L,
+                    getStringBytes(EE_SPILL_DIRECTORY));
         checkErrorCode(errorCode);
 
         setupPsetBuffer(256 * 1024); // 256k seems like a reasonable per-ee number (but is totally pulled from my a**)
@@ -220,6 +235,10 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         exceptionBufferOrigin.discard();
         psetBufferC.discard();
         psetBuffer = null;
+        if (m_bulkLoadBuffer != null) {
+            m_bulkLoadBuffer.discard();
+            m_bulkLoadBuffer = null;
+        }
         LOG.trace("Released Execution Engine.");
     }
 
@@ -261,7 +280,8 @@ public class ExecutionEngineJNI extends ExecutionEngine {
             final long spHandle,
             final long lastCommittedSpHandle,
             long uniqueId,
-            final long undoToken) throws EEException
+            final long undoToken,
+            final boolean timeFragments) throws EEException
     {
         // plan frag zero is invalid
         assert((numFragmentIds == 0) || (planFragmentIds[0] != 0));
@@ -319,7 +339,8 @@ public class ExecutionEngineJNI extends ExecutionEngine {
                     spHandle,
                     lastCommittedSpHandle,
                     uniqueId,
-                    undoToken);
+                    undoToken,
+                    timeFragments);
 
         try {
             checkErrorCode(errorCode);
@@ -335,6 +356,8 @@ public class ExecutionEngineJNI extends ExecutionEngine {
                     m_dirty = true;
                 // get a copy of the buffer
                 final ByteBuffer fullBacking = fds.readBuffer(totalSize);
+                countResultHeapCopy(totalSize);
+                countResultCall();
                 final VoltTable[] results = new VoltTable[batchSize];
                 for (int i = 0; i < batchSize; ++i) {
                     final int numdeps = fullBacking.getInt(); // number of dependencies for this frag
@@ -351,6 +374,9 @@ public class ExecutionEngineJNI extends ExecutionEngine {
 
                     results[i] = PrivateVoltTableFactory.createVoltTableFromBuffer(tableBacking, true);
                 }
+                if (timeFragments) {
+                    readFragmentNanos(fullBacking, batchSize);
+                }
                 return results;
             } catch (final IOException ex) {
                 LOG.error("Failed to deserialze result table" + ex);
@@ -461,8 +487,10 @@ public class ExecutionEngineJNI extends ExecutionEngine {
                 int len = buf.getInt();
                 byte[] bufCopy = new byte[len];
                 buf.get(bufCopy);
+                countResultHeapCopy(len);
                 results[ii] = PrivateVoltTableFactory.createVoltTableFromBuffer(ByteBuffer.wrap(bufCopy), true);
             }
+            countResultCall();
             return results;
         } catch (final IOException ex) {
             LOG.error("Failed to deserialze result table for getStats" + ex);
@@ -470,6 +498,54 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         }
     }
 
+    /**
+     * Copies all the result tables at once, direct buffer to direct buffer,
+     * into a pooled buffer and hands out read-only slices of it, so polling
+     * statistics does not allocate on the Java heap.
+     */
+    @Override
+    public PooledVoltTables getPooledStats(
+            final StatsSelector selector,
+            final int locators[],
+            final boolean interval,
+            final Long now)
+    {
+        //Clear is destructive, do it before the native call
+        deserializer.clear();
+        final int numResults = nativeGetStats(pointer, selector.ordinal(), locators, interval, now);
+        if (numResults == -1) {
+            throwExceptionForError(ERRORCODE_ERROR);
+        }
+        countResultCall();
+        if (numResults == 0) {
+            return new PooledVoltTables(null, new VoltTable[0]);
+        }
+
+        final int totalSize;
+        try {
+            totalSize = deserializer.readInt();
+        } catch (final IOException ex) {
+            LOG.error("Failed to deserialze result table for getStats" + ex);
+            throw new EEException(ERRORCODE_WRONG_SERIALIZED_BYTES);
+        }
+        ByteBuffer src = (fallbackBuffer == null ? deserializer.buffer() : fallbackBuffer).duplicate();
+        src.limit(Math.min(src.capacity(), src.position() + totalSize));
+        final BBContainer backing = DBBPool.allocateDirectAndPool(src.remaining());
+        final ByteBuffer buf = backing.b();
+        buf.put(src);
+        buf.flip();
+
+        final VoltTable results[] = new VoltTable[numResults];
+        for (int ii = 0; ii < numResults; ii++) {
+            int len = buf.getInt();
+            ByteBuffer slice = buf.slice();
+            slice.limit(len);
+            buf.position(buf.position() + len);
+            results[ii] = PrivateVoltTableFactory.createVoltTableFromBuffer(slice, true);
+        }
+        return new PooledVoltTables(backing, results);
+    }
+
     @Override
     public void toggleProfiler(final int toggle) {
         nativeToggleProfiler(pointer, toggle);
@@ -537,6 +613,38 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         return Pair.of(remaining, new int[] {0});
     }
 
+    @Override
+    public void bulkLoadTable(int tableId, ByteBuffer rows) {
+        if (!rows.isDirect()) {
+            // Blocks received over the network are on the heap, stage them
+            // in a direct buffer kept for the duration of the load
+            if (m_bulkLoadBuffer == null || m_bulkLoadBuffer.b().capacity() < rows.remaining()) {
+                if (m_bulkLoadBuffer != null) {
+                    m_bulkLoadBuffer.discard();
+                }
+                m_bulkLoadBuffer = DBBPool.allocateDirect(rows.remaining());
+            }
+            final ByteBuffer staged = m_bulkLoadBuffer.b();
+            staged.clear();
+            staged.put(rows.duplicate());
+            staged.flip();
+            rows = staged;
+        }
+        //Clear is destructive, do it before the native call
+        deserializer.clear();
+        checkErrorCode(nativeBulkLoadTable(pointer, tableId, rows, rows.position(), rows.remaining()));
+    }
+
+    @Override
+    public void finishBulkLoad(int tableId) {
+        deserializer.clear();
+        checkErrorCode(nativeFinishBulkLoad(pointer, tableId));
+        if (m_bulkLoadBuffer != null) {
+            m_bulkLoadBuffer.discard();
+            m_bulkLoadBuffer = null;
+        }
+    }
+
     /**
      * Instruct the EE to execute an Export poll and/or ack action. Poll response
      * data is returned in the usual results buffer, length preceded as usual.
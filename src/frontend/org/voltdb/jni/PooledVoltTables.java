@@ -0,0 +1,56 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.jni;
+
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.VoltTable;
+
+/**
+ * Result tables that are slices of one pooled direct buffer instead of
+ * separate copies on the Java heap. The tables are only valid until
+ * {@link #discard()} returns the buffer to the pool, so whoever holds
+ * them must discard them exactly once when it is done reading.
+ */
+public class PooledVoltTables {
+    private final BBContainer m_backing;
+    private final VoltTable[] m_tables;
+
+    /**
+     * @param backing The pooled buffer the tables are backed by, or null if
+     *                they live on the heap and there is nothing to return
+     * @param tables  The result tables
+     */
+    public PooledVoltTables(BBContainer backing, VoltTable[] tables) {
+        m_backing = backing;
+        m_tables = tables;
+    }
+
+    public VoltTable[] getTables() {
+        return m_tables;
+    }
+
+    /**
+     * Return the backing buffer to the pool. The tables must not be read
+     * afterwards.
+     */
+    public void discard() {
+        if (m_backing != null) {
+            m_backing.discard();
+        }
+    }
+}
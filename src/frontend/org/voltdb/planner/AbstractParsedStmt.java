@@ -66,10 +66,21 @@ public abstract class AbstractParsedStmt {
 
     protected String m_contentDeterminismMessage = null;
 
-     // Internal statement counter
-    public static int NEXT_STMT_ID = 0;
-    // Internal parameter counter
-    public static int NEXT_PARAMETER_ID = 0;
+    // Internal statement and parameter counters.
+    // These are kept per thread so that several planner threads can
+    // parse and plan statements concurrently.
+    private static final ThreadLocal<int[]> NEXT_STMT_ID = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[] { 0 };
+        }
+    };
+    private static final ThreadLocal<int[]> NEXT_PARAMETER_ID = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[] { 0 };
+        }
+    };
     // The unique id to identify the statement
     public int m_stmtId;
 
@@ -176,10 +187,26 @@ public abstract class AbstractParsedStmt {
            throw new RuntimeException("Unexpected Element: " + stmtTypeElement.name);
        }
        // Set the unique id
-       retval.m_stmtId = NEXT_STMT_ID++;
+       retval.m_stmtId = nextStmtId();
        return retval;
    }
 
+    /**
+     * @return the next unique statement id for the statement being planned
+     * on the current thread.
+     */
+    public static int nextStmtId() {
+        return NEXT_STMT_ID.get()[0]++;
+    }
+
+    /**
+     * @return the next unique parameter id for the statement being planned
+     * on the current thread.
+     */
+    public static int nextParameterId() {
+        return NEXT_PARAMETER_ID.get()[0]++;
+    }
+
     /**
      * @param parsedStmt
      * @param sql
@@ -211,8 +238,8 @@ public abstract class AbstractParsedStmt {
             Database db, String joinOrder) {
 
         // reset the statement counters
-        NEXT_STMT_ID = 0;
-        NEXT_PARAMETER_ID = 0;
+        NEXT_STMT_ID.get()[0] = 0;
+        NEXT_PARAMETER_ID.get()[0] = 0;
         AbstractParsedStmt retval = getParsedStmt(stmtTypeElement, paramValues, db);
 
         parse(retval, sql, stmtTypeElement, db, joinOrder);
@@ -491,7 +518,7 @@ public abstract class AbstractParsedStmt {
         }
 
         // This is a TVE from the correlated expression
-        int paramIdx = NEXT_PARAMETER_ID++;
+        int paramIdx = nextParameterId();
         ParameterValueExpression pve = new ParameterValueExpression(paramIdx, expr);
         m_parameterTveMap.put(paramIdx, expr);
         return pve;
@@ -854,13 +881,13 @@ public abstract class AbstractParsedStmt {
     protected AbstractExpression replaceExpressionsWithPve(AbstractExpression expr) {
         assert(expr != null);
         if (expr instanceof TupleValueExpression) {
-            int paramIdx = NEXT_PARAMETER_ID++;
+            int paramIdx = nextParameterId();
             ParameterValueExpression pve = new ParameterValueExpression(paramIdx, expr);
             m_parameterTveMap.put(paramIdx, expr);
             return pve;
         }
         if (expr instanceof AggregateExpression) {
-            int paramIdx = NEXT_PARAMETER_ID++;
+            int paramIdx = nextParameterId();
             ParameterValueExpression pve = new ParameterValueExpression(paramIdx, expr);
             // Disallow aggregation of parent columns in a subquery.
             // except the case HAVING AGG(T1.C1) IN (SELECT T2.C2 ...)
@@ -1158,8 +1185,9 @@ public abstract class AbstractParsedStmt {
                 m_paramsByIndex.put(index, pve);
             }
         }
-        if (max_parameter_id >= NEXT_PARAMETER_ID) {
-            NEXT_PARAMETER_ID = (int)max_parameter_id + 1;
+        int[] nextParameterId = NEXT_PARAMETER_ID.get();
+        if (max_parameter_id >= nextParameterId[0]) {
+            nextParameterId[0] = (int)max_parameter_id + 1;
         }
     }
 
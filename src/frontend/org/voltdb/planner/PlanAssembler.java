@@ -58,6 +58,7 @@ import org.voltdb.plannodes.AbstractScanPlanNode;
 import org.voltdb.plannodes.AggregatePlanNode;
 import org.voltdb.plannodes.DeletePlanNode;
 import org.voltdb.plannodes.HashAggregatePlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.InsertPlanNode;
 import org.voltdb.plannodes.LimitPlanNode;
@@ -984,16 +985,18 @@ public class PlanAssembler {
                 if (m_parsedSelect.m_mvFixInfo.needed()) {
                     mvFixInfoCoordinatorNeeded = false;
                     AbstractPlanNode receiveNode = receivers.get(0);
-                    if (receiveNode.getParent(0) instanceof NestLoopPlanNode) {
+                    if (receiveNode.getParent(0) instanceof NestLoopPlanNode ||
+                            receiveNode.getParent(0) instanceof HashJoinPlanNode) {
                         if (subSelectRoot.hasInlinedIndexScanOfTable(m_parsedSelect.m_mvFixInfo.getMVTableName())) {
                             return getNextSelectPlan();
                         }
                         List<AbstractPlanNode> nljs = receiveNode.findAllNodesOfType(PlanNodeType.NESTLOOP);
                         List<AbstractPlanNode> nlijs = receiveNode.findAllNodesOfType(PlanNodeType.NESTLOOPINDEX);
+                        List<AbstractPlanNode> hjs = receiveNode.findAllNodesOfType(PlanNodeType.HASHJOIN);
 
                         // outer join edge case does not have any join plan node under receive node.
                         // This is like a single table case.
-                        if (nljs.size() + nlijs.size() == 0) {
+                        if (nljs.size() + nlijs.size() + hjs.size() == 0) {
                             mvFixInfoEdgeCaseOuterJoin = true;
                         }
                         root = handleMVBasedMultiPartQuery(reAggNode, root, mvFixInfoEdgeCaseOuterJoin);
@@ -2021,7 +2024,8 @@ public class PlanAssembler {
         }
 
         // For join node, find outer sequential scan plan node
-        if (candidate.getPlanNodeType() == PlanNodeType.NESTLOOP) {
+        if (candidate.getPlanNodeType() == PlanNodeType.NESTLOOP ||
+                candidate.getPlanNodeType() == PlanNodeType.HASHJOIN) {
             assert(candidate.getChildCount() == 2);
             return findSeqScanCandidateForGroupBy(candidate.getChild(0));
         }
@@ -68,8 +68,9 @@ public class PlanStatistics {
         if (existing == null)
             existing = 0L;
 
-        // increment the existing value
-        existing = existing.longValue() + incrementValue;
+        // increment the existing value, saturating like the estimates that add up to it
+        existing = (existing.longValue() > Long.MAX_VALUE - incrementValue) ?
+                Long.MAX_VALUE : existing.longValue() + incrementValue;
 
         // set the new value
         m_levels.get(level).put(field, existing);
@@ -25,8 +25,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.voltdb.VoltType;
 import org.voltdb.catalog.Database;
 import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.expressions.AbstractSubqueryExpression;
 import org.voltdb.expressions.ExpressionUtil;
 import org.voltdb.expressions.TupleValueExpression;
 import org.voltdb.planner.parseinfo.BranchNode;
@@ -37,10 +39,12 @@ import org.voltdb.planner.parseinfo.SubqueryLeafNode;
 import org.voltdb.plannodes.AbstractJoinPlanNode;
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.AbstractReceivePlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.MaterializedScanPlanNode;
 import org.voltdb.plannodes.NestLoopIndexPlanNode;
 import org.voltdb.plannodes.NestLoopPlanNode;
+import org.voltdb.types.ExpressionType;
 import org.voltdb.types.JoinType;
 import org.voltdb.types.PlanNodeType;
 import org.voltdb.utils.PermutationGenerator;
@@ -574,7 +578,7 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
 
         AbstractJoinPlanNode ajNode = null;
         if (canHaveNLJ) {
-            NestLoopPlanNode nljNode = new NestLoopPlanNode();
+            AbstractJoinPlanNode nljNode = null;
             // get all the clauses that join the applicable two tables
             // Copy innerAccessPath.joinExprs to leave it unchanged,
             // avoiding accumulation of redundant expressions when
@@ -615,6 +619,12 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
                 // the inner node ONLY, that can not be pushed down.
                 joinClauses.addAll(innerAccessPath.otherExprs);
             }
+            // No index access is driven by the outer rows here, so an equi-join
+            // is cheaper as a single pass over each side than as a nested loop.
+            nljNode = getHashJoinNode(joinNode, joinClauses);
+            if (nljNode == null) {
+                nljNode = new NestLoopPlanNode();
+            }
             nljNode.setJoinPredicate(ExpressionUtil.combine(joinClauses));
 
             // combine the tails plan graph with the new head node
@@ -661,6 +671,86 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
         return ajNode;
     }
 
+    /**
+     * Build a hash join for the join clauses of the join node if any of them is an equality
+     * between an expression over the outer tables only and an expression over the inner tables
+     * only, and the values of both sides hash alike in the EE.
+     *
+     * @param joinNode A parent join node.
+     * @param joinClauses The clauses that join the outer and the inner node.
+     * @return A hash join node with its hash expressions set, or null if no clause qualifies.
+     */
+    private static HashJoinPlanNode getHashJoinNode(BranchNode joinNode, List<AbstractExpression> joinClauses) {
+        Collection<String> outerTables = joinNode.getLeftNode().generateTableJoinOrder();
+        Collection<String> innerTables = joinNode.getRightNode().generateTableJoinOrder();
+        List<AbstractExpression> outerExprs = new ArrayList<AbstractExpression>();
+        List<AbstractExpression> innerExprs = new ArrayList<AbstractExpression>();
+        for (AbstractExpression clause : joinClauses) {
+            if (clause.getExpressionType() != ExpressionType.COMPARE_EQUAL) {
+                continue;
+            }
+            AbstractExpression left = clause.getLeft();
+            AbstractExpression right = clause.getRight();
+            if ( ! isHashable(left, right)) {
+                continue;
+            }
+            if (isOperandOfTables(left, outerTables) && isOperandOfTables(right, innerTables)) {
+                outerExprs.add(left);
+                innerExprs.add(right);
+            }
+            else if (isOperandOfTables(right, outerTables) && isOperandOfTables(left, innerTables)) {
+                outerExprs.add(right);
+                innerExprs.add(left);
+            }
+        }
+        if (outerExprs.isEmpty()) {
+            return null;
+        }
+        HashJoinPlanNode hjNode = new HashJoinPlanNode();
+        hjNode.setHashExpressions(outerExprs, innerExprs);
+        return hjNode;
+    }
+
+    /**
+     * Equal values have to hash alike, so both sides need to have the same type,
+     * except that the EE hashes all integer types as BIGINT.
+     */
+    private static boolean isHashable(AbstractExpression left, AbstractExpression right) {
+        VoltType leftType = left.getValueType();
+        VoltType rightType = right.getValueType();
+        if (leftType == null || rightType == null) {
+            return false;
+        }
+        if (left.hasAnySubexpressionOfClass(AbstractSubqueryExpression.class) ||
+                right.hasAnySubexpressionOfClass(AbstractSubqueryExpression.class)) {
+            return false;
+        }
+        if (leftType.isAnyIntegerType() && rightType.isAnyIntegerType()) {
+            return true;
+        }
+        return leftType == rightType &&
+               leftType != VoltType.GEOGRAPHY &&
+               leftType != VoltType.GEOGRAPHY_POINT &&
+               leftType != VoltType.NULL &&
+               leftType != VoltType.INVALID;
+    }
+
+    /**
+     * @return true if the expression references at least one of the tables and no other tables.
+     */
+    private static boolean isOperandOfTables(AbstractExpression expr, Collection<String> tableAliases) {
+        List<TupleValueExpression> tves = ExpressionUtil.getTupleValueExpressions(expr);
+        if (tves.isEmpty()) {
+            return false;
+        }
+        for (TupleValueExpression tve : tves) {
+            if ( ! tableAliases.contains(tve.getTableAlias())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * A method to filter out single-TVE expressions.
      *
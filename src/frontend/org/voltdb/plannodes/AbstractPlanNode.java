@@ -53,9 +53,15 @@ public abstract class AbstractPlanNode implements JSONString, Comparable<Abstrac
 
     /**
      * Internal PlanNodeId counter. Note that this member is static, which means
-     * all PlanNodes will have a unique id
+     * all PlanNodes planned on the same thread will have a unique id.
+     * It is thread local so that concurrent planner threads don't race on it.
      */
-    private static int NEXT_PLAN_NODE_ID = 1;
+    private static final ThreadLocal<int[]> NEXT_PLAN_NODE_ID = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[] { 1 };
+        }
+    };
 
     // Keep this flag turned off in production or when testing user-accessible EXPLAIN output or when
     // using EXPLAIN output to validate plans.
@@ -79,7 +85,7 @@ public abstract class AbstractPlanNode implements JSONString, Comparable<Abstrac
      * Reset between plans
      */
     public static final void resetPlanNodeIds() {
-        NEXT_PLAN_NODE_ID = 1;
+        NEXT_PLAN_NODE_ID.get()[0] = 1;
     }
 
     public enum Members {
@@ -124,7 +130,7 @@ public abstract class AbstractPlanNode implements JSONString, Comparable<Abstrac
      * Instantiates a new plan node.
      */
     protected AbstractPlanNode() {
-        m_id = NEXT_PLAN_NODE_ID++;
+        m_id = NEXT_PLAN_NODE_ID.get()[0]++;
     }
 
     public int overrideId(int newId) {
@@ -387,7 +393,8 @@ public abstract class AbstractPlanNode implements JSONString, Comparable<Abstrac
         for (AbstractPlanNode child : m_children) {
             child.computeEstimatesRecursively(stats, cluster, db, estimates, paramHints);
             m_outputColumnHints.addAll(child.m_outputColumnHints);
-            childOutputTupleCountEstimate += child.m_estimatedOutputTupleCount;
+            childOutputTupleCountEstimate =
+                    saturatedAdd(childOutputTupleCountEstimate, child.m_estimatedOutputTupleCount);
         }
 
         // make sure any inlined scans (for NLIJ mostly) are costed as well
@@ -418,6 +425,27 @@ public abstract class AbstractPlanNode implements JSONString, Comparable<Abstrac
         m_estimatedProcessedTupleCount = childOutputTupleCountEstimate;
     }
 
+    /**
+     * Tuple count estimates of joins over measured tables multiply, and the
+     * product of a few large tables doesn't fit a long. A wrapped count would
+     * make the most expensive plan look cheapest, so counts stop at Long.MAX_VALUE.
+     * Both arguments are non-negative counts.
+     */
+    protected static long saturatedMultiply(long a, long b) {
+        assert(a >= 0 && b >= 0);
+        if (a != 0 && b > Long.MAX_VALUE / a) {
+            return Long.MAX_VALUE;
+        }
+        return a * b;
+    }
+
+    /** Non-negative a + b, or Long.MAX_VALUE if that doesn't fit */
+    protected static long saturatedAdd(long a, long b) {
+        assert(a >= 0 && b >= 0);
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
     public long getEstimatedOutputTupleCount() {
         return m_estimatedOutputTupleCount;
     }
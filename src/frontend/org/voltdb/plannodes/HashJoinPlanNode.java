@@ -0,0 +1,229 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.plannodes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONStringer;
+import org.voltdb.catalog.Cluster;
+import org.voltdb.catalog.Database;
+import org.voltdb.compiler.DatabaseEstimates;
+import org.voltdb.compiler.ScalarValueHints;
+import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.expressions.TupleValueExpression;
+import org.voltdb.types.PlanNodeType;
+import org.voltdb.types.SortDirectionType;
+
+/**
+ * An equi-join that builds a hash table on the inner (right) child, keyed by the
+ * inner hash expressions, and probes it with the outer hash expressions of every
+ * outer tuple. Candidates found in the hash table are still checked against the
+ * complete join predicate, so the hash expressions only need to be implied by it.
+ * Outer tuples are processed in order, so the output is ordered like the outer
+ * child, same as for a NestLoopPlanNode.
+ */
+public class HashJoinPlanNode extends AbstractJoinPlanNode {
+
+    public enum Members {
+        OUTER_HASH_EXPRESSIONS,
+        INNER_HASH_EXPRESSIONS;
+    }
+
+    // Looking up an outer tuple in the hash table costs about half of what
+    // adding an inner tuple to it does: both hash the tuple, but only the
+    // build allocates an entry and links it into a chain.
+    private static final long PROBES_PER_BUILD_COST = 2;
+
+    // Pairwise equal expressions over the outer and the inner child
+    protected List<AbstractExpression> m_outerHashExpressions = new ArrayList<AbstractExpression>();
+    protected List<AbstractExpression> m_innerHashExpressions = new ArrayList<AbstractExpression>();
+
+    public HashJoinPlanNode() {
+        super();
+    }
+
+    @Override
+    public PlanNodeType getPlanNodeType() {
+        return PlanNodeType.HASHJOIN;
+    }
+
+    @Override
+    public void validate() throws Exception {
+        super.validate();
+
+        if (m_outerHashExpressions.isEmpty() ||
+                m_outerHashExpressions.size() != m_innerHashExpressions.size()) {
+            throw new Exception("ERROR: Hash join needs the same, non-zero number of outer and inner hash expressions");
+        }
+        for (AbstractExpression expr : m_outerHashExpressions) {
+            expr.validate();
+        }
+        for (AbstractExpression expr : m_innerHashExpressions) {
+            expr.validate();
+        }
+    }
+
+    /**
+     * @param outerExpressions expressions over the outer child to probe with
+     * @param innerExpressions expressions over the inner child to build the hash table on
+     */
+    public void setHashExpressions(List<AbstractExpression> outerExpressions,
+                                   List<AbstractExpression> innerExpressions) {
+        assert(outerExpressions.size() == innerExpressions.size());
+        m_outerHashExpressions.clear();
+        m_innerHashExpressions.clear();
+        for (AbstractExpression expr : outerExpressions) {
+            m_outerHashExpressions.add((AbstractExpression) expr.clone());
+        }
+        for (AbstractExpression expr : innerExpressions) {
+            m_innerHashExpressions.add((AbstractExpression) expr.clone());
+        }
+    }
+
+    public List<AbstractExpression> getOuterHashExpressions() {
+        return m_outerHashExpressions;
+    }
+
+    public List<AbstractExpression> getInnerHashExpressions() {
+        return m_innerHashExpressions;
+    }
+
+    @Override
+    public void resolveColumnIndexes() {
+        super.resolveColumnIndexes();
+        final NodeSchema outer_schema = m_children.get(0).getOutputSchema();
+        final NodeSchema inner_schema = m_children.get(1).getOutputSchema();
+        resolvePredicate(m_outerHashExpressions, outer_schema, inner_schema);
+        resolvePredicate(m_innerHashExpressions, outer_schema, inner_schema);
+    }
+
+    @Override
+    public void computeCostEstimates(long childOutputTupleCountEstimate,
+                                     Cluster cluster,
+                                     Database db,
+                                     DatabaseEstimates estimates,
+                                     ScalarValueHints[] paramHints)
+    {
+        // Both children are read once: the inner child to build the hash
+        // table, the outer child to probe it. Since a probe is cheaper than
+        // an insert, building on the smaller input is the cheaper join order.
+        // This never costs more than a nestloop join over the same inputs,
+        // which is costed as one read of each child, so join orders that
+        // hash are not passed over for cross joins.
+        long outerTupleCountEstimate = m_children.get(0).getEstimatedOutputTupleCount();
+        long innerTupleCountEstimate = m_children.get(1).getEstimatedOutputTupleCount();
+        long buildCost = innerTupleCountEstimate;
+        long probeCost = outerTupleCountEstimate / PROBES_PER_BUILD_COST +
+                (outerTupleCountEstimate % PROBES_PER_BUILD_COST == 0 ? 0 : 1);
+        if (estimates.hasAnalyzedTables()) {
+            // With measured table sizes, the matches are the pairs of the inputs
+            // that agree on the hash expressions, and each of them is checked
+            // against the join predicate on top of the build and the probes.
+            double matches = outerTupleCountEstimate * (double) innerTupleCountEstimate *
+                    getHashSelectivity(estimates);
+            m_estimatedOutputTupleCount = Math.max(1, (long) Math.min(matches, Long.MAX_VALUE));
+            m_estimatedProcessedTupleCount =
+                    saturatedAdd(saturatedAdd(buildCost, probeCost), m_estimatedOutputTupleCount);
+            return;
+        }
+        m_estimatedOutputTupleCount = childOutputTupleCountEstimate;
+        m_estimatedProcessedTupleCount = saturatedAdd(buildCost, probeCost);
+    }
+
+    /**
+     * Estimate the fraction of the pairs of outer and inner tuples that agree
+     * on the hash expressions. A pair of columns with N and M distinct values
+     * selects 1/max(N, M) of the pairs, assuming the pairs of expressions are
+     * independent. Other expressions and unanalyzed columns select 0.1, same as
+     * an unmeasured equality filter of an index scan.
+     */
+    private double getHashSelectivity(DatabaseEstimates estimates) {
+        double selectivity = 1.0;
+        for (int i = 0; i < m_outerHashExpressions.size(); i++) {
+            long distinctValues = Math.max(getDistinctValues(m_outerHashExpressions.get(i), estimates),
+                                           getDistinctValues(m_innerHashExpressions.get(i), estimates));
+            selectivity *= (distinctValues > 0) ? 1.0 / distinctValues : 0.10;
+        }
+        return selectivity;
+    }
+
+    /**
+     * @return the number of distinct values @Analyze measured for a column,
+     * or -1 if the expression isn't a column of an analyzed table.
+     */
+    private static long getDistinctValues(AbstractExpression expr, DatabaseEstimates estimates) {
+        if ( ! (expr instanceof TupleValueExpression)) {
+            return -1;
+        }
+        TupleValueExpression tve = (TupleValueExpression) expr;
+        if (tve.getTableName() == null || tve.getColumnName() == null) {
+            return -1;
+        }
+        DatabaseEstimates.TableEstimates tableEstimates = estimates.getEstimatesForTable(tve.getTableName());
+        return tableEstimates.analyzed ? tableEstimates.getDistinctValues(tve.getColumnName()) : -1;
+    }
+
+    @Override
+    public void toJSONString(JSONStringer stringer) throws JSONException {
+        super.toJSONString(stringer);
+        stringer.key(Members.OUTER_HASH_EXPRESSIONS.name()).array();
+        for (AbstractExpression expr : m_outerHashExpressions) {
+            stringer.value(expr);
+        }
+        stringer.endArray();
+        stringer.key(Members.INNER_HASH_EXPRESSIONS.name()).array();
+        for (AbstractExpression expr : m_innerHashExpressions) {
+            stringer.value(expr);
+        }
+        stringer.endArray();
+    }
+
+    @Override
+    public void loadFromJSONObject(JSONObject jobj, Database db) throws JSONException {
+        super.loadFromJSONObject(jobj, db);
+        m_outerHashExpressions.clear();
+        m_innerHashExpressions.clear();
+        AbstractExpression.loadFromJSONArrayChild(m_outerHashExpressions, jobj,
+                Members.OUTER_HASH_EXPRESSIONS.name(), null);
+        AbstractExpression.loadFromJSONArrayChild(m_innerHashExpressions, jobj,
+                Members.INNER_HASH_EXPRESSIONS.name(), null);
+    }
+
+    @Override
+    public void findAllExpressionsOfClass(Class< ? extends AbstractExpression> aeClass, Set<AbstractExpression> collected) {
+        super.findAllExpressionsOfClass(aeClass, collected);
+        for (AbstractExpression expr : m_outerHashExpressions) {
+            collected.addAll(expr.findAllSubexpressionsOfClass(aeClass));
+        }
+        for (AbstractExpression expr : m_innerHashExpressions) {
+            collected.addAll(expr.findAllSubexpressionsOfClass(aeClass));
+        }
+    }
+
+    @Override
+    protected String explainPlanForNode(String indent) {
+        return "HASH " + this.m_joinType.toString() + " JOIN" +
+                (m_sortDirection == SortDirectionType.INVALID ? "" : " (" + m_sortDirection + ")") +
+                explainFilters(indent);
+    }
+
+}
@@ -560,6 +560,29 @@ public class IndexScanPlanNode extends AbstractScanPlanNode {
         return keyWidth;
     }
 
+    /**
+     * Estimate the fraction of the table that passes the filters covered by the index.
+     * Without measured statistics, each fully covered column selects 0.1 of the table.
+     * For an analyzed table, an equality filter on a column with N distinct values
+     * selects 1/N of it, assuming the columns are independent. Range filters and
+     * indexed expressions have no measured selectivity and keep the 0.1 factor.
+     */
+    private double getIndexedFilterSelectivity(DatabaseEstimates.TableEstimates tableEstimates,
+                                               double keyWidth) {
+        if ( ! tableEstimates.analyzed || ! m_catalogIndex.getExpressionsjson().isEmpty()) {
+            return Math.pow(0.10, keyWidth);
+        }
+        // A range filter on the last key component counts as a half covered column.
+        int equalityColumns = (int) Math.floor(keyWidth);
+        double selectivity = Math.pow(0.10, keyWidth - equalityColumns);
+        List<ColumnRef> indexedColRefs = CatalogUtil.getSortedCatalogItems(m_catalogIndex.getColumns(), "index");
+        for (int i = 0; i < equalityColumns && i < indexedColRefs.size(); i++) {
+            long distinctValues = tableEstimates.getDistinctValues(indexedColRefs.get(i).getColumn().getTypeName());
+            selectivity *= (distinctValues > 0) ? 1.0 / distinctValues : 0.10;
+        }
+        return selectivity;
+    }
+
     @Override
     public void computeCostEstimates(long unusedChildOutputTupleCountEstimate,
                                      Cluster unusedCluster,
@@ -634,7 +657,10 @@ public class IndexScanPlanNode extends AbstractScanPlanNode {
             // Using a factor of 0.1 per FULLY covered (equality-filtered) column,
             // the effective scale factor for a single PARTIALLY covered (range-filtered) column
             // comes to SQRT(0.1) which is just under 32% FTW!
-            tuplesToRead += (int) (tableEstimates.maxTuples * 0.90 * Math.pow(0.10, keyWidth));
+            // Once @Analyze has measured the table, equality-filtered columns use their real
+            // selectivity instead of the 0.1 factor (see getIndexedFilterSelectivity).
+            tuplesToRead += (int) (tableEstimates.maxTuples * 0.90 *
+                                   getIndexedFilterSelectivity(tableEstimates, keyWidth));
             // "Covering cell" indexes get a special adjustment to make them look more favorable
             // than non-unique range filters in particular.
             // I can't quite justify that rationally, but it "seems reasonable". --paul
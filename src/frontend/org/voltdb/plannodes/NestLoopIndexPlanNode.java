@@ -231,6 +231,17 @@ public class NestLoopIndexPlanNode extends AbstractJoinPlanNode {
                 (IndexScanPlanNode) getInlinePlanNode(PlanNodeType.INDEXSCAN);
         assert(indexScan != null);
 
+        if (estimates.hasAnalyzedTables()) {
+            // With measured table sizes, the inlined scan's estimate is a real
+            // number of matches per lookup, so cost one lookup per outer tuple.
+            // This is what lets the plan selector prefer the join order that
+            // keeps the intermediate results small.
+            m_estimatedOutputTupleCount =
+                    saturatedMultiply(childOutputTupleCountEstimate, indexScan.getEstimatedOutputTupleCount());
+            m_estimatedProcessedTupleCount = saturatedAdd(childOutputTupleCountEstimate,
+                    saturatedMultiply(childOutputTupleCountEstimate, indexScan.getEstimatedProcessedTupleCount()));
+            return;
+        }
         m_estimatedOutputTupleCount = indexScan.getEstimatedOutputTupleCount() + childOutputTupleCountEstimate;
         m_estimatedProcessedTupleCount = indexScan.getEstimatedProcessedTupleCount() + childOutputTupleCountEstimate;
     }
@@ -42,11 +42,19 @@ public class NestLoopPlanNode extends AbstractJoinPlanNode {
                                      DatabaseEstimates estimates,
                                      ScalarValueHints[] paramHints)
     {
-        // This method doesn't do anything besides what the parent method does,
-        // but it is a nice place to put a comment.
+        if (estimates.hasAnalyzedTables()) {
+            // With measured table sizes, charge for what the join does:
+            // every inner tuple is visited once per outer tuple.
+            long outerTupleCountEstimate = m_children.get(0).getEstimatedOutputTupleCount();
+            long innerTupleCountEstimate = m_children.get(1).getEstimatedOutputTupleCount();
+            m_estimatedOutputTupleCount = saturatedMultiply(outerTupleCountEstimate, innerTupleCountEstimate);
+            m_estimatedProcessedTupleCount = saturatedAdd(outerTupleCountEstimate, m_estimatedOutputTupleCount);
+            return;
+        }
+
+        // Otherwise this doesn't do anything besides what the parent method does.
         // Since both children's' cost get included in the costing, this
         // already mirrors the kind of estimating we do in a nestloopjoin.
-
         m_estimatedOutputTupleCount = childOutputTupleCountEstimate;
         m_estimatedProcessedTupleCount = childOutputTupleCountEstimate;
     }
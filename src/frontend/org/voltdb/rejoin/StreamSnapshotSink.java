@@ -58,6 +58,8 @@ public class StreamSnapshotSink {
     // Schemas of the tables
     private final Map<Integer, byte[]> m_schemas = new HashMap<Integer, byte[]>();
     private long m_bytesReceived = 0;
+    // Defer index maintenance of the streamed tables until finishBulkLoads()
+    private final boolean m_bulkLoad;
 
     /**
      * A piece of work that can be restored on the site receiving the data.
@@ -97,14 +99,21 @@ public class StreamSnapshotSink {
     static class TableRestoreWork implements RestoreWork {
         private final int tableId;
         private final ByteBuffer tableBlock;
+        private final boolean bulkLoad;
 
-        public TableRestoreWork(int tableId, ByteBuffer tableBlock) {
+        public TableRestoreWork(int tableId, ByteBuffer tableBlock, boolean bulkLoad) {
             this.tableId = tableId;
             this.tableBlock = tableBlock;
+            this.bulkLoad = bulkLoad;
         }
 
         @Override
         public void restore(SiteProcedureConnection connection) {
+            if (bulkLoad) {
+                connection.bulkLoadTable(tableId, tableBlock.duplicate());
+                return;
+            }
+
             VoltTable table = PrivateVoltTableFactory.createVoltTableFromBuffer(tableBlock.duplicate(), true);
 
             // Currently, only export cares about this TXN ID.  Since we don't have one handy,
@@ -115,9 +124,20 @@ public class StreamSnapshotSink {
     }
 
     public StreamSnapshotSink(Mailbox mb)
+    {
+        this(mb, false);
+    }
+
+    /**
+     * @param bulkLoad Load the blocks with index maintenance deferred. Only for sites
+     *                 that don't execute anything against the tables until the stream
+     *                 is done and finishBulkLoads() was called.
+     */
+    public StreamSnapshotSink(Mailbox mb, boolean bulkLoad)
     {
         Preconditions.checkArgument(mb != null);
         m_mb = mb;
+        m_bulkLoad = bulkLoad;
     }
 
     public long initialize(int sourceCount, FixedDBBPool bufferPool) {
@@ -282,7 +302,7 @@ public class StreamSnapshotSink {
                 ByteBuffer nextChunk = getNextChunk(m_schemas.get(tableId), block, resultBufferAllocator);
                 m_bytesReceived += nextChunk.remaining();
 
-                restoreWork = new TableRestoreWork(tableId, nextChunk);
+                restoreWork = new TableRestoreWork(tableId, nextChunk, m_bulkLoad);
             }
 
             // Queue ack to this block
@@ -294,6 +314,19 @@ public class StreamSnapshotSink {
         }
     }
 
+    /**
+     * Build the indexes of every table streamed with index maintenance deferred.
+     * Call on the site thread once the end of the stream was reached.
+     */
+    public void finishBulkLoads(SiteProcedureConnection connection) {
+        if (!m_bulkLoad) {
+            return;
+        }
+        for (int tableId : m_schemas.keySet()) {
+            connection.finishBulkLoad(tableId);
+        }
+    }
+
     public long bytesTransferred() {
         return m_bytesReceived;
     }
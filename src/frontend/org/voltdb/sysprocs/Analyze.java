@@ -0,0 +1,215 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.sysprocs;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltdb.DependencyPair;
+import org.voltdb.ParameterSet;
+import org.voltdb.ProcInfo;
+import org.voltdb.SystemProcedureExecutionContext;
+import org.voltdb.VoltSystemProcedure;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.ColumnRef;
+import org.voltdb.catalog.Database;
+import org.voltdb.catalog.Index;
+import org.voltdb.catalog.Table;
+import org.voltdb.compiler.TableStatisticsRepository;
+import org.voltdb.dtxn.DtxnConstants;
+import org.voltdb.utils.CatalogUtil;
+
+/**
+ * Measure the size of one table and the number of distinct values in its
+ * indexed columns, and give the figures to the planner of every node.
+ *
+ * Each call analyzes a single table in a read-only transaction, so the scan
+ * holds up the partitions for the time it takes to read one table, and only
+ * writes have to wait for it. Analyze the tables of a schema one after the
+ * other.
+ *
+ * The counting runs as ordinary queries in the EE: COUNT(*) and
+ * APPROX_COUNT_DISTINCT, which builds a HyperLogLog at each partition and
+ * merges them at the coordinator. Only fixed width integer, decimal and
+ * timestamp columns are supported by APPROX_COUNT_DISTINCT, so the planner
+ * keeps its default selectivity for indexed columns of other types.
+ *
+ * The planner only uses the figures once every table of the schema has been
+ * analyzed in its current definition, see {@link TableStatisticsRepository}.
+ * Ad hoc queries are planned with them right away. Stored procedures use them
+ * the next time the server compiles the schema. The figures live in memory,
+ * a node that restarts or rejoins plans with the defaults until the tables
+ * are analyzed again.
+ */
+@ProcInfo(singlePartition = false)
+public class Analyze extends VoltSystemProcedure {
+    private static final VoltLogger HOST_LOG = new VoltLogger("HOST");
+
+    private static final int DEP_analyzePublish = (int)
+            SysProcFragmentId.PF_analyzePublish | DtxnConstants.MULTIPARTITION_DEPENDENCY;
+    private static final int DEP_analyzePublishAggregate = (int)
+            SysProcFragmentId.PF_analyzePublishAggregate;
+
+    @Override
+    public void init() {
+        registerPlanFragment(SysProcFragmentId.PF_analyzePublish);
+        registerPlanFragment(SysProcFragmentId.PF_analyzePublishAggregate);
+    }
+
+    @Override
+    public DependencyPair executePlanFragment(Map<Integer, List<VoltTable>> dependencies,
+                                              long fragmentId,
+                                              ParameterSet params,
+                                              SystemProcedureExecutionContext context)
+    {
+        VoltTable result = new VoltTable(STATUS_SCHEMA);
+        result.addRow(STATUS_OK);
+        if (fragmentId == SysProcFragmentId.PF_analyzePublish) {
+            // The statistics are per node, one site per node installs them.
+            if (context.isLowestSiteId()) {
+                Object[] paramsArray = params.toArray();
+                TableStatisticsRepository.update((String) paramsArray[0], (VoltTable) paramsArray[1]);
+            }
+            return new DependencyPair(DEP_analyzePublish, result);
+        }
+        else if (fragmentId == SysProcFragmentId.PF_analyzePublishAggregate) {
+            return new DependencyPair(DEP_analyzePublishAggregate, result);
+        }
+        assert(false);
+        return null;
+    }
+
+    /**
+     * @param ctx Internal parameter not visible the end-user.
+     * @param tableName Name of the table to analyze
+     * @return The measured statistics of the table across the cluster, one
+     * row with a null COLUMN_NAME, followed by one row per analyzed column.
+     */
+    public VoltTable[] run(SystemProcedureExecutionContext ctx, String tableName) {
+        final long startTime = System.currentTimeMillis();
+        final Database db = ctx.getDatabase();
+        final int partitionCount = ctx.getNumberOfPartitions();
+
+        final Table table = tableName == null ? null : db.getTables().getIgnoreCase(tableName);
+        if (table == null) {
+            throw new VoltAbortException("Table " + tableName + " does not exist");
+        }
+        if (CatalogUtil.isTableExportOnly(db, table)) {
+            throw new VoltAbortException("Table " + table.getTypeName() +
+                                         " is an export table, it holds no rows to analyze");
+        }
+
+        List<String> columns = getAnalyzableColumns(table);
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*)");
+        for (String column : columns) {
+            sql.append(", APPROX_COUNT_DISTINCT(").append(column).append(')');
+        }
+        sql.append(" FROM ").append(table.getTypeName()).append(';');
+        voltQueueSQLExperimental(sql.toString());
+        VoltTable row = voltExecuteSQL()[0];
+
+        // The planner costs the work of one partition, so it gets the share
+        // of a partitioned table one partition holds.
+        VoltTable measured = new VoltTable(TableStatisticsRepository.SCHEMA);
+        VoltTable perPartition = new VoltTable(TableStatisticsRepository.SCHEMA);
+        row.advanceRow();
+        long tupleCount = row.getLong(0);
+        boolean replicated = table.getIsreplicated();
+        long partitionTupleCount = replicated ? tupleCount : divideRoundingUp(tupleCount, partitionCount);
+        measured.addRow(table.getTypeName(), null, tupleCount, null);
+        perPartition.addRow(table.getTypeName(), null, partitionTupleCount, null);
+
+        for (int c = 0; c < columns.size(); c++) {
+            String column = columns.get(c);
+            // HyperLogLog can overshoot a little
+            long distinctValues = Math.min(row.getLong(c + 1), tupleCount);
+            long partitionDistinctValues;
+            if (replicated) {
+                partitionDistinctValues = distinctValues;
+            }
+            else if (column.equals(table.getPartitioncolumn().getTypeName())) {
+                // each value lives in only one partition
+                partitionDistinctValues = divideRoundingUp(distinctValues, partitionCount);
+            }
+            else {
+                // assume the values are spread over all partitions
+                partitionDistinctValues = Math.min(distinctValues, partitionTupleCount);
+            }
+            measured.addRow(table.getTypeName(), column, tupleCount, distinctValues);
+            perPartition.addRow(table.getTypeName(), column, partitionTupleCount, partitionDistinctValues);
+        }
+
+        SynthesizedPlanFragment[] pfs = new SynthesizedPlanFragment[2];
+        pfs[0] = new SynthesizedPlanFragment();
+        pfs[0].fragmentId = SysProcFragmentId.PF_analyzePublish;
+        pfs[0].outputDepId = DEP_analyzePublish;
+        pfs[0].inputDepIds = new int[] {};
+        pfs[0].multipartition = true;
+        pfs[0].parameters = ParameterSet.fromArrayNoCopy(table.getSignature(), perPartition);
+
+        pfs[1] = new SynthesizedPlanFragment();
+        pfs[1].fragmentId = SysProcFragmentId.PF_analyzePublishAggregate;
+        pfs[1].outputDepId = DEP_analyzePublishAggregate;
+        pfs[1].inputDepIds = new int[] { DEP_analyzePublish };
+        pfs[1].multipartition = false;
+        pfs[1].parameters = ParameterSet.emptyParameterSet();
+        executeSysProcPlanFragments(pfs, DEP_analyzePublishAggregate);
+
+        HOST_LOG.info("Analyzed table " + table.getTypeName() + " in " +
+                      (System.currentTimeMillis() - startTime) + " milliseconds");
+        return new VoltTable[] { measured };
+    }
+
+    /**
+     * The columns of the non-expression indexes of the table, which are
+     * what the planner needs distinct value counts for, limited to the types
+     * APPROX_COUNT_DISTINCT accepts.
+     */
+    private static List<String> getAnalyzableColumns(Table table) {
+        Set<String> columns = new LinkedHashSet<String>();
+        for (Index index : table.getIndexes()) {
+            if ( ! index.getExpressionsjson().isEmpty()) {
+                continue;
+            }
+            for (ColumnRef colRef : CatalogUtil.getSortedCatalogItems(index.getColumns(), "index")) {
+                switch (VoltType.get((byte) colRef.getColumn().getType())) {
+                case TINYINT:
+                case SMALLINT:
+                case INTEGER:
+                case BIGINT:
+                case DECIMAL:
+                case TIMESTAMP:
+                    columns.add(colRef.getColumn().getTypeName());
+                    break;
+                default:
+                    break;
+                }
+            }
+        }
+        return new ArrayList<String>(columns);
+    }
+
+    private static long divideRoundingUp(long count, int partitionCount) {
+        return (count + partitionCount - 1) / partitionCount;
+    }
+}
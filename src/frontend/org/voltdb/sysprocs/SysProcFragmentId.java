@@ -199,4 +199,8 @@ public class SysProcFragmentId
     // @ExecuteTask
     public static final long PF_executeTask = 290;
     public static final long PF_executeTaskAggregate = 291;
+
+    // @Analyze
+    public static final long PF_analyzePublish = 300;
+    public static final long PF_analyzePublishAggregate = 301;
 }
@@ -0,0 +1,120 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.utils;
+
+/**
+ * A count-min sketch that estimates how often an item has been seen
+ * recently. Used by caches to decide whether a new entry is worth evicting
+ * an existing one for (TinyLFU admission).
+ *
+ * The sketch has DEPTH rows of small saturating counters. An item maps to one
+ * counter per row, derived from a single 64-bit mix of its hash code by double
+ * hashing, and its estimate is the smallest of those counters. Increments are
+ * conservative: only the counters that hold that minimum are raised, which
+ * keeps collisions from inflating the estimates of rarely seen items.
+ *
+ * Every counter is halved once the number of recorded increments reaches ten
+ * times the cache capacity, so the estimates favour recent popularity.
+ *
+ * Not thread-safe, callers must synchronize.
+ */
+public class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int COUNTERS_PER_ENTRY = 4;
+
+    // DEPTH rows of m_width counters, row after row
+    private final byte[] m_counters;
+    private final int m_width;
+    private final int m_widthMask;
+    private final int m_sampleSize;
+    private int m_increments = 0;
+
+    /**
+     * @param maximumSize  the capacity of the cache this sketch serves
+     */
+    public FrequencySketch(int maximumSize) {
+        int capacity = Math.max(16, maximumSize);
+        // several counters per cached entry and row, so that the many items
+        // seen once between agings rarely share all of their counters
+        m_width = (Integer.highestOneBit(capacity - 1) << 1) * COUNTERS_PER_ENTRY;
+        m_widthMask = m_width - 1;
+        m_counters = new byte[DEPTH * m_width];
+        m_sampleSize = 10 * capacity;
+    }
+
+    /**
+     * @param hashCode  hash code of the item
+     * @return the estimated number of recent occurrences of the item, at most 15
+     */
+    public int frequency(int hashCode) {
+        long hash = mix(hashCode);
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, m_counters[indexOf(hash, row)]);
+        }
+        return frequency;
+    }
+
+    /**
+     * Record one occurrence of the item.
+     * @param hashCode  hash code of the item
+     */
+    public void increment(int hashCode) {
+        long hash = mix(hashCode);
+        int min = frequency(hashCode);
+        if (min == MAX_COUNT) {
+            return;
+        }
+        for (int row = 0; row < DEPTH; row++) {
+            int index = indexOf(hash, row);
+            if (m_counters[index] == min) {
+                m_counters[index] = (byte) (min + 1);
+            }
+        }
+        if (++m_increments == m_sampleSize) {
+            age();
+        }
+    }
+
+    /** Halve every counter, forgetting old history. */
+    private void age() {
+        for (int i = 0; i < m_counters.length; i++) {
+            m_counters[i] >>= 1;
+        }
+        m_increments /= 2;
+    }
+
+    private int indexOf(long hash, int row) {
+        // Kirsch-Mitzenmacher: the row's hash is h1 + row * h2
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return row * m_width + ((h1 + row * h2) & m_widthMask);
+    }
+
+    /** Spread the bits of a hash code over 64 bits (the MurmurHash3 finalizer) */
+    private static long mix(int hashCode) {
+        long h = hashCode;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,294 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+
+#include "test_utils/PlanTestingEngine.hpp"
+
+#include <algorithm>
+#include <string>
+#include <vector>
+
+using namespace voltdb;
+
+namespace {
+
+typedef std::vector<int64_t> Row;
+typedef std::vector<Row> Rows;
+
+// SELECT L.C0, R.C0 FROM L, R WHERE L.C1 = R.C1
+const char* innerJoinPlan =
+    "{\"PLAN_NODES\":["
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"CHILDREN_IDS\":[2]},"
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"CHILDREN_IDS\":[3],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":2}}]},"
+    "{\"ID\":3,\"PLAN_NODE_TYPE\":\"HASHJOIN\",\"CHILDREN_IDS\":[4,6],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}}],\"JOIN_TYPE\":\"INNER\",\"PRE_JOIN_PREDICATE\":null,\"JOIN_PREDICATE\":{\"TYPE\":10,\"VALUE_TYPE\":23,\"LEFT\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1,\"TABLE_IDX\":1},\"RIGHT\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}},\"WHERE_PREDICATE\":null,\"OUTER_HASH_EXPRESSIONS\":[{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}],\"INNER_HASH_EXPRESSIONS\":[{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1,\"TABLE_IDX\":1}]},"
+    "{\"ID\":4,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":5,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}}]}],\"TARGET_TABLE_NAME\":\"L\",\"TARGET_TABLE_ALIAS\":\"L\"},"
+    "{\"ID\":6,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":7,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}}]}],\"TARGET_TABLE_NAME\":\"R\",\"TARGET_TABLE_ALIAS\":\"R\"}"
+    "],\"EXECUTE_LIST\":[4,6,3,2,1]}";
+
+// SELECT L.C0, R.C0 FROM L LEFT JOIN R ON L.C1 = R.C1 AND R.C2 > 0
+const char* leftJoinPlan =
+    "{\"PLAN_NODES\":["
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"CHILDREN_IDS\":[2]},"
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"CHILDREN_IDS\":[3],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":2}}]},"
+    "{\"ID\":3,\"PLAN_NODE_TYPE\":\"HASHJOIN\",\"CHILDREN_IDS\":[4,6],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":2}}],\"JOIN_TYPE\":\"LEFT\",\"PRE_JOIN_PREDICATE\":null,\"JOIN_PREDICATE\":{\"TYPE\":10,\"VALUE_TYPE\":23,\"LEFT\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1,\"TABLE_IDX\":1},\"RIGHT\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}},\"WHERE_PREDICATE\":null,\"OUTER_HASH_EXPRESSIONS\":[{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}],\"INNER_HASH_EXPRESSIONS\":[{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1,\"TABLE_IDX\":1}]},"
+    "{\"ID\":4,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":5,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}}]}],\"TARGET_TABLE_NAME\":\"L\",\"TARGET_TABLE_ALIAS\":\"L\"},"
+    "{\"ID\":6,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":7,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":2}}]}],\"PREDICATE\":{\"TYPE\":13,\"VALUE_TYPE\":23,\"LEFT\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":2},\"RIGHT\":{\"TYPE\":30,\"VALUE_TYPE\":5,\"ISNULL\":false,\"VALUE\":0}},\"TARGET_TABLE_NAME\":\"R\",\"TARGET_TABLE_ALIAS\":\"R\"}"
+    "],\"EXECUTE_LIST\":[4,6,3,2,1]}";
+
+// SELECT L.C0, R.C0 FROM L LEFT JOIN R ON L.C1 = R.C1 WHERE R.C0 IS NULL
+const char* antiJoinPlan =
+    "{\"PLAN_NODES\":["
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"CHILDREN_IDS\":[2]},"
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"CHILDREN_IDS\":[3],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":2}}]},"
+    "{\"ID\":3,\"PLAN_NODE_TYPE\":\"HASHJOIN\",\"CHILDREN_IDS\":[4,6],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}}],\"JOIN_TYPE\":\"LEFT\",\"PRE_JOIN_PREDICATE\":null,\"JOIN_PREDICATE\":{\"TYPE\":10,\"VALUE_TYPE\":23,\"LEFT\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1,\"TABLE_IDX\":1},\"RIGHT\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}},\"WHERE_PREDICATE\":{\"TYPE\":9,\"VALUE_TYPE\":23,\"LEFT\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0,\"TABLE_IDX\":1}},\"OUTER_HASH_EXPRESSIONS\":[{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}],\"INNER_HASH_EXPRESSIONS\":[{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1,\"TABLE_IDX\":1}]},"
+    "{\"ID\":4,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":5,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}}]}],\"TARGET_TABLE_NAME\":\"L\",\"TARGET_TABLE_ALIAS\":\"L\"},"
+    "{\"ID\":6,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":7,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}}]}],\"TARGET_TABLE_NAME\":\"R\",\"TARGET_TABLE_ALIAS\":\"R\"}"
+    "],\"EXECUTE_LIST\":[4,6,3,2,1]}";
+
+// SELECT L.C0, R.C0 FROM L, R WHERE L.C1 / 4 = R.C1 / 4 AND L.C1 + R.C1 = L.C1 * 2
+const char* collidingHashPlan =
+    "{\"PLAN_NODES\":["
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"CHILDREN_IDS\":[2]},"
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"CHILDREN_IDS\":[3],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":2}}]},"
+    "{\"ID\":3,\"PLAN_NODE_TYPE\":\"HASHJOIN\",\"CHILDREN_IDS\":[4,6],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}}],\"JOIN_TYPE\":\"INNER\",\"PRE_JOIN_PREDICATE\":null,\"JOIN_PREDICATE\":{\"TYPE\":20,\"VALUE_TYPE\":23,\"LEFT\":{\"TYPE\":10,\"VALUE_TYPE\":23,\"LEFT\":{\"TYPE\":1,\"VALUE_TYPE\":6,\"LEFT\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1},\"RIGHT\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1,\"TABLE_IDX\":1}},\"RIGHT\":{\"TYPE\":3,\"VALUE_TYPE\":6,\"LEFT\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1},\"RIGHT\":{\"TYPE\":30,\"VALUE_TYPE\":5,\"ISNULL\":false,\"VALUE\":2}}},\"RIGHT\":{\"TYPE\":10,\"VALUE_TYPE\":23,\"LEFT\":{\"TYPE\":4,\"VALUE_TYPE\":6,\"LEFT\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1},\"RIGHT\":{\"TYPE\":30,\"VALUE_TYPE\":5,\"ISNULL\":false,\"VALUE\":4}},\"RIGHT\":{\"TYPE\":4,\"VALUE_TYPE\":6,\"LEFT\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1,\"TABLE_IDX\":1},\"RIGHT\":{\"TYPE\":30,\"VALUE_TYPE\":5,\"ISNULL\":false,\"VALUE\":4}}}},\"WHERE_PREDICATE\":null,\"OUTER_HASH_EXPRESSIONS\":[{\"TYPE\":4,\"VALUE_TYPE\":6,\"LEFT\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1},\"RIGHT\":{\"TYPE\":30,\"VALUE_TYPE\":5,\"ISNULL\":false,\"VALUE\":4}}],\"INNER_HASH_EXPRESSIONS\":[{\"TYPE\":4,\"VALUE_TYPE\":6,\"LEFT\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1,\"TABLE_IDX\":1},\"RIGHT\":{\"TYPE\":30,\"VALUE_TYPE\":5,\"ISNULL\":false,\"VALUE\":4}}]},"
+    "{\"ID\":4,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":5,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}}]}],\"TARGET_TABLE_NAME\":\"L\",\"TARGET_TABLE_ALIAS\":\"L\"},"
+    "{\"ID\":6,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":7,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}}]}],\"TARGET_TABLE_NAME\":\"R\",\"TARGET_TABLE_ALIAS\":\"R\"}"
+    "],\"EXECUTE_LIST\":[4,6,3,2,1]}";
+
+// SELECT L.C0, R.C0 FROM L, R WHERE L.C1 = R.C1 LIMIT 3 OFFSET 2
+const char* innerLimitPlan =
+    "{\"PLAN_NODES\":["
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"CHILDREN_IDS\":[2]},"
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"CHILDREN_IDS\":[3],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":2}}]},"
+    "{\"ID\":3,\"PLAN_NODE_TYPE\":\"HASHJOIN\",\"INLINE_NODES\":[{\"ID\":4,\"PLAN_NODE_TYPE\":\"LIMIT\",\"OFFSET\":2,\"LIMIT\":3,\"OFFSET_PARAM_IDX\":-1,\"LIMIT_PARAM_IDX\":-1,\"LIMIT_EXPRESSION\":null}],\"CHILDREN_IDS\":[5,7],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}}],\"JOIN_TYPE\":\"INNER\",\"PRE_JOIN_PREDICATE\":null,\"JOIN_PREDICATE\":{\"TYPE\":10,\"VALUE_TYPE\":23,\"LEFT\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1,\"TABLE_IDX\":1},\"RIGHT\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}},\"WHERE_PREDICATE\":null,\"OUTER_HASH_EXPRESSIONS\":[{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}],\"INNER_HASH_EXPRESSIONS\":[{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1,\"TABLE_IDX\":1}]},"
+    "{\"ID\":5,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":6,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}}]}],\"TARGET_TABLE_NAME\":\"L\",\"TARGET_TABLE_ALIAS\":\"L\"},"
+    "{\"ID\":7,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":8,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}}]}],\"TARGET_TABLE_NAME\":\"R\",\"TARGET_TABLE_ALIAS\":\"R\"}"
+    "],\"EXECUTE_LIST\":[5,7,3,2,1]}";
+
+// SELECT L.C0, R.C0 FROM L LEFT JOIN R ON L.C1 = R.C1 LIMIT 4 OFFSET 3
+const char* leftLimitPlan =
+    "{\"PLAN_NODES\":["
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"CHILDREN_IDS\":[2]},"
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"CHILDREN_IDS\":[3],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":2}}]},"
+    "{\"ID\":3,\"PLAN_NODE_TYPE\":\"HASHJOIN\",\"INLINE_NODES\":[{\"ID\":4,\"PLAN_NODE_TYPE\":\"LIMIT\",\"OFFSET\":3,\"LIMIT\":4,\"OFFSET_PARAM_IDX\":-1,\"LIMIT_PARAM_IDX\":-1,\"LIMIT_EXPRESSION\":null}],\"CHILDREN_IDS\":[5,7],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}}],\"JOIN_TYPE\":\"LEFT\",\"PRE_JOIN_PREDICATE\":null,\"JOIN_PREDICATE\":{\"TYPE\":10,\"VALUE_TYPE\":23,\"LEFT\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1,\"TABLE_IDX\":1},\"RIGHT\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}},\"WHERE_PREDICATE\":null,\"OUTER_HASH_EXPRESSIONS\":[{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}],\"INNER_HASH_EXPRESSIONS\":[{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1,\"TABLE_IDX\":1}]},"
+    "{\"ID\":5,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":6,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}}]}],\"TARGET_TABLE_NAME\":\"L\",\"TARGET_TABLE_ALIAS\":\"L\"},"
+    "{\"ID\":7,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":8,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}}]}],\"TARGET_TABLE_NAME\":\"R\",\"TARGET_TABLE_ALIAS\":\"R\"}"
+    "],\"EXECUTE_LIST\":[5,7,3,2,1]}";
+
+// SELECT COUNT(*), SUM(R.C2) FROM L, R WHERE L.C1 = R.C1
+const char* serialAggPlan =
+    "{\"PLAN_NODES\":["
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"CHILDREN_IDS\":[2]},"
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"HASHJOIN\",\"INLINE_NODES\":[{\"ID\":3,\"PLAN_NODE_TYPE\":\"AGGREGATE\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}}],\"AGGREGATE_COLUMNS\":[{\"AGGREGATE_TYPE\":\"AGGREGATE_COUNT_STAR\",\"AGGREGATE_DISTINCT\":0,\"AGGREGATE_OUTPUT_COLUMN\":0},{\"AGGREGATE_TYPE\":\"AGGREGATE_SUM\",\"AGGREGATE_DISTINCT\":0,\"AGGREGATE_OUTPUT_COLUMN\":1,\"AGGREGATE_EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":2}}]}],\"CHILDREN_IDS\":[4,6],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}}],\"JOIN_TYPE\":\"INNER\",\"PRE_JOIN_PREDICATE\":null,\"JOIN_PREDICATE\":{\"TYPE\":10,\"VALUE_TYPE\":23,\"LEFT\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0,\"TABLE_IDX\":1},\"RIGHT\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},\"WHERE_PREDICATE\":null,\"OUTPUT_SCHEMA_PRE_AGG\":[{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}}],\"OUTER_HASH_EXPRESSIONS\":[{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}],\"INNER_HASH_EXPRESSIONS\":[{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0,\"TABLE_IDX\":1}]},"
+    "{\"ID\":4,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":5,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}}]}],\"TARGET_TABLE_NAME\":\"L\",\"TARGET_TABLE_ALIAS\":\"L\"},"
+    "{\"ID\":6,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":7,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":2}}]}],\"TARGET_TABLE_NAME\":\"R\",\"TARGET_TABLE_ALIAS\":\"R\"}"
+    "],\"EXECUTE_LIST\":[4,6,2,1]}";
+
+// SELECT L.C0, COUNT(*) FROM L, R WHERE L.C1 = R.C1 GROUP BY L.C0
+const char* hashAggPlan =
+    "{\"PLAN_NODES\":["
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"CHILDREN_IDS\":[2]},"
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"HASHJOIN\",\"INLINE_NODES\":[{\"ID\":3,\"PLAN_NODE_TYPE\":\"HASHAGGREGATE\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}}],\"AGGREGATE_COLUMNS\":[{\"AGGREGATE_TYPE\":\"AGGREGATE_COUNT_STAR\",\"AGGREGATE_DISTINCT\":0,\"AGGREGATE_OUTPUT_COLUMN\":1}],\"GROUPBY_EXPRESSIONS\":[{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}]}],\"CHILDREN_IDS\":[4,6],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}}],\"JOIN_TYPE\":\"INNER\",\"PRE_JOIN_PREDICATE\":null,\"JOIN_PREDICATE\":{\"TYPE\":10,\"VALUE_TYPE\":23,\"LEFT\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0,\"TABLE_IDX\":1},\"RIGHT\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}},\"WHERE_PREDICATE\":null,\"OUTPUT_SCHEMA_PRE_AGG\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}}],\"OUTER_HASH_EXPRESSIONS\":[{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}],\"INNER_HASH_EXPRESSIONS\":[{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0,\"TABLE_IDX\":1}]},"
+    "{\"ID\":4,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":5,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}}]}],\"TARGET_TABLE_NAME\":\"L\",\"TARGET_TABLE_ALIAS\":\"L\"},"
+    "{\"ID\":6,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":7,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}}]}],\"TARGET_TABLE_NAME\":\"R\",\"TARGET_TABLE_ALIAS\":\"R\"}"
+    "],\"EXECUTE_LIST\":[4,6,2,1]}";
+
+Row row(int64_t c0, int64_t c1) {
+    Row result;
+    result.push_back(c0);
+    result.push_back(c1);
+    return result;
+}
+
+Row row(int64_t c0, int64_t c1, int64_t c2) {
+    Row result = row(c0, c1);
+    result.push_back(c2);
+    return result;
+}
+
+}
+
+/**
+ * Runs hash join plans from the Java planner over L(C0, C1 INTEGER, C2) and
+ * R(C0, C1 BIGINT, C2), and checks them against nested loop joins of the
+ * same rows computed here, in the same order.
+ */
+class HashJoinExecutorTest : public Test {
+public:
+    HashJoinExecutorTest() : m_engine(catalog())
+    {
+        // Outer keys repeat, some are NULL and some have no match.
+        for (int i = 0; i < 40; ++i) {
+            m_outer.push_back(row(i, (i % 5 == 4) ? SQL_NULL : i % 13, i));
+        }
+        // Inner keys repeat too, so a probe can find a chain of several
+        // matches, which have to come out in scan order.
+        for (int i = 0; i < 30; ++i) {
+            m_inner.push_back(row(100 + i, (i % 7 == 6) ? SQL_NULL : (i * 3) % 11, i - 10));
+        }
+        for (size_t i = 0; i < m_outer.size(); ++i) {
+            m_engine.insert("L", m_outer[i]);
+        }
+        for (size_t i = 0; i < m_inner.size(); ++i) {
+            m_engine.insert("R", m_inner[i]);
+        }
+    }
+
+    static std::string catalog() {
+        std::vector<ValueType> outer(3, VALUE_TYPE_INTEGER);
+        std::vector<ValueType> inner(3, VALUE_TYPE_INTEGER);
+        inner[1] = VALUE_TYPE_BIGINT;
+        return integerTableCatalog("L", outer) + integerTableCatalog("R", inner);
+    }
+
+    /**
+     * The (L.C0, R.C0) pairs of the join on L.C1 = R.C1 in nested loop order.
+     * Inner rows need C2 > minInnerC2 to match. A left join pads unmatched
+     * outer rows with NULL, and unmatchedOnly keeps only those.
+     */
+    Rows nestLoopJoin(bool left, int64_t minInnerC2 = INT64_MIN, bool unmatchedOnly = false) const {
+        Rows result;
+        for (size_t i = 0; i < m_outer.size(); ++i) {
+            bool matched = false;
+            for (size_t j = 0; j < m_inner.size(); ++j) {
+                if (m_outer[i][1] != SQL_NULL && m_outer[i][1] == m_inner[j][1] &&
+                    m_inner[j][2] > minInnerC2) {
+                    matched = true;
+                    if ( ! unmatchedOnly) {
+                        result.push_back(row(m_outer[i][0], m_inner[j][0]));
+                    }
+                }
+            }
+            if (left && ! matched) {
+                result.push_back(row(m_outer[i][0], SQL_NULL));
+            }
+        }
+        return result;
+    }
+
+    Rows execute(const char* plan) {
+        TempTable* result = m_engine.execute(plan);
+        EXPECT_TRUE(result != NULL);
+        if (result == NULL) {
+            return Rows();
+        }
+        Rows rows = PlanTestingEngine::rows(result);
+        delete result;
+        return rows;
+    }
+
+protected:
+    PlanTestingEngine m_engine;
+    Rows m_outer;
+    Rows m_inner;
+};
+
+static Rows slice(const Rows& rows, size_t offset, size_t limit) {
+    Rows result;
+    for (size_t i = offset; i < rows.size() && i < offset + limit; ++i) {
+        result.push_back(rows[i]);
+    }
+    return result;
+}
+
+TEST_F(HashJoinExecutorTest, InnerJoin) {
+    ASSERT_TRUE(m_engine.loaded());
+    Rows expected = nestLoopJoin(false);
+    ASSERT_TRUE(expected.size() > m_outer.size());
+    EXPECT_TRUE(expected == execute(innerJoinPlan));
+}
+
+TEST_F(HashJoinExecutorTest, LeftJoin) {
+    // NULL keys and keys without a match come out padded with NULL,
+    // so does a key whose only matches fail the inner filter.
+    Rows expected = nestLoopJoin(true, 0);
+    EXPECT_TRUE(expected == execute(leftJoinPlan));
+
+    Rows unmatched = nestLoopJoin(true, INT64_MIN, true);
+    ASSERT_FALSE(unmatched.empty());
+    EXPECT_TRUE(unmatched == execute(antiJoinPlan));
+}
+
+TEST_F(HashJoinExecutorTest, HashCollisions) {
+    // The hash is on C1 / 4, so every chain holds inner rows of up to four
+    // keys. Only the candidates that pass the join predicate may match.
+    EXPECT_TRUE(nestLoopJoin(false) == execute(collidingHashPlan));
+}
+
+TEST_F(HashJoinExecutorTest, LimitOffset) {
+    EXPECT_TRUE(slice(nestLoopJoin(false), 2, 3) == execute(innerLimitPlan));
+    EXPECT_TRUE(slice(nestLoopJoin(true), 3, 4) == execute(leftLimitPlan));
+}
+
+TEST_F(HashJoinExecutorTest, InlineAggregates) {
+    Rows joined = nestLoopJoin(false);
+    int64_t sum = 0;
+    Rows groups;
+    for (size_t i = 0; i < joined.size(); ++i) {
+        for (size_t j = 0; j < m_inner.size(); ++j) {
+            if (m_inner[j][0] == joined[i][1]) {
+                sum += m_inner[j][2];
+            }
+        }
+        if (groups.empty() || groups.back()[0] != joined[i][0]) {
+            groups.push_back(row(joined[i][0], 0));
+        }
+        ++groups.back()[1];
+    }
+    Rows serial = execute(serialAggPlan);
+    ASSERT_EQ(1u, serial.size());
+    EXPECT_EQ(static_cast<int64_t>(joined.size()), serial[0][0]);
+    EXPECT_EQ(sum, serial[0][1]);
+
+    // hash aggregation makes no promise about the order of the groups
+    Rows hashed = execute(hashAggPlan);
+    std::sort(hashed.begin(), hashed.end());
+    EXPECT_TRUE(groups == hashed);
+}
+
+TEST_F(HashJoinExecutorTest, EmptyInput) {
+    // Rerun the joins over an empty inner table in a fresh engine.
+    PlanTestingEngine engine(catalog());
+    for (size_t i = 0; i < m_outer.size(); ++i) {
+        engine.insert("L", m_outer[i]);
+    }
+    TempTable* inner = engine.execute(innerJoinPlan);
+    ASSERT_TRUE(inner != NULL);
+    EXPECT_EQ(0, inner->activeTupleCount());
+    delete inner;
+
+    TempTable* left = engine.execute(leftJoinPlan);
+    ASSERT_TRUE(left != NULL);
+    Rows rows = PlanTestingEngine::rows(left);
+    delete left;
+    ASSERT_EQ(m_outer.size(), rows.size());
+    for (size_t i = 0; i < rows.size(); ++i) {
+        EXPECT_EQ(m_outer[i][0], rows[i][0]);
+        EXPECT_EQ(SQL_NULL, rows[i][1]);
+    }
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
@@ -0,0 +1,231 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+
+#include "test_utils/PlanTestingEngine.hpp"
+
+#include <algorithm>
+#include <set>
+#include <string>
+#include <vector>
+
+using namespace voltdb;
+
+namespace {
+
+typedef std::vector<int64_t> Row;
+typedef std::vector<Row> Rows;
+
+// SELECT * FROM T ORDER BY C1, C2
+const char* fullSortPlan =
+    "{\"PLAN_NODES\":["
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"CHILDREN_IDS\":[2]},"
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"CHILDREN_IDS\":[3],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2}},{\"COLUMN_NAME\":\"C3\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":3}}]},"
+    "{\"ID\":3,\"PLAN_NODE_TYPE\":\"ORDERBY\",\"CHILDREN_IDS\":[4],\"SORT_COLUMNS\":[{\"SORT_EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1},\"SORT_DIRECTION\":\"ASC\"},{\"SORT_EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2},\"SORT_DIRECTION\":\"ASC\"}]},"
+    "{\"ID\":4,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":5,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2}},{\"COLUMN_NAME\":\"C3\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":3}}]}],\"TARGET_TABLE_NAME\":\"T\",\"TARGET_TABLE_ALIAS\":\"T\"}"
+    "],\"EXECUTE_LIST\":[4,3,2,1]}";
+
+// SELECT * FROM T ORDER BY C1 LIMIT 10 OFFSET 5
+const char* topNPlan =
+    "{\"PLAN_NODES\":["
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"CHILDREN_IDS\":[2]},"
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"CHILDREN_IDS\":[3],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2}},{\"COLUMN_NAME\":\"C3\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":3}}]},"
+    "{\"ID\":3,\"PLAN_NODE_TYPE\":\"ORDERBY\",\"INLINE_NODES\":[{\"ID\":4,\"PLAN_NODE_TYPE\":\"LIMIT\",\"OFFSET\":5,\"LIMIT\":10,\"OFFSET_PARAM_IDX\":-1,\"LIMIT_PARAM_IDX\":-1,\"LIMIT_EXPRESSION\":null}],\"CHILDREN_IDS\":[5],\"SORT_COLUMNS\":[{\"SORT_EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1},\"SORT_DIRECTION\":\"ASC\"}]},"
+    "{\"ID\":5,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":6,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2}},{\"COLUMN_NAME\":\"C3\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":3}}]}],\"TARGET_TABLE_NAME\":\"T\",\"TARGET_TABLE_ALIAS\":\"T\"}"
+    "],\"EXECUTE_LIST\":[5,3,2,1]}";
+
+// SELECT * FROM T ORDER BY C1 DESC, C2 LIMIT 12 OFFSET 3
+const char* topNDescPlan =
+    "{\"PLAN_NODES\":["
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"CHILDREN_IDS\":[2]},"
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"CHILDREN_IDS\":[3],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2}},{\"COLUMN_NAME\":\"C3\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":3}}]},"
+    "{\"ID\":3,\"PLAN_NODE_TYPE\":\"ORDERBY\",\"INLINE_NODES\":[{\"ID\":4,\"PLAN_NODE_TYPE\":\"LIMIT\",\"OFFSET\":3,\"LIMIT\":12,\"OFFSET_PARAM_IDX\":-1,\"LIMIT_PARAM_IDX\":-1,\"LIMIT_EXPRESSION\":null}],\"CHILDREN_IDS\":[5],\"SORT_COLUMNS\":[{\"SORT_EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1},\"SORT_DIRECTION\":\"DESC\"},{\"SORT_EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2},\"SORT_DIRECTION\":\"ASC\"}]},"
+    "{\"ID\":5,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":6,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2}},{\"COLUMN_NAME\":\"C3\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":3}}]}],\"TARGET_TABLE_NAME\":\"T\",\"TARGET_TABLE_ALIAS\":\"T\"}"
+    "],\"EXECUTE_LIST\":[5,3,2,1]}";
+
+// SELECT * FROM T ORDER BY C2, C0 LIMIT 7 OFFSET 2
+const char* topNUniquePlan =
+    "{\"PLAN_NODES\":["
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"CHILDREN_IDS\":[2]},"
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"CHILDREN_IDS\":[3],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2}},{\"COLUMN_NAME\":\"C3\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":3}}]},"
+    "{\"ID\":3,\"PLAN_NODE_TYPE\":\"ORDERBY\",\"INLINE_NODES\":[{\"ID\":4,\"PLAN_NODE_TYPE\":\"LIMIT\",\"OFFSET\":2,\"LIMIT\":7,\"OFFSET_PARAM_IDX\":-1,\"LIMIT_PARAM_IDX\":-1,\"LIMIT_EXPRESSION\":null}],\"CHILDREN_IDS\":[5],\"SORT_COLUMNS\":[{\"SORT_EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2},\"SORT_DIRECTION\":\"ASC\"},{\"SORT_EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0},\"SORT_DIRECTION\":\"ASC\"}]},"
+    "{\"ID\":5,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":6,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2}},{\"COLUMN_NAME\":\"C3\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":3}}]}],\"TARGET_TABLE_NAME\":\"T\",\"TARGET_TABLE_ALIAS\":\"T\"}"
+    "],\"EXECUTE_LIST\":[5,3,2,1]}";
+
+// SELECT * FROM T ORDER BY C1 LIMIT 1000 OFFSET 190
+const char* limitPastEndPlan =
+    "{\"PLAN_NODES\":["
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"CHILDREN_IDS\":[2]},"
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"CHILDREN_IDS\":[3],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2}},{\"COLUMN_NAME\":\"C3\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":3}}]},"
+    "{\"ID\":3,\"PLAN_NODE_TYPE\":\"ORDERBY\",\"INLINE_NODES\":[{\"ID\":4,\"PLAN_NODE_TYPE\":\"LIMIT\",\"OFFSET\":190,\"LIMIT\":1000,\"OFFSET_PARAM_IDX\":-1,\"LIMIT_PARAM_IDX\":-1,\"LIMIT_EXPRESSION\":null}],\"CHILDREN_IDS\":[5],\"SORT_COLUMNS\":[{\"SORT_EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1},\"SORT_DIRECTION\":\"ASC\"}]},"
+    "{\"ID\":5,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":6,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2}},{\"COLUMN_NAME\":\"C3\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":3}}]}],\"TARGET_TABLE_NAME\":\"T\",\"TARGET_TABLE_ALIAS\":\"T\"}"
+    "],\"EXECUTE_LIST\":[5,3,2,1]}";
+
+// SELECT * FROM T ORDER BY C1 LIMIT 0
+const char* limitZeroPlan =
+    "{\"PLAN_NODES\":["
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"CHILDREN_IDS\":[2]},"
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"CHILDREN_IDS\":[3],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2}},{\"COLUMN_NAME\":\"C3\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":3}}]},"
+    "{\"ID\":3,\"PLAN_NODE_TYPE\":\"ORDERBY\",\"INLINE_NODES\":[{\"ID\":4,\"PLAN_NODE_TYPE\":\"LIMIT\",\"OFFSET\":0,\"LIMIT\":0,\"OFFSET_PARAM_IDX\":-1,\"LIMIT_PARAM_IDX\":-1,\"LIMIT_EXPRESSION\":null}],\"CHILDREN_IDS\":[5],\"SORT_COLUMNS\":[{\"SORT_EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1},\"SORT_DIRECTION\":\"ASC\"}]},"
+    "{\"ID\":5,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":6,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2}},{\"COLUMN_NAME\":\"C3\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":3}}]}],\"TARGET_TABLE_NAME\":\"T\",\"TARGET_TABLE_ALIAS\":\"T\"}"
+    "],\"EXECUTE_LIST\":[5,3,2,1]}";
+
+// SELECT * FROM T ORDER BY C1 OFFSET 20
+const char* offsetOnlyPlan =
+    "{\"PLAN_NODES\":["
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"CHILDREN_IDS\":[2]},"
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"CHILDREN_IDS\":[3],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2}},{\"COLUMN_NAME\":\"C3\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":3}}]},"
+    "{\"ID\":3,\"PLAN_NODE_TYPE\":\"ORDERBY\",\"INLINE_NODES\":[{\"ID\":4,\"PLAN_NODE_TYPE\":\"LIMIT\",\"OFFSET\":20,\"LIMIT\":-1,\"OFFSET_PARAM_IDX\":-1,\"LIMIT_PARAM_IDX\":-1,\"LIMIT_EXPRESSION\":null}],\"CHILDREN_IDS\":[5],\"SORT_COLUMNS\":[{\"SORT_EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1},\"SORT_DIRECTION\":\"ASC\"}]},"
+    "{\"ID\":5,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":6,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2}},{\"COLUMN_NAME\":\"C3\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":3}}]}],\"TARGET_TABLE_NAME\":\"T\",\"TARGET_TABLE_ALIAS\":\"T\"}"
+    "],\"EXECUTE_LIST\":[5,3,2,1]}";
+
+const int ROW_COUNT = 200;
+
+// SQL_NULL is the smallest integer, so NULLs sort first going up, as in SQL.
+struct ByC1ThenC2 {
+    bool operator()(const Row& a, const Row& b) const {
+        return a[1] != b[1] ? a[1] < b[1] : a[2] < b[2];
+    }
+};
+
+struct ByC1 {
+    bool operator()(const Row& a, const Row& b) const {
+        return a[1] < b[1];
+    }
+};
+
+struct ByC1DescThenC2 {
+    bool operator()(const Row& a, const Row& b) const {
+        return a[1] != b[1] ? a[1] > b[1] : a[2] < b[2];
+    }
+};
+
+struct ByC2ThenC0 {
+    bool operator()(const Row& a, const Row& b) const {
+        return a[2] != b[2] ? a[2] < b[2] : a[0] < b[0];
+    }
+};
+
+}
+
+/**
+ * Runs ORDER BY with and without LIMIT and OFFSET, which takes the bounded
+ * heap of topN when there is a limit and the full sort otherwise. The sort
+ * keys repeat, so a limit or an offset usually falls in a run of ties,
+ * where any of the tied rows may come out.
+ */
+class OrderByExecutorTest : public Test {
+public:
+    OrderByExecutorTest() : m_engine(integerTableCatalog("T", std::vector<ValueType>(4, VALUE_TYPE_BIGINT)))
+    {
+        for (int i = 0; i < ROW_COUNT; ++i) {
+            Row row;
+            row.push_back(i);
+            row.push_back((i % 11 == 3) ? SQL_NULL : (i * 5) % 7);
+            row.push_back((i * 37) % 50);
+            row.push_back(i * 3);
+            m_rows.push_back(row);
+            m_engine.insert("T", row);
+        }
+    }
+
+    Rows execute(const char* plan) {
+        TempTable* result = m_engine.execute(plan);
+        EXPECT_TRUE(result != NULL);
+        if (result == NULL) {
+            return Rows();
+        }
+        Rows rows = PlanTestingEngine::rows(result);
+        delete result;
+        return rows;
+    }
+
+    /**
+     * Check that the rows of a query are rows of T, each at most once, and
+     * that their sort keys are those of the rows from offset up to limit
+     * of T in order. A negative limit takes all rows past the offset.
+     */
+    template <typename Comparer>
+    void expectOrdered(const Rows& actual, size_t offset, int limit, Comparer comparer) {
+        Rows expected = m_rows;
+        std::stable_sort(expected.begin(), expected.end(), comparer);
+        size_t end = expected.size();
+        if (limit >= 0) {
+            end = std::min(end, offset + limit);
+        }
+        expected = Rows(expected.begin() + std::min(offset, end), expected.begin() + end);
+
+        ASSERT_EQ(expected.size(), actual.size());
+        std::set<int64_t> seen;
+        for (size_t i = 0; i < actual.size(); ++i) {
+            EXPECT_TRUE(m_rows[actual[i][0]] == actual[i]);
+            EXPECT_TRUE(seen.insert(actual[i][0]).second);
+            EXPECT_FALSE(comparer(actual[i], expected[i]));
+            EXPECT_FALSE(comparer(expected[i], actual[i]));
+        }
+    }
+
+protected:
+    PlanTestingEngine m_engine;
+    Rows m_rows;
+};
+
+TEST_F(OrderByExecutorTest, FullSort) {
+    ASSERT_TRUE(m_engine.loaded());
+    expectOrdered(execute(fullSortPlan), 0, -1, ByC1ThenC2());
+}
+
+TEST_F(OrderByExecutorTest, FullSortWithOffset) {
+    // Without a limit the offset only skips rows of the full sort.
+    expectOrdered(execute(offsetOnlyPlan), 20, -1, ByC1());
+}
+
+TEST_F(OrderByExecutorTest, TopNWithTies) {
+    // Both ends of the window fall in runs of tied keys.
+    expectOrdered(execute(topNPlan), 5, 10, ByC1());
+    expectOrdered(execute(topNDescPlan), 3, 12, ByC1DescThenC2());
+}
+
+TEST_F(OrderByExecutorTest, TopNMatchesFullSort) {
+    // With a total order the top-N heap has to return exactly the rows of
+    // the full sort.
+    Rows sorted = m_rows;
+    std::sort(sorted.begin(), sorted.end(), ByC2ThenC0());
+    EXPECT_TRUE(Rows(sorted.begin() + 2, sorted.begin() + 9) == execute(topNUniquePlan));
+}
+
+TEST_F(OrderByExecutorTest, LimitPastEnd) {
+    // The heap never fills, so every row past the offset comes out sorted.
+    Rows actual = execute(limitPastEndPlan);
+    EXPECT_EQ(static_cast<size_t>(ROW_COUNT - 190), actual.size());
+    expectOrdered(actual, 190, 1000, ByC1());
+}
+
+TEST_F(OrderByExecutorTest, LimitZero) {
+    EXPECT_TRUE(execute(limitZeroPlan).empty());
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
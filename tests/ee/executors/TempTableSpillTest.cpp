@@ -0,0 +1,203 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+
+#include "test_utils/PlanTestingEngine.hpp"
+
+#include <algorithm>
+#include <string>
+#include <vector>
+
+using namespace voltdb;
+
+namespace {
+
+typedef std::vector<int64_t> Row;
+typedef std::vector<Row> Rows;
+
+// SELECT * FROM T ORDER BY C1, C0
+const char* fullSortPlan =
+    "{\"PLAN_NODES\":["
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"CHILDREN_IDS\":[2]},"
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"CHILDREN_IDS\":[3],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2}},{\"COLUMN_NAME\":\"C3\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":3}}]},"
+    "{\"ID\":3,\"PLAN_NODE_TYPE\":\"ORDERBY\",\"CHILDREN_IDS\":[4],\"SORT_COLUMNS\":[{\"SORT_EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1},\"SORT_DIRECTION\":\"ASC\"},{\"SORT_EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0},\"SORT_DIRECTION\":\"ASC\"}]},"
+    "{\"ID\":4,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":5,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2}},{\"COLUMN_NAME\":\"C3\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":3}}]}],\"TARGET_TABLE_NAME\":\"T\",\"TARGET_TABLE_ALIAS\":\"T\"}"
+    "],\"EXECUTE_LIST\":[4,3,2,1]}";
+
+// SELECT * FROM T ORDER BY C1 DESC, C0 LIMIT 10 OFFSET 5
+const char* topNPlan =
+    "{\"PLAN_NODES\":["
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"CHILDREN_IDS\":[2]},"
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"CHILDREN_IDS\":[3],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2}},{\"COLUMN_NAME\":\"C3\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":3}}]},"
+    "{\"ID\":3,\"PLAN_NODE_TYPE\":\"ORDERBY\",\"INLINE_NODES\":[{\"ID\":4,\"PLAN_NODE_TYPE\":\"LIMIT\",\"OFFSET\":5,\"LIMIT\":10,\"OFFSET_PARAM_IDX\":-1,\"LIMIT_PARAM_IDX\":-1,\"LIMIT_EXPRESSION\":null}],\"CHILDREN_IDS\":[5],\"SORT_COLUMNS\":[{\"SORT_EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1},\"SORT_DIRECTION\":\"DESC\"},{\"SORT_EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0},\"SORT_DIRECTION\":\"ASC\"}]},"
+    "{\"ID\":5,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":6,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C0\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2}},{\"COLUMN_NAME\":\"C3\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":3}}]}],\"TARGET_TABLE_NAME\":\"T\",\"TARGET_TABLE_ALIAS\":\"T\"}"
+    "],\"EXECUTE_LIST\":[5,3,2,1]}";
+
+// SELECT C1, COUNT(*), SUM(C2) FROM T GROUP BY C1
+const char* hashAggPlan =
+    "{\"PLAN_NODES\":["
+    "{\"ID\":1,\"PLAN_NODE_TYPE\":\"SEND\",\"CHILDREN_IDS\":[2]},"
+    "{\"ID\":2,\"PLAN_NODE_TYPE\":\"SEQSCAN\",\"INLINE_NODES\":[{\"ID\":3,\"PLAN_NODE_TYPE\":\"HASHAGGREGATE\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C3\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2}}],\"AGGREGATE_COLUMNS\":[{\"AGGREGATE_TYPE\":\"AGGREGATE_COUNT_STAR\",\"AGGREGATE_DISTINCT\":0,\"AGGREGATE_OUTPUT_COLUMN\":1},{\"AGGREGATE_TYPE\":\"AGGREGATE_SUM\",\"AGGREGATE_DISTINCT\":0,\"AGGREGATE_OUTPUT_COLUMN\":2,\"AGGREGATE_EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}}],\"GROUPBY_EXPRESSIONS\":[{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}]},{\"ID\":4,\"PLAN_NODE_TYPE\":\"PROJECTION\",\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2}}]}],\"OUTPUT_SCHEMA\":[{\"COLUMN_NAME\":\"C1\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":0}},{\"COLUMN_NAME\":\"C2\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":1}},{\"COLUMN_NAME\":\"C3\",\"EXPRESSION\":{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2}}],\"TARGET_TABLE_NAME\":\"T\",\"TARGET_TABLE_ALIAS\":\"T\"}"
+    "],\"EXECUTE_LIST\":[2,1]}";
+
+// Each run of the tests fills T with enough rows to need several times
+// the temp table memory a fragment may use.
+const int ROW_COUNT = 60000;
+const int GROUP_COUNT = 20000;
+const int64_t MEMORY_LIMIT = 1024 * 1024;
+const int64_t SPILL_LIMIT = 64 * 1024 * 1024;
+
+struct ByC1ThenC0 {
+    bool operator()(const Row& a, const Row& b) const {
+        return a[1] != b[1] ? a[1] < b[1] : a[0] < b[0];
+    }
+};
+
+struct ByC1DescThenC0 {
+    bool operator()(const Row& a, const Row& b) const {
+        return a[1] != b[1] ? a[1] > b[1] : a[0] < b[0];
+    }
+};
+
+}
+
+/**
+ * Runs sorts and aggregations whose temp tables outgrow the memory limit
+ * of the fragment, so they only complete by spilling to scratch files.
+ */
+class TempTableSpillTest : public Test {
+public:
+    TempTableSpillTest() : m_engine(catalog(), MEMORY_LIMIT, SPILL_LIMIT, "/tmp")
+    {
+        for (int i = 0; i < ROW_COUNT; ++i) {
+            Row row;
+            row.push_back(i);
+            row.push_back((i * 7919) % GROUP_COUNT);
+            row.push_back(i % 13 - 6);
+            row.push_back((i % 9 == 0) ? SQL_NULL : i * 3);
+            m_rows.push_back(row);
+            m_engine.insert("T", row);
+        }
+    }
+
+    static std::string catalog() {
+        return integerTableCatalog("T", std::vector<ValueType>(4, VALUE_TYPE_BIGINT));
+    }
+
+    Rows execute(PlanTestingEngine& engine, const char* plan) {
+        TempTable* result = engine.execute(plan);
+        EXPECT_TRUE(result != NULL);
+        if (result == NULL) {
+            return Rows();
+        }
+        Rows rows = PlanTestingEngine::rows(result);
+        delete result;
+        return rows;
+    }
+
+    /** (C1, COUNT(*), SUM(C2)) of each group of T by C1, in order of C1 */
+    Rows groups() const {
+        Rows result(GROUP_COUNT, Row(3, 0));
+        for (int i = 0; i < GROUP_COUNT; ++i) {
+            result[i][0] = i;
+        }
+        for (size_t i = 0; i < m_rows.size(); ++i) {
+            Row& group = result[m_rows[i][1]];
+            group[1] += 1;
+            group[2] += m_rows[i][2];
+        }
+        return result;
+    }
+
+    /** The groups the hash aggregate finds, which come out in no particular order */
+    Rows aggregate(PlanTestingEngine& engine) {
+        Rows result = execute(engine, hashAggPlan);
+        std::sort(result.begin(), result.end());
+        return result;
+    }
+
+protected:
+    PlanTestingEngine m_engine;
+    Rows m_rows;
+};
+
+TEST_F(TempTableSpillTest, ExternalSort) {
+    ASSERT_TRUE(m_engine.loaded());
+    // The scan's output has to spill before the sort reads it, and the
+    // sorted output, as large as the input, has to spill on its way out.
+    Rows expected = m_rows;
+    std::sort(expected.begin(), expected.end(), ByC1ThenC0());
+    Rows actual = execute(m_engine, fullSortPlan);
+    EXPECT_EQ(expected.size(), actual.size());
+    EXPECT_TRUE(expected == actual);
+
+    VoltDBEngine* engine = m_engine.engine();
+    EXPECT_EQ(1, engine->spillingFragmentCount());
+    EXPECT_TRUE(engine->totalSpilledBytes() > MEMORY_LIMIT);
+    EXPECT_TRUE(engine->totalSpillTimeNanos() > 0);
+}
+
+TEST_F(TempTableSpillTest, ExternalTopN) {
+    Rows expected = m_rows;
+    std::sort(expected.begin(), expected.end(), ByC1DescThenC0());
+    expected = Rows(expected.begin() + 5, expected.begin() + 15);
+    EXPECT_TRUE(expected == execute(m_engine, topNPlan));
+    EXPECT_EQ(1, m_engine.engine()->spillingFragmentCount());
+
+    // The totals keep growing over fragments.
+    int64_t spilledBytes = m_engine.engine()->totalSpilledBytes();
+    EXPECT_TRUE(expected == execute(m_engine, topNPlan));
+    EXPECT_EQ(2, m_engine.engine()->spillingFragmentCount());
+    EXPECT_TRUE(m_engine.engine()->totalSpilledBytes() > spilledBytes);
+}
+
+TEST_F(TempTableSpillTest, PartitionedHashAggregate) {
+    // The output of the aggregate fits in half of the memory limit, so only
+    // the partitions of the groups that did not fit can account for a spill.
+    Rows expected = groups();
+    Rows actual = aggregate(m_engine);
+    EXPECT_EQ(expected.size(), actual.size());
+    EXPECT_TRUE(expected == actual);
+    EXPECT_EQ(1, m_engine.engine()->spillingFragmentCount());
+    EXPECT_TRUE(m_engine.engine()->totalSpilledBytes() > 0);
+}
+
+TEST_F(TempTableSpillTest, NoSpillWithoutSpillDirectory) {
+    // The same sort overruns the memory limit when spilling is off,
+    // and the aggregate keeps all of its groups in memory.
+    PlanTestingEngine inMemory(catalog(), MEMORY_LIMIT);
+    for (size_t i = 0; i < m_rows.size(); ++i) {
+        inMemory.insert("T", m_rows[i]);
+    }
+    TempTable* result = inMemory.execute(fullSortPlan);
+    EXPECT_TRUE(result == NULL);
+    delete result;
+    EXPECT_TRUE(groups() == aggregate(inMemory));
+    EXPECT_EQ(0, inMemory.engine()->spillingFragmentCount());
+    EXPECT_EQ(0, inMemory.engine()->totalSpilledBytes());
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
@@ -0,0 +1,270 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+
+#include "common/NValue.hpp"
+#include "common/ThreadLocalPool.h"
+#include "common/TupleSchemaBuilder.h"
+#include "common/ValueFactory.hpp"
+#include "common/ValuePeeker.hpp"
+#include "expressions/compiledexpression.h"
+#include "expressions/expressions.h"
+#include "test_utils/ScopedTupleSchema.hpp"
+
+#include <boost/scoped_array.hpp>
+#include <boost/scoped_ptr.hpp>
+
+#include <algorithm>
+#include <cstdio>
+#include <cstdlib>
+#include <sys/time.h>
+
+using namespace voltdb;
+
+/*
+ * Compares the time it takes to evaluate scan predicates and projection
+ * expressions over a block of tuples by walking the expression tree and by
+ * running the compiled form of the same expression over batches of tuples.
+ * Only the numbers of an optimized (-O2) build mean anything, a debug build
+ * slows the tree down far more than the compiled loops.
+ */
+
+static const int TUPLE_COUNT = 500000;
+static const int REPEAT = 5;
+
+static int64_t getMicrosNow()
+{
+    timeval tv;
+    gettimeofday(&tv, NULL);
+    return tv.tv_sec * 1000000 + tv.tv_usec;
+}
+
+class CompiledExpressionBenchmark : public Test {
+public:
+    CompiledExpressionBenchmark()
+        : m_schema(buildSchema())
+        , m_bigintParam(ValueFactory::getBigIntValue(0))
+        , m_doubleParam(ValueFactory::getDoubleValue(0.0))
+    {
+        m_tupleLength = m_schema->tupleLength() + TUPLE_HEADER_SIZE;
+        m_storage.reset(new char[TUPLE_COUNT * m_tupleLength]);
+        ::memset(m_storage.get(), 0, TUPLE_COUNT * m_tupleLength);
+        srand(42);
+        for (int i = 0; i < TUPLE_COUNT; i++) {
+            TableTuple tuple = tupleAt(i);
+            tuple.setNValue(0, ValueFactory::getSmallIntValue(static_cast<int16_t>(rand() % 2000 - 1000)));
+            tuple.setNValue(1, ValueFactory::getIntegerValue(rand() % 200000 - 100000));
+            tuple.setNValue(2, ValueFactory::getBigIntValue(rand() % 1000));
+            tuple.setNValue(3, ValueFactory::getDoubleValue((rand() % 100000) / 100.0));
+        }
+    }
+
+    static TupleSchema* buildSchema()
+    {
+        TupleSchemaBuilder builder(4);
+        builder.setColumnAtIndex(0, VALUE_TYPE_SMALLINT);
+        builder.setColumnAtIndex(1, VALUE_TYPE_INTEGER);
+        builder.setColumnAtIndex(2, VALUE_TYPE_BIGINT);
+        builder.setColumnAtIndex(3, VALUE_TYPE_DOUBLE);
+        return builder.build();
+    }
+
+    TableTuple tupleAt(int i)
+    {
+        TableTuple tuple(m_schema.get());
+        tuple.move(m_storage.get() + i * m_tupleLength);
+        return tuple;
+    }
+
+    AbstractExpression* column(int index)
+    {
+        AbstractExpression* tve = new TupleValueExpression(0, index);
+        tve->setValueType(m_schema->columnType(index));
+        return tve;
+    }
+
+    static AbstractExpression* param(NValue* value, ValueType type)
+    {
+        AbstractExpression* pve = new ParameterValueExpression(0, value);
+        pve->setValueType(type);
+        return pve;
+    }
+
+    static AbstractExpression* constant(const NValue& value)
+    {
+        AbstractExpression* cve = new ConstantValueExpression(value);
+        cve->setValueType(ValuePeeker::peekValueType(value));
+        return cve;
+    }
+
+    /** Time a scan predicate both ways */
+    void benchmarkPredicate(const char* name, AbstractExpression* predicate)
+    {
+        boost::scoped_ptr<AbstractExpression> guard(predicate);
+        boost::scoped_ptr<CompiledExpression> compiled(CompiledExpression::compile(predicate, m_schema.get()));
+        ASSERT_TRUE(compiled.get() != NULL);
+
+        int64_t interpretedCount = 0;
+        int64_t start = getMicrosNow();
+        for (int r = 0; r < REPEAT; r++) {
+            for (int i = 0; i < TUPLE_COUNT; i++) {
+                TableTuple tuple = tupleAt(i);
+                if (predicate->eval(&tuple, NULL).isTrue()) {
+                    interpretedCount++;
+                }
+            }
+        }
+        int64_t interpretedMicros = getMicrosNow() - start;
+
+        int64_t batchedCount = 0;
+        char* batch[CompiledExpression::BATCH_SIZE];
+        int selection[CompiledExpression::BATCH_SIZE];
+        start = getMicrosNow();
+        for (int r = 0; r < REPEAT; r++) {
+            for (int i = 0; i < TUPLE_COUNT; i += CompiledExpression::BATCH_SIZE) {
+                int count = fillBatch(i, batch);
+                batchedCount += compiled->filterBatch(batch, count, selection);
+            }
+        }
+        int64_t batchedMicros = getMicrosNow() - start;
+
+        EXPECT_EQ(interpretedCount, batchedCount);
+        report(name, interpretedMicros, batchedMicros);
+    }
+
+    /** Time a projection expression both ways */
+    void benchmarkProjection(const char* name, AbstractExpression* expr)
+    {
+        boost::scoped_ptr<AbstractExpression> guard(expr);
+        boost::scoped_ptr<CompiledExpression> compiled(CompiledExpression::compile(expr, m_schema.get()));
+        ASSERT_TRUE(compiled.get() != NULL);
+
+        int64_t interpretedSum = 0;
+        int64_t start = getMicrosNow();
+        for (int r = 0; r < REPEAT; r++) {
+            for (int i = 0; i < TUPLE_COUNT; i++) {
+                TableTuple tuple = tupleAt(i);
+                interpretedSum += ValuePeeker::peekAsBigInt(expr->eval(&tuple, NULL));
+            }
+        }
+        int64_t interpretedMicros = getMicrosNow() - start;
+
+        int64_t batchedSum = 0;
+        char* batch[CompiledExpression::BATCH_SIZE];
+        int selection[CompiledExpression::BATCH_SIZE];
+        for (int k = 0; k < CompiledExpression::BATCH_SIZE; k++) {
+            selection[k] = k;
+        }
+        start = getMicrosNow();
+        for (int r = 0; r < REPEAT; r++) {
+            for (int i = 0; i < TUPLE_COUNT; i += CompiledExpression::BATCH_SIZE) {
+                int count = fillBatch(i, batch);
+                compiled->evalBatch(batch, selection, count);
+                for (int k = 0; k < count; k++) {
+                    TableTuple tuple = tupleAt(i + k);
+                    batchedSum += ValuePeeker::peekAsBigInt(compiled->batchValue(k, &tuple));
+                }
+            }
+        }
+        int64_t batchedMicros = getMicrosNow() - start;
+
+        EXPECT_EQ(interpretedSum, batchedSum);
+        report(name, interpretedMicros, batchedMicros);
+    }
+
+    /** Collect the addresses of the batch of tuples starting at first */
+    int fillBatch(int first, char** batch)
+    {
+        int count = std::min(TUPLE_COUNT - first, static_cast<int>(CompiledExpression::BATCH_SIZE));
+        for (int k = 0; k < count; k++) {
+            batch[k] = m_storage.get() + (first + k) * m_tupleLength;
+        }
+        return count;
+    }
+
+    static void report(const char* name, int64_t interpretedMicros, int64_t batchedMicros)
+    {
+        printf("\n%-32s interpreted %8jd us, batched %8jd us (%.2fx)\n",
+               name, (intmax_t)interpretedMicros,
+               (intmax_t)batchedMicros, batchedMicros > 0 ? (double)interpretedMicros / batchedMicros : 0.0);
+        fflush(stdout);
+    }
+
+    ThreadLocalPool m_pool;
+    ScopedTupleSchema m_schema;
+    size_t m_tupleLength;
+    boost::scoped_array<char> m_storage;
+    NValue m_bigintParam;
+    NValue m_doubleParam;
+};
+
+TEST_F(CompiledExpressionBenchmark, ColumnToParameter)
+{
+    m_bigintParam = ValueFactory::getBigIntValue(500);
+    benchmarkPredicate("c2 = ?",
+            new ComparisonExpression<CmpEq>(EXPRESSION_TYPE_COMPARE_EQUAL,
+                    column(2), param(&m_bigintParam, VALUE_TYPE_BIGINT)));
+}
+
+TEST_F(CompiledExpressionBenchmark, Conjunction)
+{
+    m_bigintParam = ValueFactory::getBigIntValue(-20000);
+    m_doubleParam = ValueFactory::getDoubleValue(700.0);
+    benchmarkPredicate("c1 >= ? AND c3 < ? AND c0 <> 0",
+            new ConjunctionExpression<ConjunctionAnd>(EXPRESSION_TYPE_CONJUNCTION_AND,
+                    new ConjunctionExpression<ConjunctionAnd>(EXPRESSION_TYPE_CONJUNCTION_AND,
+                            new ComparisonExpression<CmpGte>(EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO,
+                                    column(1), param(&m_bigintParam, VALUE_TYPE_BIGINT)),
+                            new ComparisonExpression<CmpLt>(EXPRESSION_TYPE_COMPARE_LESSTHAN,
+                                    column(3), param(&m_doubleParam, VALUE_TYPE_DOUBLE))),
+                    new ComparisonExpression<CmpNe>(EXPRESSION_TYPE_COMPARE_NOTEQUAL,
+                            column(0), constant(ValueFactory::getBigIntValue(0)))));
+}
+
+TEST_F(CompiledExpressionBenchmark, ArithmeticPredicate)
+{
+    m_doubleParam = ValueFactory::getDoubleValue(10000.0);
+    benchmarkPredicate("c3 * 1.5 + c1 > ?",
+            new ComparisonExpression<CmpGt>(EXPRESSION_TYPE_COMPARE_GREATERTHAN,
+                    new OperatorExpression<OpPlus>(EXPRESSION_TYPE_OPERATOR_PLUS,
+                            new OperatorExpression<OpMultiply>(EXPRESSION_TYPE_OPERATOR_MULTIPLY,
+                                    column(3), constant(ValueFactory::getDoubleValue(1.5))),
+                            column(1)),
+                    param(&m_doubleParam, VALUE_TYPE_DOUBLE)));
+}
+
+TEST_F(CompiledExpressionBenchmark, ArithmeticProjection)
+{
+    benchmarkProjection("c2 * 2 + c1 - c0",
+            new OperatorExpression<OpMinus>(EXPRESSION_TYPE_OPERATOR_MINUS,
+                    new OperatorExpression<OpPlus>(EXPRESSION_TYPE_OPERATOR_PLUS,
+                            new OperatorExpression<OpMultiply>(EXPRESSION_TYPE_OPERATOR_MULTIPLY,
+                                    column(2), constant(ValueFactory::getBigIntValue(2))),
+                            column(1)),
+                    column(0)));
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
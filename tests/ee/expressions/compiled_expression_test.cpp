@@ -0,0 +1,377 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+
+#include "common/NValue.hpp"
+#include "common/SQLException.h"
+#include "common/ThreadLocalPool.h"
+#include "common/TupleSchemaBuilder.h"
+#include "common/ValueFactory.hpp"
+#include "common/ValuePeeker.hpp"
+#include "expressions/compiledexpression.h"
+#include "expressions/expressions.h"
+#include "test_utils/ScopedTupleSchema.hpp"
+
+#include <boost/scoped_array.hpp>
+#include <boost/scoped_ptr.hpp>
+
+#include <algorithm>
+#include <cstdlib>
+#include <vector>
+
+using namespace voltdb;
+
+static const int TUPLE_COUNT = 2000;
+
+/**
+ * Checks that compiled expressions give the same answers, including NULLs
+ * and errors, as the expression trees they were compiled from.
+ */
+class CompiledExpressionTest : public Test {
+public:
+    CompiledExpressionTest()
+        : m_schema(buildSchema())
+        , m_bigintParam(ValueFactory::getBigIntValue(0))
+        , m_doubleParam(ValueFactory::getDoubleValue(0.0))
+        , m_timestampParam(ValueFactory::getTimestampValue(0))
+    {
+        m_tupleLength = m_schema->tupleLength() + TUPLE_HEADER_SIZE;
+        m_storage.reset(new char[TUPLE_COUNT * m_tupleLength]);
+        ::memset(m_storage.get(), 0, TUPLE_COUNT * m_tupleLength);
+        NValue text = ValueFactory::getStringValue("abc");
+        srand(42);
+        for (int i = 0; i < TUPLE_COUNT; i++) {
+            TableTuple tuple = tupleAt(i);
+            tuple.setNValue(0, randomNull() ? NValue::getNullValue(VALUE_TYPE_TINYINT) :
+                                              ValueFactory::getTinyIntValue(static_cast<int8_t>(rand() % 20 - 10)));
+            tuple.setNValue(1, randomNull() ? NValue::getNullValue(VALUE_TYPE_SMALLINT) :
+                                              ValueFactory::getSmallIntValue(static_cast<int16_t>(rand() % 2000 - 1000)));
+            tuple.setNValue(2, randomNull() ? NValue::getNullValue(VALUE_TYPE_INTEGER) :
+                                              ValueFactory::getIntegerValue(rand() % 200000 - 100000));
+            tuple.setNValue(3, randomNull() ? NValue::getNullValue(VALUE_TYPE_BIGINT) :
+                                              ValueFactory::getBigIntValue((int64_t)(rand() % 2000000) - 1000000));
+            tuple.setNValue(4, randomNull() ? NValue::getNullValue(VALUE_TYPE_DOUBLE) :
+                                              ValueFactory::getDoubleValue((rand() % 100000) / 100.0 - 500.0));
+            tuple.setNValue(5, randomNull() ? NValue::getNullValue(VALUE_TYPE_TIMESTAMP) :
+                                              ValueFactory::getTimestampValue(rand() % 1000));
+            tuple.setNValue(6, text);
+        }
+        text.free();
+    }
+
+    static TupleSchema* buildSchema()
+    {
+        TupleSchemaBuilder builder(7);
+        builder.setColumnAtIndex(0, VALUE_TYPE_TINYINT);
+        builder.setColumnAtIndex(1, VALUE_TYPE_SMALLINT);
+        builder.setColumnAtIndex(2, VALUE_TYPE_INTEGER);
+        builder.setColumnAtIndex(3, VALUE_TYPE_BIGINT);
+        builder.setColumnAtIndex(4, VALUE_TYPE_DOUBLE);
+        builder.setColumnAtIndex(5, VALUE_TYPE_TIMESTAMP);
+        builder.setColumnAtIndex(6, VALUE_TYPE_VARCHAR, 8);
+        return builder.build();
+    }
+
+    static bool randomNull()
+    {
+        return rand() % 10 == 0;
+    }
+
+    TableTuple tupleAt(int i)
+    {
+        TableTuple tuple(m_schema.get());
+        tuple.move(m_storage.get() + i * m_tupleLength);
+        return tuple;
+    }
+
+    AbstractExpression* column(int index)
+    {
+        AbstractExpression* tve = new TupleValueExpression(0, index);
+        tve->setValueType(m_schema->columnType(index));
+        return tve;
+    }
+
+    static AbstractExpression* param(NValue* value, ValueType type)
+    {
+        AbstractExpression* pve = new ParameterValueExpression(0, value);
+        pve->setValueType(type);
+        return pve;
+    }
+
+    static AbstractExpression* constant(const NValue& value)
+    {
+        AbstractExpression* cve = new ConstantValueExpression(value);
+        cve->setValueType(ValuePeeker::peekValueType(value));
+        return cve;
+    }
+
+    template <typename OP>
+    static AbstractExpression* compare(ExpressionType type, AbstractExpression* left, AbstractExpression* right)
+    {
+        return new ComparisonExpression<OP>(type, left, right);
+    }
+
+    template <typename OPER>
+    static AbstractExpression* arithmetic(ExpressionType type, AbstractExpression* left, AbstractExpression* right)
+    {
+        return new OperatorExpression<OPER>(type, left, right);
+    }
+
+    static AbstractExpression* conjunctionAnd(AbstractExpression* left, AbstractExpression* right)
+    {
+        return new ConjunctionExpression<ConjunctionAnd>(EXPRESSION_TYPE_CONJUNCTION_AND, left, right);
+    }
+
+    static AbstractExpression* conjunctionOr(AbstractExpression* left, AbstractExpression* right)
+    {
+        return new ConjunctionExpression<ConjunctionOr>(EXPRESSION_TYPE_CONJUNCTION_OR, left, right);
+    }
+
+    static bool sameResult(bool interpretedThrew, const NValue& interpreted, bool compiledThrew, const NValue& result)
+    {
+        if (interpretedThrew || compiledThrew) {
+            return interpretedThrew == compiledThrew;
+        }
+        ValueType type = ValuePeeker::peekValueType(interpreted);
+        if (type != ValuePeeker::peekValueType(result) || interpreted.isNull() != result.isNull()) {
+            return false;
+        }
+        if (type == VALUE_TYPE_BOOLEAN) {
+            return interpreted.isTrue() == result.isTrue();
+        }
+        return interpreted.isNull() || interpreted.compare(result) == 0;
+    }
+
+    /**
+     * Evaluate expr as a tree and compiled in batches on every tuple, and
+     * count the tuples where they differ
+     */
+    int countMismatches(AbstractExpression* expr)
+    {
+        boost::scoped_ptr<AbstractExpression> guard(expr);
+        boost::scoped_ptr<CompiledExpression> compiled(CompiledExpression::compile(expr, m_schema.get()));
+        EXPECT_TRUE(compiled.get() != NULL);
+        if (compiled.get() == NULL) {
+            return TUPLE_COUNT;
+        }
+        std::vector<NValue> interpreted(TUPLE_COUNT);
+        std::vector<bool> interpretedThrew(TUPLE_COUNT, false);
+        int mismatches = 0;
+        for (int i = 0; i < TUPLE_COUNT; i++) {
+            TableTuple tuple = tupleAt(i);
+            try {
+                interpreted[i] = expr->eval(&tuple, NULL);
+            }
+            catch (const SQLException&) {
+                interpretedThrew[i] = true;
+            }
+        }
+
+        bool isPredicate = false;
+        for (int i = 0; i < TUPLE_COUNT; i++) {
+            if ( ! interpretedThrew[i]) {
+                isPredicate = ValuePeeker::peekValueType(interpreted[i]) == VALUE_TYPE_BOOLEAN;
+                break;
+            }
+        }
+
+        char* batch[CompiledExpression::BATCH_SIZE];
+        int selection[CompiledExpression::BATCH_SIZE];
+        for (int first = 0; first < TUPLE_COUNT; first += CompiledExpression::BATCH_SIZE) {
+            int count = std::min(TUPLE_COUNT - first, static_cast<int>(CompiledExpression::BATCH_SIZE));
+            for (int k = 0; k < count; k++) {
+                batch[k] = tupleAt(first + k).address();
+                selection[k] = k;
+            }
+            compiled->evalBatch(batch, selection, count);
+            for (int k = 0; k < count; k++) {
+                TableTuple tuple = tupleAt(first + k);
+                bool compiledThrew = false;
+                NValue result;
+                try {
+                    result = compiled->batchValue(k, &tuple);
+                }
+                catch (const SQLException&) {
+                    compiledThrew = true;
+                }
+                if ( ! sameResult(interpretedThrew[first + k], interpreted[first + k], compiledThrew, result)) {
+                    mismatches++;
+                }
+            }
+
+            if ( ! isPredicate) {
+                continue;
+            }
+            // The filter selects every tuple the predicate is true for or
+            // throws on, and the tree only decides the ones it is told to.
+            int selected = compiled->filterBatch(batch, count, selection);
+            std::vector<bool> passed(count, false);
+            for (int j = 0; j < selected; j++) {
+                int k = selection[j];
+                passed[k] = compiled->batchNeedsTree(j) ? (interpretedThrew[first + k] ||
+                                                           interpreted[first + k].isTrue())
+                                                        : true;
+            }
+            for (int k = 0; k < count; k++) {
+                bool expected = interpretedThrew[first + k] || interpreted[first + k].isTrue();
+                if (passed[k] != expected) {
+                    mismatches++;
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    ThreadLocalPool m_pool;
+    ScopedTupleSchema m_schema;
+    size_t m_tupleLength;
+    boost::scoped_array<char> m_storage;
+    NValue m_bigintParam;
+    NValue m_doubleParam;
+    NValue m_timestampParam;
+};
+
+TEST_F(CompiledExpressionTest, ColumnToParameterComparisons)
+{
+    m_bigintParam = ValueFactory::getBigIntValue(17);
+    m_doubleParam = ValueFactory::getDoubleValue(12.5);
+    m_timestampParam = ValueFactory::getTimestampValue(500);
+
+    EXPECT_EQ(0, countMismatches(compare<CmpEq>(EXPRESSION_TYPE_COMPARE_EQUAL,
+            column(0), param(&m_bigintParam, VALUE_TYPE_BIGINT))));
+    EXPECT_EQ(0, countMismatches(compare<CmpNe>(EXPRESSION_TYPE_COMPARE_NOTEQUAL,
+            column(1), param(&m_bigintParam, VALUE_TYPE_BIGINT))));
+    EXPECT_EQ(0, countMismatches(compare<CmpLt>(EXPRESSION_TYPE_COMPARE_LESSTHAN,
+            column(2), param(&m_bigintParam, VALUE_TYPE_BIGINT))));
+    EXPECT_EQ(0, countMismatches(compare<CmpGt>(EXPRESSION_TYPE_COMPARE_GREATERTHAN,
+            column(3), param(&m_bigintParam, VALUE_TYPE_BIGINT))));
+    EXPECT_EQ(0, countMismatches(compare<CmpLte>(EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO,
+            column(4), param(&m_doubleParam, VALUE_TYPE_DOUBLE))));
+    EXPECT_EQ(0, countMismatches(compare<CmpGte>(EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO,
+            column(5), param(&m_timestampParam, VALUE_TYPE_TIMESTAMP))));
+    // integer column against a double parameter and the other way around
+    EXPECT_EQ(0, countMismatches(compare<CmpLt>(EXPRESSION_TYPE_COMPARE_LESSTHAN,
+            column(3), param(&m_doubleParam, VALUE_TYPE_DOUBLE))));
+    EXPECT_EQ(0, countMismatches(compare<CmpGt>(EXPRESSION_TYPE_COMPARE_GREATERTHAN,
+            column(4), param(&m_bigintParam, VALUE_TYPE_BIGINT))));
+
+    // A NULL parameter makes every comparison NULL
+    m_bigintParam = NValue::getNullValue(VALUE_TYPE_BIGINT);
+    EXPECT_EQ(0, countMismatches(compare<CmpEq>(EXPRESSION_TYPE_COMPARE_EQUAL,
+            column(3), param(&m_bigintParam, VALUE_TYPE_BIGINT))));
+
+    // A parameter of another type than planned falls back to the tree
+    m_bigintParam = ValueFactory::getDoubleValue(3.5);
+    EXPECT_EQ(0, countMismatches(compare<CmpLt>(EXPRESSION_TYPE_COMPARE_LESSTHAN,
+            column(2), param(&m_bigintParam, VALUE_TYPE_BIGINT))));
+}
+
+TEST_F(CompiledExpressionTest, Conjunctions)
+{
+    m_bigintParam = ValueFactory::getBigIntValue(-300);
+    m_doubleParam = ValueFactory::getDoubleValue(100.0);
+
+    // c2 >= ? AND c4 < ?
+    EXPECT_EQ(0, countMismatches(conjunctionAnd(
+            compare<CmpGte>(EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO, column(2), param(&m_bigintParam, VALUE_TYPE_BIGINT)),
+            compare<CmpLt>(EXPRESSION_TYPE_COMPARE_LESSTHAN, column(4), param(&m_doubleParam, VALUE_TYPE_DOUBLE)))));
+
+    // NOT (c0 = 5) OR c1 <> ?
+    EXPECT_EQ(0, countMismatches(conjunctionOr(
+            new OperatorNotExpression(compare<CmpEq>(EXPRESSION_TYPE_COMPARE_EQUAL,
+                    column(0), constant(ValueFactory::getIntegerValue(5)))),
+            compare<CmpNe>(EXPRESSION_TYPE_COMPARE_NOTEQUAL, column(1), param(&m_bigintParam, VALUE_TYPE_BIGINT)))));
+
+    // (c0 > 0 OR c1 > 0) AND (c2 > 0 OR c3 > 0), with plenty of NULLs on both sides
+    EXPECT_EQ(0, countMismatches(conjunctionAnd(
+            conjunctionOr(compare<CmpGt>(EXPRESSION_TYPE_COMPARE_GREATERTHAN, column(0),
+                                         constant(ValueFactory::getBigIntValue(0))),
+                          compare<CmpGt>(EXPRESSION_TYPE_COMPARE_GREATERTHAN, column(1),
+                                         constant(ValueFactory::getBigIntValue(0)))),
+            conjunctionOr(compare<CmpGt>(EXPRESSION_TYPE_COMPARE_GREATERTHAN, column(2),
+                                         constant(ValueFactory::getBigIntValue(0))),
+                          compare<CmpGt>(EXPRESSION_TYPE_COMPARE_GREATERTHAN, column(3),
+                                         constant(ValueFactory::getBigIntValue(0)))))));
+}
+
+TEST_F(CompiledExpressionTest, Arithmetic)
+{
+    m_doubleParam = ValueFactory::getDoubleValue(250.0);
+
+    // c3 + c2 * 3 > c1 - 7
+    EXPECT_EQ(0, countMismatches(compare<CmpGt>(EXPRESSION_TYPE_COMPARE_GREATERTHAN,
+            arithmetic<OpPlus>(EXPRESSION_TYPE_OPERATOR_PLUS, column(3),
+                    arithmetic<OpMultiply>(EXPRESSION_TYPE_OPERATOR_MULTIPLY, column(2),
+                            constant(ValueFactory::getIntegerValue(3)))),
+            arithmetic<OpMinus>(EXPRESSION_TYPE_OPERATOR_MINUS, column(1),
+                    constant(ValueFactory::getBigIntValue(7))))));
+
+    // c4 / 2.0 + c2 <= ?
+    EXPECT_EQ(0, countMismatches(compare<CmpLte>(EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO,
+            arithmetic<OpPlus>(EXPRESSION_TYPE_OPERATOR_PLUS,
+                    arithmetic<OpDivide>(EXPRESSION_TYPE_OPERATOR_DIVIDE, column(4),
+                            constant(ValueFactory::getDoubleValue(2.0))),
+                    column(2)),
+            param(&m_doubleParam, VALUE_TYPE_DOUBLE))));
+
+    // projections: c3 * 2 - c2 and c4 * c0
+    EXPECT_EQ(0, countMismatches(arithmetic<OpMinus>(EXPRESSION_TYPE_OPERATOR_MINUS,
+            arithmetic<OpMultiply>(EXPRESSION_TYPE_OPERATOR_MULTIPLY, column(3),
+                    constant(ValueFactory::getBigIntValue(2))),
+            column(2))));
+    EXPECT_EQ(0, countMismatches(arithmetic<OpMultiply>(EXPRESSION_TYPE_OPERATOR_MULTIPLY,
+            column(4), column(0))));
+
+    // Integer division by zero, division by a column that is sometimes zero
+    // and overflow must raise the same errors as the expression tree.
+    EXPECT_EQ(0, countMismatches(arithmetic<OpDivide>(EXPRESSION_TYPE_OPERATOR_DIVIDE,
+            column(3), constant(ValueFactory::getBigIntValue(0)))));
+    EXPECT_EQ(0, countMismatches(arithmetic<OpDivide>(EXPRESSION_TYPE_OPERATOR_DIVIDE,
+            column(2), column(0))));
+    EXPECT_EQ(0, countMismatches(arithmetic<OpMultiply>(EXPRESSION_TYPE_OPERATOR_MULTIPLY,
+            column(3), constant(ValueFactory::getBigIntValue(INT64_MAX / 2)))));
+    EXPECT_EQ(0, countMismatches(arithmetic<OpDivide>(EXPRESSION_TYPE_OPERATOR_DIVIDE,
+            column(4), column(0))));
+}
+
+TEST_F(CompiledExpressionTest, UnsupportedShapes)
+{
+    // a bare column is left to the tree
+    boost::scoped_ptr<AbstractExpression> bare(column(3));
+    EXPECT_TRUE(CompiledExpression::compile(bare.get(), m_schema.get()) == NULL);
+
+    // so is anything touching a VARCHAR column
+    boost::scoped_ptr<AbstractExpression> varchar(compare<CmpEq>(EXPRESSION_TYPE_COMPARE_EQUAL,
+            column(6), constant(ValueFactory::getStringValue("abc"))));
+    EXPECT_TRUE(CompiledExpression::compile(varchar.get(), m_schema.get()) == NULL);
+
+    // and a TIMESTAMP compared with a plain integer
+    boost::scoped_ptr<AbstractExpression> mixed(compare<CmpEq>(EXPRESSION_TYPE_COMPARE_EQUAL,
+            column(5), column(3)));
+    EXPECT_TRUE(CompiledExpression::compile(mixed.get(), m_schema.get()) == NULL);
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
@@ -22,6 +22,7 @@
  */
 
 #include "storage/TempTableLimits.h"
+#include "storage/TempTableSpillFile.h"
 
 #include "harness.h"
 #include "common/SQLException.h"
@@ -125,6 +126,57 @@ TEST_F(TempTableLimitsTest, CheckLimitException)
     EXPECT_TRUE(threw);
 }
 
+TEST_F(TempTableLimitsTest, CheckSpillLimit)
+{
+    TempTableLimits disabled(1024 * 10);
+    EXPECT_FALSE(disabled.spillEnabled());
+
+    TempTableLimits dut(1024 * 10, -1, 1024 * 8, "/tmp");
+    EXPECT_TRUE(dut.spillEnabled());
+    dut.increaseAllocated(1024 * 8);
+    EXPECT_TRUE(dut.hasRoomFor(1024 * 2));
+    EXPECT_FALSE(dut.hasRoomFor(1024 * 3));
+
+    dut.increaseSpilled(1024 * 6);
+    bool threw = false;
+    try {
+        dut.increaseSpilled(1024 * 6);
+    }
+    catch (SQLException& sqle) {
+        threw = true;
+    }
+    EXPECT_TRUE(threw);
+    // the spilled byte count keeps everything written until it is reset
+    EXPECT_EQ(1024 * 12, dut.getSpilledBytes());
+    dut.reduceSpilled(1024 * 12);
+    dut.increaseSpilled(1024 * 6);
+    dut.resetSpillStats();
+    EXPECT_EQ(0, dut.getSpilledBytes());
+}
+
+TEST_F(TempTableLimitsTest, SpillFileRoundTrip)
+{
+    TempTableLimits dut(1024 * 10, -1, 1024 * 8, "/tmp");
+    {
+        TempTableSpillFile file(&dut);
+        char data[1024];
+        for (int ii = 0; ii < 4; ii++) {
+            memset(data, 'a' + ii, sizeof(data));
+            EXPECT_EQ(ii * 1024, file.append(data, sizeof(data)));
+        }
+        EXPECT_EQ(1024 * 4, file.size());
+        file.read(1024 * 2, data, sizeof(data));
+        EXPECT_EQ('c', data[0]);
+        EXPECT_EQ('c', data[1023]);
+        EXPECT_EQ(1024 * 4, dut.getSpilledBytes());
+    }
+    // closing the file gives back its spill budget
+    TempTableSpillFile file(&dut);
+    char data[1024 * 8];
+    memset(data, 0, sizeof(data));
+    file.append(data, sizeof(data));
+}
+
 int main()
 {
     return TestSuite::globalInstance()->runAll();
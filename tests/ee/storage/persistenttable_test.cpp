@@ -34,6 +34,7 @@
 #include "common/TupleSchemaBuilder.h"
 #include "common/ValueFactory.hpp"
 #include "execution/VoltDBEngine.h"
+#include "storage/ConstraintFailureException.h"
 #include "storage/table.h"
 #include "storage/persistenttable.h"
 #include "storage/tablefactory.h"
@@ -312,6 +313,44 @@ TEST_F(PersistentTableTest, TruncateTableTest) {
     ASSERT_EQ(1, table->allocatedBlockCount());
 }
 
+TEST_F(PersistentTableTest, SuspendedIndexes) {
+    VoltDBEngine* engine = getEngine();
+    engine->loadCatalog(0, catalogPayload());
+    PersistentTable *table = dynamic_cast<PersistentTable*>(engine->getTable("T"));
+    ASSERT_NE(NULL, table);
+
+    beginWork();
+    ASSERT_TRUE(table->suspendIndexes());
+    ASSERT_TRUE(table->indexesSuspended());
+    const int tuplesToInsert = 100;
+    ASSERT_TRUE(tableutil::addRandomTuples(table, tuplesToInsert));
+    ASSERT_EQ(0, table->primaryKeyIndex()->getSize());
+
+    table->rebuildSuspendedIndexes();
+    ASSERT_FALSE(table->indexesSuspended());
+    ASSERT_EQ(tuplesToInsert, table->primaryKeyIndex()->getSize());
+    commit();
+
+    // only an empty table can have its index maintenance deferred
+    ASSERT_FALSE(table->suspendIndexes());
+
+    beginWork();
+    table->truncateTable(engine);
+    commit();
+    table = dynamic_cast<PersistentTable*>(engine->getTable("T"));
+    ASSERT_TRUE(table->suspendIndexes());
+    beginWork();
+    ASSERT_TRUE(tableutil::addDuplicateRandomTuples(table, 2));
+    bool threw = false;
+    try {
+        table->rebuildSuspendedIndexes();
+    } catch (voltdb::ConstraintFailureException &e) {
+        threw = true;
+    }
+    ASSERT_TRUE(threw);
+    commit();
+}
+
 int main() {
     return TestSuite::globalInstance()->runAll();
 }
@@ -167,6 +167,39 @@ TEST_F(TableTest, ValueTypes) {
     }
 }
 
+TEST_F(TableTest, IteratorBatches) {
+    //
+    // Batches must hand out the same tuples as next(), in the same order,
+    // and never run past the end of a block
+    //
+    std::vector<char*> expected;
+    TableIterator iterator = m_table->iterator();
+    TableTuple tuple(m_table->schema());
+    while (iterator.next(tuple)) {
+        expected.push_back(tuple.address());
+    }
+    ASSERT_EQ(NUM_OF_TUPLES, expected.size());
+
+    const int tupleLength = static_cast<int>(m_table->schema()->tupleLength()) + TUPLE_HEADER_SIZE;
+    char* batch[100];
+    size_t found = 0;
+    iterator = m_table->iterator();
+    int count;
+    while ((count = iterator.nextBatch(tuple, batch, 100)) > 0) {
+        ASSERT_TRUE(count <= 100);
+        for (int ctr = 0; ctr < count; ctr++) {
+            ASSERT_TRUE(found < expected.size());
+            EXPECT_EQ(expected[found], batch[ctr]);
+            if (ctr > 0) {
+                // a temp table block is one contiguous array of tuples
+                EXPECT_EQ(batch[ctr - 1] + tupleLength, batch[ctr]);
+            }
+            found++;
+        }
+    }
+    EXPECT_EQ(expected.size(), found);
+}
+
 TEST_F(TableTest, TableSerialize) {
     size_t serializeSize = m_table->getAccurateSizeToSerialize(true);
     char* backingCharArray = new char[serializeSize];
@@ -488,6 +521,52 @@ TEST_F(TableTest, TupleDelete) {
     EXPECT_EQ(total, new_total);
 }*/
 
+TEST_F(TableTest, TempTableSpill) {
+    vector<string> columnNames(1, "id");
+    vector<ValueType> columnTypes(1, VALUE_TYPE_BIGINT);
+    vector<int32_t> columnLengths(1, NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
+    vector<bool> columnAllowNull(1, false);
+    TupleSchema *schema = TupleSchema::createTupleSchemaForTest(columnTypes, columnLengths, columnAllowNull);
+
+    // room for a few blocks in memory, many more on disk
+    TempTableLimits spillLimits(1024 * 512, -1, 1024 * 1024 * 16, "/tmp");
+    TempTable* table = TableFactory::getTempTable(1000, "spilled", schema, columnNames, &spillLimits);
+    table->setSpillable(true);
+
+    const int64_t rows = 200000;
+    TableTuple& tempTuple = table->tempTuple();
+    for (int64_t ii = 0; ii < rows; ii++) {
+        tempTuple.setNValue(0, ValueFactory::getBigIntValue(ii));
+        table->insertTempTuple(tempTuple);
+    }
+    EXPECT_TRUE(table->hasSpilledBlocks());
+    EXPECT_TRUE(spillLimits.getAllocated() <= 1024 * 512);
+    EXPECT_TRUE(spillLimits.getSpilledBytes() > 0);
+
+    // spilled blocks are read back in order
+    int64_t expected = 0;
+    TableTuple tuple(schema);
+    TableIterator iterator = table->iterator();
+    while (iterator.next(tuple)) {
+        EXPECT_EQ(expected, ValuePeeker::peekBigInt(tuple.getNValue(0)));
+        expected++;
+    }
+    EXPECT_EQ(rows, expected);
+
+    expected = 0;
+    TableIterator& deletingIterator = table->iteratorDeletingAsWeGo();
+    while (deletingIterator.next(tuple)) {
+        EXPECT_EQ(expected, ValuePeeker::peekBigInt(tuple.getNValue(0)));
+        expected++;
+    }
+    EXPECT_EQ(rows, expected);
+    EXPECT_FALSE(table->hasSpilledBlocks());
+
+    table->deleteAllTuples(false);
+    EXPECT_FALSE(table->hasSpilledBlocks());
+    delete table;
+}
+
 int main() {
     return TestSuite::globalInstance()->runAll();
 }
@@ -171,6 +171,33 @@ TEST_F(CompactingMapTest, SimpleUniqueRank) {
     ASSERT_TRUE(volt.verifyRank());
 }
 
+TEST_F(CompactingMapTest, BulkLoadRank) {
+    typedef voltdb::CompactingMap<NormalKeyValuePair<int, int>, IntComparator, true> RankMap;
+    for (int size = 1; size < 200; size += 7) {
+        std::vector<std::pair<int, int> > entries;
+        for (int i = size - 1; i >= 0; i--) {
+            // pairs of equal keys; verifyRank walks past the first entry
+            // onto NIL, so keep 0 out of the map
+            entries.push_back(std::pair<int, int>(i / 2 + 1, i));
+        }
+        std::vector<const std::pair<int, int>*> sorted;
+        for (int i = 0; i < size; i++) {
+            sorted.push_back(&entries[i]);
+        }
+
+        RankMap volt(false, IntComparator());
+        volt.sortForBulkLoad(sorted);
+        volt.bulkLoad(sorted);
+        ASSERT_TRUE(volt.verify());
+        ASSERT_TRUE(volt.verifyRank());
+
+        volt.insert(std::pair<int, int>(size + 1, size));
+        volt.erase(1);
+        ASSERT_TRUE(volt.verify());
+        ASSERT_TRUE(volt.verifyRank());
+    }
+}
+
 TEST_F(CompactingMapTest, RandomUniqueRank) {
     const int ITERATIONS = 1001;
     const int BIGGEST_VAL = 100;
@@ -482,6 +482,66 @@ TEST_F(CompactingMapTest, Trivial) {
     ASSERT_TRUE(m.verify());
 }
 
+TEST_F(CompactingMapTest, BulkLoad) {
+    typedef voltdb::CompactingMap<NormalKeyValuePair<int, int>, IntComparator> IntMap;
+    srand(0);
+    for (int size = 0; size < 300; size++) {
+        std::vector<std::pair<int, int> > entries;
+        for (int i = 0; i < size; i++) {
+            entries.push_back(std::pair<int, int>(i * 2, i));
+        }
+        std::random_shuffle(entries.begin(), entries.end());
+        std::vector<const std::pair<int, int>*> sorted;
+        for (int i = 0; i < size; i++) {
+            sorted.push_back(&entries[i]);
+        }
+
+        IntMap volt(true, IntComparator());
+        ASSERT_EQ(-1, volt.sortForBulkLoad(sorted));
+        volt.bulkLoad(sorted);
+        ASSERT_EQ(size, volt.size());
+        ASSERT_TRUE(volt.verify());
+        int expected = 0;
+        for (IntMap::iterator iter = volt.begin(); !iter.isEnd(); iter.moveNext()) {
+            ASSERT_EQ(expected * 2, iter.key());
+            ASSERT_EQ(expected, iter.value());
+            expected++;
+        }
+        ASSERT_EQ(size, expected);
+
+        // the tree keeps balancing as usual afterwards
+        for (int i = 0; i < size; i++) {
+            ASSERT_TRUE(volt.insert(std::pair<int, int>(i * 2 + 1, i)));
+            ASSERT_FALSE(volt.insert(std::pair<int, int>(i * 2, i)));
+        }
+        for (int i = 0; i < size; i += 3) {
+            ASSERT_TRUE(volt.erase(i));
+        }
+        ASSERT_TRUE(volt.verify());
+    }
+
+    // duplicate keys are found while sorting for a unique map only
+    std::vector<std::pair<int, int> > entries;
+    entries.push_back(std::pair<int, int>(5, 0));
+    entries.push_back(std::pair<int, int>(3, 1));
+    entries.push_back(std::pair<int, int>(5, 2));
+    std::vector<const std::pair<int, int>*> sorted;
+    for (int i = 0; i < 3; i++) {
+        sorted.push_back(&entries[i]);
+    }
+    IntMap unique(true, IntComparator());
+    int64_t duplicate = unique.sortForBulkLoad(sorted);
+    ASSERT_EQ(1, duplicate);
+    ASSERT_EQ(5, sorted[duplicate]->first);
+    ASSERT_EQ(5, sorted[duplicate + 1]->first);
+
+    IntMap multi(false, IntComparator());
+    ASSERT_EQ(-1, multi.sortForBulkLoad(sorted));
+    multi.bulkLoad(sorted);
+    ASSERT_EQ(3, multi.size());
+    ASSERT_TRUE(multi.verify());
+}
+
 TEST_F(CompactingMapTest, RandomUnique) {
     const int ITERATIONS = 1001;
     const int BIGGEST_VAL = 100;
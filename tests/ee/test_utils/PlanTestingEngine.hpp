@@ -0,0 +1,239 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#ifndef TESTS_EE_TEST_UTILS_PLANTESTINGENGINE_HPP_
+#define TESTS_EE_TEST_UTILS_PLANTESTINGENGINE_HPP_
+
+#include "common/Topend.h"
+#include "common/ValueFactory.hpp"
+#include "common/tabletuple.h"
+#include "execution/VoltDBEngine.h"
+#include "storage/table.h"
+#include "storage/tableiterator.h"
+#include "storage/temptable.h"
+
+#include "test_utils/LoadTableFrom.hpp"
+
+#include <boost/scoped_array.hpp>
+#include <boost/scoped_ptr.hpp>
+
+#include <cstdio>
+#include <cstring>
+#include <map>
+#include <sstream>
+#include <string>
+#include <vector>
+
+namespace voltdb {
+
+/** Stands for an SQL NULL in the rows of integers a PlanTestingEngine loads and returns */
+const int64_t SQL_NULL = INT64_MIN;
+
+/**
+ * A DummyTopend that hands out the plans registered with addPlan by fragment id.
+ */
+class PlanTestingTopend : public DummyTopend {
+public:
+    void addPlan(int64_t fragmentId, const std::string &plan) {
+        m_plans[fragmentId] = plan;
+    }
+
+    std::string planForFragmentId(int64_t fragmentId) {
+        std::map<int64_t, std::string>::const_iterator it = m_plans.find(fragmentId);
+        return it == m_plans.end() ? "" : it->second;
+    }
+
+private:
+    std::map<int64_t, std::string> m_plans;
+};
+
+/**
+ * Catalog commands for a replicated table whose columns are all nullable
+ * integers of the given types, named C0, C1, ... in the order given.
+ * Plans run against it can come straight from the Java planner, e.g. from
+ * the JSON of PlannerTestCase.compileToFragments for the same schema.
+ */
+inline std::string integerTableCatalog(const std::string &name, const std::vector<ValueType> &types)
+{
+    std::ostringstream out;
+    out << "add /clusters#cluster/databases#database tables " << name << "\n"
+        << "set /clusters#cluster/databases#database/tables#" << name << " isreplicated true\n"
+        << "set $PREV partitioncolumn null\n"
+        << "set $PREV estimatedtuplecount 0\n"
+        << "set $PREV materializer null\n"
+        << "set $PREV signature \"" << name << "|\"\n"
+        << "set $PREV tuplelimit 2147483647\n"
+        << "set $PREV isDRed false\n";
+    for (size_t i = 0; i < types.size(); ++i) {
+        out << "add /clusters#cluster/databases#database/tables#" << name << " columns C" << i << "\n"
+            << "set /clusters#cluster/databases#database/tables#" << name << "/columns#C" << i
+            << " index " << i << "\n"
+            << "set $PREV type " << static_cast<int>(types[i]) << "\n"
+            << "set $PREV size " << NValue::getTupleStorageSize(types[i]) << "\n"
+            << "set $PREV nullable true\n"
+            << "set $PREV name \"C" << i << "\"\n"
+            << "set $PREV defaultvalue null\n"
+            << "set $PREV defaulttype 0\n"
+            << "set $PREV matview null\n"
+            << "set $PREV aggregatetype 0\n"
+            << "set $PREV matviewsource null\n"
+            << "set $PREV inbytes false\n";
+    }
+    return out.str();
+}
+
+/**
+ * A single-site engine that runs JSON plan fragments against tables of
+ * integer columns and returns their results. The temp table memory limit
+ * and the spill settings of the engine can be chosen to drive executors
+ * into their spilling paths.
+ */
+class PlanTestingEngine {
+public:
+    PlanTestingEngine(const std::string &tablesCatalog,
+                      int64_t tempTableMemoryLimit = DEFAULT_TEMP_TABLE_MEMORY,
+                      int64_t tempTableSpillLimit = -1,
+                      const std::string &tempTableSpillDirectory = "")
+        : m_topend(new PlanTestingTopend())
+        , m_engine(new VoltDBEngine(m_topend.get()))
+        , m_parameterBuffer(new char[PARAMETER_BUFFER_SIZE])
+        , m_resultBuffer(new char[RESULT_BUFFER_SIZE])
+        , m_exceptionBuffer(new char[EXCEPTION_BUFFER_SIZE])
+        , m_nextFragmentId(100)
+    {
+        m_engine->setBuffers(m_parameterBuffer.get(), PARAMETER_BUFFER_SIZE,
+                             m_resultBuffer.get(), RESULT_BUFFER_SIZE,
+                             m_exceptionBuffer.get(), EXCEPTION_BUFFER_SIZE);
+        m_engine->resetReusedResultOutputBuffer();
+        m_engine->initialize(1,     // clusterIndex
+                             1,     // siteId
+                             0,     // partitionId
+                             0,     // hostId
+                             "",    // hostname
+                             0,     // drClusterId
+                             1024,  // defaultDrBufferSize
+                             tempTableMemoryLimit,
+                             RESULT_BUFFER_SIZE,
+                             false, // don't create DR replicated stream
+                             95,    // compaction threshold
+                             tempTableSpillLimit,
+                             tempTableSpillDirectory);
+        int partitionCount = 1;
+        m_engine->updateHashinator(HASHINATOR_LEGACY, (char*)&partitionCount, NULL, 0);
+        std::string catalog =
+            "add / clusters cluster\n"
+            "set /clusters#cluster localepoch 0\n"
+            "set $PREV securityEnabled false\n"
+            "set $PREV httpdportno 0\n"
+            "set $PREV jsonapi false\n"
+            "set $PREV networkpartition false\n"
+            "set $PREV voltRoot \"\"\n"
+            "set $PREV exportOverflow \"\"\n"
+            "set $PREV drOverflow \"\"\n"
+            "set $PREV adminport 0\n"
+            "set $PREV adminstartup false\n"
+            "set $PREV heartbeatTimeout 0\n"
+            "set $PREV useddlschema false\n"
+            "set $PREV drConsumerEnabled false\n"
+            "set $PREV drProducerEnabled false\n"
+            "set $PREV drClusterId 0\n"
+            "set $PREV drProducerPort 0\n"
+            "set $PREV drMasterHost \"\"\n"
+            "set $PREV drFlushInterval 0\n"
+            "add /clusters#cluster databases database\n"
+            "set /clusters#cluster/databases#database schema \"\"\n"
+            "set $PREV isActiveActiveDRed false\n"
+            "set $PREV securityprovider \"\"\n" + tablesCatalog;
+        m_loaded = m_engine->loadCatalog(-2, catalog);
+        m_engine->setUndoToken(0);
+    }
+
+    /** False if the catalog did not load */
+    bool loaded() const { return m_loaded; }
+
+    VoltDBEngine* engine() { return m_engine.get(); }
+
+    Table* getTable(const std::string &name) { return m_engine->getTable(name); }
+
+    /** Insert a row of integers into a table. SQL_NULL stands for SQL NULL. */
+    void insert(const std::string &tableName, const std::vector<int64_t> &values) {
+        Table* table = getTable(tableName);
+        TableTuple &tuple = table->tempTuple();
+        for (size_t i = 0; i < values.size(); ++i) {
+            ValueType type = table->schema()->columnType(static_cast<int>(i));
+            NValue value = (values[i] == SQL_NULL) ? NValue::getNullValue(type) :
+                           ValueFactory::getBigIntValue(values[i]).castAs(type);
+            tuple.setNValue(static_cast<int>(i), value);
+        }
+        table->insertTuple(tuple);
+    }
+
+    /**
+     * Run a plan fragment without parameters and return its result table,
+     * which the caller owns, or NULL if the fragment failed.
+     */
+    TempTable* execute(const std::string &plan) {
+        int64_t fragmentId = m_nextFragmentId++;
+        m_topend->addPlan(fragmentId, plan);
+        ::memset(m_parameterBuffer.get(), 0, PARAMETER_BUFFER_SIZE);
+        ReferenceSerializeInputBE params(m_parameterBuffer.get(), PARAMETER_BUFFER_SIZE);
+        m_engine->resetReusedResultOutputBuffer();
+        if (m_engine->executePlanFragments(1, &fragmentId, NULL, params, 1000, 1000, 999, 1000, 1, false) != 0) {
+            return NULL;
+        }
+        return loadTableFrom(m_resultBuffer.get(), m_engine->getResultsSize());
+    }
+
+    /** The rows of a result table in order, with SQL_NULL for SQL NULL */
+    static std::vector<std::vector<int64_t> > rows(Table* table) {
+        std::vector<std::vector<int64_t> > result;
+        TableTuple tuple(table->schema());
+        TableIterator iterator = table->iterator();
+        while (iterator.next(tuple)) {
+            std::vector<int64_t> row;
+            for (int i = 0; i < table->columnCount(); ++i) {
+                NValue value = tuple.getNValue(i);
+                row.push_back(value.isNull() ? SQL_NULL : ValuePeeker::peekAsBigInt(value));
+            }
+            result.push_back(row);
+        }
+        return result;
+    }
+
+private:
+    static const int PARAMETER_BUFFER_SIZE = 4 * 1024;
+    static const int RESULT_BUFFER_SIZE = 4 * 1024 * 1024;
+    static const int EXCEPTION_BUFFER_SIZE = 4 * 1024;
+
+    boost::scoped_ptr<PlanTestingTopend> m_topend;
+    boost::scoped_ptr<VoltDBEngine> m_engine;
+    boost::scoped_array<char> m_parameterBuffer;
+    boost::scoped_array<char> m_resultBuffer;
+    boost::scoped_array<char> m_exceptionBuffer;
+    int64_t m_nextFragmentId;
+    bool m_loaded;
+};
+
+} // namespace voltdb
+
+#endif /* TESTS_EE_TEST_UTILS_PLANTESTINGENGINE_HPP_ */
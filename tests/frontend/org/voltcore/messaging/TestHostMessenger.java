@@ -25,12 +25,15 @@ package org.voltcore.messaging;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -38,6 +41,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.voltcore.utils.Pair;
 import org.voltcore.zk.CoreZK;
 import org.voltdb.StartAction;
 
@@ -63,7 +67,13 @@ public class TestHostMessenger {
 
     private HostMessenger createHostMessenger(int index, StartAction action, HostMessenger.MembershipAcceptor acceptor,
                                               boolean start) throws Exception {
+        return createHostMessenger(index, action, acceptor, start, 1);
+    }
+
+    private HostMessenger createHostMessenger(int index, StartAction action, HostMessenger.MembershipAcceptor acceptor,
+                                              boolean start, int connectionsPerHost) throws Exception {
         HostMessenger.Config config = new HostMessenger.Config();
+        config.connectionsPerHost = connectionsPerHost;
         config.internalPort = config.internalPort + index;
         config.zkInterface = "127.0.0.1:" + (7181 + index);
         HostMessenger hm = new HostMessenger(config, acceptor, null);
@@ -173,6 +183,80 @@ public class TestHostMessenger {
         hm3.waitForGroupJoin(2);
     }
 
+    @Test
+    public void testMultipleConnectionsPerHost() throws Exception {
+        HostMessenger hm1 = createHostMessenger(0, StartAction.CREATE);
+        final HostMessenger hm2 = createHostMessenger(1, StartAction.CREATE, null, false, 3);
+        final AtomicReference<Exception> exception = new AtomicReference<Exception>();
+        Thread hm2Start = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    hm2.start(null);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    exception.set(e);
+                }
+            }
+        };
+        hm2Start.start();
+        hm2Start.join();
+        if (exception.get() != null) {
+            fail(exception.get().toString());
+        }
+
+        // sites on both hosts, spread over all of the connections
+        final int sites = 4;
+        Mailbox receivers1[] = new Mailbox[sites];
+        Mailbox receivers2[] = new Mailbox[sites];
+        long hsIds1[] = new long[sites];
+        long hsIds2[] = new long[sites];
+        for (int ii = 0; ii < sites; ii++) {
+            receivers1[ii] = hm1.createMailbox();
+            hsIds1[ii] = receivers1[ii].getHSId();
+            receivers2[ii] = hm2.createMailbox();
+            hsIds2[ii] = receivers2[ii].getHSId();
+        }
+        Mailbox sender1 = hm1.createMailbox();
+        Mailbox sender2 = hm2.createMailbox();
+
+        // small messages get coalesced, large ones go in frames of their own in between
+        final int messages = 2000;
+        for (int ii = 0; ii < messages; ii++) {
+            byte payload[] = new byte[ii % 100 == 0 ? ForeignHost.COALESCE_MESSAGE_BYTES * 2 : ii % 50];
+            sender1.send(hsIds2, new BinaryPayloadMessage(ByteBuffer.allocate(4).putInt(ii).array(), payload));
+            sender2.send(hsIds1, new BinaryPayloadMessage(ByteBuffer.allocate(4).putInt(ii).array(), payload));
+        }
+
+        // every site gets every message from the other host, in the order sent
+        for (Mailbox receivers[] : new Mailbox[][] { receivers1, receivers2 }) {
+            for (Mailbox receiver : receivers) {
+                for (int ii = 0; ii < messages; ii++) {
+                    BinaryPayloadMessage message = (BinaryPayloadMessage)receiver.recvBlocking(10000);
+                    assertNotNull(message);
+                    assertEquals(ii, ByteBuffer.wrap(message.m_metadata).getInt());
+                    assertEquals(ii % 100 == 0 ? ForeignHost.COALESCE_MESSAGE_BYTES * 2 : ii % 50,
+                                 message.m_payload.length);
+                }
+            }
+        }
+
+        // the node that joined opened three connections, and both ends use all of them
+        for (HostMessenger hm : new HostMessenger[] { hm1, hm2 }) {
+            Map<Pair<Integer, Integer>, Pair<String, long[]>> stats = hm.getLinkStats(false);
+            assertEquals(3, stats.size());
+            long messagesWritten = 0;
+            long framesWritten = 0;
+            for (Pair<String, long[]> link : stats.values()) {
+                assertTrue(link.getSecond()[3] > 0);
+                messagesWritten += link.getSecond()[3];
+                framesWritten += link.getSecond()[4];
+            }
+            assertTrue(messagesWritten >= messages);
+            assertTrue(framesWritten <= messagesWritten);
+        }
+    }
+
     @Test
     public void testPartitionDetectionMinoritySet() throws Exception
     {
@@ -0,0 +1,210 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.network;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.voltcore.utils.Pair;
+
+import com.google_voltpatches.common.collect.ImmutableList;
+
+public class TestVoltNetworkPool extends TestCase {
+
+    /** Echoes every message back to the sender */
+    private static class EchoHandler extends VoltProtocolHandler {
+        @Override
+        public int getMaxRead() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public void handleMessage(ByteBuffer message, Connection c) {
+            ByteBuffer echo = ByteBuffer.allocate(4 + message.remaining());
+            echo.putInt(message.remaining());
+            echo.put(message);
+            echo.flip();
+            c.writeStream().enqueue(echo);
+        }
+
+        @Override
+        public Runnable offBackPressure() {
+            return new Runnable() {
+                @Override
+                public void run() {}
+            };
+        }
+
+        @Override
+        public Runnable onBackPressure() {
+            return new Runnable() {
+                @Override
+                public void run() {}
+            };
+        }
+
+        @Override
+        public QueueMonitor writestreamMonitor() {
+            return null;
+        }
+    }
+
+    private ServerSocketChannel m_ssc;
+    private VoltNetworkPool m_pool;
+    private final List<SocketChannel> m_clients = new ArrayList<SocketChannel>();
+    private final List<VoltPort> m_ports = new ArrayList<VoltPort>();
+
+    @Override
+    public void setUp() throws Exception {
+        m_ssc = ServerSocketChannel.open();
+        m_ssc.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        m_pool = new VoltNetworkPool(2, 0, null, "Test");
+        m_pool.start();
+        for (int i = 0; i < 4; i++) {
+            SocketChannel client = SocketChannel.open(m_ssc.getLocalAddress());
+            m_clients.add(client);
+            m_ports.add((VoltPort) m_pool.registerChannel(m_ssc.accept(), new EchoHandler()));
+        }
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        for (SocketChannel client : m_clients) {
+            client.close();
+        }
+        m_pool.shutdown();
+        m_ssc.close();
+    }
+
+    private static void roundTrip(SocketChannel client, int value) throws Exception {
+        ByteBuffer message = ByteBuffer.allocate(8);
+        message.putInt(4).putInt(value).flip();
+        while (message.hasRemaining()) {
+            client.write(message);
+        }
+        ByteBuffer echo = ByteBuffer.allocate(8);
+        while (echo.hasRemaining()) {
+            assertTrue(client.read(echo) >= 0);
+        }
+        echo.flip();
+        assertEquals(4, echo.getInt());
+        assertEquals(value, echo.getInt());
+    }
+
+    public void testMigrateConnection() throws Exception {
+        // registration spreads the connections over both networks
+        VoltNetwork from = m_ports.get(0).network();
+        List<VoltPort> onFrom = new ArrayList<VoltPort>();
+        VoltNetwork to = null;
+        for (VoltPort port : m_ports) {
+            if (port.network() == from) {
+                onFrom.add(port);
+            } else {
+                to = port.network();
+            }
+        }
+        assertEquals(2, onFrom.size());
+        assertNotNull(to);
+
+        // the busier connection stays put, the other one moves
+        for (int i = 0; i < 10; i++) {
+            roundTrip(m_clients.get(m_ports.indexOf(onFrom.get(0))), i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            roundTrip(m_clients.get(m_ports.indexOf(onFrom.get(1))), i);
+        }
+        from.migrateOnePort(to, Long.MAX_VALUE);
+        long deadline = System.currentTimeMillis() + 10000;
+        while ((onFrom.get(0).network() != to || onFrom.get(0).isMigrating()) &&
+                System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertSame(to, onFrom.get(0).network());
+        assertSame(from, onFrom.get(1).network());
+        assertEquals(1, from.numPorts());
+        assertEquals(3, to.numPorts());
+
+        // every connection still works, including the one that moved
+        for (int i = 0; i < 100; i++) {
+            for (SocketChannel client : m_clients) {
+                roundTrip(client, i);
+            }
+        }
+
+        // the new network reports the connection and both report busy time
+        Map<Long, Pair<String, long[]>> stats = m_pool.getIOStats(false, ImmutableList.<VoltNetworkPool.IOStatsIntf>of());
+        assertTrue(stats.get(onFrom.get(0).connectionId()).getSecond()[4] > 0);
+        assertTrue(stats.get(-2L).getSecond()[4] > 0);
+        assertTrue(stats.get(-3L).getSecond()[4] > 0);
+        assertEquals(stats.get(-2L).getSecond()[4] + stats.get(-3L).getSecond()[4], stats.get(-1L).getSecond()[4]);
+    }
+
+    public void testPortWithBufferedInputStays() throws Exception {
+        VoltPort port = m_ports.get(0);
+        VoltNetwork from = port.network();
+        VoltNetwork to = null;
+        for (int i = 1; i < m_ports.size(); i++) {
+            if (m_ports.get(i).network() == from) {
+                // keep another connection of the network busier, so only the
+                // buffered input keeps the first one from moving
+                for (int j = 0; j < 1000; j++) {
+                    roundTrip(m_clients.get(i), j);
+                }
+            } else {
+                to = m_ports.get(i).network();
+            }
+        }
+        assertNotNull(to);
+
+        // half a message stays buffered in the port's read stream
+        SocketChannel client = m_clients.get(0);
+        roundTrip(client, 1);
+        ByteBuffer partial = ByteBuffer.allocate(6);
+        partial.putInt(4).putShort((short) 0).flip();
+        client.write(partial);
+        Thread.sleep(100);
+        from.migrateOnePort(to, Long.MAX_VALUE);
+        Thread.sleep(100);
+        assertSame(from, port.network());
+
+        ByteBuffer rest = ByteBuffer.allocate(2);
+        rest.putShort((short) 7).flip();
+        client.write(rest);
+        ByteBuffer echo = ByteBuffer.allocate(8);
+        while (echo.hasRemaining()) {
+            assertTrue(client.read(echo) >= 0);
+        }
+        echo.flip();
+        assertEquals(4, echo.getInt());
+        assertEquals(7, echo.getInt());
+    }
+}
@@ -0,0 +1,170 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.voltcore.utils.InstanceId;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+import org.voltdb.utils.VoltFile;
+
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
+/**
+ * Throughput and latency of the group commit command log in synchronous and
+ * asynchronous mode, without the rest of the server. Every "site" thread
+ * logs a stream of small single partition invocations as fast as the log
+ * accepts them. Latency is measured from log() to the durability
+ * notification of the transaction.
+ *
+ * Usage: CommandLogMicrobench [sites] [txns per site] [fsync interval ms] [log dir]
+ */
+public class CommandLogMicrobench {
+
+    /** Records when each transaction of one site was logged and became durable */
+    static class TimingListener extends TestGroupCommitCommandLog.CountingListener {
+        final long[] m_loggedAt;
+        final long[] m_latencies;
+        final CountDownLatch m_done = new CountDownLatch(1);
+        int m_nextDurable = 0;
+
+        TimingListener(int partitionId, int txnCount) {
+            super(partitionId, null);
+            m_loggedAt = new long[txnCount];
+            m_latencies = new long[txnCount];
+        }
+
+        @Override
+        public void processDurabilityChecks(CommandLog.CompletionChecks completionChecks) {
+            final long now = System.nanoTime();
+            for (int i = 0; i < completionChecks.getTaskListSize(); i++) {
+                m_latencies[m_nextDurable] = now - m_loggedAt[m_nextDurable];
+                m_nextDurable++;
+            }
+            super.processDurabilityChecks(completionChecks);
+            if (m_nextDurable == m_loggedAt.length) {
+                m_done.countDown();
+            }
+        }
+    }
+
+    static void run(final boolean synchronous, final int sites, final int txnsPerSite,
+                    int fsyncIntervalMs, File dir) throws Exception {
+        VoltFile.recursivelyDelete(dir, false);
+        final GroupCommitCommandLog log =
+                new GroupCommitCommandLog(synchronous, fsyncIntervalMs, Integer.MAX_VALUE, dir.getPath());
+        log.start(Long.MAX_VALUE, new HashMap<Integer, Long>(), new InstanceId(0, 0));
+
+        final StoredProcedureInvocation invocation = new StoredProcedureInvocation();
+        invocation.setProcName("Insert");
+        invocation.setParams(1L, "some string column", 3.14159, 42);
+
+        final CyclicBarrier start = new CyclicBarrier(sites + 1);
+        final TimingListener[] listeners = new TimingListener[sites];
+        Thread[] threads = new Thread[sites];
+        for (int s = 0; s < sites; s++) {
+            final int site = s;
+            listeners[s] = new TimingListener(s, txnsPerSite);
+            threads[s] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < txnsPerSite; i++) {
+                            long spHandle = i + 1;
+                            Iv2InitiateTaskMessage msg = new Iv2InitiateTaskMessage(0, 0,
+                                    Iv2InitiateTaskMessage.UNUSED_TRUNC_HANDLE, spHandle, spHandle,
+                                    false, true, invocation, 0, 0, false);
+                            listeners[site].m_loggedAt[i] = System.nanoTime();
+                            ListenableFuture<Object> backpressure =
+                                    log.log(msg, spHandle, null, listeners[site], null);
+                            if (backpressure != null) {
+                                backpressure.get();
+                            }
+                        }
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            threads[s].start();
+        }
+
+        start.await();
+        final long startNanos = System.nanoTime();
+        for (TimingListener listener : listeners) {
+            listener.m_done.await();
+        }
+        final long elapsed = System.nanoTime() - startNanos;
+        log.shutdown();
+
+        long[] latencies = new long[sites * txnsPerSite];
+        for (int s = 0; s < sites; s++) {
+            System.arraycopy(listeners[s].m_latencies, 0, latencies, s * txnsPerSite, txnsPerSite);
+        }
+        Arrays.sort(latencies);
+        long total = 0;
+        for (long latency : latencies) {
+            total += latency;
+        }
+        System.out.printf("%-5s sites=%d txns=%d: %,.0f txns/sec, latency avg %.2fms p50 %.2fms p99 %.2fms max %.2fms%n",
+                synchronous ? "sync" : "async", sites, latencies.length,
+                latencies.length / (elapsed / (double) TimeUnit.SECONDS.toNanos(1)),
+                total / (double) latencies.length / 1e6,
+                latencies[latencies.length / 2] / 1e6,
+                latencies[(int) (latencies.length * 0.99)] / 1e6,
+                latencies[latencies.length - 1] / 1e6);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int sites = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int txnsPerSite = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+        int fsyncIntervalMs = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        File dir;
+        if (args.length > 3) {
+            dir = new File(args[3]);
+        } else {
+            dir = File.createTempFile("commandlogbench", "");
+            dir.delete();
+        }
+        dir.mkdirs();
+
+        try {
+            // warm up, then measure each mode
+            run(true, sites, txnsPerSite / 10, fsyncIntervalMs, dir);
+            run(false, sites, txnsPerSite / 10, fsyncIntervalMs, dir);
+            for (int i = 0; i < 3; i++) {
+                run(true, sites, txnsPerSite, fsyncIntervalMs, dir);
+                run(false, sites, txnsPerSite, fsyncIntervalMs, dir);
+            }
+        } finally {
+            VoltFile.recursivelyDelete(dir);
+        }
+    }
+}
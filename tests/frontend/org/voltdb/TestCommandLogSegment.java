@@ -0,0 +1,162 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.voltcore.utils.InstanceId;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+import org.voltdb.utils.VoltFile;
+
+public class TestCommandLogSegment extends TestCase {
+
+    private File m_dir;
+
+    @Override
+    public void setUp() throws Exception {
+        m_dir = File.createTempFile("commandlog", "");
+        assertTrue(m_dir.delete());
+        assertTrue(m_dir.mkdir());
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        VoltFile.recursivelyDelete(m_dir);
+    }
+
+    static Iv2InitiateTaskMessage makeInitiation(long txnId, long uniqueId, boolean isSinglePartition,
+                                                 String procName, Object... params) {
+        StoredProcedureInvocation invocation = new StoredProcedureInvocation();
+        invocation.setProcName(procName);
+        invocation.setParams(params);
+        return new Iv2InitiateTaskMessage(0, 0, Iv2InitiateTaskMessage.UNUSED_TRUNC_HANDLE, txnId, uniqueId,
+                                          false, isSinglePartition, invocation, 0, 0, false);
+    }
+
+    public void testRoundTrip() throws Exception {
+        InstanceId instanceId = new InstanceId(3, 12345L);
+        CommandLogSegment segment = CommandLogSegment.create(m_dir, 2, 7, instanceId, 100L);
+
+        ByteBuffer sp = CommandLogSegment.invocationRecord(makeInitiation(101, 1001, true, "Insert", 1, "abc"),
+                                                           101, null);
+        ByteBuffer mp = CommandLogSegment.invocationRecord(makeInitiation(55, 1002, false, "Update", 2L),
+                                                           102, new int[] {0, 1, 2});
+        ByteBuffer fault = CommandLogSegment.faultRecord(103, 42L, new HashSet<Long>());
+        ByteBuffer all = ByteBuffer.allocate(sp.remaining() + mp.remaining() + fault.remaining());
+        all.put(sp).put(mp).put(fault).flip();
+        segment.write(all, 103);
+        segment.force();
+        assertEquals(103, segment.getLastSpHandle());
+        assertEquals(segment.getHeader().file.length(), segment.size());
+        segment.close();
+
+        List<CommandLogSegment.Header> headers = CommandLogSegment.listSegments(m_dir);
+        assertEquals(1, headers.size());
+        CommandLogSegment.Header header = headers.get(0);
+        assertEquals(2, header.partitionId);
+        assertEquals(7, header.segmentIndex);
+        assertEquals(100L, header.truncationTxnId);
+        assertEquals(instanceId, header.instanceId);
+
+        List<CommandLogSegment.Record> records = CommandLogSegment.readRecords(header);
+        assertEquals(3, records.size());
+
+        CommandLogSegment.Record record = records.get(0);
+        assertEquals(CommandLogSegment.INVOCATION_RECORD, record.type);
+        assertEquals(101, record.spHandle);
+        assertEquals(101, record.txnId);
+        assertEquals(1001, record.uniqueId);
+        assertTrue(record.isSinglePartition);
+        assertFalse(record.isMultiPartition());
+        assertEquals("Insert", record.invocation.getProcName());
+        assertEquals("abc", record.invocation.getParams().toArray()[1]);
+
+        record = records.get(1);
+        assertEquals(55, record.txnId);
+        assertEquals(1002, record.uniqueId);
+        assertTrue(record.isMultiPartition());
+        assertEquals(3, record.involvedPartitions.length);
+        assertEquals("Update", record.invocation.getProcName());
+
+        assertEquals(CommandLogSegment.FAULT_RECORD, records.get(2).type);
+        assertEquals(103, records.get(2).spHandle);
+    }
+
+    public void testTornTail() throws Exception {
+        CommandLogSegment segment = CommandLogSegment.create(m_dir, 0, 0, new InstanceId(0, 0), Long.MIN_VALUE);
+        for (int i = 0; i < 10; i++) {
+            segment.write(CommandLogSegment.invocationRecord(makeInitiation(i, i, true, "Insert", i), i, null), i);
+        }
+        segment.close();
+
+        // chop the last record in half
+        File file = segment.getHeader().file;
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(raf.length() - 5);
+        } finally {
+            raf.close();
+        }
+        List<CommandLogSegment.Record> records =
+                CommandLogSegment.readRecords(CommandLogSegment.readHeader(file));
+        assertEquals(9, records.size());
+
+        // corrupt a byte in the payload of the fifth record
+        raf = new RandomAccessFile(file, "rw");
+        try {
+            long offset = CommandLogSegment.HEADER_SIZE;
+            for (int i = 0; i < 4; i++) {
+                raf.seek(offset);
+                offset += CommandLogSegment.RECORD_HEADER_SIZE + raf.readInt();
+            }
+            raf.seek(offset + CommandLogSegment.RECORD_HEADER_SIZE + 2);
+            int b = raf.read();
+            raf.seek(offset + CommandLogSegment.RECORD_HEADER_SIZE + 2);
+            raf.write(b ^ 0xff);
+        } finally {
+            raf.close();
+        }
+        records = CommandLogSegment.readRecords(CommandLogSegment.readHeader(file));
+        assertEquals(4, records.size());
+        assertEquals(3, records.get(3).uniqueId);
+    }
+
+    public void testIgnoresForeignFiles() throws Exception {
+        File bogus = new File(m_dir, CommandLogSegment.fileName(0, 0));
+        RandomAccessFile raf = new RandomAccessFile(bogus, "rw");
+        try {
+            raf.writeLong(1234L);
+        } finally {
+            raf.close();
+        }
+        assertNull(CommandLogSegment.readHeader(bogus));
+        assertTrue(CommandLogSegment.listSegments(m_dir).isEmpty());
+    }
+}
@@ -0,0 +1,337 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.voltcore.utils.InstanceId;
+import org.voltdb.CommandLog.CompletionChecks;
+import org.voltdb.CommandLog.DurabilityListener;
+import org.voltdb.iv2.SpScheduler.DurableUniqueIdListener;
+import org.voltdb.iv2.TransactionTask;
+import org.voltdb.utils.VoltFile;
+
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
+public class TestGroupCommitCommandLog extends TestCase {
+
+    /** Counts the transactions the command log reports durable */
+    static class CountingListener implements DurabilityListener {
+        final int m_partitionId;
+        final File m_logDir;
+        // guarded by the command log
+        int m_pending = 0;
+        final AtomicInteger m_durable = new AtomicInteger();
+        final AtomicInteger m_notifications = new AtomicInteger();
+        // set if a notification arrived before its records were readable from disk
+        volatile boolean m_notDurable = false;
+
+        CountingListener(int partitionId, File logDir) {
+            m_partitionId = partitionId;
+            m_logDir = logDir;
+        }
+
+        class Checks implements CompletionChecks {
+            final int m_count;
+
+            Checks(int count) {
+                m_count = count;
+            }
+
+            @Override
+            public CompletionChecks startNewCheckList(int startSize) {
+                return new Checks(0);
+            }
+
+            @Override
+            public void addTask(TransactionTask task) {}
+
+            @Override
+            public void setLastDurableUniqueId(long uniqueId) {}
+
+            @Override
+            public int getTaskListSize() {
+                return m_count;
+            }
+
+            @Override
+            public void processChecks() {}
+        }
+
+        @Override
+        public void setUniqueIdListener(DurableUniqueIdListener listener) {}
+
+        @Override
+        public int getPartitionId() {
+            return m_partitionId;
+        }
+
+        @Override
+        public void createFirstCompletionCheck(boolean isSyncLogging, boolean commandLoggingEnabled) {}
+
+        @Override
+        public boolean completionCheckInitialized() {
+            return true;
+        }
+
+        @Override
+        public void addTransaction(TransactionTask pendingTask) {
+            m_pending++;
+        }
+
+        @Override
+        public void initializeLastDurableUniqueId(long uniqueId) {}
+
+        @Override
+        public int getNumberOfTasks() {
+            return m_pending;
+        }
+
+        @Override
+        public CompletionChecks startNewTaskList(int nextMaxRowCnt) {
+            Checks checks = new Checks(m_pending);
+            m_pending = 0;
+            return checks;
+        }
+
+        @Override
+        public void processDurabilityChecks(CompletionChecks completionChecks) {
+            int durable = m_durable.addAndGet(completionChecks.getTaskListSize());
+            m_notifications.incrementAndGet();
+            if (m_logDir != null && recordsOnDisk(m_logDir, m_partitionId) < durable) {
+                m_notDurable = true;
+            }
+        }
+    }
+
+    private File m_dir;
+
+    @Override
+    public void setUp() throws Exception {
+        m_dir = File.createTempFile("commandlog", "");
+        assertTrue(m_dir.delete());
+        assertTrue(m_dir.mkdir());
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        VoltFile.recursivelyDelete(m_dir);
+    }
+
+    static int recordsOnDisk(File dir, int partitionId) {
+        int count = 0;
+        try {
+            for (CommandLogSegment.Header header : CommandLogSegment.listSegments(dir)) {
+                if (header.partitionId == partitionId) {
+                    count += CommandLogSegment.readRecords(header).size();
+                }
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        return count;
+    }
+
+    static void waitForDurable(CountingListener listener, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (listener.m_durable.get() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, listener.m_durable.get());
+    }
+
+    private GroupCommitCommandLog startLog(boolean synchronous, int fsyncIntervalMs, int maxTxns) {
+        return startLog(synchronous, fsyncIntervalMs, maxTxns, GroupCommitCommandLog.MAX_WRITE_BUFFER_BYTES);
+    }
+
+    private GroupCommitCommandLog startLog(boolean synchronous, int fsyncIntervalMs, int maxTxns,
+                                           int maxWriteBufferBytes) {
+        GroupCommitCommandLog log = new GroupCommitCommandLog(synchronous, fsyncIntervalMs, maxTxns, m_dir.getPath());
+        log.m_maxWriteBufferBytes = maxWriteBufferBytes;
+        Map<Integer, Long> truncation = new HashMap<Integer, Long>();
+        truncation.put(0, 10L);
+        truncation.put(1, 20L);
+        log.start(Long.MAX_VALUE, truncation, new InstanceId(1, 2));
+        return log;
+    }
+
+    private static ListenableFuture<Object> log(GroupCommitCommandLog log, CountingListener listener, long spHandle) {
+        return log.log(TestCommandLogSegment.makeInitiation(spHandle, spHandle, true, "Insert", spHandle),
+                       spHandle, null, listener, null);
+    }
+
+    public void testPassThroughBeforeInit() throws Exception {
+        GroupCommitCommandLog log = new GroupCommitCommandLog(true, 10, 100, m_dir.getPath());
+        assertTrue(log.needsInitialization());
+        CountingListener listener = new CountingListener(0, null);
+        assertNull(log(log, listener, 1));
+        assertEquals(1, listener.m_durable.get());
+        assertEquals(0, m_dir.list().length);
+        log.shutdown();
+    }
+
+    public void testSyncGroupCommit() throws Exception {
+        GroupCommitCommandLog log = startLog(true, 20, 100000);
+        assertFalse(log.needsInitialization());
+        assertFalse(log.canOfferTask());
+        CountingListener p0 = new CountingListener(0, m_dir);
+        CountingListener p1 = new CountingListener(1, m_dir);
+        log.registerDurabilityListener(p0);
+        log.registerDurabilityListener(p1);
+
+        for (int i = 0; i < 500; i++) {
+            assertNull(log(log, p0, 100 + i));
+            assertNull(log(log, p1, 100 + i));
+        }
+        waitForDurable(p0, 500);
+        waitForDurable(p1, 500);
+        assertFalse(p0.m_notDurable);
+        assertFalse(p1.m_notDurable);
+        // many transactions share a notification
+        assertTrue(p0.m_notifications.get() < 500);
+        log.shutdown();
+
+        List<CommandLogSegment.Header> headers = CommandLogSegment.listSegments(m_dir);
+        assertEquals(2, headers.size());
+        for (CommandLogSegment.Header header : headers) {
+            assertEquals(header.partitionId == 0 ? 10L : 20L, header.truncationTxnId);
+            assertEquals(new InstanceId(1, 2), header.instanceId);
+        }
+    }
+
+    public void testMaxTxnsTriggersCommit() throws Exception {
+        GroupCommitCommandLog log = startLog(true, 60000, 10);
+        CountingListener p0 = new CountingListener(0, m_dir);
+        for (int i = 0; i < 10; i++) {
+            log(log, p0, 100 + i);
+        }
+        waitForDurable(p0, 10);
+        log.shutdown();
+    }
+
+    public void testAsync() throws Exception {
+        GroupCommitCommandLog log = startLog(false, 5, 100000);
+        assertTrue(log.canOfferTask());
+        CountingListener p0 = new CountingListener(0, m_dir);
+        for (int i = 0; i < 100; i++) {
+            ListenableFuture<Object> future = log(log, p0, 100 + i);
+            assertNotNull(future);
+            assertTrue(future.isDone());
+        }
+        waitForDurable(p0, 100);
+
+        // past the outstanding byte limit, log() hands out backpressure
+        log.m_maxAsyncOutstandingBytes = 0;
+        ListenableFuture<Object> future = log(log, p0, 1000);
+        future.get();
+        waitForDurable(p0, 101);
+        log.shutdown();
+        assertEquals(101, recordsOnDisk(m_dir, 0));
+    }
+
+    public void testWriteBufferSize() {
+        assertEquals(1, GroupCommitCommandLog.writeBufferSize(0, 1024));
+        assertEquals(512, GroupCommitCommandLog.writeBufferSize(512, 1024));
+        assertEquals(1024, GroupCommitCommandLog.writeBufferSize(513, 1024));
+        assertEquals(1024, GroupCommitCommandLog.writeBufferSize(5000, 1024));
+        // batches past 1GB used to overflow to a negative size
+        assertEquals(Integer.MAX_VALUE, GroupCommitCommandLog.writeBufferSize((1L << 30) + 1, Integer.MAX_VALUE));
+        assertEquals(Integer.MAX_VALUE, GroupCommitCommandLog.writeBufferSize(3L << 30, Integer.MAX_VALUE));
+    }
+
+    public void testBatchLargerThanWriteBuffer() throws Exception {
+        // A buffer of a few records: one group commit of 50 records is
+        // written in several pieces, each flushed when the next record
+        // doesn't fit.
+        final int recordSize =
+                CommandLogSegment.invocationRecord(
+                        TestCommandLogSegment.makeInitiation(100, 100, true, "Insert", 100L), 100, null).remaining();
+        GroupCommitCommandLog log = startLog(true, 60000, 50, 3 * recordSize);
+        CountingListener p0 = new CountingListener(0, m_dir);
+        for (int i = 0; i < 50; i++) {
+            log(log, p0, 100 + i);
+        }
+        waitForDurable(p0, 50);
+        log.shutdown();
+        assertEquals(50, recordsOnDisk(m_dir, 0));
+    }
+
+    public void testRecordLargerThanWriteBuffer() throws Exception {
+        // smaller than a single record, so every record is written on its own
+        GroupCommitCommandLog log = startLog(true, 60000, 20, 16);
+        CountingListener p0 = new CountingListener(0, m_dir);
+        for (int i = 0; i < 20; i++) {
+            log(log, p0, 100 + i);
+        }
+        waitForDurable(p0, 20);
+        log.shutdown();
+        assertEquals(20, recordsOnDisk(m_dir, 0));
+    }
+
+    public void testRollAndTruncate() throws Exception {
+        GroupCommitCommandLog log = startLog(true, 1, 1);
+        log.m_segmentSize = 1024;
+        CountingListener p0 = new CountingListener(0, m_dir);
+        for (int i = 0; i < 100; i++) {
+            log(log, p0, 100 + i);
+            waitForDurable(p0, i + 1);
+        }
+        List<CommandLogSegment.Header> headers = CommandLogSegment.listSegments(m_dir);
+        assertTrue(headers.size() > 2);
+
+        Map<String, Integer> columns = new HashMap<String, Integer>();
+        for (CommandLogStats.StatName stat : CommandLogStats.StatName.values()) {
+            columns.put(stat.name(), stat.ordinal());
+        }
+        Object[] row = new Object[columns.size()];
+        log.populateCommandLogStats(columns, row);
+        assertEquals(headers.size(), row[CommandLogStats.StatName.SEGMENT_COUNT.ordinal()]);
+        assertEquals(1, row[CommandLogStats.StatName.IN_USE_SEGMENT_COUNT.ordinal()]);
+
+        // a truncation snapshot covering everything logged so far
+        // leaves only the segment the next transaction goes to
+        Map<Integer, Long> truncation = new HashMap<Integer, Long>();
+        truncation.put(0, 199L);
+        log.snapshotCompleted(new SnapshotCompletionInterest.SnapshotCompletionEvent(
+                "", "", 0, truncation, true, true, "", null, null, null, 0, 0));
+        log(log, p0, 200);
+        waitForDurable(p0, 101);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (CommandLogSegment.listSegments(m_dir).size() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        headers = CommandLogSegment.listSegments(m_dir);
+        assertEquals(1, headers.size());
+        List<CommandLogSegment.Record> records = CommandLogSegment.readRecords(headers.get(0));
+        assertEquals(200, records.get(records.size() - 1).spHandle);
+        assertTrue(records.get(0).spHandle > 100);
+        log.shutdown();
+    }
+}
@@ -64,6 +64,7 @@ import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
@@ -182,6 +183,23 @@ public class TestJSONInterface extends TestCase {
         }
     }
 
+    public static byte[] callProcOverJSONRawBytes(String varString, final int expectedCode) throws Exception {
+        URI jsonAPIURI = URI.create("http://localhost:8095/api/1.0/");
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            HttpPost post = new HttpPost(jsonAPIURI);
+            post.setEntity(new StringEntity(varString, utf8ApplicationFormUrlEncoded));
+            ResponseHandler<byte[]> rh = new ResponseHandler<byte[]>() {
+                @Override
+                public byte[] handleResponse(final HttpResponse response) throws ClientProtocolException, IOException {
+                    assertEquals(expectedCode, response.getStatusLine().getStatusCode());
+                    HttpEntity entity = response.getEntity();
+                    return entity != null ? EntityUtils.toByteArray(entity) : null;
+                }
+            };
+            return httpclient.execute(post,rh);
+        }
+    }
+
     public static String getUrlOverJSON(String url, String user, String password, String scheme, int expectedCode, String expectedCt) throws Exception {
         return httpUrlOverJSON("GET", url, user, password, scheme, expectedCode, expectedCt, null);
     }
@@ -862,6 +880,23 @@ public class TestJSONInterface extends TestCase {
             System.out.println(responseJSON);
             assertTrue(responseJSON.startsWith("fooBar("));
 
+            // now try the binary format, which must decode to the same tables as the json one
+            String selectVarString = "Procedure=@AdHoc&Parameters=" + URLEncoder.encode("[\"select * from blah\"]", "UTF-8");
+            response = responseFromJSON(callProcOverJSONRaw(selectVarString + "&Format=json", 200));
+            assertEquals(ClientResponse.SUCCESS, response.status);
+            byte[] binary = callProcOverJSONRawBytes(selectVarString + "&Format=binary", 200);
+            ClientResponseImpl binaryResponse = new ClientResponseImpl();
+            binaryResponse.initFromBuffer(ByteBuffer.wrap(binary));
+            assertEquals(ClientResponse.SUCCESS, binaryResponse.getStatus());
+            assertEquals(1, binaryResponse.getResults().length);
+            assertEquals(response.results[0].getRowCount(), binaryResponse.getResults()[0].getRowCount());
+            assertTrue(binaryResponse.getResults()[0].advanceRow());
+            assertEquals(1, binaryResponse.getResults()[0].getLong("IVAL"));
+            assertEquals("hello", binaryResponse.getResults()[0].getString("SVAL"));
+
+            responseJSON = callProcOverJSONRaw(selectVarString + "&Format=csv", 400);
+            assertTrue(responseJSON.contains("invalid output format"));
+
             // now try adhoc
             pset = ParameterSet.fromArrayNoCopy("select * from blah");
             responseJSON = callProcOverJSON("@AdHoc", pset, null, null, false);
@@ -0,0 +1,59 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import junit.framework.TestCase;
+
+import org.voltdb.VoltTable.ColumnInfo;
+
+public class TestPlannerCacheStats extends TestCase {
+
+    private static int columnIndex(PlannerCacheStats stats, PlannerCacheStats.StatName name) {
+        int index = 0;
+        for (ColumnInfo column : stats.getColumnSchema()) {
+            if (column.name.equals(name.name())) {
+                return index;
+            }
+            index++;
+        }
+        fail("no column " + name);
+        return -1;
+    }
+
+    public void testNoCatalog() {
+        // Without a catalog there is no cache; rows are still reported
+        // in both modes, starting with an interval request.
+        PlannerCacheStats stats = new PlannerCacheStats();
+        int entries = columnIndex(stats, PlannerCacheStats.StatName.ENTRIES);
+        assertEquals(VoltType.BIGINT, stats.getColumnSchema().get(entries).type);
+        for (boolean interval : new boolean[] { true, false, true }) {
+            Object[][] rows = stats.getStatsRows(interval, System.currentTimeMillis());
+            assertEquals(PlannerCacheStats.CacheLevel.values().length, rows.length);
+            for (Object[] row : rows) {
+                assertEquals(0L, row[entries]);
+                assertEquals(0L, row[columnIndex(stats, PlannerCacheStats.StatName.HITS)]);
+            }
+        }
+    }
+}
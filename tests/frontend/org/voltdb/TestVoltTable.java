@@ -1429,4 +1429,96 @@ public class TestVoltTable extends TestCase {
             }
         }
     }
+
+    private static VoltTable makeAllTypesTable() {
+        return new VoltTable(new ColumnInfo("tiny", VoltType.TINYINT),
+                             new ColumnInfo("small", VoltType.SMALLINT),
+                             new ColumnInfo("int", VoltType.INTEGER),
+                             new ColumnInfo("big", VoltType.BIGINT),
+                             new ColumnInfo("flt", VoltType.FLOAT),
+                             new ColumnInfo("ts", VoltType.TIMESTAMP),
+                             new ColumnInfo("str", VoltType.STRING),
+                             new ColumnInfo("bin", VoltType.VARBINARY),
+                             new ColumnInfo("dec", VoltType.DECIMAL));
+    }
+
+    public void testRowBuilderMatchesAddRow() {
+        BigDecimal dec = new BigDecimal(7654321).setScale(VoltDecimalHelper.kDefaultScale);
+        // ascii, two and three byte chars and a surrogate pair
+        String str = "abc\u00e9\u4e2d\ud83d\ude00";
+        VoltTable expected = makeAllTypesTable();
+        VoltTable built = makeAllTypesTable();
+        // enough rows to grow the buffer several times in the middle of a row
+        for (int i = 0; i < 200; i++) {
+            expected.addRow((byte) i, (short) i, i, (long) i, i + 0.5,
+                            new TimestampType(i), str + i, new byte[] { (byte) i }, dec);
+            built.startRow()
+                 .appendTinyInt((byte) i).appendSmallInt((short) i).appendInteger(i)
+                 .appendLong(i).appendDouble(i + 0.5).appendTimestamp(i)
+                 .appendString(str + i).appendVarbinary(new byte[] { (byte) i }).appendDecimal(dec)
+                 .endRow();
+        }
+        expected.addRow(null, null, null, null, null, null, null, null, null);
+        built.startRow();
+        for (int i = 0; i < built.getColumnCount(); i++) {
+            built.appendNull();
+        }
+        built.endRow();
+
+        assertEquals(201, built.getRowCount());
+        assertTrue(expected.hasSameContents(built));
+        assertTrue(expected.hasSameContents(roundTrip(built)));
+        assertEquals(str + 3, built.fetchRow(3).getString(6));
+        VoltTableRow row = built.fetchRow(200);
+        row.getLong(3);
+        assertTrue(row.wasNull());
+    }
+
+    public void testRowBuilderErrorsRollBack() {
+        VoltTable table = new VoltTable(new ColumnInfo("id", VoltType.BIGINT),
+                                        new ColumnInfo("name", VoltType.STRING));
+        table.startRow().appendLong(1).appendString("one").endRow();
+
+        // wrong type
+        table.startRow().appendLong(2);
+        try {
+            table.appendInteger(2);
+            fail();
+        } catch (VoltTypeException e) {}
+        // too few columns
+        table.startRow().appendLong(3);
+        try {
+            table.endRow();
+            fail();
+        } catch (IllegalStateException e) {}
+        // too many columns
+        table.startRow().appendLong(4).appendString("four");
+        try {
+            table.appendLong(4);
+            fail();
+        } catch (IllegalStateException e) {}
+        // appending without a row
+        try {
+            table.appendLong(5);
+            fail();
+        } catch (IllegalStateException e) {}
+        // addRow in the middle of a row
+        table.startRow();
+        try {
+            table.addRow(6L, "six");
+            fail();
+        } catch (IllegalStateException e) {}
+        try {
+            table.startRow();
+            fail();
+        } catch (IllegalStateException e) {}
+        table.appendLong(6).appendString("six").endRow();
+
+        assertEquals(2, table.getRowCount());
+        VoltTable expected = new VoltTable(new ColumnInfo("id", VoltType.BIGINT),
+                                           new ColumnInfo("name", VoltType.STRING));
+        expected.addRow(1L, "one");
+        expected.addRow(6L, "six");
+        assertTrue(expected.hasSameContents(roundTrip(table)));
+    }
 }
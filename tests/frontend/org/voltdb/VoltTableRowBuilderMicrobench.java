@@ -0,0 +1,114 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.util.concurrent.TimeUnit;
+
+import org.voltdb.VoltTable.ColumnInfo;
+
+/**
+ * Cost of filling a result table row by row with addRow(Object...) compared
+ * to the typed startRow()/append*()/endRow() builder, for a table shaped like
+ * a typical procedure result. Reports time per row and the bytes allocated
+ * per row by the building thread.
+ *
+ * Usage: VoltTableRowBuilderMicrobench [rows per table] [tables]
+ */
+public class VoltTableRowBuilderMicrobench {
+
+    static VoltTable makeTable() {
+        return new VoltTable(new ColumnInfo("id", VoltType.BIGINT),
+                             new ColumnInfo("count", VoltType.INTEGER),
+                             new ColumnInfo("name", VoltType.STRING),
+                             new ColumnInfo("price", VoltType.FLOAT),
+                             new ColumnInfo("updated", VoltType.TIMESTAMP));
+    }
+
+    static final String[] NAMES = { "alpha", "bravo", "charlie", "delta", "echo", "foxtrot" };
+
+    static long fillWithAddRow(int rows) {
+        VoltTable table = makeTable();
+        for (int i = 0; i < rows; i++) {
+            table.addRow((long) i, i & 0xffff, NAMES[i % NAMES.length], i * 0.25, (long) i * 1000);
+        }
+        return table.getSerializedSize();
+    }
+
+    static long fillWithBuilder(int rows) {
+        VoltTable table = makeTable();
+        for (int i = 0; i < rows; i++) {
+            table.startRow()
+                 .appendLong(i)
+                 .appendInteger(i & 0xffff)
+                 .appendString(NAMES[i % NAMES.length])
+                 .appendDouble(i * 0.25)
+                 .appendTimestamp((long) i * 1000)
+                 .endRow();
+        }
+        return table.getSerializedSize();
+    }
+
+    static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = java.lang.management.ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    static void run(boolean builder, int rows, int tables, boolean print) {
+        long size = 0;
+        final long allocatedBefore = allocatedBytes();
+        final long start = System.nanoTime();
+        for (int t = 0; t < tables; t++) {
+            size += builder ? fillWithBuilder(rows) : fillWithAddRow(rows);
+        }
+        final long elapsed = System.nanoTime() - start;
+        final long allocated = allocatedBytes() - allocatedBefore;
+        if (print) {
+            long totalRows = (long) rows * tables;
+            System.out.printf("%-8s rows=%d tables=%d: %.1f ns/row, %.1f bytes allocated/row, %,.0f rows/sec (%d bytes)%n",
+                    builder ? "builder" : "addRow", rows, tables,
+                    elapsed / (double) totalRows,
+                    allocated / (double) totalRows,
+                    totalRows / (elapsed / (double) TimeUnit.SECONDS.toNanos(1)),
+                    size);
+        }
+    }
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int tables = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+
+        // warm up, then measure each way
+        for (int i = 0; i < 3; i++) {
+            run(false, rows, tables, false);
+            run(true, rows, tables, false);
+        }
+        for (int i = 0; i < 3; i++) {
+            run(false, rows, tables, true);
+            run(true, rows, tables, true);
+        }
+    }
+}
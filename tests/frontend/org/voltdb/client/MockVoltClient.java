@@ -67,6 +67,9 @@ import org.voltdb.VoltTable;
 import org.voltdb.client.VoltBulkLoader.BulkLoaderFailureCallBack;
 import org.voltdb.client.VoltBulkLoader.VoltBulkLoader;
 
+import com.google_voltpatches.common.util.concurrent.Futures;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
 /** Hack subclass of VoltClient that fakes callProcedure. */
 public class MockVoltClient implements Client, ReplicaProcCaller{
     public MockVoltClient() {
@@ -376,6 +379,21 @@ public class MockVoltClient implements Client, ReplicaProcCaller{
         return null;
     }
 
+    @Override
+    public ListenableFuture<ClientResponse> callProcedureAsync(String procName, Object... parameters) {
+        try {
+            return Futures.immediateFuture(callProcedure(procName, parameters));
+        } catch (ProcCallException e) {
+            return Futures.immediateFuture(e.getClientResponse());
+        }
+    }
+
+    @Override
+    public ListenableFuture<ClientResponse> callProcedureAsyncWithTimeout(int batchTimeout,
+            String procName, Object... parameters) {
+        return callProcedureAsync(procName, parameters);
+    }
+
     @Override
     public boolean callProcedureWithTimeout(ProcedureCallback callback,
             int batchTimeout, String procName, Object... parameters)
@@ -31,6 +31,7 @@ import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -48,6 +49,10 @@ import org.voltdb.StoredProcedureInvocation;
 import org.voltdb.VoltTable;
 import org.voltdb.VoltType;
 
+import com.google_voltpatches.common.base.Function;
+import com.google_voltpatches.common.util.concurrent.Futures;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
 public class TestDistributer extends TestCase {
 
     class MockInputHandler extends VoltProtocolHandler {
@@ -868,6 +873,81 @@ public class TestDistributer extends TestCase {
         }
     }
 
+    @Test
+    public void testCallProcedureAsync() throws Exception {
+        MockVolt volt = null;
+        Client clt = null;
+
+        try {
+            volt = new MockVolt(21212);
+            volt.start();
+
+            clt = ClientFactory.createClient();
+            clt.createConnection("localhost");
+
+            ListenableFuture<ClientResponse> future = clt.callProcedureAsync("Foo", new Integer(1));
+            assertEquals(ClientResponse.SUCCESS, future.get().getStatus());
+
+            // composes without another thread
+            ListenableFuture<Long> value = Futures.transform(clt.callProcedureAsync("Bar", new Integer(2)),
+                    new Function<ClientResponse, Long>() {
+                        @Override
+                        public Long apply(ClientResponse response) {
+                            return response.getResults()[0].asScalarLong();
+                        }
+                    });
+            assertEquals(1L, value.get().longValue());
+
+            // a client side timeout completes the future with a timeout response
+            volt.handler.sendResponses.set(false);
+            future = ((ClientImpl) clt).callProcedureAsyncWithClientTimeout(BatchTimeoutOverrideType.NO_TIMEOUT,
+                    "Foo", 200, TimeUnit.MILLISECONDS, new Integer(3));
+            assertEquals(ClientResponse.CONNECTION_TIMEOUT, future.get(10, TimeUnit.SECONDS).getStatus());
+        }
+        finally {
+            if (clt != null) clt.close();
+            if (volt != null) volt.shutdown();
+        }
+    }
+
+    @Test
+    public void testCallProcedureAsyncFailsOnMaxOutstanding() throws Exception {
+        // create a fake server that never reads invocations
+        MockVolt volt0 = new MockVolt(20000);
+        volt0.handleConnection = false;
+
+        Client client = null;
+        try {
+            volt0.start();
+
+            ClientConfig config = new ClientConfig();
+            config.setMaxOutstandingTxns(5);
+            config.setConnectionResponseTimeout(2000);
+
+            client = ClientFactory.createClient(config);
+            client.createConnection("localhost", 20000);
+
+            for (int ii = 0; ii < 5; ii++) {
+                assertFalse(client.callProcedureAsync("foo").isDone());
+            }
+
+            final long start = System.currentTimeMillis();
+            ListenableFuture<ClientResponse> future = client.callProcedureAsync("foo");
+            assertTrue(System.currentTimeMillis() - start < 300);
+            assertTrue(future.isDone());
+            try {
+                future.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof BackpressureException);
+            }
+        }
+        finally {
+            if (client != null) client.close();
+            volt0.shutdown();
+        }
+    }
+
     public void testUnresolvedHost() throws IOException {
         final String hostname = "doesnotexist";
         boolean threwException = false;
@@ -91,15 +91,16 @@ public class TestAsyncCompilerAgent {
         m_agent.m_mailbox = spy(m_agent.m_mailbox);
 
         /*
-         * send max + 2 messages to the agent. The first one will be executed
-         * immediately so it doesn't consume queue capacity, the next max number
-         * of messages will use up all the capacity, the last one will be
-         * rejected.
+         * send max + threads + 1 messages to the agent. The first one for each
+         * planner thread will be executed immediately so it doesn't consume queue
+         * capacity, the next max number of messages will use up all the capacity,
+         * the last one will be rejected.
          */
+        final int requestCount = AsyncCompilerAgent.MAX_QUEUE_DEPTH + AsyncCompilerAgent.PLANNER_THREADS + 1;
         final AtomicInteger completedRequests = new AtomicInteger();
         final AtomicReference<AsyncCompilerResult> result = new AtomicReference<AsyncCompilerResult>();
         final long threadId = Thread.currentThread().getId();
-        for (int i = 0; i < AsyncCompilerAgent.MAX_QUEUE_DEPTH + 2; ++i) {
+        for (int i = 0; i < requestCount; ++i) {
             AsyncCompilerWorkCompletionHandler handler = new AsyncCompilerWorkCompletionHandler() {
                 @Override
                 public void onCompletion(AsyncCompilerResult compilerResult) {
@@ -127,10 +128,10 @@ public class TestAsyncCompilerAgent {
         assertNotNull(result.get().errorMsg);
 
         // let all requests return
-        blockingAnswer.flag.release(AsyncCompilerAgent.MAX_QUEUE_DEPTH + 5);
+        blockingAnswer.flag.release(requestCount + 5);
 
         // check if all previous requests finish
         m_agent.shutdown();
-        assertEquals(AsyncCompilerAgent.MAX_QUEUE_DEPTH + 2, completedRequests.get());
+        assertEquals(requestCount, completedRequests.get());
     }
 }
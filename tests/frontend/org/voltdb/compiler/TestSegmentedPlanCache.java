@@ -0,0 +1,204 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+public class TestSegmentedPlanCache extends TestCase {
+
+    // every entry weighs the length of its value
+    static final SegmentedPlanCache.Weigher<String> LENGTH_WEIGHER = new SegmentedPlanCache.Weigher<String>() {
+        @Override
+        public long weigh(String key, String value) {
+            return value.length();
+        }
+    };
+
+    public void testEntryBound() {
+        SegmentedPlanCache<String> cache =
+                new SegmentedPlanCache<String>(100, Long.MAX_VALUE, 4, LENGTH_WEIGHER);
+        assertEquals(4, cache.getSegmentCount());
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        assertTrue(cache.size() <= 100);
+        SegmentedPlanCache.Stats stats = cache.getStats();
+        assertEquals(1000, stats.insertions);
+        assertEquals(cache.size(), stats.entries);
+        assertEquals(1000, stats.entries + stats.evictions + stats.rejections);
+    }
+
+    public void testByteBound() {
+        SegmentedPlanCache<String> cache =
+                new SegmentedPlanCache<String>(1000, 1000, 1, LENGTH_WEIGHER);
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, "0123456789012345678901234567890123456789");
+        }
+        SegmentedPlanCache.Stats stats = cache.getStats();
+        assertEquals(25, stats.entries);
+        assertEquals(1000, stats.bytes);
+
+        // an entry larger than the whole cache is refused without flushing the rest
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            sb.append('x');
+        }
+        cache.put("huge", sb.toString());
+        assertNull(cache.peek("huge"));
+        assertEquals(25, cache.size());
+        assertEquals(stats.rejections + 1, cache.getStats().rejections);
+    }
+
+    public void testLargeEntryUsesWholeBudget() {
+        // four segments sharing one byte budget
+        SegmentedPlanCache<String> cache =
+                new SegmentedPlanCache<String>(1000, 1000, 4, LENGTH_WEIGHER);
+        assertEquals(4, cache.getSegmentCount());
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 600; i++) {
+            sb.append('x');
+        }
+        cache.put("large", sb.toString());
+        assertNotNull(cache.peek("large"));
+        assertEquals(600, cache.getStats().bytes);
+
+        // small entries still fit around it, and the cache stays within budget
+        for (int i = 0; i < 200; i++) {
+            cache.put("key" + i, "0123456789");
+            assertTrue(cache.getStats().bytes <= 1000);
+        }
+        assertTrue(cache.size() > 1);
+        SegmentedPlanCache.Stats stats = cache.getStats();
+        assertEquals(200 + 1, stats.entries + stats.evictions + stats.rejections);
+    }
+
+    public void testEvictsFromLargestSegment() {
+        SegmentedPlanCache<String> cache =
+                new SegmentedPlanCache<String>(1000, 1000, 4, LENGTH_WEIGHER);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 900; i++) {
+            sb.append('x');
+        }
+        cache.put("large", sb.toString());
+
+        // the small entries push out the large one rather than each other
+        for (int i = 0; i < 200; i++) {
+            cache.put("key" + i, "0123456789");
+        }
+        assertNull(cache.peek("large"));
+        assertEquals(100, cache.size());
+        assertEquals(1000, cache.getStats().bytes);
+    }
+
+    public void testReplaceAndRemove() {
+        SegmentedPlanCache<String> cache =
+                new SegmentedPlanCache<String>(100, 1000, 1, LENGTH_WEIGHER);
+        cache.put("a", "12345");
+        cache.put("a", "123");
+        assertEquals("123", cache.get("a"));
+        assertEquals(3, cache.getStats().bytes);
+        cache.remove("a");
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getStats().bytes);
+
+        SegmentedPlanCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.hits);
+        assertEquals(1, stats.misses);
+
+        // peek doesn't count
+        cache.peek("a");
+        assertEquals(1, cache.getStats().misses);
+    }
+
+    public void testFrequentEntriesSurviveScan() {
+        SegmentedPlanCache<String> cache =
+                new SegmentedPlanCache<String>(100, Long.MAX_VALUE, 1, LENGTH_WEIGHER);
+        for (int i = 0; i < 90; i++) {
+            cache.get("hot" + i);
+            cache.put("hot" + i, "plan");
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 90; i++) {
+                assertNotNull(cache.get("hot" + i));
+            }
+        }
+        // a burst of statements that are planned once and never seen again
+        for (int i = 0; i < 1000; i++) {
+            cache.get("cold" + i);
+            cache.put("cold" + i, "plan");
+        }
+        int survivors = 0;
+        for (int i = 0; i < 90; i++) {
+            if (cache.peek("hot" + i) != null) {
+                ++survivors;
+            }
+        }
+        assertEquals(90, survivors);
+        assertTrue(cache.getStats().rejections > 0);
+    }
+
+    public void testConcurrentAccess() throws Exception {
+        final SegmentedPlanCache<String> cache =
+                new SegmentedPlanCache<String>(256, 4096, 8, LENGTH_WEIGHER);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 8; t++) {
+            final int seed = t;
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 20000; i++) {
+                            String key = "key" + ((i * 31 + seed) % 500);
+                            String value = cache.get(key);
+                            if (value == null) {
+                                cache.put(key, key);
+                            }
+                            else {
+                                assertEquals(key, value);
+                            }
+                        }
+                    }
+                    catch (Throwable e) {
+                        failure.set(e);
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+        SegmentedPlanCache.Stats stats = cache.getStats();
+        assertEquals(8 * 20000, stats.hits + stats.misses);
+        assertTrue(stats.entries <= 256);
+        assertTrue(stats.bytes <= 4096);
+    }
+}
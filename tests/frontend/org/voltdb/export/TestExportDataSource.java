@@ -0,0 +1,258 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.export;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+import org.mockito.ArgumentCaptor;
+import org.voltcore.messaging.BinaryPayloadMessage;
+import org.voltcore.messaging.Mailbox;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltcore.utils.Pair;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.Catalog;
+import org.voltdb.catalog.Column;
+import org.voltdb.catalog.Table;
+import org.voltdb.utils.VoltFile;
+
+import com.google_voltpatches.common.collect.ImmutableList;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
+public class TestExportDataSource extends TestCase {
+
+    private static final int PARTITION_ID = 3;
+    private static final String TEST_DIR = "/tmp/" + System.getProperty("user.name") + "-exportdatasource";
+
+    private Table m_table;
+    private ExportDataSource m_source;
+
+    @Override
+    public void setUp() throws Exception {
+        File dir = new File(TEST_DIR);
+        VoltFile.recursivelyDelete(dir);
+        assertTrue(dir.mkdirs());
+
+        Catalog catalog = new Catalog();
+        catalog.execute("add / clusters cluster");
+        catalog.execute("add /clusters#cluster databases database");
+        m_table = catalog.getClusters().get("cluster").getDatabases().get("database").getTables().add("FOO");
+        m_table.setSignature("FOO_SIG");
+        Column column = m_table.getColumns().add("A");
+        column.setIndex(0);
+        column.setType(VoltType.BIGINT.getValue());
+        column.setSize(8);
+
+        m_source = new ExportDataSource(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, "database", m_table.getTypeName(), PARTITION_ID, m_table.getSignature(), 0,
+        m_table.getColumns(), null, TEST_DIR);
+        m_source.setupExecutor();
+        m_source.setMaster();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        ExportManager.setInstanceForTest(null);
+        m_source.closeAndDelete().get();
+        VoltFile.recursivelyDelete(new File(TEST_DIR));
+    }
+
+    /**
+     * Push an EE buffer of size bytes after the header, filled with the given byte,
+     * and wait for the source to take it.
+     */
+    private void push(long uso, int size, int fill) {
+        ByteBuffer buf = ByteBuffer.allocateDirect(StreamBlock.HEADER_SIZE + size);
+        for (int ii = StreamBlock.HEADER_SIZE; ii < buf.capacity(); ii++) {
+            buf.put(ii, (byte) fill);
+        }
+        m_source.pushExportBuffer(uso, buf, false, false);
+        // the size is computed on the executor, after the push
+        m_source.sizeInBytes();
+    }
+
+    public void testCoalesce() throws Exception {
+        // buffers that continue each other while nobody polls end up in one block
+        for (int ii = 0; ii < 10; ii++) {
+            push(ii * 100, 100, ii);
+        }
+        ExportDataSource.Stats stats = m_source.getStats();
+        assertEquals(1000, stats.bytesPushed);
+        assertEquals(1000, stats.pendingBytes);
+        assertEquals(1000, m_source.sizeInBytes());
+
+        BBContainer cont = m_source.poll().get();
+        ByteBuffer b = cont.b();
+        assertEquals(1000, b.remaining());
+        for (int ii = 0; ii < 10; ii++) {
+            assertEquals(ii, b.get(b.position() + ii * 100));
+            assertEquals(ii, b.get(b.position() + ii * 100 + 99));
+        }
+        cont.discard();
+        assertEquals(0, m_source.getStats().pendingBytes);
+
+        // a gap in the USOs starts a new block
+        push(5000, 100, 1);
+        push(5100, 100, 2);
+        push(7000, 100, 3);
+        assertEquals(300, m_source.sizeInBytes());
+        cont = m_source.poll().get();
+        assertEquals(200, cont.b().remaining());
+        assertEquals(2, cont.b().get(cont.b().position() + 150));
+        cont.discard();
+        cont = m_source.poll().get();
+        assertEquals(100, cont.b().remaining());
+        assertEquals(3, cont.b().get(cont.b().position()));
+        cont.discard();
+
+        // a waiting poll gets the next buffer right away instead of a fuller block
+        ListenableFuture<BBContainer> waiting = m_source.poll();
+        m_source.sizeInBytes();
+        assertFalse(waiting.isDone());
+        push(7100, 100, 4);
+        cont = waiting.get();
+        assertEquals(100, cont.b().remaining());
+        assertEquals(4, cont.b().get(cont.b().position()));
+        cont.discard();
+        assertEquals(0, m_source.getStats().pendingBytes);
+    }
+
+    public void testBatchedAcks() throws Exception {
+        Mailbox mbx = mock(Mailbox.class);
+        m_source.updateAckMailboxes(Pair.<Mailbox, ImmutableList<Long>>of(mbx, ImmutableList.of(42L)));
+
+        push(0, 100, 1);
+        push(1000, 100, 2);
+        push(2000, 100, 3);
+        BBContainer first = m_source.poll().get();
+        BBContainer second = m_source.poll().get();
+        BBContainer third = m_source.poll().get();
+        assertEquals(0, m_source.getStats().acks);
+
+        // hold the executor so that all the acks are queued before one task applies them
+        final CountDownLatch blocked = new CountDownLatch(1);
+        m_source.getExecutorService().submit(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                blocked.await();
+                return null;
+            }
+        });
+        second.discard();
+        first.discard();
+        third.discard();
+        blocked.countDown();
+
+        ExportDataSource.Stats stats = m_source.getStats();
+        assertEquals(3, stats.acks);
+        assertEquals(0, stats.pendingBytes);
+        assertTrue(stats.maxAckLatencyNanos > 0);
+        assertTrue(stats.ackLatencyNanos >= stats.maxAckLatencyNanos);
+
+        // the replicas are told about the highest USO once
+        ArgumentCaptor<BinaryPayloadMessage> msg = ArgumentCaptor.forClass(BinaryPayloadMessage.class);
+        verify(mbx, times(1)).send(eq(42L), msg.capture());
+        ByteBuffer payload = ByteBuffer.wrap(msg.getValue().m_payload);
+        assertEquals(PARTITION_ID, payload.getInt());
+        int signatureLength = payload.getInt();
+        payload.position(payload.position() + signatureLength);
+        assertEquals(2100, payload.getLong());
+
+        // acks of replicas are merged too, and not forwarded again
+        push(2100, 100, 4);
+        push(3000, 100, 5);
+        m_source.ack(2200, false);
+        m_source.ack(2150, false);
+        stats = m_source.getStats();
+        assertEquals(100, stats.pendingBytes);
+        assertEquals(3, stats.acks);
+        verify(mbx, times(1)).send(anyLong(), any(BinaryPayloadMessage.class));
+    }
+
+    private static VoltTable statsTable(ExportStats exportStats, boolean interval) {
+        VoltTable table = new VoltTable(exportStats.getColumnSchema().toArray(new ColumnInfo[0]));
+        for (Object[] row : exportStats.getStatsRows(interval, System.currentTimeMillis())) {
+            table.addRow(row);
+        }
+        assertEquals(1, table.getRowCount());
+        table.advanceRow();
+        return table;
+    }
+
+    public void testStatsRows() throws Exception {
+        ExportManager.setInstanceForTest(new ExportManager() {
+            @Override
+            public synchronized List<ExportDataSource> getDataSources() {
+                return Arrays.asList(m_source);
+            }
+        });
+        ExportStats exportStats = new ExportStats();
+
+        push(0, 100, 1);
+        push(1000, 100, 2);
+        VoltTable row = statsTable(exportStats, false);
+        assertEquals(PARTITION_ID, row.getLong("PARTITION_ID"));
+        assertEquals("FOO", row.getString("SOURCE_NAME"));
+        assertEquals(200, row.getLong("BYTES_PUSHED"));
+        assertEquals(200, row.getLong("PENDING_BYTES"));
+        assertEquals(0, row.getLong("ACKS"));
+        assertEquals(0.0, row.getDouble("AVG_ACK_LATENCY_MS"));
+
+        BBContainer cont = m_source.poll().get();
+        Thread.sleep(5);
+        cont.discard();
+        push(2000, 100, 3);
+
+        // interval rows only count what happened since the previous collection
+        row = statsTable(exportStats, true);
+        assertEquals(100, row.getLong("BYTES_PUSHED"));
+        assertEquals(200, row.getLong("PENDING_BYTES"));
+        assertEquals(1, row.getLong("ACKS"));
+        assertTrue(row.getLong("BYTES_PER_SECOND") > 0);
+        assertTrue(row.getDouble("AVG_ACK_LATENCY_MS") >= 5.0);
+        assertEquals(row.getDouble("AVG_ACK_LATENCY_MS"), row.getDouble("MAX_ACK_LATENCY_MS"));
+
+        row = statsTable(exportStats, false);
+        assertEquals(300, row.getLong("BYTES_PUSHED"));
+        assertEquals(1, row.getLong("ACKS"));
+    }
+}
@@ -0,0 +1,197 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.voltcore.utils.CoreUtils;
+import org.voltdb.BackendTarget;
+import org.voltdb.CatalogContext;
+import org.voltdb.CatalogSpecificPlanner;
+import org.voltdb.catalog.Catalog;
+import org.voltdb.compiler.VoltProjectBuilder;
+import org.voltdb.utils.CatalogUtil;
+import org.voltdb.utils.MiscUtils;
+
+public class TestMpRoSitePool extends TestCase
+{
+    private static final long IDLE_TIMEOUT_MS = 200;
+
+    private static int s_nextSiteId = 100;
+
+    private CatalogContext m_context;
+    private long m_siteId;
+    private MpRoSitePool m_pool;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        VoltProjectBuilder builder = new VoltProjectBuilder();
+        builder.addLiteralSchema("CREATE TABLE A (I INTEGER NOT NULL);");
+        File cat = File.createTempFile("mprositepool", ".jar");
+        cat.deleteOnExit();
+        assertTrue(builder.compile(cat.getAbsolutePath()));
+        byte[] bytes = MiscUtils.fileToBytes(cat);
+        String serializedCat =
+            CatalogUtil.getSerializedCatalogStringFromJar(CatalogUtil.loadAndUpgradeCatalogFromJar(bytes).getFirst());
+        Catalog catalog = new Catalog();
+        catalog.execute(serializedCat);
+        m_context = new CatalogContext(0, 0, catalog, bytes, new byte[] {}, 0);
+
+        System.setProperty("mpiReadPoolSize", "4");
+        System.setProperty("mpiReadPoolMinSize", "1");
+        System.setProperty("mpiReadPoolIdleTimeoutMs", Long.toString(IDLE_TIMEOUT_MS));
+        // a site id of its own for each pool so its site threads can be told apart
+        m_siteId = CoreUtils.getHSIdFromHostAndSite(0, s_nextSiteId++);
+        InitiatorMailbox mailbox = mock(InitiatorMailbox.class);
+        when(mailbox.getHSId()).thenReturn(m_siteId);
+        m_pool = new MpRoSitePool(m_siteId, BackendTarget.NATIVE_EE_JNI, m_context, MpInitiator.MP_INIT_PID,
+                                  mailbox, mock(CatalogSpecificPlanner.class));
+    }
+
+    @Override
+    public void tearDown() throws Exception
+    {
+        m_pool.shutdown();
+        System.clearProperty("mpiReadPoolSize");
+        System.clearProperty("mpiReadPoolMinSize");
+        System.clearProperty("mpiReadPoolIdleTimeoutMs");
+    }
+
+    private int liveSiteThreads()
+    {
+        final String name = "RO MP Site - " + CoreUtils.hsIdToString(m_siteId);
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith(name) && thread.isAlive()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void waitForLiveSiteThreads(int expected) throws InterruptedException
+    {
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (liveSiteThreads() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, liveSiteThreads());
+    }
+
+    private void startReads(long... txnIds)
+    {
+        for (long txnId : txnIds) {
+            assertTrue(m_pool.doWork(txnId, mock(TransactionTask.class)));
+        }
+    }
+
+    public void testTrimIdleSites() throws Exception
+    {
+        startReads(1, 2, 3);
+        assertEquals(3, m_pool.getStats(0).poolSize);
+        waitForLiveSiteThreads(3);
+        m_pool.completeWork(1);
+        m_pool.completeWork(2);
+
+        // idle, but not for long enough
+        m_pool.trimIdleSites();
+        MpRoSitePool.Stats stats = m_pool.getStats(0);
+        assertEquals(3, stats.poolSize);
+        assertEquals(0, stats.sitesRetired);
+
+        // the idle sites are shut down, the busy one is kept
+        Thread.sleep(IDLE_TIMEOUT_MS + 50);
+        m_pool.trimIdleSites();
+        stats = m_pool.getStats(0);
+        assertEquals(1, stats.poolSize);
+        assertEquals(1, stats.busySites);
+        assertEquals(3, stats.sitesCreated);
+        assertEquals(2, stats.sitesRetired);
+        waitForLiveSiteThreads(1);
+
+        // the last site is not retired below the minimum size
+        m_pool.completeWork(3);
+        Thread.sleep(IDLE_TIMEOUT_MS + 50);
+        m_pool.trimIdleSites();
+        stats = m_pool.getStats(0);
+        assertEquals(1, stats.poolSize);
+        assertEquals(0, stats.busySites);
+        assertEquals(2, stats.sitesRetired);
+        waitForLiveSiteThreads(1);
+    }
+
+    public void testLongestIdleRetiredFirst() throws Exception
+    {
+        startReads(1, 2, 3);
+        m_pool.completeWork(1);
+        m_pool.completeWork(2);
+        Thread.sleep(IDLE_TIMEOUT_MS + 50);
+        // site of read 3 was idle for less than the timeout, only the others go
+        m_pool.completeWork(3);
+        m_pool.trimIdleSites();
+        MpRoSitePool.Stats stats = m_pool.getStats(0);
+        assertEquals(1, stats.poolSize);
+        assertEquals(2, stats.sitesRetired);
+        waitForLiveSiteThreads(1);
+    }
+
+    public void testNoTrimWhileSaturated() throws Exception
+    {
+        startReads(1, 2, 3);
+        m_pool.completeWork(1);
+        m_pool.completeWork(2);
+        m_pool.completeWork(3);
+        Thread.sleep(IDLE_TIMEOUT_MS + 50);
+
+        // reads waited for a site within the timeout, the pool is kept at its size
+        m_pool.saturated();
+        m_pool.trimIdleSites();
+        assertEquals(3, m_pool.getStats(0).poolSize);
+        assertEquals(0, m_pool.getStats(0).sitesRetired);
+        waitForLiveSiteThreads(3);
+
+        Thread.sleep(IDLE_TIMEOUT_MS + 50);
+        m_pool.trimIdleSites();
+        assertEquals(1, m_pool.getStats(0).poolSize);
+        waitForLiveSiteThreads(1);
+    }
+
+    public void testNoTrimAfterShutdown() throws Exception
+    {
+        startReads(1, 2);
+        m_pool.completeWork(1);
+        m_pool.completeWork(2);
+        Thread.sleep(IDLE_TIMEOUT_MS + 50);
+        m_pool.shutdown();
+        m_pool.trimIdleSites();
+        assertEquals(0, m_pool.getStats(0).sitesRetired);
+        waitForLiveSiteThreads(0);
+    }
+}
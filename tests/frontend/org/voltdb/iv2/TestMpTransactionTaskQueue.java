@@ -150,4 +150,36 @@ public class TestMpTransactionTaskQueue extends TestCase
         verify(m_MPpool).doWork(eq(readtxnid), any(TransactionTask.class));
         verify(m_MPpool).doWork(eq(readtxnid2), any(TransactionTask.class));
     }
+
+    // Reads left waiting on a full pool mark it saturated, and every read
+    // handed to the pool reports how long it waited
+    @Test
+    public void testReadPoolSaturationAndWait()
+    {
+        TxnEgo txnId = TxnEgo.makeZero(MpInitiator.MP_INIT_PID);
+        txnId = txnId.makeNext();
+        long firstRead = txnId.getTxnId();
+        m_dut.offer(makeTransactionTask(firstRead, true));
+        verify(m_MPpool, times(1)).recordWait(anyLong());
+        verify(m_MPpool, never()).saturated();
+
+        when(m_MPpool.canAcceptWork()).thenReturn(false);
+        txnId = txnId.makeNext();
+        long waitingRead = txnId.getTxnId();
+        m_dut.offer(makeTransactionTask(waitingRead, true));
+        verify(m_MPpool).saturated();
+        verify(m_MPpool, times(1)).recordWait(anyLong());
+
+        when(m_MPpool.canAcceptWork()).thenReturn(true);
+        m_dut.flush(firstRead);
+        verify(m_MPpool).doWork(eq(waitingRead), any(TransactionTask.class));
+        verify(m_MPpool, times(2)).recordWait(anyLong());
+
+        // writes don't count as read waits
+        txnId = txnId.makeNext();
+        m_dut.offer(makeTransactionTask(txnId.getTxnId(), false));
+        m_dut.flush(waitingRead);
+        verify(m_writeQueue).offer(any(TransactionTask.class));
+        verify(m_MPpool, times(2)).recordWait(anyLong());
+    }
 }
@@ -325,6 +325,64 @@ public class TestRepairLog
         Collections.sort(items, dut.m_handleComparator);
     }
 
+    @Test
+    public void testOffHeapStorage() throws Exception
+    {
+        RepairLog rl = new RepairLog();
+        byte[] blob = new byte[RepairLog.BUFFER_SIZE / 8];
+        for (int i = 0; i < 20; i++) {
+            StoredProcedureInvocation spi = new StoredProcedureInvocation();
+            spi.setProcName("Insert");
+            spi.setParams(i, "row " + i, blob);
+            // truncate everything below the previous message
+            Iv2InitiateTaskMessage msg =
+                    new Iv2InitiateTaskMessage(0l, 0l, i > 0 ? 100L + i - 1 : Long.MIN_VALUE, 10L + i, 0l,
+                            false, true, spi, 0l, 0l, false);
+            msg.setSpHandle(100L + i);
+            rl.deliver(msg);
+        }
+        // a message past the buffer size gets a buffer of its own
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.setProcName("Insert");
+        spi.setParams(20, "row 20", new byte[RepairLog.BUFFER_SIZE * 2]);
+        Iv2InitiateTaskMessage big = new Iv2InitiateTaskMessage(0l, 0l, Long.MIN_VALUE, 30L, 0l,
+                false, true, spi, 0l, 0l, false);
+        big.setSpHandle(120L);
+        rl.deliver(big);
+
+        assertEquals(2, rl.m_spEntries);
+        assertTrue(rl.m_offHeapBytes > RepairLog.BUFFER_SIZE * 2);
+        assertTrue(rl.m_bufferBytes >= RepairLog.BUFFER_SIZE * 3);
+        assertTrue(rl.m_oldestTimestamp != Long.MAX_VALUE);
+
+        List<Iv2RepairLogResponseMessage> contents = rl.contents(1L, false);
+        assertEquals(3, contents.size());
+        Iv2InitiateTaskMessage first = (Iv2InitiateTaskMessage) contents.get(1).getPayload();
+        assertEquals(119L, contents.get(1).getHandle());
+        assertEquals(119L, first.getSpHandle());
+        assertEquals(29L, first.getTxnId());
+        assertEquals("row 19", first.getParameters()[1]);
+        assertEquals(blob.length, ((byte[]) first.getParameters()[2]).length);
+        assertEquals(120L, ((Iv2InitiateTaskMessage) contents.get(2).getPayload()).getSpHandle());
+
+        // once truncated, only the current buffer is kept
+        StoredProcedureInvocation small = new StoredProcedureInvocation();
+        small.setProcName("Insert");
+        small.setParams(21);
+        Iv2InitiateTaskMessage last = new Iv2InitiateTaskMessage(0l, 0l, 120L, 31L, 0l,
+                false, true, small, 0l, 0l, false);
+        last.setSpHandle(121L);
+        rl.deliver(last);
+        assertEquals(1, rl.m_spEntries);
+        assertEquals(0, rl.m_offHeapBytes);
+        assertEquals(RepairLog.BUFFER_SIZE, rl.m_bufferBytes);
+        assertEquals(last, rl.contents(1L, false).get(1).getPayload());
+
+        rl.shutdown();
+        assertEquals(0, rl.m_bufferBytes);
+        assertEquals(1, rl.contents(1L, false).size());
+    }
+
     @Test
     public void testTrackBinaryLogUniqueId() {
         // The end unique id for an @ApplyBinaryLogSP invocation is recorded
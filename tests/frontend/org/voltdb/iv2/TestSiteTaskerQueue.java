@@ -0,0 +1,142 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+import org.HdrHistogram_voltpatches.Histogram;
+import org.voltdb.StarvationTracker;
+
+public class TestSiteTaskerQueue extends TestCase
+{
+    static class NumberedTask extends SiteTasker.SiteTaskerRunnable {
+        final int m_producer;
+        final int m_seq;
+
+        NumberedTask(int producer, int seq) {
+            m_producer = producer;
+            m_seq = seq;
+        }
+
+        @Override
+        void run() {}
+    }
+
+    private static SiteTaskerQueue getSiteTaskerQueue() {
+        SiteTaskerQueue queue = new SiteTaskerQueue();
+        queue.setStarvationTracker(new StarvationTracker(0));
+        return queue;
+    }
+
+    public void testFifo() throws Exception
+    {
+        SiteTaskerQueue queue = getSiteTaskerQueue();
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+        for (int i = 0; i < 100; i++) {
+            queue.offer(new NumberedTask(0, i));
+        }
+        assertFalse(queue.isEmpty());
+        assertEquals(100, queue.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, ((NumberedTask)queue.take()).m_seq);
+        }
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.size());
+
+        Histogram depths = queue.getIntervalDepths(null);
+        assertEquals(100, depths.getTotalCount());
+        assertEquals(100, depths.getMaxValue());
+        assertEquals(100, queue.getIntervalWaitTimes(null).getTotalCount());
+        // sampling starts a new interval
+        assertEquals(0, queue.getIntervalDepths(depths).getTotalCount());
+    }
+
+    public void testManyProducers() throws Exception
+    {
+        final int producers = 4;
+        final int tasksPerProducer = 50000;
+        final SiteTaskerQueue queue = getSiteTaskerQueue();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            threads[p] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < tasksPerProducer; i++) {
+                        queue.offer(new NumberedTask(producer, i));
+                        if (i % 1000 == 0) {
+                            // let the consumer catch up and park now and then
+                            Thread.yield();
+                        }
+                    }
+                }
+            };
+            threads[p].start();
+        }
+        start.countDown();
+
+        // every producer's tasks come out in the order it offered them
+        int[] next = new int[producers];
+        for (int i = 0; i < producers * tasksPerProducer; i++) {
+            NumberedTask task = (NumberedTask)queue.take();
+            assertEquals(next[task.m_producer], task.m_seq);
+            next[task.m_producer]++;
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertNull(queue.poll());
+    }
+
+    public void testTakeWakesUp() throws Exception
+    {
+        final SiteTaskerQueue queue = getSiteTaskerQueue();
+        final NumberedTask[] taken = new NumberedTask[1];
+        Thread consumer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    taken[0] = (NumberedTask)queue.take();
+                } catch (InterruptedException e) {
+                }
+            }
+        };
+        consumer.start();
+        Thread.sleep(50);
+        assertTrue(consumer.isAlive());
+        queue.offer(new NumberedTask(0, 42));
+        consumer.join(10000);
+        assertFalse(consumer.isAlive());
+        assertEquals(42, taken[0].m_seq);
+    }
+}
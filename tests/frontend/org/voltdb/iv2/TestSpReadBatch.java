@@ -0,0 +1,223 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import junit.framework.TestCase;
+
+import org.voltdb.ServerThread;
+import org.voltdb.VoltDB;
+import org.voltdb.VoltDB.Configuration;
+import org.voltdb.VoltTable;
+import org.voltdb.client.Client;
+import org.voltdb.client.ClientFactory;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.client.ProcedureCallback;
+import org.voltdb.compiler.VoltProjectBuilder;
+import org.voltdb.utils.MiscUtils;
+
+/**
+ * Single statement SP reads queued behind each other run in one call to the
+ * EE, see Site.runReadBatch(). Each must still get its own result, see the
+ * writes queued before it and none after, and be charged its own time.
+ */
+public class TestSpReadBatch extends TestCase {
+
+    private static final int ROWS = 20000;
+
+    private ServerThread m_server;
+    private Client m_client;
+    private final Queue<String> m_errors = new ConcurrentLinkedQueue<String>();
+
+    @Override
+    public void setUp() throws Exception {
+        System.setProperty("SP_READ_BATCH_SIZE", "50");
+
+        VoltProjectBuilder builder = new VoltProjectBuilder();
+        builder.addLiteralSchema(
+                "CREATE TABLE P (ID INTEGER NOT NULL, B BIGINT NOT NULL, PRIMARY KEY (ID));" +
+                "PARTITION TABLE P ON COLUMN ID;" +
+                "CREATE TABLE C (ID INTEGER NOT NULL, V BIGINT NOT NULL, PRIMARY KEY (ID));" +
+                "PARTITION TABLE C ON COLUMN ID;");
+        builder.addStmtProcedure("GetP", "SELECT ID, B FROM P WHERE ID = ?", "P.ID: 0");
+        builder.addStmtProcedure("ScanP", "SELECT SUM(B) FROM P WHERE ID >= ? AND B * 3 + ID > 7", "P.ID: 0");
+        builder.addStmtProcedure("GetC", "SELECT V FROM C WHERE ID = ?", "C.ID: 0");
+        builder.addStmtProcedure("IncrC", "UPDATE C SET V = V + 1 WHERE ID = ?", "C.ID: 0");
+        assertTrue(builder.compile(Configuration.getPathToCatalogForTest("spreadbatch.jar"), 1, 1, 0));
+        MiscUtils.copyFile(builder.getPathToDeployment(), Configuration.getPathToCatalogForTest("spreadbatch.xml"));
+
+        VoltDB.Configuration config = new VoltDB.Configuration();
+        config.m_pathToCatalog = Configuration.getPathToCatalogForTest("spreadbatch.jar");
+        config.m_pathToDeployment = Configuration.getPathToCatalogForTest("spreadbatch.xml");
+        m_server = new ServerThread(config);
+        m_server.start();
+        m_server.waitForInitialization();
+        m_client = ClientFactory.createClient();
+        m_client.createConnection("localhost");
+
+        for (int id = 0; id < ROWS; id++) {
+            m_client.callProcedure(new NullCheck(), "P.insert", id, (long) id * 2);
+        }
+        m_client.callProcedure("C.insert", 1, 0L);
+        m_client.drain();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        if (m_client != null) {
+            m_client.close();
+        }
+        if (m_server != null) {
+            m_server.shutdown();
+            m_server.join();
+        }
+        System.clearProperty("SP_READ_BATCH_SIZE");
+    }
+
+    /** Records a failed call */
+    private class NullCheck implements ProcedureCallback {
+        @Override
+        public void clientCallback(ClientResponse response) {
+            if (response.getStatus() != ClientResponse.SUCCESS) {
+                m_errors.add(response.getStatusString());
+            }
+        }
+    }
+
+    /** Checks the single long a read returns */
+    private class ExpectLong extends NullCheck {
+        private final String m_what;
+        private final long m_expected;
+
+        ExpectLong(String what, long expected) {
+            m_what = what;
+            m_expected = expected;
+        }
+
+        @Override
+        public void clientCallback(ClientResponse response) {
+            super.clientCallback(response);
+            if (response.getStatus() == ClientResponse.SUCCESS) {
+                VoltTable t = response.getResults()[0];
+                long actual = t.advanceRow() ? t.getLong(t.getColumnCount() - 1) : -1;
+                if (actual != m_expected) {
+                    m_errors.add(m_what + ": expected " + m_expected + " but was " + actual);
+                }
+            }
+        }
+    }
+
+    private void checkNoErrors() throws Exception {
+        m_client.drain();
+        assertTrue(m_errors.toString(), m_errors.isEmpty());
+    }
+
+    public void testResults() throws Exception {
+        for (int round = 0; round < 5; round++) {
+            for (int id = 0; id < ROWS; id += 7) {
+                m_client.callProcedure(new ExpectLong("GetP(" + id + ")", (long) id * 2), "GetP", id);
+            }
+            // a row that isn't there
+            m_client.callProcedure(new ExpectLong("GetP(" + ROWS + ")", -1), "GetP", ROWS);
+        }
+        checkNoErrors();
+
+        // a wrong parameter count fails on its own without failing their neighbours
+        final Queue<Byte> statuses = new ConcurrentLinkedQueue<Byte>();
+        for (int id = 0; id < 200; id++) {
+            m_client.callProcedure(new ExpectLong("GetP(" + id + ")", (long) id * 2), "GetP", id);
+            if (id % 50 == 25) {
+                m_client.callProcedure(new ProcedureCallback() {
+                    @Override
+                    public void clientCallback(ClientResponse response) {
+                        statuses.add(response.getStatus());
+                    }
+                }, "GetP", id, id);
+            }
+        }
+        checkNoErrors();
+        assertEquals(4, statuses.size());
+        for (byte status : statuses) {
+            assertEquals(ClientResponse.GRACEFUL_FAILURE, status);
+        }
+    }
+
+    public void testOrderingAroundWrites() throws Exception {
+        long writes = 0;
+        for (int i = 0; i < 5000; i++) {
+            if (i % 7 == 3) {
+                m_client.callProcedure(new NullCheck(), "IncrC", 1);
+                writes++;
+            } else {
+                m_client.callProcedure(new ExpectLong("GetC after " + writes + " writes", writes), "GetC", 1);
+            }
+        }
+        checkNoErrors();
+        assertEquals(writes, m_client.callProcedure("GetC", 1).getResults()[0].asScalarLong());
+    }
+
+    private long averageTime(VoltTable stats, String procedure) {
+        stats.resetRowPosition();
+        while (stats.advanceRow()) {
+            if (stats.getString("PROCEDURE").endsWith(procedure)) {
+                assertTrue(stats.getLong("TIMED_INVOCATIONS") > 0);
+                return stats.getLong("AVG_EXECUTION_TIME");
+            }
+        }
+        fail("No statistics for " + procedure);
+        return -1;
+    }
+
+    private void scansAndPoints() throws Exception {
+        long sum = 0;
+        for (int id = 0; id < ROWS; id++) {
+            if (id * 3L * 2 + id > 7) {
+                sum += id * 2L;
+            }
+        }
+        for (int i = 0; i < 100; i++) {
+            m_client.callProcedure(new ExpectLong("ScanP", sum), "ScanP", 0);
+            for (int j = 0; j < 40; j++) {
+                int id = (i * 40 + j) % ROWS;
+                m_client.callProcedure(new ExpectLong("GetP(" + id + ")", (long) id * 2), "GetP", id);
+            }
+        }
+        checkNoErrors();
+    }
+
+    public void testStats() throws Exception {
+        // warm up, then only look at the statistics of the second round
+        scansAndPoints();
+        m_client.callProcedure("@Statistics", "PROCEDURE", 1);
+        scansAndPoints();
+        VoltTable stats = m_client.callProcedure("@Statistics", "PROCEDURE", 1).getResults()[0];
+
+        // the point reads share batches with the scans, but aren't charged for them
+        long scan = averageTime(stats, "ScanP");
+        long point = averageTime(stats, "GetP");
+        assertTrue("point read " + point + "ns vs scan " + scan + "ns", point * 10 < scan);
+    }
+}
@@ -88,6 +88,20 @@ public class TestTransactionTaskQueue extends TestCase
         return task;
     }
 
+    // Create the first fragment of a read-only MP txn
+    private FragmentTask createReadFrag(long localTxnId, long mpTxnId,
+                                        TransactionTaskQueue queue)
+    {
+        FragmentTaskMessage msg = mock(FragmentTaskMessage.class);
+        when(msg.getTxnId()).thenReturn(mpTxnId);
+        when(msg.isReadOnly()).thenReturn(true);
+        InitiatorMailbox mbox = mock(InitiatorMailbox.class);
+        when(mbox.getHSId()).thenReturn(1337l);
+        ParticipantTransactionState pft =
+            new ParticipantTransactionState(localTxnId, msg);
+        return new FragmentTask(mbox, pft, queue, msg, null);
+    }
+
     // Create follow-on fragments of an MP txn
     private FragmentTask createFrag(TransactionState txn, long mpTxnId,
                                     TransactionTaskQueue queue)
@@ -196,4 +210,105 @@ public class TestTransactionTaskQueue extends TestCase
             assertEquals(expected.getTxnId(), next_poll.getTxnId());
         }
     }
+
+    @Test
+    public void testPipelinedMpReads() throws InterruptedException
+    {
+        long localTxnId = 0;
+        long mpTxnId = 0;
+        SiteTaskerQueue task_queue = getSiteTaskerQueue();
+        TransactionTaskQueue dut = new TransactionTaskQueue(task_queue,localTxnId,true);
+        Deque<TransactionTask> expected_order =
+            new ArrayDeque<TransactionTask>();
+
+        // first read blocks the queue
+        TransactionTask read1 = createReadFrag(localTxnId++, mpTxnId++, dut);
+        addTask(read1, dut, expected_order);
+        assertEquals(1, dut.size());
+
+        // second read runs alongside it
+        TransactionTask read2 = createReadFrag(localTxnId++, mpTxnId++, dut);
+        addTask(read2, dut, expected_order);
+        assertEquals(1, dut.size());
+
+        // follow-on work for the second read isn't held up either
+        TransactionTask next = createFrag(read2.getTransactionState(), read2.getTxnId(), dut);
+        addTask(next, dut, expected_order);
+        assertEquals(1, dut.size());
+
+        // a single part waits for both reads, and a read behind it waits too
+        ArrayDeque<TransactionTask> blocked = new ArrayDeque<TransactionTask>();
+        next = createSpProc(localTxnId++, dut);
+        addTask(next, dut, blocked);
+        TransactionTask read3 = createReadFrag(localTxnId++, mpTxnId++, dut);
+        addTask(read3, dut, blocked);
+        assertEquals(3, dut.size());
+
+        // the first read finishing leaves the second one blocking
+        read1.getTransactionState().setDone();
+        assertEquals(0, dut.flush(read1.getTxnId()));
+        assertEquals(3, dut.size());
+
+        // the second read finishing releases the rest
+        read2.getTransactionState().setDone();
+        assertEquals(2, dut.flush(read2.getTxnId()));
+        assertEquals(1, dut.size());
+        expected_order.addAll(blocked);
+
+        // the next read starts right away again
+        TransactionTask read4 = createReadFrag(localTxnId++, mpTxnId++, dut);
+        addTask(read4, dut, expected_order);
+        assertEquals(1, dut.size());
+
+        // but a write waits
+        next = createFrag(localTxnId++, mpTxnId++, dut);
+        dut.offer(next);
+        assertEquals(2, dut.size());
+
+        while (!expected_order.isEmpty())
+        {
+            TransactionTask next_poll = (TransactionTask)task_queue.take();
+            TransactionTask expected = expected_order.removeFirst();
+            assertEquals(expected.getSpHandle(), next_poll.getSpHandle());
+            assertEquals(expected.getTxnId(), next_poll.getTxnId());
+        }
+        assertNull(task_queue.poll());
+    }
+
+    @Test
+    public void testMpReadsSerializedByDefault() throws InterruptedException
+    {
+        long localTxnId = 0;
+        long mpTxnId = 0;
+        SiteTaskerQueue task_queue = getSiteTaskerQueue();
+        TransactionTaskQueue dut = new TransactionTaskQueue(task_queue,localTxnId);
+        Deque<TransactionTask> expected_order =
+            new ArrayDeque<TransactionTask>();
+
+        // first read blocks the queue
+        TransactionTask read1 = createReadFrag(localTxnId++, mpTxnId++, dut);
+        addTask(read1, dut, expected_order);
+        assertEquals(1, dut.size());
+
+        // second read waits behind it like any other multi-part
+        ArrayDeque<TransactionTask> blocked = new ArrayDeque<TransactionTask>();
+        TransactionTask read2 = createReadFrag(localTxnId++, mpTxnId++, dut);
+        addTask(read2, dut, blocked);
+        assertEquals(2, dut.size());
+
+        // the first read finishing releases the second one, which now blocks
+        read1.getTransactionState().setDone();
+        assertEquals(1, dut.flush(read1.getTxnId()));
+        assertEquals(1, dut.size());
+        expected_order.addAll(blocked);
+
+        while (!expected_order.isEmpty())
+        {
+            TransactionTask next_poll = (TransactionTask)task_queue.take();
+            TransactionTask expected = expected_order.removeFirst();
+            assertEquals(expected.getSpHandle(), next_poll.getSpHandle());
+            assertEquals(expected.getTxnId(), next_poll.getTxnId());
+        }
+        assertNull(task_queue.poll());
+    }
 }
@@ -147,6 +147,46 @@ public class TestExecutionEngine extends TestCase {
         assertEquals(1000, sourceEngine.serializeTable(STOCK_TABLEID).getRowCount());
     }
 
+    public void testBulkLoadTable() throws Exception {
+        sourceEngine.loadCatalog( 0, m_catalog.serialize());
+
+        int WAREHOUSE_TABLEID = warehouseTableId(m_catalog);
+        VoltTable warehousedata[] = new VoltTable[2];
+        for (int chunk = 0; chunk < 2; chunk++) {
+            warehousedata[chunk] = new VoltTable(
+                    new VoltTable.ColumnInfo("W_ID", VoltType.SMALLINT),
+                    new VoltTable.ColumnInfo("W_NAME", VoltType.STRING),
+                    new VoltTable.ColumnInfo("W_STREET_1", VoltType.STRING),
+                    new VoltTable.ColumnInfo("W_STREET_2", VoltType.STRING),
+                    new VoltTable.ColumnInfo("W_CITY", VoltType.STRING),
+                    new VoltTable.ColumnInfo("W_STATE", VoltType.STRING),
+                    new VoltTable.ColumnInfo("W_ZIP", VoltType.STRING),
+                    new VoltTable.ColumnInfo("W_TAX", VoltType.FLOAT),
+                    new VoltTable.ColumnInfo("W_YTD", VoltType.FLOAT)
+            );
+            for (int i = chunk * 100; i < (chunk + 1) * 100; ++i) {
+                warehousedata[chunk].addRow(i, "name" + i, "st1", "st2", "city", "ST", "zip", 0, 0);
+            }
+        }
+
+        // the first chunk comes from a direct buffer, the second from the heap
+        ByteBuffer heap = PrivateVoltTableFactory.getTableDataReference(warehousedata[0]);
+        ByteBuffer direct = ByteBuffer.allocateDirect(heap.remaining() + 16);
+        direct.position(16);
+        direct.put(heap);
+        direct.position(16);
+        sourceEngine.bulkLoadTable(WAREHOUSE_TABLEID, direct);
+        sourceEngine.bulkLoadTable(WAREHOUSE_TABLEID,
+                PrivateVoltTableFactory.getTableDataReference(warehousedata[1]));
+        sourceEngine.finishBulkLoad(WAREHOUSE_TABLEID);
+        assertEquals(200, sourceEngine.serializeTable(WAREHOUSE_TABLEID).getRowCount());
+
+        // the primary key index was built, loading the rows again finds every one of them
+        byte results[] = sourceEngine.loadTable(WAREHOUSE_TABLEID, warehousedata[1], 0, 0, 0, 0, true, false, Long.MAX_VALUE);
+        assertNotNull(results);
+        assertEquals(100, PrivateVoltTableFactory.createVoltTableFromBuffer(ByteBuffer.wrap(results), true).getRowCount());
+    }
+
     public void testStreamTables() throws Exception {
         sourceEngine.loadCatalog( 0, m_catalog.serialize());
 
@@ -263,6 +303,30 @@ public class TestExecutionEngine extends TestCase {
         }
     }
 
+    public void testGetPooledStats() throws Exception {
+        sourceEngine.loadCatalog( 0, m_catalog.serialize());
+
+        final int locators[] = new int[] { warehouseTableId(m_catalog), stockTableId(m_catalog) };
+        final VoltTable heapResults[] = sourceEngine.getStats(StatsSelector.TABLE, locators, false, 0L);
+        final long heapAllocations = sourceEngine.m_resultHeapAllocations;
+        assertTrue(heapAllocations > 0);
+
+        for (int i = 0; i < 10; i++) {
+            final PooledVoltTables pooled = sourceEngine.getPooledStats(StatsSelector.TABLE, locators, false, 0L);
+            assertNotNull(pooled);
+            assertEquals(1, pooled.getTables().length);
+            final VoltTable resultTable = pooled.getTables()[0];
+            assertEquals(heapResults[0].getRowCount(), resultTable.getRowCount());
+            while (resultTable.advanceRow()) {
+                String tn = resultTable.getString("TABLE_NAME");
+                assertTrue(tn.equals("WAREHOUSE") || tn.equals("STOCK"));
+            }
+            pooled.discard();
+        }
+        // none of the pooled calls copied a table to the heap
+        assertEquals(heapAllocations, sourceEngine.m_resultHeapAllocations);
+    }
+
     public void testStreamIndex() throws Exception {
         sourceEngine.loadCatalog( 0, m_catalog.serialize());
 
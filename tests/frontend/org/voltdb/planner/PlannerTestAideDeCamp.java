@@ -40,6 +40,7 @@ import org.voltdb.catalog.StmtParameter;
 import org.voltdb.compiler.DatabaseEstimates;
 import org.voltdb.compiler.DeterminismMode;
 import org.voltdb.compiler.StatementCompiler;
+import org.voltdb.compiler.TableStatisticsRepository;
 import org.voltdb.compiler.VoltCompiler;
 import org.voltdb.compiler.VoltCompiler.DdlProceduresToLoad;
 import org.voltdb.expressions.ParameterValueExpression;
@@ -134,6 +135,7 @@ public class PlannerTestAideDeCamp {
         String name = catalogStmt.getParent().getTypeName() + "-" + catalogStmt.getTypeName();
 
         DatabaseEstimates estimates = new DatabaseEstimates();
+        TableStatisticsRepository.populateEstimates(estimates, db);
         TrivialCostModel costModel = new TrivialCostModel();
         StatementPartitioning partitioning;
         if (inferPartitioning) {
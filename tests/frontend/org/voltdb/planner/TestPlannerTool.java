@@ -25,6 +25,12 @@ package org.voltdb.planner;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import junit.framework.TestCase;
 
@@ -132,6 +138,77 @@ public class TestPlannerTool extends TestCase {
         System.out.println(result);
     }
 
+    /**
+     * Several PlannerTools for the same catalog, one per thread, must produce
+     * the same plans as a single PlannerTool does. The planner's statement,
+     * parameter and plan node id counters are per thread.
+     */
+    public void testConcurrentPlanning() throws Exception {
+        TPCCProjectBuilder builder = new TPCCProjectBuilder();
+        builder.addAllDefaults();
+        final File jar = new File("tpcc-concurrent-oop.jar");
+        jar.deleteOnExit();
+        builder.compile("tpcc-concurrent-oop.jar");
+
+        byte[] bytes = MiscUtils.fileToBytes(jar);
+        String serializedCatalog = CatalogUtil.getSerializedCatalogStringFromJar(CatalogUtil.loadAndUpgradeCatalogFromJar(bytes).getFirst());
+        Catalog catalog = new Catalog();
+        catalog.execute(serializedCatalog);
+        final CatalogContext context = new CatalogContext(0, 0, catalog, bytes, new byte[] {}, 0);
+
+        final String[] queries = new String[] {
+            "select * from WAREHOUSE, DISTRICT where WAREHOUSE.W_ID = DISTRICT.D_W_ID and WAREHOUSE.W_ID = 3;",
+            "select C_ID from CUSTOMER where C_W_ID in (select W_ID from WAREHOUSE where W_TAX > 0.5);",
+            "select O_ID from ORDERS where O_C_ID = 7 union select NO_O_ID from NEW_ORDER where NO_W_ID = 7;",
+            "select OL_I_ID, count(*) from ORDER_LINE where OL_W_ID = 1 group by OL_I_ID order by 2 desc limit 10;"
+        };
+
+        final List<String> expected = new ArrayList<String>();
+        PlannerTool single = new PlannerTool(context.cluster, context.database, context.getCatalogHash());
+        for (String query : queries) {
+            expected.add(planJSON(single, query));
+        }
+
+        final int threads = 4;
+        ExecutorService es = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<String>>> results = new ArrayList<Future<List<String>>>();
+            for (int t = 0; t < threads; t++) {
+                results.add(es.submit(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() throws Exception {
+                        PlannerTool ptool = new PlannerTool(context.cluster, context.database, context.getCatalogHash());
+                        List<String> plans = new ArrayList<String>();
+                        for (int i = 0; i < 25; i++) {
+                            for (String query : queries) {
+                                plans.add(planJSON(ptool, query));
+                            }
+                        }
+                        return plans;
+                    }
+                }));
+            }
+            for (Future<List<String>> result : results) {
+                List<String> plans = result.get();
+                for (int i = 0; i < plans.size(); i++) {
+                    assertEquals(expected.get(i % queries.length), plans.get(i));
+                }
+            }
+        }
+        finally {
+            es.shutdownNow();
+        }
+    }
+
+    private static String planJSON(PlannerTool ptool, String sql) {
+        CompiledPlan plan = ptool.planSqlCore(sql, StatementPartitioning.forceSP());
+        String json = plan.rootPlanGraph.toJSONString();
+        if (plan.subPlanGraph != null) {
+            json += plan.subPlanGraph.toJSONString();
+        }
+        return json;
+    }
+
     public void testBadDDL() throws IOException
     {
         // semicolons in in-lined comments are bad
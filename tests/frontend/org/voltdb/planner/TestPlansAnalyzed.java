@@ -0,0 +1,228 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2016 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.planner;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.voltdb.VoltTable;
+import org.voltdb.catalog.Table;
+import org.voltdb.compiler.TableStatisticsRepository;
+import org.voltdb.plannodes.AbstractJoinPlanNode;
+import org.voltdb.plannodes.AbstractPlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
+import org.voltdb.plannodes.IndexScanPlanNode;
+import org.voltdb.plannodes.NestLoopIndexPlanNode;
+import org.voltdb.plannodes.SeqScanPlanNode;
+import org.voltdb.types.PlanNodeType;
+
+/**
+ * Plans chosen with the table statistics measured by @Analyze.
+ */
+public class TestPlansAnalyzed extends PlannerTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        setupSchema(TestPlansAnalyzed.class.getResource("testplans-analyze-ddl.sql"), "testanalyze", false);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TableStatisticsRepository.clear();
+        super.tearDown();
+    }
+
+    /**
+     * Publish statistics for the given tables, and for every other table of
+     * the schema statistics of a small table, as @Analyze of each of them would.
+     * @param stats alternating table name, tuple count, column name, distinct values
+     */
+    private void analyze(Object... stats) {
+        analyzeOnly(stats);
+        for (Table table : getDatabase().getTables()) {
+            if ( ! contains(stats, table.getTypeName())) {
+                analyzeOnly(table.getTypeName(), 1000L, null, null);
+            }
+        }
+    }
+
+    /**
+     * Publish statistics for the given tables only.
+     * @param stats alternating table name, tuple count, column name, distinct values
+     */
+    private void analyzeOnly(Object... stats) {
+        Map<String, VoltTable> tables = new LinkedHashMap<String, VoltTable>();
+        for (int i = 0; i < stats.length; i += 4) {
+            VoltTable table = tables.get(stats[i]);
+            if (table == null) {
+                table = new VoltTable(TableStatisticsRepository.SCHEMA);
+                table.addRow(stats[i], null, stats[i + 1], null);
+                tables.put((String) stats[i], table);
+            }
+            if (stats[i + 2] != null) {
+                table.addRow(stats[i], stats[i + 2], stats[i + 1], stats[i + 3]);
+            }
+        }
+        for (Map.Entry<String, VoltTable> entry : tables.entrySet()) {
+            String signature = getDatabase().getTables().get(entry.getKey()).getSignature();
+            TableStatisticsRepository.update(signature, entry.getValue());
+        }
+    }
+
+    private static boolean contains(Object[] stats, String tableName) {
+        for (int i = 0; i < stats.length; i += 4) {
+            if (stats[i].equals(tableName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long getScannedTupleCount(String sql) {
+        AbstractPlanNode pn = compile(sql);
+        List<AbstractPlanNode> scans = pn.findAllNodesOfType(PlanNodeType.SEQSCAN);
+        assertEquals(1, scans.size());
+        return scans.get(0).getEstimatedOutputTupleCount();
+    }
+
+    private String getOuterTable(String sql) {
+        AbstractPlanNode pn = compile(sql);
+        List<AbstractPlanNode> joins = pn.findAllNodesOfType(PlanNodeType.NESTLOOPINDEX);
+        assertEquals(1, joins.size());
+        NestLoopIndexPlanNode join = (NestLoopIndexPlanNode) joins.get(0);
+        return ((SeqScanPlanNode) join.getChild(0)).getTargetTableName();
+    }
+
+    private AbstractPlanNode getJoin(String sql, PlanNodeType type) {
+        AbstractPlanNode pn = compile(sql);
+        List<AbstractPlanNode> joins = pn.findAllNodesOfType(type);
+        assertEquals(1, joins.size());
+        return joins.get(0);
+    }
+
+    private String getScannedIndex(String sql) {
+        AbstractPlanNode pn = compile(sql);
+        List<AbstractPlanNode> scans = pn.findAllNodesOfType(PlanNodeType.INDEXSCAN);
+        assertEquals(1, scans.size());
+        return ((IndexScanPlanNode) scans.get(0)).getTargetIndexName();
+    }
+
+    public void testJoinOrderFollowsTableSizes() {
+        final String sql = "SELECT * FROM R1, R2 WHERE R1.V = R2.V";
+
+        // the small table drives the lookups into the big one
+        analyze("R1", 100L, "V", 100L,
+                "R2", 1000000L, "V", 1000L);
+        assertEquals("R1", getOuterTable(sql));
+
+        analyze("R1", 1000000L, "V", 1000L,
+                "R2", 100L, "V", 100L);
+        assertEquals("R2", getOuterTable(sql));
+    }
+
+    public void testIndexFollowsDistinctValues() {
+        final String sql = "SELECT * FROM R3 WHERE A = ? AND B = ?";
+
+        // A only has two values, so the index on B narrows the scan far more
+        analyze("R3", 1000000L, "A", 2L,
+                "R3", 1000000L, "B", 100000L);
+        assertEquals("R3_B", getScannedIndex(sql));
+
+        analyze("R3", 1000000L, "A", 100000L,
+                "R3", 1000000L, "B", 2L);
+        assertEquals("R3_A", getScannedIndex(sql));
+    }
+
+    public void testHashJoinFollowsDistinctValues() {
+        final String sql = "SELECT * FROM R1, R2 WHERE R1.ID = R2.ID";
+
+        analyze("R1", 1000L, "ID", 1000L,
+                "R2", 100000L, "ID", 500L);
+        HashJoinPlanNode join = (HashJoinPlanNode) getJoin(sql, PlanNodeType.HASHJOIN);
+        // the hash table is built on the small table
+        assertEquals("R1", ((SeqScanPlanNode) join.getChild(1)).getTargetTableName());
+        // every R2 row matches one of the 1000 IDs of R1
+        long outer = join.getChild(0).getEstimatedOutputTupleCount();
+        long inner = join.getChild(1).getEstimatedOutputTupleCount();
+        assertEquals(outer * inner / 1000, join.getEstimatedOutputTupleCount());
+        assertEquals(inner + outer / 2 + join.getEstimatedOutputTupleCount(),
+                     join.getEstimatedProcessedTupleCount());
+
+        // a key with fewer distinct values matches more pairs
+        analyze("R1", 1000L, "ID", 10L,
+                "R2", 100000L, "ID", 5L);
+        join = (HashJoinPlanNode) getJoin(sql, PlanNodeType.HASHJOIN);
+        outer = join.getChild(0).getEstimatedOutputTupleCount();
+        inner = join.getChild(1).getEstimatedOutputTupleCount();
+        assertEquals(outer * inner / 10, join.getEstimatedOutputTupleCount());
+    }
+
+    public void testJoinEstimatesSaturate() {
+        // each product of the two tables is far beyond a long
+        analyze("R1", 4000000000000000000L, "ID", 1L,
+                "R1", 4000000000000000000L, "V", 1L,
+                "R2", 4000000000000000000L, "ID", 1L,
+                "R2", 4000000000000000000L, "V", 1L);
+
+        // a wrapped estimate would make these look cheap, whatever the join picked
+        final String[] sqls = {
+            "SELECT * FROM R1, R2",
+            "SELECT * FROM R1, R2 WHERE R1.V = R2.V",
+            "SELECT * FROM R1, R2 WHERE R1.ID = R2.ID"
+        };
+        for (String sql : sqls) {
+            List<AbstractPlanNode> joins = compile(sql).findAllNodesOfClass(AbstractJoinPlanNode.class);
+            assertEquals(1, joins.size());
+            assertEquals(sql, Long.MAX_VALUE, joins.get(0).getEstimatedOutputTupleCount());
+            assertEquals(sql, Long.MAX_VALUE, joins.get(0).getEstimatedProcessedTupleCount());
+        }
+    }
+
+    public void testStatisticsNeedEveryTable() {
+        final String sql = "SELECT * FROM R1";
+        final long defaultTupleCount = getScannedTupleCount(sql);
+
+        // R3 has not been analyzed, so the measured sizes are not used at all
+        analyzeOnly("R1", 100L, "V", 100L,
+                    "R2", 1000000L, "V", 1000L);
+        assertEquals(defaultTupleCount, getScannedTupleCount(sql));
+
+        analyzeOnly("R3", 1000L, "A", 10L);
+        assertEquals(100, getScannedTupleCount(sql));
+    }
+
+    public void testStatisticsOfChangedTableAreIgnored() {
+        final String sql = "SELECT * FROM R1";
+        final long defaultTupleCount = getScannedTupleCount(sql);
+        analyze("R1", 100L, "V", 100L);
+        assertEquals(100, getScannedTupleCount(sql));
+
+        // statistics measured on an earlier definition of R1
+        VoltTable table = new VoltTable(TableStatisticsRepository.SCHEMA);
+        table.addRow("R1", null, 100L, null);
+        TableStatisticsRepository.update("R1|old-signature", table);
+        assertEquals(defaultTupleCount, getScannedTupleCount(sql));
+    }
+}
@@ -33,10 +33,12 @@ import org.voltdb.expressions.ComparisonExpression;
 import org.voltdb.expressions.ConstantValueExpression;
 import org.voltdb.expressions.ParameterValueExpression;
 import org.voltdb.expressions.TupleValueExpression;
+import org.voltdb.plannodes.AbstractJoinPlanNode;
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.AbstractScanPlanNode;
 import org.voltdb.plannodes.AggregatePlanNode;
 import org.voltdb.plannodes.HashAggregatePlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.MergeReceivePlanNode;
 import org.voltdb.plannodes.NestLoopIndexPlanNode;
@@ -357,7 +359,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = pn.getChild(0);
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
+        assertTrue(nlpn instanceof HashJoinPlanNode);
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "T1", "A");
         pn = pn.getChild(0);
@@ -430,12 +432,13 @@ public class TestPlansSubQueries extends PlannerTestCase {
         assertTrue(pn instanceof SendPlanNode);
         //* enable to debug */ System.out.println(pn.toExplainPlanString());
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        pn = nlpn.getChild(0);
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        // the hash table is built on the smaller subquery result
+        pn = nlpn.getChild(1);
         checkSeqScan(pn, "T1", "A");
         pn = pn.getChild(0);
         checkSeqScan(pn, "R1", "A");
-        pn = nlpn.getChild(1);
+        pn = nlpn.getChild(0);
         assertTrue(pn instanceof AbstractScanPlanNode);
 
 
@@ -453,7 +456,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         assertTrue(pn instanceof SendPlanNode);
 
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
+        assertTrue(nlpn instanceof HashJoinPlanNode);
 
         pn = nlpn.getChild(1);
         checkSeqScan(pn, "T1", "A");
@@ -739,10 +742,10 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(0).getChild(0);
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        pn = nlpn.getChild(1);
-        checkSeqScan(pn, "R1");
+        assertTrue(nlpn instanceof HashJoinPlanNode);
         pn = nlpn.getChild(0);
+        checkSeqScan(pn, "R1");
+        pn = nlpn.getChild(1);
         checkSeqScan(pn, "T1", "C", "SD");
         assertNotNull(pn.getInlinePlanNode(PlanNodeType.PROJECTION));
         pn = pn.getChild(0);
@@ -1069,7 +1072,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
         assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.INNER, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertEquals(JoinType.INNER, ((AbstractJoinPlanNode) nlpn).getJoinType());
         pn = nlpn.getChild(0);
         checkPrimaryKeyIndexScan(pn, "SR4");
         pn = nlpn.getChild(1);
@@ -1212,7 +1215,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
         assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.INNER, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertEquals(JoinType.INNER, ((AbstractJoinPlanNode) nlpn).getJoinType());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "T1");
         assertNotNull(pn.getInlinePlanNode(PlanNodeType.PROJECTION));
@@ -1236,7 +1239,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
         assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.INNER, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertEquals(JoinType.INNER, ((AbstractJoinPlanNode) nlpn).getJoinType());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "T1");
         assertNotNull(pn.getInlinePlanNode(PlanNodeType.PROJECTION));
@@ -1261,7 +1264,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
         assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.INNER, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertEquals(JoinType.INNER, ((AbstractJoinPlanNode) nlpn).getJoinType());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "T1");
         assertNotNull(pn.getInlinePlanNode(PlanNodeType.PROJECTION));
@@ -1316,13 +1319,13 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(0).getChild(0);
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.INNER, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        assertEquals(JoinType.INNER, ((AbstractJoinPlanNode) nlpn).getJoinType());
 
-        pn = nlpn.getChild(1);
+        pn = nlpn.getChild(0);
         checkSeqScan(pn, "R1");
 
-        pn = nlpn.getChild(0);
+        pn = nlpn.getChild(1);
         checkSeqScan(pn, "T1");
         assertNotNull(pn.getInlinePlanNode(PlanNodeType.PROJECTION));
         pn = pn.getChild(0);
@@ -1382,15 +1385,18 @@ public class TestPlansSubQueries extends PlannerTestCase {
         }
     }
 
-    private void checkPushedDownJoins(int nestLoopCount, String joinQuery) {
+    private void checkPushedDownJoins(int joinCount, String joinQuery) {
         List<AbstractPlanNode> planNodes = compileToFragments(joinQuery);
         assertEquals(2, planNodes.size());
         //* enable to debug */ System.out.println(planNodes.get(0).toExplainPlanString());
         checkJoinNode(planNodes.get(0), PlanNodeType.NESTLOOP, 0);
         checkJoinNode(planNodes.get(0), PlanNodeType.NESTLOOPINDEX, 0);
-        // Join on distributed node
+        checkJoinNode(planNodes.get(0), PlanNodeType.HASHJOIN, 0);
+        // Join on distributed node, the equi-joins of scans are hash joins
         //* enable to debug */ System.out.println(planNodes.get(1).toExplainPlanString());
-        checkJoinNode(planNodes.get(1), PlanNodeType.NESTLOOP, nestLoopCount);
+        assertEquals(joinCount,
+                planNodes.get(1).findAllNodesOfType(PlanNodeType.NESTLOOP).size() +
+                planNodes.get(1).findAllNodesOfType(PlanNodeType.HASHJOIN).size());
     }
 
     public void testPartitionedLimitOffset() {
@@ -1411,7 +1417,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
         assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.INNER, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertEquals(JoinType.INNER, ((AbstractJoinPlanNode) nlpn).getJoinType());
         pn = nlpn.getChild(0);
         checkPrimaryKeyIndexScan(pn, "SR4");
         pn = nlpn.getChild(1);
@@ -1636,8 +1642,9 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(1).getChild(0);
         // this join can be pushed down.
         //* enable to debug */ System.out.println(pn.toExplainPlanString());
-        assertTrue(pn.toExplainPlanString().contains("LOOP INNER JOIN"));
-        pn = pn.getChild(0);
+        assertTrue(pn.toExplainPlanString().contains("HASH INNER JOIN"));
+        // The hash table is built on the subquery result.
+        pn = pn.getChild(1);
         // This is a trivial subquery result scan.
         assertTrue(pn instanceof SeqScanPlanNode);
         pn = pn.getChild(0);
@@ -1708,7 +1715,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
 
         assertTrue(planNodes.get(1).toExplainPlanString().contains("AGGREGATION"));
         assertTrue(planNodes.get(1).toExplainPlanString().contains("INDEX INNER JOIN"));
-        assertTrue(planNodes.get(1).toExplainPlanString().contains("LOOP INNER JOIN"));
+        assertTrue(planNodes.get(1).toExplainPlanString().contains("HASH INNER JOIN"));
 
         // Distinct without GROUP BY
         String sql1, sql2;
@@ -1739,7 +1746,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
 
         assertTrue(planNodes.get(1).toExplainPlanString().contains("AGGREGATION"));
         assertTrue(planNodes.get(1).toExplainPlanString().contains("INDEX INNER JOIN"));
-        assertTrue(planNodes.get(1).toExplainPlanString().contains("LOOP INNER JOIN"));
+        assertTrue(planNodes.get(1).toExplainPlanString().contains("HASH INNER JOIN"));
 
         failToCompile(
                 "SELECT * FROM (SELECT DISTINCT A FROM P1 GROUP BY A, C) T1, P2 " +
@@ -1820,7 +1827,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         assertTrue(pn instanceof ProjectionPlanNode);
 
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
+        assertTrue(nlpn instanceof HashJoinPlanNode);
         assertEquals(2, nlpn.getChildCount());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "T1",  "A");
@@ -1839,7 +1846,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         assertTrue(pn instanceof ProjectionPlanNode);
 
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
+        assertTrue(nlpn instanceof HashJoinPlanNode);
         assertEquals(2, nlpn.getChildCount());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "T1",  "A");
@@ -1863,8 +1870,8 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(0).getChild(0);
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.LEFT, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        assertEquals(JoinType.LEFT, ((AbstractJoinPlanNode) nlpn).getJoinType());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "R1", "A", "C");
         pn = nlpn.getChild(1);
@@ -1880,8 +1887,8 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(0).getChild(0);
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.LEFT, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        assertEquals(JoinType.LEFT, ((AbstractJoinPlanNode) nlpn).getJoinType());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "R1", "A", "C");
         pn = nlpn.getChild(1);
@@ -1903,8 +1910,8 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(0).getChild(0);
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.LEFT, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        assertEquals(JoinType.LEFT, ((AbstractJoinPlanNode) nlpn).getJoinType());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "R1", "A", "C");
         pn = nlpn.getChild(1);
@@ -1931,8 +1938,8 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(1);
         assertTrue(pn instanceof SendPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.LEFT, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        assertEquals(JoinType.LEFT, ((AbstractJoinPlanNode) nlpn).getJoinType());
 
         pn = nlpn.getChild(0);
         checkPrimaryKeyIndexScan(pn, "P1");
@@ -1956,8 +1963,8 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(1);
         assertTrue(pn instanceof SendPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.LEFT, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        assertEquals(JoinType.LEFT, ((AbstractJoinPlanNode) nlpn).getJoinType());
 
         pn = nlpn.getChild(1);
         checkSeqScan(pn, "R1", "A", "C");
@@ -2004,8 +2011,8 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(1);
         assertTrue(pn instanceof SendPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.INNER, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        assertEquals(JoinType.INNER, ((AbstractJoinPlanNode) nlpn).getJoinType());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "R1", "A", "C");
         pn = nlpn.getChild(1);
@@ -2027,8 +2034,8 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(1);
         assertTrue(pn instanceof SendPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.INNER, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        assertEquals(JoinType.INNER, ((AbstractJoinPlanNode) nlpn).getJoinType());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "T1", "A");
         pn = pn.getChild(0);
@@ -2051,7 +2058,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = pn.getChild(0);
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
+        assertTrue(nlpn instanceof HashJoinPlanNode);
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "T1", "A");
         pn = pn.getChild(0);
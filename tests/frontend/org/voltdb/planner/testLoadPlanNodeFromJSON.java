@@ -63,6 +63,11 @@ public class testLoadPlanNodeFromJSON extends PlannerTestCase {
 
     }
 
+    public void testLoadHashJoinPlan() throws JSONException {
+        testLoadQueryPlanTree("select l.id, t.a from l, t where l.id = t.c and l.a + 1 = t.d;");
+        testLoadQueryPlanTree("select l.id, t.a from l left join t on l.id = t.c;");
+    }
+
     public void testLoadQueryPlanTree(String sql) throws JSONException {
         AbstractPlanNode pn = compile(sql);
         PlanNodeTree pnt = new PlanNodeTree(pn);
@@ -0,0 +1,18 @@
+CREATE TABLE R1 (
+	ID INTEGER NOT NULL,
+	V INTEGER NOT NULL
+);
+CREATE INDEX R1_V ON R1 (V);
+
+CREATE TABLE R2 (
+	ID INTEGER NOT NULL,
+	V INTEGER NOT NULL
+);
+CREATE INDEX R2_V ON R2 (V);
+
+CREATE TABLE R3 (
+	A INTEGER NOT NULL,
+	B INTEGER NOT NULL
+);
+CREATE INDEX R3_A ON R3 (A);
+CREATE INDEX R3_B ON R3 (B);
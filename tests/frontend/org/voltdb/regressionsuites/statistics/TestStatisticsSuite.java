@@ -329,7 +329,7 @@ public class TestStatisticsSuite extends StatisticsTestSuiteBase {
         // Based on doc, not code
         // HOST_ID, SITE_ID, and PARTITION_ID all differ.  Fixed to match
         // reality so tests would pass, but, ugh.
-        ColumnInfo[] expectedSchema = new ColumnInfo[9];
+        ColumnInfo[] expectedSchema = new ColumnInfo[10];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -339,6 +339,7 @@ public class TestStatisticsSuite extends StatisticsTestSuiteBase {
         expectedSchema[6] = new ColumnInfo("MESSAGES_READ", VoltType.BIGINT);
         expectedSchema[7] = new ColumnInfo("BYTES_WRITTEN", VoltType.BIGINT);
         expectedSchema[8] = new ColumnInfo("MESSAGES_WRITTEN", VoltType.BIGINT);
+        expectedSchema[9] = new ColumnInfo("BUSY_TIME_NANOS", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;